@@ -0,0 +1,79 @@
+package org.ebay.datameta.util.bench;
+
+import org.ebay.datameta.util.jdk.HashUtil;
+import org.ebay.datameta.util.jdk.MathUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the hash functions over the byte slices of a read buffer by the key length and the buffer type:
+ * a plain array, a heap {@link ByteBuffer} or a direct one. The keys are laid out back to back in one buffer
+ * the way they come off the wire.
+ *
+ * @author Michael Bergens
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Thread) public class ByteHashBench {
+
+    private static final int KEY_COUNT = 256;
+
+    public enum BufferType { ARRAY, HEAP, DIRECT }
+
+    @Param({"8", "32", "256", "4096"}) public int keyLength;
+
+    @Param({"ARRAY", "HEAP", "DIRECT"}) public BufferType bufferType;
+
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int index;
+
+    @Setup public void setup() {
+        array = new byte[KEY_COUNT * keyLength];
+        new Random(keyLength).nextBytes(array);
+        buffer = bufferType == BufferType.DIRECT ? ByteBuffer.allocateDirect(array.length) : ByteBuffer.allocate(array.length);
+        buffer.put(array).clear();
+    }
+
+    private int nextOffset() {
+        return (index++ & (KEY_COUNT - 1)) * keyLength;
+    }
+
+    @Benchmark public long fnvXor32() {
+        return bufferType == BufferType.ARRAY ? MathUtil.fnvHashXor32(array, nextOffset(), keyLength)
+            : MathUtil.fnvHashXor32(buffer, nextOffset(), keyLength);
+    }
+
+    @Benchmark public long fnvXor64() {
+        return bufferType == BufferType.ARRAY ? MathUtil.fnvHashXor64(array, nextOffset(), keyLength)
+            : MathUtil.fnvHashXor64(buffer, nextOffset(), keyLength);
+    }
+
+    @Benchmark public long xxHash64() {
+        return bufferType == BufferType.ARRAY ? HashUtil.xxHash64(array, nextOffset(), keyLength, 0L)
+            : HashUtil.xxHash64(buffer, nextOffset(), keyLength, 0L);
+    }
+
+    @Benchmark public long murmur3() {
+        return bufferType == BufferType.ARRAY ? HashUtil.murmur3x64_128(array, nextOffset(), keyLength, 0, null)
+            : HashUtil.murmur3x64_128(buffer, nextOffset(), keyLength, 0, null);
+    }
+
+    @Benchmark public long wyHash() {
+        return bufferType == BufferType.ARRAY ? HashUtil.wyHash(array, nextOffset(), keyLength, 0L)
+            : HashUtil.wyHash(buffer, nextOffset(), keyLength, 0L);
+    }
+}
@@ -0,0 +1,51 @@
+package org.ebay.datameta.util.bench;
+
+import org.ebay.datameta.util.jdk.HashUtil;
+import org.ebay.datameta.util.jdk.MathUtil;
+
+/**
+ * The hash functions under comparison, all over a String so they can be fed the same corpus; the 32 bit ones
+ * report the result in the lower 32 bits.
+ *
+ * @author Michael Bergens
+ */
+public enum HashFunction {
+    JDK_STRING(32) {
+        @Override public long hash(final String key) { return key.hashCode() & 0xFFFFFFFFL; }
+    },
+    JDK_STRING_SMEARED(32) {
+        @Override public long hash(final String key) { return MathUtil.hashSmear(key.hashCode()) & 0xFFFFFFFFL; }
+    },
+    FNV_MUL_32(32) {
+        @Override public long hash(final String key) { return MathUtil.fnvHashMul32(key); }
+    },
+    FNV_XOR_32(32) {
+        @Override public long hash(final String key) { return MathUtil.fnvHashXor32(key); }
+    },
+    FNV_MUL_64(64) {
+        @Override public long hash(final String key) { return MathUtil.fnvHashMul64(key); }
+    },
+    FNV_XOR_64(64) {
+        @Override public long hash(final String key) { return MathUtil.fnvHashXor64(key); }
+    },
+    XX_HASH_64(64) {
+        @Override public long hash(final String key) { return HashUtil.xxHash64(key, 0L); }
+    },
+    MURMUR3_128(64) {
+        @Override public long hash(final String key) { return HashUtil.murmur3x64_128(key, 0, null); }
+    },
+    WY_HASH(64) {
+        @Override public long hash(final String key) { return HashUtil.wyHash(key, 0L); }
+    };
+
+    private final int bits;
+
+    HashFunction(final int bits) { this.bits = bits; }
+
+    /**
+     * How many bits of the result are significant, 32 or 64.
+     */
+    public int getBits() { return bits; }
+
+    public abstract long hash(String key);
+}
@@ -0,0 +1,119 @@
+package org.ebay.datameta.util.bench;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Distribution quality of the {@link HashFunction hash functions} on the {@link IdCorpus ID corpora}, printed as
+ * a plain text table per corpus:
+ * <dl>
+ * <dt>Avalanche bias</dt><dd>for every input bit among the lower 7 of the first 8 chars, and every output bit, how far
+ * the probability of the output bit flipping when the input bit is flipped is from the ideal 1/2; scaled to
+ * {@code 0..1}: 0 is the ideal, 1 means the output bit always or never flips. Both the mean and the worst cell.</dd>
+ * <dt>Chi-square</dt><dd>the keys dropped into {@value #BUCKET_BITS} bit wide buckets by the lower bits of the hash,
+ * like a hash table does; reported as the ratio to the degrees of freedom, ~1.0 for a uniform hash, and as the
+ * z-score, within &plusmn;3 for a uniform hash.</dd>
+ * <dt>Collisions</dt><dd>how many keys share the full width hash value with another key, next to what a uniform hash
+ * of the same width would be expected to produce.</dd>
+ * </dl>
+ *
+ * <p>Run with the corpus size as the optional argument, the default is {@value #DEFAULT_CORPUS_SIZE}.</p>
+ *
+ * @author Michael Bergens
+ */
+public class HashQualityReport {
+
+    private static final int DEFAULT_CORPUS_SIZE = 1_000_000;
+    private static final int BUCKET_BITS = 16;
+    private static final int AVALANCHE_SAMPLE = 2_000;
+    private static final int AVALANCHE_CHARS = 8;
+    private static final int AVALANCHE_BITS_PER_CHAR = 7;
+    private static final long CORPUS_SEED = 20170115L;
+
+    public static void main(final String[] args) {
+        final int corpusSize = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_CORPUS_SIZE;
+        final PrintStream out = System.out;
+        for(final IdCorpus corpus : IdCorpus.values()) {
+            final String[] ids = corpus.build(corpusSize, CORPUS_SEED);
+            out.printf("%nCorpus %s, %,d keys, like \"%s\"%n", corpus, ids.length, ids[ids.length / 2]);
+            out.printf("%-20s %10s %10s %12s %10s %12s %12s%n", "function", "aval.mean", "aval.worst", "chi2/df",
+                "chi2 z", "collisions", "expected");
+            for(final HashFunction function : HashFunction.values()) {
+                final double[] avalanche = avalanche(function, ids);
+                final double[] chiSquare = chiSquare(function, ids);
+                out.printf("%-20s %10.4f %10.4f %12.3f %10.1f %,12d %12.1f%n", function, avalanche[0], avalanche[1],
+                    chiSquare[0], chiSquare[1], collisions(function, ids), expectedCollisions(ids.length, function.getBits()));
+            }
+        }
+    }
+
+    /**
+     * @return the mean and the worst avalanche bias, see the class doc.
+     */
+    static double[] avalanche(final HashFunction function, final String[] ids) {
+        final int inputBits = AVALANCHE_CHARS * AVALANCHE_BITS_PER_CHAR;
+        final int outputBits = function.getBits();
+        final long[][] flips = new long[inputBits][outputBits];
+        final long[] trials = new long[inputBits];
+        final int step = Math.max(1, ids.length / AVALANCHE_SAMPLE);
+        for(int k = 0; k < ids.length; k += step) {
+            final char[] chars = ids[k].toCharArray();
+            final long original = function.hash(ids[k]);
+            for(int pos = 0; pos < Math.min(AVALANCHE_CHARS, chars.length); pos++) {
+                for(int bit = 0; bit < AVALANCHE_BITS_PER_CHAR; bit++) {
+                    chars[pos] ^= 1 << bit;
+                    final long diff = original ^ function.hash(new String(chars));
+                    chars[pos] ^= 1 << bit;
+                    final int in = pos * AVALANCHE_BITS_PER_CHAR + bit;
+                    trials[in]++;
+                    for(int out = 0; out < outputBits; out++) flips[in][out] += (diff >>> out) & 1L;
+                }
+            }
+        }
+        double sum = 0, worst = 0;
+        int cells = 0;
+        for(int in = 0; in < inputBits; in++) {
+            if(trials[in] == 0) continue;
+            for(int out = 0; out < outputBits; out++) {
+                final double bias = Math.abs((double) flips[in][out] / trials[in] - 0.5) * 2;
+                sum += bias;
+                worst = Math.max(worst, bias);
+                cells++;
+            }
+        }
+        return new double[] {cells == 0 ? 0 : sum / cells, worst};
+    }
+
+    /**
+     * @return chi-square to the degrees of freedom ratio and the z-score of the bucket counts.
+     */
+    static double[] chiSquare(final HashFunction function, final String[] ids) {
+        final int buckets = 1 << BUCKET_BITS;
+        final int[] counts = new int[buckets];
+        for(final String id : ids) counts[(int) function.hash(id) & (buckets - 1)]++;
+        final double expected = (double) ids.length / buckets;
+        double chi2 = 0;
+        for(final int count : counts) chi2 += (count - expected) * (count - expected) / expected;
+        final int df = buckets - 1;
+        return new double[] {chi2 / df, (chi2 - df) / Math.sqrt(2.0 * df)};
+    }
+
+    /**
+     * @return how many keys hash to a value already taken by another key.
+     */
+    static int collisions(final HashFunction function, final String[] ids) {
+        final long[] hashes = new long[ids.length];
+        for(int i = 0; i < ids.length; i++) hashes[i] = function.hash(ids[i]);
+        Arrays.sort(hashes);
+        int collisions = 0;
+        for(int i = 1; i < hashes.length; i++) if(hashes[i] == hashes[i - 1]) collisions++;
+        return collisions;
+    }
+
+    /**
+     * Birthday bound: {@code n(n-1)/2} pairs, each colliding with the probability of {@code 2^-bits}.
+     */
+    static double expectedCollisions(final int n, final int bits) {
+        return (double) n * (n - 1) / 2 / Math.pow(2, bits);
+    }
+}
@@ -0,0 +1,63 @@
+package org.ebay.datameta.util.bench;
+
+import java.util.Random;
+
+/**
+ * Synthetic ID corpora shaped like the keys we actually hash: those are far from random, mostly sequential numbers
+ * and fixed prefixes, which is exactly where the weak hashes fall apart.
+ *
+ * @author Michael Bergens
+ */
+public enum IdCorpus {
+    /**
+     * Decimal sequence numbers starting from a large base, like the database IDs: {@code 100000000, 100000001, ...}
+     */
+    SEQUENTIAL {
+        @Override public String id(final int index, final Random random) {
+            return Long.toString(100_000_000L + index);
+        }
+    },
+    /**
+     * Fixed prefix followed by a zero padded sequence number: {@code item-00000000, item-00000001, ...}
+     */
+    PREFIXED {
+        @Override public String id(final int index, final Random random) {
+            final String digits = Integer.toString(index);
+            final StringBuilder sb = new StringBuilder(13).append("item-");
+            for(int i = digits.length(); i < 8; i++) sb.append('0');
+            return sb.append(digits).toString();
+        }
+    },
+    /**
+     * Random UUID-like hex strings, the easy case for any hash.
+     */
+    RANDOM_HEX {
+        @Override public String id(final int index, final Random random) {
+            return Long.toHexString(random.nextLong()) + '-' + Long.toHexString(random.nextLong());
+        }
+    };
+
+    /**
+     * The ID at the given position of the corpus; the random source is for the corpora that need one.
+     */
+    public abstract String id(int index, Random random);
+
+    /**
+     * Builds the first {@code size} IDs of the corpus, reproducible for the same seed.
+     */
+    public String[] build(final int size, final long seed) {
+        final Random random = new Random(seed);
+        final String[] ids = new String[size];
+        for(int i = 0; i < size; i++) ids[i] = id(i, random);
+        return ids;
+    }
+
+    /**
+     * Random printable ASCII key of the given length, for the throughput runs where the content does not matter.
+     */
+    public static String randomKey(final int length, final Random random) {
+        final char[] chars = new char[length];
+        for(int i = 0; i < length; i++) chars[i] = (char) (' ' + 1 + random.nextInt('~' - ' '));
+        return new String(chars);
+    }
+}
@@ -0,0 +1,73 @@
+package org.ebay.datameta.util.bench;
+
+import org.ebay.datameta.util.jdk.HashUtil;
+import org.ebay.datameta.util.jdk.MathUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the hash functions over String keys by the key length. Cycles through a set of distinct keys so
+ * that neither the JIT nor the String's own hash cache can short-circuit the work; note that the latter makes the
+ * {@link String#hashCode()} numbers here worse than what you see with a String hashed repeatedly.
+ *
+ * @author Michael Bergens
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1) @Measurement(iterations = 5, time = 1) @Fork(1)
+@State(Scope.Thread) public class StringHashBench {
+
+    private static final int KEY_COUNT = 256;
+
+    @Param({"8", "32", "256", "4096"}) public int keyLength;
+
+    private String[] keys;
+    private int index;
+
+    @Setup public void setup() {
+        final Random random = new Random(keyLength);
+        keys = new String[KEY_COUNT];
+        for(int i = 0; i < KEY_COUNT; i++) keys[i] = IdCorpus.randomKey(keyLength, random);
+    }
+
+    /**
+     * A fresh copy each time, so the String's cached hash does not kick in.
+     */
+    private String nextKey() {
+        return new String(keys[index++ & (KEY_COUNT - 1)]);
+    }
+
+    @Benchmark public int jdkHashCode() { return nextKey().hashCode(); }
+
+    @Benchmark public int jdkHashCodeSmeared() { return MathUtil.hashSmear(nextKey().hashCode()); }
+
+    @Benchmark public long fnvMul32() { return MathUtil.fnvHashMul32(nextKey()); }
+
+    @Benchmark public long fnvXor32() { return MathUtil.fnvHashXor32(nextKey()); }
+
+    @Benchmark public long fnvMul64() { return MathUtil.fnvHashMul64(nextKey()); }
+
+    @Benchmark public long fnvXor64() { return MathUtil.fnvHashXor64(nextKey()); }
+
+    @Benchmark public long xxHash64() { return HashUtil.xxHash64(nextKey(), 0L); }
+
+    @Benchmark public long murmur3() { return HashUtil.murmur3x64_128(nextKey(), 0, null); }
+
+    @Benchmark public long wyHash() { return HashUtil.wyHash(nextKey(), 0L); }
+
+    /**
+     * The cost of the key copy alone, subtract it from the others.
+     */
+    @Benchmark public String baseline() { return nextKey(); }
+}
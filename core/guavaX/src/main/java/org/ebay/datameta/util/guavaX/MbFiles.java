@@ -4,6 +4,8 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Sets;
 import com.google.common.io.LineProcessor;
 import com.google.common.io.Resources;
+import org.ebay.datameta.util.jdk.BloomFilter;
+import org.ebay.datameta.util.jdk.CuckooFilter;
 
 import java.io.IOException;
 import java.net.URL;
@@ -47,4 +49,69 @@ public class MbFiles {
         }
     }
 
+    /**
+     * Builds a {@link BloomFilter} of non-blank strings from a file or a resource where the IDs are located one at
+     * a line, same as {@link #getIdsAsSet(URL, int)} does for a Set; the filter takes a few bits per ID instead of
+     * keeping the IDs themselves.
+     *
+     * @param linesSource the source, see {@link #getIdsAsSet(URL, int)}.
+     * @param expectedSize how many IDs there are, more are fine but raise the false positive rate above the requested.
+     * @param fpp desired false positive probability, like {@code 0.01} for 1%.
+     */
+    public static BloomFilter getIdsAsBloomFilter(final URL linesSource, final long expectedSize, final double fpp) {
+        final BloomFilter filter = BloomFilter.create(expectedSize, fpp);
+        try {
+            return Resources.readLines(linesSource, Charset.defaultCharset(), new LineProcessor<BloomFilter>() {
+                @Override public boolean processLine(final String line) throws IOException {
+                    final String trimmed = line.trim();
+                    if(!isBlank(trimmed)) filter.put(trimmed);
+                    return true;
+                }
+
+                @Override public BloomFilter getResult() {
+                    return filter;
+                }
+            });
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Builds a {@link CuckooFilter} of non-blank strings from a file or a resource where the IDs are located one at
+     * a line, see {@link #getIdsAsBloomFilter(URL, long, double)}; unlike the Bloom filter, this one lets you
+     * remove the IDs later.
+     * <p>A repeated ID is only added once, so is an ID that the filter can not tell from one added before, which
+     * happens at the false positive rate; removing either of two such IDs makes the filter forget both.</p>
+     *
+     * @param linesSource the source, see {@link #getIdsAsSet(URL, int)}.
+     * @param expectedSize how many IDs there are; a lot more than that won't fit.
+     * @param fpp desired false positive probability, like {@code 0.001} for 0.1%.
+     * @throws IllegalStateException if the source has so many more IDs than expected that the filter fills up.
+     */
+    public static CuckooFilter getIdsAsCuckooFilter(final URL linesSource, final long expectedSize, final double fpp) {
+        final CuckooFilter filter = CuckooFilter.create(expectedSize, fpp);
+        final boolean allFit;
+        try {
+            allFit = Resources.readLines(linesSource, Charset.defaultCharset(), new LineProcessor<Boolean>() {
+                private boolean fits = true;
+                @Override public boolean processLine(final String line) throws IOException {
+                    final String trimmed = line.trim();
+                    if(!isBlank(trimmed) && !filter.mightContain(trimmed)) fits = filter.put(trimmed);
+                    return fits;
+                }
+
+                @Override public Boolean getResult() {
+                    return fits;
+                }
+            });
+        }
+        catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        if(!allFit) throw new IllegalStateException("Filter " + filter + " filled up reading " + linesSource
+            + ", expected size " + expectedSize + " is too low");
+        return filter;
+    }
 }
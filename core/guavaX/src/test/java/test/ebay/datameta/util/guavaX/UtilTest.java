@@ -1,6 +1,8 @@
 package test.ebay.datameta.util.guavaX;
 
 import org.ebay.datameta.util.guavaX.MbFiles;
+import org.ebay.datameta.util.jdk.BloomFilter;
+import org.ebay.datameta.util.jdk.CuckooFilter;
 import com.google.common.io.Resources;
 import org.junit.After;
 import org.junit.Before;
@@ -9,6 +11,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URL;
+import java.util.Set;
 
 import static org.junit.Assert.assertTrue;
 
@@ -29,4 +32,17 @@ public class UtilTest {
         assertTrue("As expected", true);
     }
 
+    @Test public void testFilters() throws Exception {
+        final URL source = new URL("file:./pom.xml");
+        final Set<String> ids = MbFiles.getIdsAsSet(source, 150);
+        final BloomFilter bloom = MbFiles.getIdsAsBloomFilter(source, ids.size(), 0.01);
+        final CuckooFilter cuckoo = MbFiles.getIdsAsCuckooFilter(source, ids.size(), 0.01);
+        L.info("Filters from file: {}, {}", bloom, cuckoo);
+        for(final String id : ids) {
+            assertTrue(id, bloom.mightContain(id));
+            assertTrue(id, cuckoo.mightContain(id));
+        }
+        assertTrue(cuckoo.getCount() <= ids.size());
+    }
+
 }
@@ -0,0 +1,131 @@
+package org.ebay.datameta.util.io;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The framing shared by the batch codecs: the version byte, the flags byte, the {@link Varint varint} count of the
+ * elements and the varint length of the payload, then the payload. The payload is encoded into the reusable scratch
+ * buffer and written in one go, so the {@link DataOutput} gets one call per batch rather than per byte; the length up
+ * front lets the reader pull the whole payload in with one {@link DataInput#readFully(byte[], int, int)} too, and
+ * makes the batch skippable.
+ *
+ * <p>Same bytes whether written to the {@link DataOutput} or put into the {@link ByteBuffer}.</p>
+ *
+ * @author Michael Bergens
+ */
+abstract class BatchCodec {
+
+    private static final int INITIAL_SCRATCH = 256;
+
+    private final int version;
+    private ByteBuffer scratch = ByteBuffer.allocate(INITIAL_SCRATCH);
+
+    /**
+     * The flags and the count of the batch last opened with {@link #open(DataInput)} or {@link #open(ByteBuffer)}.
+     */
+    protected int flags;
+    protected int count;
+
+    protected BatchCodec(final int version) { this.version = version; }
+
+    /**
+     * The scratch buffer cleared, to encode the payload into; call {@link #ensureRoom(int)} before each element.
+     */
+    protected final ByteBuffer startPayload() {
+        scratch.clear();
+        return scratch;
+    }
+
+    /**
+     * Makes sure the payload buffer has the room for that many bytes more, growing it if needed.
+     * @return the payload buffer, a new one if it has grown.
+     */
+    protected final ByteBuffer ensureRoom(final int bytes) {
+        if(scratch.remaining() < bytes) {
+            final long needed = (long) scratch.position() + bytes;
+            final long capacity = Math.max(needed, (long) scratch.capacity() << 1);
+            if(needed > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("The batch is too big to encode: "
+                + needed + " bytes");
+            final ByteBuffer grown = ByteBuffer.allocate((int) Math.min(Integer.MAX_VALUE - 8, capacity));
+            scratch.flip();
+            grown.put(scratch);
+            scratch = grown;
+        }
+        return scratch;
+    }
+
+    /**
+     * Writes the frame with the payload encoded into the scratch.
+     */
+    protected final void finish(final DataOutput out, final int flags, final int count) throws IOException {
+        out.writeByte(version);
+        out.writeByte(flags);
+        Varint.write(out, count);
+        Varint.write(out, scratch.position());
+        out.write(scratch.array(), 0, scratch.position());
+    }
+
+    /**
+     * Puts the frame with the payload encoded into the scratch.
+     * @throws java.nio.BufferOverflowException if the target has no room for it, then the target's position is
+     * undefined.
+     */
+    protected final void finish(final ByteBuffer target, final int flags, final int count) {
+        target.put((byte) version);
+        target.put((byte) flags);
+        Varint.put(target, count);
+        Varint.put(target, scratch.position());
+        target.put(scratch.array(), 0, scratch.position());
+    }
+
+    /**
+     * Reads the frame header into the {@link #flags} and the {@link #count}, and the payload into the scratch.
+     * @return the payload buffer positioned at its start.
+     */
+    protected final ByteBuffer open(final DataInput in) throws IOException {
+        final int length = readHeader(in.readByte(), in.readByte(), Varint.readInt(in), Varint.readInt(in));
+        scratch.clear();
+        ensureRoom(length);
+        in.readFully(scratch.array(), 0, length);
+        scratch.limit(length);
+        return scratch;
+    }
+
+    /**
+     * Reads the frame header into the {@link #flags} and the {@link #count}, moves the source past the frame.
+     * @return the view of the payload in the source.
+     */
+    protected final ByteBuffer open(final ByteBuffer source) throws IOException {
+        try {
+            final int length = readHeader(source.get(), source.get(), Varint.getInt(source), Varint.getInt(source));
+            if(length > source.remaining()) throw new IOException("The payload of " + length + " bytes is cut short at "
+                + source.remaining());
+            final ByteBuffer result = source.slice();
+            result.limit(length);
+            source.position(source.position() + length);
+            return result;
+        }
+        catch(BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed batch header", e);
+        }
+    }
+
+    /**
+     * Checks that the decoding used up exactly the payload.
+     */
+    protected static void close(final ByteBuffer payload) throws IOException {
+        if(payload.hasRemaining()) throw new IOException(payload.remaining() + " bytes left over in the payload");
+    }
+
+    private int readHeader(final int version, final int flags, final int count, final int length) throws IOException {
+        if(version != this.version) throw new IOException("Unsupported serial version of the batch: " + version);
+        if(count < 0 || length < 0) throw new IOException("Invalid batch: count " + count + ", length " + length);
+        this.flags = flags;
+        this.count = count;
+        return length;
+    }
+}
@@ -0,0 +1,127 @@
+package org.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.jdk.Api;
+import org.ebay.datameta.util.jdk.HashUtil;
+
+/**
+ * Approximate per key counts of a stream in a fixed amount of memory: the
+ * <a href="http://dimacs.rutgers.edu/~graham/pubs/papers/cm-full.pdf" target=_blank>count-min sketch</a>.
+ * The {@link #estimate(CharSequence) estimate} never undercounts; it overcounts by at most {@code epsilon} times
+ * the {@link #getTotal() total} with the probability of at least {@code 1 - delta}, both set on
+ * {@link #create(double, double) creation}.
+ *
+ * <p>Updates are conservative: only the counters below the new estimate are raised, which cuts the overcount a lot
+ * on the skewed streams, at the price of not supporting the negative increments. The key is hashed once with
+ * {@link HashUtil#xxHash64(CharSequence, long) xxHash64}, the rows are picked by double hashing, no allocation on
+ * either update or query.</p>
+ *
+ * <p>Sketches of the same dimensions {@link #merge(CountMinSketch) merge}, which keeps the no-undercount guarantee.</p>
+ *
+ * <p><b>Not thread-safe!</b> Keep one per thread, merge when done.</p>
+ *
+ * @author Michael Bergens
+ * @see SpaceSaving
+ */
+@Api public class CountMinSketch {
+
+    /**
+     * The seed for the {@link HashUtil} hashes, for feeding the {@link #addHash(long, long) hashes} directly.
+     */
+    @Api public static final long HASH_SEED = 0x0C0D_E5CE_7C40_0001L;
+
+    private final long[] table;
+    private final int depth;
+    private final int widthBits;
+    private long total;
+
+    /**
+     * Sizes the sketch for the error bounds.
+     * @param epsilon overcount bound as the fraction of the total count, like {@code 0.001}.
+     * @param delta probability of exceeding that bound, like {@code 0.01}.
+     */
+    @Api public static CountMinSketch create(final double epsilon, final double delta) {
+        if(!(epsilon > 0.0 && epsilon < 1.0)) throw new IllegalArgumentException("Epsilon must be between 0 and 1: " + epsilon);
+        if(!(delta > 0.0 && delta < 1.0)) throw new IllegalArgumentException("Delta must be between 0 and 1: " + delta);
+        final long minWidth = (long) Math.ceil(Math.E / epsilon);
+        // power of 2 so the row index is a shift away
+        final int widthBits = Long.SIZE - Long.numberOfLeadingZeros(Math.max(2, minWidth) - 1);
+        final int depth = Math.max(1, (int) Math.ceil(Math.log(1.0 / delta)));
+        return new CountMinSketch(depth, widthBits);
+    }
+
+    private CountMinSketch(final int depth, final int widthBits) {
+        if(((long) depth << widthBits) > Integer.MAX_VALUE - 8) throw new IllegalArgumentException(
+            "Too many counters for a count-min sketch: " + depth + " by 2^" + widthBits);
+        this.table = new long[depth << widthBits];
+        this.depth = depth;
+        this.widthBits = widthBits;
+    }
+
+    @Api public long add(final CharSequence key) { return addHash(HashUtil.xxHash64(key, HASH_SEED), 1L); }
+
+    @Api public long add(final CharSequence key, final long count) { return addHash(HashUtil.xxHash64(key, HASH_SEED), count); }
+
+    @Api public long add(final long key, final long count) { return addHash(HashUtil.xxHash64(key, HASH_SEED), count); }
+
+    /**
+     * Adds to the count of the key by its 64 bit hash, mixes with the keys added by value if hashed with the
+     * matching {@link HashUtil} xxHash64 overload and the {@link #HASH_SEED}.
+     * @param count non-negative increment.
+     * @return the new estimate for the key.
+     */
+    @Api public long addHash(final long hash, final long count) {
+        if(count < 0) throw new IllegalArgumentException("Conservative update does not support negative counts: " + count);
+        final long estimate = estimateHash(hash) + count;
+        long combined = hash;
+        final long step = Long.rotateLeft(hash, 32) | 1L;
+        for(int row = 0; row < depth; row++, combined += step) {
+            final int cell = (row << widthBits) | (int) (combined >>> (Long.SIZE - widthBits));
+            if(table[cell] < estimate) table[cell] = estimate;
+        }
+        total += count;
+        return estimate;
+    }
+
+    /**
+     * The estimated count of the key, never less than the actual.
+     */
+    @Api public long estimate(final CharSequence key) { return estimateHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public long estimate(final long key) { return estimateHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public long estimateHash(final long hash) {
+        long result = Long.MAX_VALUE;
+        long combined = hash;
+        final long step = Long.rotateLeft(hash, 32) | 1L;
+        for(int row = 0; row < depth; row++, combined += step) {
+            final long value = table[(row << widthBits) | (int) (combined >>> (Long.SIZE - widthBits))];
+            if(value < result) result = value;
+        }
+        return result;
+    }
+
+    /**
+     * Adds the counts of the other sketch to this one, the other does not change.
+     * @throws IllegalArgumentException if the dimensions differ.
+     */
+    @Api public CountMinSketch merge(final CountMinSketch other) {
+        if(other.depth != depth || other.widthBits != widthBits) throw new IllegalArgumentException(
+            "Can not merge count-min sketches of different dimensions: " + this + " and " + other);
+        for(int i = 0; i < table.length; i++) table[i] += other.table[i];
+        total += other.total;
+        return this;
+    }
+
+    /**
+     * Sum of all the counts added.
+     */
+    @Api public long getTotal() { return total; }
+
+    @Api public int getDepth() { return depth; }
+
+    @Api public int getWidth() { return 1 << widthBits; }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{depth=" + depth + ", width=" + getWidth() + ", total=" + total + '}';
+    }
+}
@@ -0,0 +1,371 @@
+package org.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.jdk.Api;
+import org.ebay.datameta.util.jdk.HashUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Approximate count of distinct keys in a stream, in a fixed small amount of memory: the HyperLogLog sketch with
+ * the HyperLogLog++ improvements, namely:
+ * <ul>
+ * <li>64 bit hashes, {@link HashUtil#xxHash64(CharSequence, long) xxHash64}, so there is no large range correction
+ * needed at any practical cardinality.</li>
+ * <li>Sparse mode: while the count is low, the sketch keeps only the registers actually hit, at the much higher
+ * precision of {@value #SPARSE_PRECISION} bits, which makes the small counts nearly exact and the small sketches
+ * small. Switches to the dense mode, a byte per register, once the sparse list would take more memory than that.</li>
+ * <li>No empirical bias tables: the dense estimate is the "improved" estimator of
+ * <a href="https://arxiv.org/abs/1702.01284" target=_blank>Otmar Ertl</a>, unbiased across the whole range,
+ * which is what the bias correction of HLL++ approximates with the tables.</li>
+ * </ul>
+ *
+ * <p>The standard error is about {@code 1.04/sqrt(2^precision)}: 0.81% with the default precision of
+ * {@value #DEFAULT_PRECISION} for 16KB of the dense registers.</p>
+ *
+ * <p>Sketches of the same precision {@link #merge(HyperLogLog) merge} losslessly: count the partitions in parallel,
+ * one sketch per reader, then merge for the global estimate. They {@link #writeTo(DataOutput) serialize} for
+ * merging across the processes.</p>
+ *
+ * <p><b>Not thread-safe!</b> Same as the {@link RecordTracker}, keep one per thread, merge when done.</p>
+ *
+ * @author Michael Bergens
+ */
+@Api public class HyperLogLog {
+
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 18;
+    public static final int DEFAULT_PRECISION = 14;
+
+    /**
+     * The seed for the {@link HashUtil} hashes; to feed the {@link #addHash(long) hashes} directly,
+     * use this seed for the sketches to agree.
+     */
+    @Api public static final long HASH_SEED = 0x4C4C_2B2B_0000_0001L;
+
+    static final int SPARSE_PRECISION = 25;
+
+    /**
+     * The sparse entry is the {@value #SPARSE_PRECISION} bit index followed by the 6 bit rank.
+     */
+    private static final int RANK_BITS = 6;
+    private static final int RANK_MASK = (1 << RANK_BITS) - 1;
+
+    private static final int SERIAL_VERSION = 1;
+    private static final byte MODE_SPARSE = 0;
+    private static final byte MODE_DENSE = 1;
+
+    private static final int INITIAL_SPARSE_CAPACITY = 16;
+    private static final int MAX_BUFFER = 256;
+
+    private final int precision;
+
+    /**
+     * Dense registers, null while in the sparse mode.
+     */
+    private byte[] registers;
+
+    /**
+     * Sorted sparse entries, unique by the index, with the max rank for each.
+     */
+    private int[] sparse = new int[INITIAL_SPARSE_CAPACITY];
+    private int sparseSize;
+
+    /**
+     * Sparse entries not merged into the sorted list yet.
+     */
+    private int[] buffer = new int[INITIAL_SPARSE_CAPACITY];
+    private int bufferSize;
+
+    @Api public HyperLogLog() { this(DEFAULT_PRECISION); }
+
+    /**
+     * @param precision how many bits of the hash pick the register, from {@value #MIN_PRECISION} to
+     *                  {@value #MAX_PRECISION}; the dense sketch takes {@code 2^precision} bytes.
+     */
+    @Api public HyperLogLog(final int precision) {
+        if(precision < MIN_PRECISION || precision > MAX_PRECISION) throw new IllegalArgumentException(
+            "Precision must be in the range " + MIN_PRECISION + ".." + MAX_PRECISION + ", got " + precision);
+        this.precision = precision;
+    }
+
+    @Api public void add(final CharSequence key) { addHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public void add(final byte[] key, final int offset, final int length) {
+        addHash(HashUtil.xxHash64(key, offset, length, HASH_SEED));
+    }
+
+    @Api public void add(final long key) { addHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    /**
+     * Adds a key by its 64 bit hash, must be well spread over all 64 bits, like those of {@link HashUtil};
+     * the FNV hashes won't do. Use the {@link #HASH_SEED} to mix these with the keys added by value.
+     */
+    @Api public void addHash(final long hash) {
+        if(registers != null) {
+            updateRegister(registers, (int) (hash >>> (Long.SIZE - precision)), rank(hash, precision));
+            return;
+        }
+        if(bufferSize == buffer.length) {
+            if(buffer.length < MAX_BUFFER) buffer = Arrays.copyOf(buffer, buffer.length << 1);
+            else flushBuffer();
+        }
+        // a dense sketch would not be ready for this one, the sparse list may have just been converted
+        if(registers != null) addHash(hash);
+        else buffer[bufferSize++] = (int) (hash >>> (Long.SIZE - SPARSE_PRECISION)) << RANK_BITS
+            | rank(hash, SPARSE_PRECISION);
+    }
+
+    /**
+     * The estimated number of distinct keys added.
+     */
+    @Api public long cardinality() {
+        if(registers == null) {
+            flushBuffer();
+            if(registers == null) return Math.round(linearCounting(1 << SPARSE_PRECISION, (1 << SPARSE_PRECISION) - sparseSize));
+        }
+        return Math.round(denseEstimate());
+    }
+
+    /**
+     * Adds everything counted by the other sketch to this one; the other one does not change.
+     * @throws IllegalArgumentException if the precisions differ.
+     */
+    @Api public HyperLogLog merge(final HyperLogLog other) {
+        if(other.precision != precision) throw new IllegalArgumentException("Can not merge the sketches of precisions "
+            + precision + " and " + other.precision);
+        other.flushBuffer();
+        if(registers == null && other.registers == null) {
+            flushBuffer();
+            for(int i = 0; i < other.sparseSize; i++) {
+                if(bufferSize == buffer.length) flushBuffer();
+                if(registers != null) break;
+                buffer[bufferSize++] = other.sparse[i];
+            }
+            flushBuffer();
+            if(registers == null) return this;
+        }
+        if(registers == null) toDense();
+        if(other.registers != null) {
+            for(int i = 0; i < registers.length; i++) if(other.registers[i] > registers[i]) registers[i] = other.registers[i];
+        }
+        else {
+            for(int i = 0; i < other.sparseSize; i++) addSparseToDense(other.sparse[i]);
+        }
+        return this;
+    }
+
+    @Api public int getPrecision() { return precision; }
+
+    /**
+     * True while the sketch is in the sparse mode.
+     */
+    @Api public boolean isSparse() { return registers == null; }
+
+    /**
+     * Serialized form: the version, the precision, the mode, then either the sparse entries prefixed by their count,
+     * or the dense registers.
+     */
+    @Api public void writeTo(final DataOutput out) throws IOException {
+        flushBuffer();
+        out.writeByte(SERIAL_VERSION);
+        out.writeByte(precision);
+        if(registers == null) {
+            out.writeByte(MODE_SPARSE);
+            out.writeInt(sparseSize);
+            for(int i = 0; i < sparseSize; i++) out.writeInt(sparse[i]);
+        }
+        else {
+            out.writeByte(MODE_DENSE);
+            out.write(registers);
+        }
+    }
+
+    /**
+     * Reads the sketch written by {@link #writeTo(DataOutput)}.
+     * @throws IOException on the read failure or if the data does not look like a serialized sketch.
+     */
+    @Api public static HyperLogLog readFrom(final DataInput in) throws IOException {
+        final int version = in.readByte();
+        if(version != SERIAL_VERSION) throw new IOException("Unsupported serial version of the sketch: " + version);
+        final int precision = in.readByte();
+        if(precision < MIN_PRECISION || precision > MAX_PRECISION) throw new IOException("Invalid precision: " + precision);
+        final HyperLogLog result = new HyperLogLog(precision);
+        final byte mode = in.readByte();
+        if(mode == MODE_SPARSE) {
+            final int size = in.readInt();
+            if(size < 0 || size > result.sparseLimit()) throw new IOException("Invalid sparse size: " + size);
+            result.sparse = new int[Math.max(INITIAL_SPARSE_CAPACITY, size)];
+            // the entries must decode and come sorted by the index, no repeats: the merge relies on that
+            final int maxRank = Long.SIZE - SPARSE_PRECISION + 1;
+            int lastIndex = -1;
+            for(int i = 0; i < size; i++) {
+                final int entry = in.readInt();
+                final int index = entry >>> RANK_BITS, rank = entry & RANK_MASK;
+                if(entry < 0 || index >= 1 << SPARSE_PRECISION || rank < 1 || rank > maxRank || index <= lastIndex)
+                    throw new IOException("Invalid sparse entry " + i + ": 0x" + Integer.toHexString(entry));
+                result.sparse[i] = entry;
+                lastIndex = index;
+            }
+            result.sparseSize = size;
+        }
+        else if(mode == MODE_DENSE) {
+            result.registers = new byte[1 << precision];
+            in.readFully(result.registers);
+            // the rank never exceeds the hash bits past the index plus one, checked here rather than at the estimate
+            final int maxRank = Long.SIZE - precision + 1;
+            for(int i = 0; i < result.registers.length; i++) {
+                final int rank = result.registers[i];
+                if(rank < 0 || rank > maxRank) throw new IOException("Invalid register " + i + ": " + rank
+                    + ", the max for the precision of " + precision + " is " + maxRank);
+            }
+            result.sparse = null;
+            result.buffer = null;
+        }
+        else {
+            throw new IOException("Invalid sketch mode: " + mode);
+        }
+        return result;
+    }
+
+    /**
+     * Shortcut for {@link #writeTo(DataOutput)} into a byte array.
+     */
+    @Api public byte[] toBytes() {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(registers == null ? 8 + sparseSize * 4
+            : 3 + registers.length);
+        try {
+            writeTo(new DataOutputStream(bytes));
+        }
+        catch(IOException e) { // can not happen on a byte array
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Shortcut for {@link #readFrom(DataInput)} from a byte array.
+     */
+    @Api public static HyperLogLog fromBytes(final byte[] source) throws IOException {
+        return readFrom(new DataInputStream(new ByteArrayInputStream(source)));
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{p=" + precision + ", " + (registers == null ? "sparse" : "dense")
+            + ", ~" + cardinality() + '}';
+    }
+
+    /**
+     * Position of the first 1 bit past the leading {@code indexBits} bits of the hash, counting from 1; if there are
+     * only zeros, one past their count.
+     */
+    private static int rank(final long hash, final int indexBits) {
+        return Math.min(Long.numberOfLeadingZeros(hash << indexBits), Long.SIZE - indexBits) + 1;
+    }
+
+    private static void updateRegister(final byte[] registers, final int index, final int rank) {
+        if(rank > registers[index]) registers[index] = (byte) rank;
+    }
+
+    /**
+     * Once the sparse list takes more memory than the dense registers would, 4 bytes per entry versus 1 per register.
+     */
+    private int sparseLimit() { return (1 << precision) >>> 2; }
+
+    /**
+     * Sorts the buffer and merges it into the sparse list, keeping the max rank per index; switches to the dense mode
+     * if the list grows past the {@link #sparseLimit()}.
+     */
+    private void flushBuffer() {
+        if(registers != null || bufferSize == 0) return;
+        Arrays.sort(buffer, 0, bufferSize);
+        final int[] merged = new int[Math.max(INITIAL_SPARSE_CAPACITY, sparseSize + bufferSize)];
+        int i = 0, j = 0, size = 0;
+        while(i < sparseSize || j < bufferSize) {
+            final int next;
+            if(j == bufferSize || (i < sparseSize && sparse[i] <= buffer[j])) next = sparse[i++];
+            else next = buffer[j++];
+            // same index: sorted by the rank within it, the later one has the higher rank
+            if(size > 0 && (merged[size - 1] >>> RANK_BITS) == (next >>> RANK_BITS)) merged[size - 1] = next;
+            else merged[size++] = next;
+        }
+        sparse = merged;
+        sparseSize = size;
+        bufferSize = 0;
+        if(sparseSize > sparseLimit()) toDense();
+    }
+
+    private void toDense() {
+        flushBuffer();
+        if(registers != null) return; // flushing may have converted already
+        registers = new byte[1 << precision];
+        for(int i = 0; i < sparseSize; i++) addSparseToDense(sparse[i]);
+        sparse = null;
+        buffer = null;
+        sparseSize = 0;
+        bufferSize = 0;
+    }
+
+    /**
+     * Translates the high precision sparse entry into the dense register index and rank: the dense index is the
+     * leading bits of the sparse index; the rank is counted in the remaining bits of the sparse index if any is 1,
+     * otherwise it continues into the sparse rank.
+     */
+    private void addSparseToDense(final int entry) {
+        final int sparseIndex = entry >>> RANK_BITS;
+        final int extraBits = SPARSE_PRECISION - precision;
+        final int index = sparseIndex >>> extraBits;
+        final int extra = sparseIndex & ((1 << extraBits) - 1);
+        final int rank = extra != 0 ? Integer.numberOfLeadingZeros(extra) - (Integer.SIZE - extraBits) + 1
+            : extraBits + (entry & RANK_MASK);
+        updateRegister(registers, index, rank);
+    }
+
+    private static double linearCounting(final int buckets, final int emptyBuckets) {
+        return buckets * Math.log((double) buckets / emptyBuckets);
+    }
+
+    /**
+     * Ertl's improved raw estimator over the histogram of the register values.
+     */
+    private double denseEstimate() {
+        final int q = Long.SIZE - precision;
+        final int m = registers.length;
+        final int[] histogram = new int[q + 2];
+        for(final byte register : registers) histogram[register]++;
+        double z = m * tau(1.0 - (double) histogram[q + 1] / m);
+        for(int k = q; k >= 1; k--) z = 0.5 * (z + histogram[k]);
+        z += m * sigma((double) histogram[0] / m);
+        return m / (2 * Math.log(2)) * m / z;
+    }
+
+    private static double sigma(double x) {
+        if(x == 1.0) return Double.POSITIVE_INFINITY;
+        double y = 1.0, z = x, previous;
+        do {
+            x *= x;
+            previous = z;
+            z += x * y;
+            y += y;
+        } while(z != previous);
+        return z;
+    }
+
+    private static double tau(double x) {
+        if(x == 0.0 || x == 1.0) return 0.0;
+        double y = 1.0, z = 1.0 - x, previous;
+        do {
+            x = Math.sqrt(x);
+            previous = z;
+            y *= 0.5;
+            z -= (1.0 - x) * (1.0 - x) * y;
+        } while(z != previous);
+        return z / 3;
+    }
+}
@@ -0,0 +1,178 @@
+package org.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.jdk.Api;
+import org.ebay.datameta.util.jdk.IntAndString;
+import org.ebay.datameta.util.jdk.Utf8;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes and reads the whole batches of the {@link IntAndString}, compact: each {@link IntAndString#number} is
+ * the {@link Varint#zigZag(int) zig-zag} {@link Varint varint} of its delta from the previous one, each
+ * {@link IntAndString#text} is the varint of its UTF-8 length plus one, zero for the null, then the UTF-8 bytes.
+ *
+ * <p>With the front coding, on by default, the text also carries the varint count of the leading chars it shares
+ * with the previous non-null text, and only the rest of it is encoded. On the batch sorted in the
+ * {@link IntAndString#compareTo(IntAndString)} order, the neighbours share the most.</p>
+ *
+ * <p>The unpaired surrogates come back as {@code '?'}, same as with any UTF-8 encoding of the JDK.
+ * Keeps the scratch buffer between the calls, so reuse the instance; one per thread.</p>
+ *
+ * @author Michael Bergens
+ */
+@NotThreadSafe public class IntAndStringCodec extends BatchCodec {
+
+    private static final int SERIAL_VERSION = 1;
+    private static final int FLAG_FRONT_CODING = 1;
+    private static final int ROW_HEADER_MAX_BYTES = 3 * Varint.MAX_INT_BYTES;
+
+    private final boolean frontCoding;
+    private int previousNumber;
+    private String previousText;
+    private final StringBuilder decodedText = new StringBuilder();
+    private byte[] textBytes = new byte[0];
+
+    /**
+     * With the front coding.
+     */
+    @Api public IntAndStringCodec() { this(true); }
+
+    /**
+     * @param frontCoding whether to encode only the part of the text that differs from the previous one; the reader
+     *                    follows what the writer did either way.
+     */
+    @Api public IntAndStringCodec(final boolean frontCoding) {
+        super(SERIAL_VERSION);
+        this.frontCoding = frontCoding;
+    }
+
+    @Api public void write(final DataOutput out, final Collection<? extends IntAndString> rows) throws IOException {
+        encodePayload(rows);
+        finish(out, frontCoding ? FLAG_FRONT_CODING : 0, rows.size());
+    }
+
+    /**
+     * @throws java.nio.BufferOverflowException if the target has no room for the batch.
+     */
+    @Api public void encode(final Collection<? extends IntAndString> rows, final ByteBuffer target) {
+        encodePayload(rows);
+        finish(target, frontCoding ? FLAG_FRONT_CODING : 0, rows.size());
+    }
+
+    /**
+     * Reads the batch written by the {@link #write(DataOutput, Collection)}.
+     * @throws IOException on the read failure or if the data does not look like the batch.
+     */
+    @Api public List<IntAndString> read(final DataInput in) throws IOException { return decodePayload(open(in)); }
+
+    /**
+     * Decodes the batch put by the {@link #encode(Collection, ByteBuffer)}, moves the source past it.
+     * @throws IOException if the data does not look like the batch.
+     */
+    @Api public List<IntAndString> decode(final ByteBuffer source) throws IOException {
+        return decodePayload(open(source));
+    }
+
+    @Api public boolean isFrontCoding() { return frontCoding; }
+
+    private void encodePayload(final Collection<? extends IntAndString> rows) {
+        startPayload();
+        previousNumber = 0;
+        previousText = null;
+        for(final IntAndString row : rows) put(row.number, row.text);
+    }
+
+    private void put(final int number, final String text) {
+        if(text == null) {
+            final ByteBuffer payload = ensureRoom(ROW_HEADER_MAX_BYTES);
+            Varint.put(payload, Varint.zigZag(number - previousNumber));
+            Varint.put(payload, 0);
+            previousNumber = number;
+            return;
+        }
+        final int shared = frontCoding ? sharedPrefix(previousText, text) : 0;
+        final int length = Utf8.encodedLength(text, shared, text.length());
+        final ByteBuffer payload = ensureRoom(ROW_HEADER_MAX_BYTES + length);
+        Varint.put(payload, Varint.zigZag(number - previousNumber));
+        Varint.put(payload, length + 1);
+        if(frontCoding) Varint.put(payload, shared);
+        payload.position(Utf8.encode(text, shared, text.length(), payload.array(), payload.position()));
+        previousNumber = number;
+        previousText = text;
+    }
+
+    /**
+     * How many leading chars the texts share, never splitting a surrogate pair.
+     */
+    private static int sharedPrefix(final String previous, final String text) {
+        if(previous == null) return 0;
+        final int common = Math.min(previous.length(), text.length());
+        int result = 0;
+        while(result < common && previous.charAt(result) == text.charAt(result)) result++;
+        if(result > 0 && Character.isHighSurrogate(text.charAt(result - 1))) result--;
+        return result;
+    }
+
+    private List<IntAndString> decodePayload(final ByteBuffer payload) throws IOException {
+        final boolean sharing = (flags & FLAG_FRONT_CODING) != 0;
+        // every row takes at least 2 bytes: do not trust the count for the allocation beyond that
+        final List<IntAndString> result = new ArrayList<>(Math.min(count, payload.remaining() / 2));
+        int number = 0;
+        decodedText.setLength(0);
+        try {
+            for(int i = 0; i < count; i++) {
+                number += Varint.unZigZag(Varint.getInt(payload));
+                final int header = Varint.getInt(payload);
+                if(header == 0) {
+                    result.add(new IntAndString(number, null));
+                    continue;
+                }
+                final int length = header - 1;
+                final int shared = sharing ? Varint.getInt(payload) : 0;
+                if(length < 0 || length > payload.remaining() || shared < 0 || shared > decodedText.length())
+                    throw new IOException("Invalid text at the row " + i + ": " + length + " bytes, " + shared
+                        + " shared chars");
+                final String suffix = getString(payload, length);
+                final String text;
+                if(shared == 0) {
+                    text = suffix;
+                    decodedText.setLength(0);
+                    decodedText.append(text);
+                }
+                else {
+                    decodedText.setLength(shared);
+                    text = decodedText.append(suffix).toString();
+                }
+                result.add(new IntAndString(number, text));
+            }
+        }
+        catch(BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed batch of " + count + " rows", e);
+        }
+        close(payload);
+        return result;
+    }
+
+    private String getString(final ByteBuffer source, final int length) {
+        final String result;
+        if(source.hasArray()) {
+            result = new String(source.array(), source.arrayOffset() + source.position(), length, StandardCharsets.UTF_8);
+            source.position(source.position() + length);
+        }
+        else {
+            if(textBytes.length < length) textBytes = new byte[Math.max(length, textBytes.length << 1)];
+            source.get(textBytes, 0, length);
+            result = new String(textBytes, 0, length, StandardCharsets.UTF_8);
+        }
+        return result;
+    }
+}
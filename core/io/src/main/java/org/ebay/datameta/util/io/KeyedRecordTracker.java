@@ -0,0 +1,107 @@
+package org.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.jdk.Api;
+
+import java.util.List;
+
+/**
+ * The {@link RecordTracker} that also tracks which keys the bad and the errored records come from, in constant memory
+ * no matter how long the stream: per key counts in a {@link CountMinSketch}, the top offenders in a
+ * {@link SpaceSaving} summary, separately for the bad and for the errored.
+ *
+ * <p>Count with the keyed {@link #incBadRec(String)} and {@link #incErrorRec(String)}; the unkeyed ones inherited
+ * still work, adding to the totals only.</p>
+ *
+ * <p><b>Not thread-safe!</b> Keep one per thread, {@link #merge(RecordTracker) merge} when done.</p>
+ *
+ * @author Michael Bergens
+ */
+@Api public class KeyedRecordTracker extends RecordTracker {
+
+    public static final double DEFAULT_EPSILON = 0.001;
+    public static final double DEFAULT_DELTA = 0.001;
+    public static final int DEFAULT_TOP_CAPACITY = 256;
+
+    private final CountMinSketch badCounts;
+    private final CountMinSketch errorCounts;
+    private final SpaceSaving<String> badTop;
+    private final SpaceSaving<String> errorTop;
+
+    @Api public KeyedRecordTracker() { this(DEFAULT_EPSILON, DEFAULT_DELTA, DEFAULT_TOP_CAPACITY); }
+
+    /**
+     * @param epsilon see {@link CountMinSketch#create(double, double)}
+     * @param delta see {@link CountMinSketch#create(double, double)}
+     * @param topCapacity see {@link SpaceSaving#SpaceSaving(int)}
+     */
+    @Api public KeyedRecordTracker(final double epsilon, final double delta, final int topCapacity) {
+        badCounts = CountMinSketch.create(epsilon, delta);
+        errorCounts = CountMinSketch.create(epsilon, delta);
+        badTop = new SpaceSaving<>(topCapacity);
+        errorTop = new SpaceSaving<>(topCapacity);
+    }
+
+    @Api public void incBadRec(final String key) {
+        incBadRec();
+        badCounts.add(key);
+        badTop.add(key);
+    }
+
+    @Api public void incErrorRec(final String key) {
+        incErrorRec();
+        errorCounts.add(key);
+        errorTop.add(key);
+    }
+
+    /**
+     * Estimated count of the bad records with the key, never under the actual.
+     */
+    @Api public long getBadRecCount(final CharSequence key) { return badCounts.estimate(key); }
+
+    /**
+     * Estimated count of the errored records with the key, never under the actual.
+     */
+    @Api public long getErrorRecCount(final CharSequence key) { return errorCounts.estimate(key); }
+
+    /**
+     * Up to {@code k} keys with the most bad records, descending.
+     */
+    @Api public List<SpaceSaving.Entry<String>> getTopBad(final int k) { return badTop.getTop(k); }
+
+    /**
+     * Up to {@code k} keys with the most errored records, descending.
+     */
+    @Api public List<SpaceSaving.Entry<String>> getTopErrors(final int k) { return errorTop.getTop(k); }
+
+    /**
+     * Adds the counts of the other tracker; if it is keyed too, then also its per key counts, which requires it to be
+     * configured the same.
+     * @throws IllegalArgumentException if the other tracker is keyed with a different configuration.
+     */
+    @Override public KeyedRecordTracker merge(final RecordTracker other) {
+        if(other instanceof KeyedRecordTracker) {
+            final KeyedRecordTracker keyed = (KeyedRecordTracker) other;
+            // all checked before any merged, so that the mismatch leaves this one as it was
+            checkSameShape(badCounts, keyed.badCounts);
+            checkSameShape(errorCounts, keyed.errorCounts);
+            checkSameCapacity(badTop, keyed.badTop);
+            checkSameCapacity(errorTop, keyed.errorTop);
+            badCounts.merge(keyed.badCounts);
+            errorCounts.merge(keyed.errorCounts);
+            badTop.merge(keyed.badTop);
+            errorTop.merge(keyed.errorTop);
+        }
+        super.merge(other);
+        return this;
+    }
+
+    private static void checkSameShape(final CountMinSketch mine, final CountMinSketch theirs) {
+        if(mine.getDepth() != theirs.getDepth() || mine.getWidth() != theirs.getWidth()) throw new IllegalArgumentException(
+            "Can not merge the tracker with the count-min sketch " + theirs + " into " + mine);
+    }
+
+    private static void checkSameCapacity(final SpaceSaving<String> mine, final SpaceSaving<String> theirs) {
+        if(mine.getCapacity() != theirs.getCapacity()) throw new IllegalArgumentException(
+            "Can not merge the tracker with the top capacity " + theirs.getCapacity() + " into " + mine.getCapacity());
+    }
+}
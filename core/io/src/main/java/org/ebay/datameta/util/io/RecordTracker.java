@@ -37,6 +37,16 @@ import org.apache.commons.io.input.CountingInputStream;
     @Api public long getErrorRecCount() { return errorCount; }
     
     @Api public long getTotalRecCount() { return goodCount + badCount + errorCount;}
+
+    /**
+     * Adds the counts of the other tracker to this one, for combining the trackers of parallel readers.
+     */
+    @Api public RecordTracker merge(final RecordTracker other) {
+        goodCount += other.goodCount;
+        badCount += other.badCount;
+        errorCount += other.errorCount;
+        return this;
+    }
     
     
 }
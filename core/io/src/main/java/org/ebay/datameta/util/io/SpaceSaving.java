@@ -0,0 +1,230 @@
+package org.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.jdk.Api;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Top K heavy hitters of a stream in a fixed amount of memory: the
+ * <a href="https://www.cs.ucsb.edu/sites/default/files/documents/2005-23.pdf" target=_blank>Space-Saving</a> algorithm
+ * of Metwally, Agrawal and El Abbadi.
+ *
+ * <p>Keeps at most the {@link #getCapacity() capacity} of counters; once full, a new key takes over the counter of
+ * the least counted key, inheriting its count as the possible overcount, the {@link Entry#getError() error}.
+ * Any key counted more than {@code total/capacity} times is guaranteed to be in; the counts are never under the
+ * actual, and over by no more than the error.</p>
+ *
+ * <p>The counters sit in a min-heap indexed by the key, updating takes {@code O(log capacity)}.</p>
+ *
+ * <p>Summaries {@link #merge(SpaceSaving) merge} by the rules of Agarwal et al, "Mergeable Summaries", keeping the
+ * same guarantees for the combined stream.</p>
+ *
+ * <p><b>Not thread-safe!</b> Keep one per thread, merge when done.</p>
+ *
+ * @param <K> the key type, must be immutable and have the proper equals and hashCode.
+ *
+ * @author Michael Bergens
+ * @see CountMinSketch
+ */
+@Api public class SpaceSaving<K> {
+
+    /**
+     * A key with its count.
+     */
+    @Api public static final class Entry<K> {
+        private K key;
+        private long count;
+        private long error;
+        private int heapIndex;
+
+        private Entry(final K key, final long count, final long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        @Api public K getKey() { return key; }
+
+        /**
+         * The estimated count, never under the actual one.
+         */
+        @Api public long getCount() { return count; }
+
+        /**
+         * How much of the count may be overcounted.
+         */
+        @Api public long getError() { return error; }
+
+        /**
+         * The count that is certain, the {@link #getCount() count} minus the {@link #getError() error}.
+         */
+        @Api public long getGuaranteedCount() { return count - error; }
+
+        @Override public String toString() { return key + "=" + count + (error == 0 ? "" : "(-" + error + ")"); }
+    }
+
+    private final int capacity;
+    private final Map<K, Entry<K>> index;
+    private final Entry<K>[] heap;
+    private int size;
+    private long total;
+
+    /**
+     * @param capacity how many counters to keep; to find the top {@code k} reliably, make it a few times the {@code k}.
+     */
+    @SuppressWarnings("unchecked")
+    @Api public SpaceSaving(final int capacity) {
+        if(capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        this.capacity = capacity;
+        this.index = new HashMap<>(capacity * 4 / 3 + 1);
+        this.heap = (Entry<K>[]) new Entry<?>[capacity];
+    }
+
+    @Api public long add(final K key) { return add(key, 1L); }
+
+    /**
+     * Adds to the count of the key.
+     * @param count non-negative increment.
+     * @return the new estimated count of the key.
+     */
+    @Api public long add(final K key, final long count) {
+        if(count < 0) throw new IllegalArgumentException("Negative counts are not supported: " + count);
+        total += count;
+        Entry<K> entry = index.get(key);
+        if(entry != null) {
+            entry.count += count;
+        }
+        else if(size < capacity) {
+            entry = new Entry<>(key, count, 0L);
+            entry.heapIndex = size;
+            heap[size++] = entry;
+            index.put(key, entry);
+            siftUp(entry.heapIndex);
+            return entry.count;
+        }
+        else { // take over the smallest counter
+            entry = heap[0];
+            index.remove(entry.key);
+            entry.key = key;
+            entry.error = entry.count;
+            entry.count += count;
+            index.put(key, entry);
+        }
+        siftDown(entry.heapIndex);
+        return entry.count;
+    }
+
+    /**
+     * The estimated count of the key: if it is not tracked, it could have been counted up to the smallest tracked
+     * count when the summary is full, zero if not.
+     */
+    @Api public long estimate(final K key) {
+        final Entry<K> entry = index.get(key);
+        return entry != null ? entry.count : minCount();
+    }
+
+    /**
+     * Up to the {@code k} top keys, by the estimated count, descending; a snapshot, does not change with the updates.
+     */
+    @Api public List<Entry<K>> getTop(final int k) {
+        final Entry<K>[] sorted = Arrays.copyOf(heap, size);
+        Arrays.sort(sorted, (a, b) -> Long.compare(b.count, a.count));
+        final List<Entry<K>> result = new ArrayList<>(Math.min(k, size));
+        for(int i = 0; i < sorted.length && i < k; i++) result.add(new Entry<>(sorted[i].key, sorted[i].count, sorted[i].error));
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Adds the other summary to this one, the other does not change. The keys tracked by only one side are assumed
+     * to have been counted by the other side up to its smallest count, then the largest of the combined counters
+     * are kept.
+     * @throws IllegalArgumentException if the capacities differ.
+     */
+    @Api public SpaceSaving<K> merge(final SpaceSaving<K> other) {
+        if(other.capacity != capacity) throw new IllegalArgumentException("Can not merge summaries of capacities "
+            + capacity + " and " + other.capacity);
+        final long thisMin = minCount(), otherMin = other.minCount();
+        final List<Entry<K>> combined = new ArrayList<>(size + other.size);
+        for(int i = 0; i < size; i++) {
+            final Entry<K> mine = heap[i];
+            final Entry<K> theirs = other.index.get(mine.key);
+            combined.add(theirs != null ? new Entry<>(mine.key, mine.count + theirs.count, mine.error + theirs.error)
+                : new Entry<>(mine.key, mine.count + otherMin, mine.error + otherMin));
+        }
+        for(int i = 0; i < other.size; i++) {
+            final Entry<K> theirs = other.heap[i];
+            if(!index.containsKey(theirs.key))
+                combined.add(new Entry<>(theirs.key, theirs.count + thisMin, theirs.error + thisMin));
+        }
+        combined.sort((a, b) -> Long.compare(b.count, a.count));
+        index.clear();
+        size = Math.min(capacity, combined.size());
+        for(int i = 0; i < size; i++) {
+            final Entry<K> entry = combined.get(i);
+            index.put(entry.key, entry);
+            heap[i] = entry;
+        }
+        Arrays.fill(heap, size, capacity, null);
+        // sorted ascending is a valid min-heap
+        for(int i = 0, j = size - 1; i < j; i++, j--) {
+            final Entry<K> swap = heap[i];
+            heap[i] = heap[j];
+            heap[j] = swap;
+        }
+        for(int i = 0; i < size; i++) heap[i].heapIndex = i;
+        total += other.total;
+        return this;
+    }
+
+    /**
+     * Sum of all the counts added.
+     */
+    @Api public long getTotal() { return total; }
+
+    /**
+     * How many keys are tracked now, up to the {@link #getCapacity() capacity}.
+     */
+    @Api public int getSize() { return size; }
+
+    @Api public int getCapacity() { return capacity; }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{capacity=" + capacity + ", total=" + total + ", top=" + getTop(3) + '}';
+    }
+
+    private long minCount() { return size == capacity ? heap[0].count : 0L; }
+
+    private void siftUp(int i) {
+        final Entry<K> entry = heap[i];
+        while(i > 0) {
+            final int parent = (i - 1) >>> 1;
+            if(heap[parent].count <= entry.count) break;
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(entry, i);
+    }
+
+    private void siftDown(int i) {
+        final Entry<K> entry = heap[i];
+        while(true) {
+            int child = (i << 1) + 1;
+            if(child >= size) break;
+            if(child + 1 < size && heap[child + 1].count < heap[child].count) child++;
+            if(heap[child].count >= entry.count) break;
+            place(heap[child], i);
+            i = child;
+        }
+        place(entry, i);
+    }
+
+    private void place(final Entry<K> entry, final int i) {
+        heap[i] = entry;
+        entry.heapIndex = i;
+    }
+}
@@ -0,0 +1,117 @@
+package org.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.jdk.Api;
+import org.ebay.datameta.util.jdk.TwoInts;
+import org.ebay.datameta.util.jdk.TwoIntsArray;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+
+/**
+ * Writes and reads the whole batches of the {@link TwoInts}, compact: each {@link TwoInts#first} is the
+ * {@link Varint#zigZag(int) zig-zag} {@link Varint varint} of its delta from the previous one, each
+ * {@link TwoInts#last} the same of its delta from the previous last if the first is the same as the previous, else
+ * of itself. The batch sorted in the {@link TwoInts#compareTo(TwoInts)} order makes the small deltas, 1 or 2 bytes
+ * each instead of the 4; the unsorted one takes no more than 5 per int.
+ *
+ * <p>Keeps the scratch buffer between the calls, so reuse the instance; one per thread.</p>
+ *
+ * @author Michael Bergens
+ */
+@NotThreadSafe public class TwoIntsCodec extends BatchCodec {
+
+    private static final int SERIAL_VERSION = 1;
+    private static final int PAIR_MAX_BYTES = 2 * Varint.MAX_INT_BYTES;
+
+    private int previousFirst;
+    private int previousLast;
+
+    @Api public TwoIntsCodec() { super(SERIAL_VERSION); }
+
+    @Api public void write(final DataOutput out, final TwoIntsArray pairs) throws IOException {
+        encodePayload(pairs);
+        finish(out, 0, pairs.size());
+    }
+
+    @Api public void write(final DataOutput out, final Collection<? extends TwoInts> pairs) throws IOException {
+        encodePayload(pairs);
+        finish(out, 0, pairs.size());
+    }
+
+    /**
+     * @throws java.nio.BufferOverflowException if the target has no room for the batch.
+     */
+    @Api public void encode(final TwoIntsArray pairs, final ByteBuffer target) {
+        encodePayload(pairs);
+        finish(target, 0, pairs.size());
+    }
+
+    /**
+     * @throws java.nio.BufferOverflowException if the target has no room for the batch.
+     */
+    @Api public void encode(final Collection<? extends TwoInts> pairs, final ByteBuffer target) {
+        encodePayload(pairs);
+        finish(target, 0, pairs.size());
+    }
+
+    /**
+     * Reads the batch written by the {@link #write(DataOutput, TwoIntsArray)} or either of its overloads.
+     * @throws IOException on the read failure or if the data does not look like the batch.
+     */
+    @Api public TwoIntsArray read(final DataInput in) throws IOException { return decodePayload(open(in)); }
+
+    /**
+     * Decodes the batch put by the {@link #encode(TwoIntsArray, ByteBuffer)} or either of its overloads, moves the
+     * source past it.
+     * @throws IOException if the data does not look like the batch.
+     */
+    @Api public TwoIntsArray decode(final ByteBuffer source) throws IOException { return decodePayload(open(source)); }
+
+    private void encodePayload(final TwoIntsArray pairs) {
+        startPayload();
+        previousFirst = 0;
+        previousLast = 0;
+        final TwoIntsArray.Cursor cursor = pairs.cursor();
+        while(cursor.next()) put(cursor.first(), cursor.last());
+    }
+
+    private void encodePayload(final Collection<? extends TwoInts> pairs) {
+        startPayload();
+        previousFirst = 0;
+        previousLast = 0;
+        for(final TwoInts pair : pairs) put(pair.first, pair.last);
+    }
+
+    private void put(final int first, final int last) {
+        final ByteBuffer payload = ensureRoom(PAIR_MAX_BYTES);
+        Varint.put(payload, Varint.zigZag(first - previousFirst));
+        Varint.put(payload, Varint.zigZag(first == previousFirst ? last - previousLast : last));
+        previousFirst = first;
+        previousLast = last;
+    }
+
+    private TwoIntsArray decodePayload(final ByteBuffer payload) throws IOException {
+        // every pair takes at least 2 bytes: do not trust the count for the allocation beyond that
+        final TwoIntsArray result = new TwoIntsArray(Math.min(count, payload.remaining() / 2));
+        int first = 0, last = 0;
+        try {
+            for(int i = 0; i < count; i++) {
+                final int firstDelta = Varint.unZigZag(Varint.getInt(payload));
+                final int lastValue = Varint.unZigZag(Varint.getInt(payload));
+                first += firstDelta;
+                last = firstDelta == 0 ? last + lastValue : lastValue;
+                result.add(first, last);
+            }
+        }
+        catch(BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Malformed batch of " + count + " pairs", e);
+        }
+        close(payload);
+        return result;
+    }
+}
@@ -0,0 +1,168 @@
+package org.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.jdk.Api;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The variable length ints, as in the Protocol Buffers: 7 bits per byte, the low bits first, the high bit of each byte
+ * set if more follow; the small values take 1 byte, the int takes at most 5, the long 10.
+ *
+ * <p>The negatives would always take the max, so the signed values, such as the deltas, go through the
+ * {@link #zigZag(int) zig-zag} first, which maps the small magnitudes of either sign to the small unsigned values.</p>
+ *
+ * @author Michael Bergens
+ */
+public final class Varint {
+
+    /**
+     * Max bytes the int takes.
+     */
+    public static final int MAX_INT_BYTES = 5;
+
+    /**
+     * Max bytes the long takes.
+     */
+    public static final int MAX_LONG_BYTES = 10;
+
+    private Varint() {}
+
+    /**
+     * Maps the signed to the unsigned: {@code 0, -1, 1, -2, 2...} to {@code 0, 1, 2, 3, 4...}.
+     */
+    @Api public static int zigZag(final int value) { return value << 1 ^ value >> 31; }
+
+    /**
+     * Reverse of the {@link #zigZag(int)}.
+     */
+    @Api public static int unZigZag(final int value) { return value >>> 1 ^ -(value & 1); }
+
+    /**
+     * @see #zigZag(int)
+     */
+    @Api public static long zigZag(final long value) { return value << 1 ^ value >> 63; }
+
+    /**
+     * @see #unZigZag(int)
+     */
+    @Api public static long unZigZag(final long value) { return value >>> 1 ^ -(value & 1L); }
+
+    /**
+     * How many bytes the int takes, considered unsigned.
+     */
+    @Api public static int length(final int value) {
+        // one byte per 7 significant bits, at least one
+        return (31 - Integer.numberOfLeadingZeros(value | 1)) / 7 + 1;
+    }
+
+    /**
+     * How many bytes the long takes, considered unsigned.
+     */
+    @Api public static int length(final long value) { return (63 - Long.numberOfLeadingZeros(value | 1L)) / 7 + 1; }
+
+    /**
+     * Puts the int, considered unsigned.
+     * @throws java.nio.BufferOverflowException if there is no room.
+     */
+    @Api public static void put(final ByteBuffer target, int value) {
+        while((value & ~0x7F) != 0) {
+            target.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        target.put((byte) value);
+    }
+
+    /**
+     * @see #put(ByteBuffer, int)
+     */
+    @Api public static void put(final ByteBuffer target, long value) {
+        while((value & ~0x7FL) != 0L) {
+            target.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        target.put((byte) value);
+    }
+
+    /**
+     * Gets the int put by the {@link #put(ByteBuffer, int)}.
+     * @throws IllegalArgumentException if it's longer than {@value #MAX_INT_BYTES} bytes.
+     * @throws java.nio.BufferUnderflowException if it's cut short.
+     */
+    @Api public static int getInt(final ByteBuffer source) {
+        int result = 0;
+        for(int shift = 0; shift < Integer.SIZE; shift += 7) {
+            final byte b = source.get();
+            result |= (b & 0x7F) << shift;
+            if(b >= 0) return result;
+        }
+        throw new IllegalArgumentException("Malformed varint int at " + (source.position() - MAX_INT_BYTES));
+    }
+
+    /**
+     * Gets the long put by the {@link #put(ByteBuffer, long)}.
+     * @throws IllegalArgumentException if it's longer than {@value #MAX_LONG_BYTES} bytes.
+     * @throws java.nio.BufferUnderflowException if it's cut short.
+     */
+    @Api public static long getLong(final ByteBuffer source) {
+        long result = 0L;
+        for(int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = source.get();
+            result |= (long) (b & 0x7F) << shift;
+            if(b >= 0) return result;
+        }
+        throw new IllegalArgumentException("Malformed varint long at " + (source.position() - MAX_LONG_BYTES));
+    }
+
+    /**
+     * Writes the int, considered unsigned.
+     */
+    @Api public static void write(final DataOutput out, int value) throws IOException {
+        while((value & ~0x7F) != 0) {
+            out.writeByte(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * @see #write(DataOutput, int)
+     */
+    @Api public static void write(final DataOutput out, long value) throws IOException {
+        while((value & ~0x7FL) != 0L) {
+            out.writeByte((int) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads the int written by the {@link #write(DataOutput, int)}.
+     * @throws IOException on the read failure or if it's longer than {@value #MAX_INT_BYTES} bytes.
+     */
+    @Api public static int readInt(final DataInput in) throws IOException {
+        int result = 0;
+        for(int shift = 0; shift < Integer.SIZE; shift += 7) {
+            final byte b = in.readByte();
+            result |= (b & 0x7F) << shift;
+            if(b >= 0) return result;
+        }
+        throw new IOException("Malformed varint int");
+    }
+
+    /**
+     * Reads the long written by the {@link #write(DataOutput, long)}.
+     * @throws IOException on the read failure or if it's longer than {@value #MAX_LONG_BYTES} bytes.
+     */
+    @Api public static long readLong(final DataInput in) throws IOException {
+        long result = 0L;
+        for(int shift = 0; shift < Long.SIZE; shift += 7) {
+            final byte b = in.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if(b >= 0) return result;
+        }
+        throw new IOException("Malformed varint long");
+    }
+}
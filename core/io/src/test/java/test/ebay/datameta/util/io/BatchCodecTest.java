@@ -0,0 +1,203 @@
+package test.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.io.IntAndStringCodec;
+import org.ebay.datameta.util.io.LatencyHistogramCodec;
+import org.ebay.datameta.util.io.TwoIntsCodec;
+import org.ebay.datameta.util.io.Varint;
+import org.ebay.datameta.util.jdk.IntAndString;
+import org.ebay.datameta.util.jdk.LatencyHistogram;
+import org.ebay.datameta.util.jdk.TwoInts;
+import org.ebay.datameta.util.jdk.TwoIntsArray;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Varints and the batch codecs: round trips through the streams and the buffers, the size on the sorted data,
+ * the corrupt input.
+ * @author Michael Bergens
+ */
+public class BatchCodecTest {
+    private static final Logger L = LoggerFactory.getLogger(BatchCodecTest.class);
+
+    @Test public void testVarint() {
+        final ByteBuffer buffer = ByteBuffer.allocate(Varint.MAX_LONG_BYTES);
+        for(final int value : new int[] {0, 1, -1, 63, -64, 64, 127, 128, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            assertEquals(value, Varint.unZigZag(Varint.zigZag(value)));
+            buffer.clear();
+            Varint.put(buffer, value);
+            assertEquals(Varint.length(value), buffer.position());
+            buffer.flip();
+            assertEquals(value, Varint.getInt(buffer));
+        }
+        for(final long value : new long[] {0L, -1L, 300L, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(value, Varint.unZigZag(Varint.zigZag(value)));
+            buffer.clear();
+            Varint.put(buffer, value);
+            assertEquals(Varint.length(value), buffer.position());
+            buffer.flip();
+            assertEquals(value, Varint.getLong(buffer));
+        }
+        assertEquals(1, Varint.length(Varint.zigZag(-64)));
+        assertEquals(Varint.MAX_INT_BYTES, Varint.length(-1));
+    }
+
+    @Test public void testTwoInts() throws IOException {
+        final Random random = new Random(17);
+        final TwoIntsArray pairs = new TwoIntsArray();
+        for(int i = 0; i < 100_000; i++) pairs.add(random.nextInt(50_000), random.nextInt(1000));
+        pairs.add(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        pairs.add(Integer.MAX_VALUE, Integer.MIN_VALUE);
+        final TwoIntsCodec codec = new TwoIntsCodec();
+
+        final byte[] unsorted = write(codec, pairs);
+        assertSame(pairs, codec.read(new DataInputStream(new ByteArrayInputStream(unsorted))));
+        pairs.sort();
+        final byte[] sorted = write(codec, pairs);
+        L.info("TwoInts: {} pairs, unsorted {} bytes, sorted {} bytes", pairs.size(), unsorted.length, sorted.length);
+        assertTrue(sorted.length * 2 < pairs.size() * 8);
+        assertSame(pairs, codec.read(new DataInputStream(new ByteArrayInputStream(sorted))));
+
+        for(final ByteBuffer buffer : new ByteBuffer[] {ByteBuffer.allocate(sorted.length + 10),
+            ByteBuffer.allocateDirect(sorted.length + 10)}) {
+            buffer.put((byte) 42);
+            codec.encode(pairs, buffer);
+            assertEquals(sorted.length + 1, buffer.position());
+            buffer.flip();
+            buffer.get();
+            assertSame(pairs, codec.decode(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+
+        final List<TwoInts> list = Arrays.asList(new TwoInts(3, 4), new TwoInts(3, -4), new TwoInts(-3, 4));
+        final ByteBuffer buffer = ByteBuffer.allocate(100);
+        codec.encode(list, buffer);
+        buffer.flip();
+        final TwoIntsArray decoded = codec.decode(buffer);
+        assertEquals(list.size(), decoded.size());
+        for(int i = 0; i < list.size(); i++) assertEquals(list.get(i), decoded.get(i, new TwoInts()));
+    }
+
+    @Test public void testIntAndString() throws IOException {
+        final Random random = new Random(19);
+        final List<IntAndString> rows = new ArrayList<>();
+        for(int i = 0; i < 50_000; i++) {
+            rows.add(new IntAndString(random.nextInt(100), random.nextInt(50) == 0 ? null
+                : "com.ebay.datameta.item." + random.nextInt(2000) + (random.nextBoolean() ? "-中😀" : "")));
+        }
+        rows.add(new IntAndString(0, ""));
+        Collections.sort(rows);
+        final byte[] plain = write(new IntAndStringCodec(false), rows);
+        final IntAndStringCodec codec = new IntAndStringCodec();
+        final byte[] fronted = write(codec, rows);
+        int rawSize = 0;
+        for(final IntAndString row : rows) rawSize += 8 + (row.text == null ? 0 : 2 + row.text.length() * 2);
+        L.info("IntAndString: {} rows, fixed width about {} bytes, plain {}, front coded {}", rows.size(), rawSize,
+            plain.length, fronted.length);
+        assertTrue(fronted.length * 3 < plain.length);
+        // the reader follows the writer's flag
+        assertEquals(rows, codec.read(new DataInputStream(new ByteArrayInputStream(plain))));
+        assertEquals(rows, new IntAndStringCodec(false).read(new DataInputStream(new ByteArrayInputStream(fronted))));
+
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(fronted.length);
+        codec.encode(rows, buffer);
+        buffer.flip();
+        assertEquals(rows, codec.decode(buffer));
+    }
+
+    @Test public void testLatencyHistogram() throws IOException {
+        final Random random = new Random(23);
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for(int i = 0; i < 100_000; i++) histogram.record((long) (200_000 * Math.exp(random.nextGaussian())));
+        histogram.record(Long.MAX_VALUE);
+        final LatencyHistogramCodec codec = new LatencyHistogramCodec();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), histogram);
+        L.info("Histogram: {} buckets, {} bytes", histogram.getBucketCount(), bytes.size());
+        assertTrue(bytes.size() * 10 < histogram.getBucketCount() * 8);
+        assertEquals(histogram, codec.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))));
+
+        final ByteBuffer buffer = ByteBuffer.allocate(bytes.size() + 10);
+        codec.encode(new LatencyHistogram(4), buffer);
+        codec.encode(histogram, buffer);
+        buffer.flip();
+        assertEquals(new LatencyHistogram(4), codec.decode(buffer));
+        assertEquals(histogram, codec.decode(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    @Test public void testCorrupt() throws IOException {
+        final TwoIntsArray pairs = new TwoIntsArray();
+        for(int i = 0; i < 100; i++) pairs.add(i, -i);
+        final byte[] data = write(new TwoIntsCodec(), pairs);
+        for(final int cut : new int[] {0, 1, 3, data.length / 2, data.length - 1}) {
+            try {
+                new TwoIntsCodec().decode(ByteBuffer.wrap(Arrays.copyOf(data, cut)));
+                fail("Decoded " + cut + " bytes of " + data.length);
+            }
+            catch(IOException expected) {
+                L.debug("Expected: {}", expected.toString());
+            }
+        }
+        data[0] = 99;
+        try {
+            new TwoIntsCodec().decode(ByteBuffer.wrap(data));
+            fail("Decoded the wrong version");
+        }
+        catch(IOException expected) {
+            assertTrue(expected.getMessage().contains("version"));
+        }
+
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12345L);
+        final ByteBuffer buffer = ByteBuffer.allocate(100);
+        new LatencyHistogramCodec().encode(histogram, buffer);
+        // the precision byte right after the 4 byte header: out of range
+        buffer.put(4, (byte) 40);
+        buffer.flip();
+        try {
+            new LatencyHistogramCodec().decode(buffer);
+            fail("Decoded the wrong precision");
+        }
+        catch(IOException expected) {
+            L.debug("Expected: {}", expected.toString());
+        }
+    }
+
+    private static byte[] write(final TwoIntsCodec codec, final TwoIntsArray pairs) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), pairs);
+        return bytes.toByteArray();
+    }
+
+    private static byte[] write(final IntAndStringCodec codec, final List<IntAndString> rows) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        codec.write(new DataOutputStream(bytes), rows);
+        return bytes.toByteArray();
+    }
+
+    private static void assertSame(final TwoIntsArray expected, final TwoIntsArray actual) {
+        assertEquals(expected.size(), actual.size());
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.getFirst(i), actual.getFirst(i));
+            assertEquals(expected.getLast(i), actual.getLast(i));
+        }
+    }
+}
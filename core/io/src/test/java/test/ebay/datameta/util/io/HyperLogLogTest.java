@@ -0,0 +1,134 @@
+package test.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.io.HyperLogLog;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Distinct count estimates within the expected error, in both modes, merged and serialized.
+ * @author Michael Bergens
+ */
+public class HyperLogLogTest {
+    private static final Logger L = LoggerFactory.getLogger(HyperLogLogTest.class);
+
+    private static String id(final int i) { return "ID-" + i; }
+
+    /**
+     * 4 standard errors, the test should practically never fail on a correct sketch.
+     */
+    private static void assertNear(final long expected, final HyperLogLog sketch) {
+        final double tolerance = 4 * 1.04 / Math.sqrt(1 << sketch.getPrecision());
+        final long actual = sketch.cardinality();
+        final double error = Math.abs((double) actual - expected) / expected;
+        L.info("{}: expected {}, error {}", sketch, expected, error);
+        assertTrue("Estimated " + actual + " for " + expected, error <= tolerance);
+    }
+
+    @Test public void testEmpty() {
+        final HyperLogLog sketch = new HyperLogLog();
+        assertEquals(0, sketch.cardinality());
+        assertTrue(sketch.isSparse());
+    }
+
+    @Test public void testSparse() {
+        final HyperLogLog sketch = new HyperLogLog();
+        for(int i = 0; i < 1000; i++) {
+            sketch.add(id(i));
+            sketch.add(id(i)); // duplicates do not count
+        }
+        assertTrue(sketch.isSparse());
+        // at the sparse precision, the small counts are near exact
+        assertTrue("Estimated " + sketch.cardinality(), Math.abs(sketch.cardinality() - 1000) <= 2);
+    }
+
+    @Test public void testDense() {
+        for(final int precision : new int[] {HyperLogLog.MIN_PRECISION, 10, HyperLogLog.DEFAULT_PRECISION}) {
+            final HyperLogLog sketch = new HyperLogLog(precision);
+            int added = 0;
+            for(final int count : new int[] {5_000, 50_000, 1_000_000}) {
+                for(; added < count; added++) sketch.add(id(added));
+                assertFalse(sketch.isSparse());
+                assertNear(count, sketch);
+            }
+        }
+    }
+
+    @Test public void testMerge() {
+        final HyperLogLog small = new HyperLogLog(), large = new HyperLogLog(), total = new HyperLogLog();
+        for(int i = 0; i < 2_000; i++) small.add(id(i));
+        for(int i = 1_000; i < 300_000; i++) large.add(id(i));
+        // sparse into sparse, then dense into the result
+        total.merge(small).merge(large);
+        assertFalse(total.isSparse());
+        assertNear(300_000, total);
+        // sparse into dense matches adding directly
+        final HyperLogLog direct = new HyperLogLog();
+        for(int i = 0; i < 300_000; i++) direct.add(id(i));
+        assertEquals(direct.cardinality(), large.merge(small).cardinality());
+        assertEquals(direct.cardinality(), total.cardinality());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testMergeMismatch() {
+        new HyperLogLog(12).merge(new HyperLogLog(14));
+    }
+
+    @Test public void testSerialization() throws Exception {
+        final HyperLogLog sparse = new HyperLogLog(), dense = new HyperLogLog(12);
+        for(int i = 0; i < 500; i++) sparse.add(i);
+        for(int i = 0; i < 100_000; i++) dense.add(i);
+        for(final HyperLogLog sketch : new HyperLogLog[] {sparse, dense}) {
+            final HyperLogLog copy = HyperLogLog.fromBytes(sketch.toBytes());
+            assertEquals(sketch.getPrecision(), copy.getPrecision());
+            assertEquals(sketch.isSparse(), copy.isSparse());
+            assertEquals(sketch.cardinality(), copy.cardinality());
+        }
+    }
+
+    /**
+     * The dense register above the max rank for the precision is corrupt, the max itself is not.
+     */
+    @Test(expected = IOException.class) public void testCorruptRegister() throws Exception {
+        final HyperLogLog dense = new HyperLogLog(12);
+        for(int i = 0; i < 100_000; i++) dense.add(i);
+        final byte[] bytes = dense.toBytes();
+        bytes[3] = 64 - 12 + 1;
+        assertEquals(dense.getPrecision(), HyperLogLog.fromBytes(bytes).getPrecision());
+        bytes[3]++;
+        HyperLogLog.fromBytes(bytes);
+    }
+
+    /**
+     * The sparse entries that do not decode, or come out of order, are corrupt.
+     */
+    @Test public void testCorruptSparse() throws Exception {
+        final HyperLogLog sparse = new HyperLogLog();
+        for(int i = 0; i < 100; i++) sparse.add(i);
+        final byte[] bytes = sparse.toBytes();
+        assertTrue(HyperLogLog.fromBytes(bytes).isSparse());
+        // past the version, precision, mode and count: the first entry, then the second one
+        final int first = 7, second = 11;
+        final byte[][] tampered = new byte[4][];
+        for(int i = 0; i < tampered.length; i++) tampered[i] = bytes.clone();
+        tampered[0][first] = (byte) 0x80; // negative
+        tampered[1][first + 3] &= (byte) 0xC0; // rank 0
+        tampered[2][first + 3] |= (byte) 0x3F; // rank 63, over the 40 max
+        System.arraycopy(bytes, first, tampered[3], second, 4); // the index repeats
+        for(final byte[] source : tampered) {
+            try {
+                HyperLogLog.fromBytes(source);
+                fail("Read the corrupt sparse sketch");
+            }
+            catch(IOException expected) {
+                L.debug("Expected: {}", expected.toString());
+            }
+        }
+    }
+}
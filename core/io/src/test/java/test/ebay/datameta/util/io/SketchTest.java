@@ -0,0 +1,141 @@
+package test.ebay.datameta.util.io;
+
+import org.ebay.datameta.util.io.CountMinSketch;
+import org.ebay.datameta.util.io.KeyedRecordTracker;
+import org.ebay.datameta.util.io.SpaceSaving;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Count-min sketch and Space-Saving on a skewed stream: counts within the bounds, the heavy hitters found, merging.
+ * @author Michael Bergens
+ */
+public class SketchTest {
+    private static final Logger L = LoggerFactory.getLogger(SketchTest.class);
+
+    private static final int KEYS = 10_000;
+    private static final int STREAM = 500_000;
+
+    private static String key(final int i) { return "K" + i; }
+
+    /**
+     * Zipf-like stream: key {@code i} comes up about {@code 1/(i+1)} as often as the key 0.
+     */
+    private static int[] skewedStream(final long seed) {
+        final Random random = new Random(seed);
+        final double[] cumulative = new double[KEYS];
+        double sum = 0;
+        for(int i = 0; i < KEYS; i++) cumulative[i] = sum += 1.0 / (i + 1);
+        final int[] stream = new int[STREAM];
+        for(int i = 0; i < STREAM; i++) {
+            final double pick = random.nextDouble() * sum;
+            int lo = 0, hi = KEYS - 1;
+            while(lo < hi) {
+                final int mid = (lo + hi) >>> 1;
+                if(cumulative[mid] < pick) lo = mid + 1; else hi = mid;
+            }
+            stream[i] = lo;
+        }
+        return stream;
+    }
+
+    private static long[] actualCounts(final int[] stream) {
+        final long[] counts = new long[KEYS];
+        for(final int k : stream) counts[k]++;
+        return counts;
+    }
+
+    @Test public void testCountMin() {
+        final int[] stream = skewedStream(1L);
+        final long[] actual = actualCounts(stream);
+        final double epsilon = 0.001;
+        final CountMinSketch sketch = CountMinSketch.create(epsilon, 0.01);
+        for(final int k : stream) sketch.add(key(k));
+        assertEquals(STREAM, sketch.getTotal());
+        int outOfBound = 0;
+        for(int k = 0; k < KEYS; k++) {
+            final long estimate = sketch.estimate(key(k));
+            assertTrue(estimate >= actual[k]);
+            if(estimate - actual[k] > epsilon * STREAM) outOfBound++;
+        }
+        L.info("{}: {} keys over the bound", sketch, outOfBound);
+        assertTrue(outOfBound < KEYS / 100);
+
+        final CountMinSketch half1 = CountMinSketch.create(epsilon, 0.01), half2 = CountMinSketch.create(epsilon, 0.01);
+        for(int i = 0; i < STREAM; i++) (i % 2 == 0 ? half1 : half2).add(key(stream[i]));
+        half1.merge(half2);
+        assertEquals(STREAM, half1.getTotal());
+        for(int k = 0; k < KEYS; k++) assertTrue(half1.estimate(key(k)) >= actual[k]);
+    }
+
+    @Test public void testSpaceSaving() {
+        final int[] stream = skewedStream(2L);
+        final long[] actual = actualCounts(stream);
+        final SpaceSaving<String> top = new SpaceSaving<>(100);
+        for(final int k : stream) top.add(key(k));
+        final List<SpaceSaving.Entry<String>> top10 = top.getTop(10);
+        L.info("{}", top);
+        assertEquals(10, top10.size());
+        // the Zipf ranks are well apart at the top, the order is the key order
+        for(int i = 0; i < 10; i++) {
+            final SpaceSaving.Entry<String> entry = top10.get(i);
+            assertEquals(key(i), entry.getKey());
+            assertTrue(entry.getCount() >= actual[i]);
+            assertTrue(entry.getGuaranteedCount() <= actual[i]);
+        }
+
+        final SpaceSaving<String> part1 = new SpaceSaving<>(100), part2 = new SpaceSaving<>(100);
+        for(int i = 0; i < STREAM; i++) (i < STREAM / 3 ? part1 : part2).add(key(stream[i]));
+        part1.merge(part2);
+        assertEquals(STREAM, part1.getTotal());
+        assertEquals(100, part1.getSize());
+        final List<SpaceSaving.Entry<String>> merged = part1.getTop(5);
+        for(int i = 0; i < 5; i++) {
+            assertEquals(key(i), merged.get(i).getKey());
+            assertTrue(merged.get(i).getCount() >= actual[i]);
+            assertTrue(merged.get(i).getGuaranteedCount() <= actual[i]);
+        }
+    }
+
+    @Test public void testKeyedTracker() {
+        final KeyedRecordTracker t1 = new KeyedRecordTracker(), t2 = new KeyedRecordTracker();
+        for(int i = 0; i < 1000; i++) {
+            t1.incGoodRec();
+            t1.incBadRec(i % 10 == 0 ? "hot" : key(i));
+            t2.incErrorRec("broken");
+            t2.incErrorRec();
+        }
+        t1.merge(t2);
+        assertEquals(1000, t1.getGoodRecCount());
+        assertEquals(1000, t1.getBadRecCount());
+        assertEquals(2000, t1.getErrorRecCount());
+        assertEquals(4000, t1.getTotalRecCount());
+        assertEquals(100, t1.getBadRecCount("hot"));
+        assertEquals(1000, t1.getErrorRecCount("broken"));
+        assertEquals("hot", t1.getTopBad(1).get(0).getKey());
+        assertEquals("broken", t1.getTopErrors(1).get(0).getKey());
+
+        // same sketches, different top capacity: rejected with nothing merged
+        final KeyedRecordTracker other = new KeyedRecordTracker(KeyedRecordTracker.DEFAULT_EPSILON,
+            KeyedRecordTracker.DEFAULT_DELTA, KeyedRecordTracker.DEFAULT_TOP_CAPACITY + 1);
+        other.incBadRec("hot");
+        other.incErrorRec("broken");
+        try {
+            t1.merge(other);
+            fail("Merged the tracker of a different capacity");
+        }
+        catch(IllegalArgumentException expected) {
+            assertEquals(100, t1.getBadRecCount("hot"));
+            assertEquals(1000, t1.getErrorRecCount("broken"));
+            assertEquals(1000, t1.getBadRecCount());
+        }
+    }
+}
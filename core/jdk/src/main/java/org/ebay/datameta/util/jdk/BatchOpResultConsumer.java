@@ -0,0 +1,20 @@
+package org.ebay.datameta.util.jdk;
+
+import java.util.List;
+
+/**
+ * Consumer of the operation results in batches, for the consumers whose every call costs, like those writing to a
+ * file or to the network.
+ * @author Michael Bergens
+ *
+ * @param <T> the type of the result value of the operation, see {@link OpResult#getValue()}.
+ * @see OpResultRing
+ * @see OpResultConsumer
+ */
+public interface BatchOpResultConsumer<T> {
+    /**
+     * Consumes the batch, never empty, in the order the results were published by each producer.
+     * @param batch valid only during the call, reused after it returns: copy what needs to be kept.
+     */
+    @Api void consume(List<OpResult<T>> batch);
+}
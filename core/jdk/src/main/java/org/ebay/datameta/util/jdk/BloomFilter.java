@@ -0,0 +1,155 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static org.ebay.datameta.util.jdk.MathUtil.unsignedMultiplyHigh;
+
+/**
+ * Compact probabilistic set membership: answers "definitely not in the set" or "probably in the set" in a few bits
+ * per entry, no matter how long the keys are. The way to short-circuit the misses before probing a large exact set.
+ *
+ * <p>A key is hashed once with {@link HashUtil#xxHash64(CharSequence, long) xxHash64}, the bit positions are
+ * derived from that single hash by the double hashing of Kirsch and Mitzenmacher, which is as good as having
+ * as many independent hashes. No allocation on either adding or probing.</p>
+ *
+ * <p>The keys of different types are not interchangeable: the String {@code "42"} and the long {@code 42} are
+ * different keys.</p>
+ *
+ * <p>Not thread safe for adding: fill it in one thread, then publish it safely, after that any number of threads can
+ * probe it concurrently.</p>
+ *
+ * @author Michael Bergens
+ * @see CuckooFilter
+ */
+@NotThreadSafe public class BloomFilter {
+
+    /**
+     * The seed for the {@link HashUtil} hashes, any constant would do as long as it never changes.
+     */
+    @Api public static final long HASH_SEED = 0x5EED_B100_3F17_7E25L;
+
+    private final long[] bits;
+    private final long bitSize;
+    private final int numHashes;
+    private long count;
+
+    /**
+     * Sizes the filter for the given number of keys and the false positive probability.
+     * @param expectedInsertions how many keys will be added; adding more is fine but raises the false positive rate.
+     * @param fpp desired false positive probability, between 0 and 1 exclusively, like {@code 0.01} for 1%.
+     */
+    @Api public static BloomFilter create(final long expectedInsertions, final double fpp) {
+        if(expectedInsertions < 1) throw new IllegalArgumentException("Expected insertions must be positive: "
+            + expectedInsertions);
+        if(!(fpp > 0.0 && fpp < 1.0)) throw new IllegalArgumentException("False positive probability must be between 0 and 1: "
+            + fpp);
+        final double ln2 = Math.log(2);
+        final long bitSize = Math.max(Long.SIZE, (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (ln2 * ln2)));
+        final int numHashes = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * ln2));
+        return new BloomFilter(bitSize, numHashes);
+    }
+
+    private BloomFilter(final long bitSize, final int numHashes) {
+        final long words = (bitSize + Long.SIZE - 1) / Long.SIZE;
+        if(words > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Too many bits for a Bloom filter: " + bitSize);
+        this.bits = new long[(int) words];
+        this.bitSize = words * Long.SIZE;
+        this.numHashes = numHashes;
+    }
+
+    @Api public boolean put(final CharSequence key) { return putHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public boolean put(final byte[] key, final int offset, final int length) {
+        return putHash(HashUtil.xxHash64(key, offset, length, HASH_SEED));
+    }
+
+    @Api public boolean put(final long key) { return putHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    /**
+     * Adds all the keys, returns this instance.
+     */
+    @Api public BloomFilter putAll(final Iterable<? extends CharSequence> keys) {
+        for(final CharSequence key : keys) put(key);
+        return this;
+    }
+
+    @Api public boolean mightContain(final CharSequence key) { return mightContainHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public boolean mightContain(final byte[] key, final int offset, final int length) {
+        return mightContainHash(HashUtil.xxHash64(key, offset, length, HASH_SEED));
+    }
+
+    @Api public boolean mightContain(final long key) { return mightContainHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    /**
+     * Adds a key by its 64 bit hash, for when you have a well spread hash of the key already. Mixing keys added by
+     * hash with those added by value only works if the hash is the matching {@link HashUtil} xxHash64 overload
+     * with the {@link #HASH_SEED}.
+     * @return true if any bit changed, i.e. the key was definitely not there before; false if it might have been.
+     */
+    @Api public boolean putHash(final long hash) {
+        long combined = hash;
+        final long step = Long.rotateLeft(hash, 32) | 1L;
+        boolean changed = false;
+        for(int i = 0; i < numHashes; i++, combined += step) {
+            final long index = unsignedMultiplyHigh(combined, bitSize); // maps the hash onto 0..bitSize-1 without a division
+            final int word = (int) (index >>> 6);
+            final long mask = 1L << index;
+            if((bits[word] & mask) == 0) {
+                bits[word] |= mask;
+                changed = true;
+            }
+        }
+        if(changed) count++;
+        return changed;
+    }
+
+    /**
+     * Probes a key by its 64 bit hash, see {@link #putHash(long)}.
+     * @return false if the key was definitely never added; true if it probably was.
+     */
+    @Api public boolean mightContainHash(final long hash) {
+        long combined = hash;
+        final long step = Long.rotateLeft(hash, 32) | 1L;
+        for(int i = 0; i < numHashes; i++, combined += step) {
+            final long index = unsignedMultiplyHigh(combined, bitSize);
+            if((bits[(int) (index >>> 6)] & (1L << index)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Adds all the keys of the other filter to this one; both must have been built with the same parameters.
+     * @throws IllegalArgumentException if the other filter is of a different size or number of hashes.
+     */
+    @Api public BloomFilter putAll(final BloomFilter other) {
+        if(other.bitSize != bitSize || other.numHashes != numHashes) throw new IllegalArgumentException(
+            "Can not merge Bloom filters of different configuration: " + this + " and " + other);
+        for(int i = 0; i < bits.length; i++) bits[i] |= other.bits[i];
+        count += other.count;
+        return this;
+    }
+
+    /**
+     * How many distinct keys were added, as far as the filter could tell; a lower bound because the false positives
+     * on adding are not counted. After {@link #putAll(BloomFilter)} this is the sum and may be an overestimate.
+     */
+    @Api public long getCount() { return count; }
+
+    @Api public long getBitSize() { return bitSize; }
+
+    @Api public int getNumHashes() { return numHashes; }
+
+    /**
+     * The false positive probability estimated from how many bits are actually set.
+     */
+    @Api public double getExpectedFpp() {
+        long setBits = 0;
+        for(final long word : bits) setBits += Long.bitCount(word);
+        return Math.pow((double) setBits / bitSize, numHashes);
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{bits=" + bitSize + ", hashes=" + numHashes + ", count=" + count + '}';
+    }
+}
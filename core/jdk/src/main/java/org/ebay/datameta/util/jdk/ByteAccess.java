@@ -0,0 +1,104 @@
+package org.ebay.datameta.util.jdk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Little-endian read access to a byte source, lets the block hashes in {@link HashUtil} run the same code over
+ * a byte array, a {@link ByteBuffer} and a {@link CharSequence} without copying the source anywhere.
+ * The instances are stateless singletons, so using them costs no allocation.
+ *
+ * <p>A {@link CharSequence} is seen as the UTF-16LE image of its chars: two bytes per char, low byte first.</p>
+ *
+ * @param <T> the type of the byte source.
+ * @author Michael Bergens
+ */
+abstract class ByteAccess<T> {
+
+    static final ByteAccess<byte[]> BYTE_ARRAY = new ByteAccess<byte[]>() {
+        @Override long i64(final byte[] src, final int off) {
+            return (src[off] & 0xFFL)
+                | (src[off + 1] & 0xFFL) << 8
+                | (src[off + 2] & 0xFFL) << 16
+                | (src[off + 3] & 0xFFL) << 24
+                | (src[off + 4] & 0xFFL) << 32
+                | (src[off + 5] & 0xFFL) << 40
+                | (src[off + 6] & 0xFFL) << 48
+                | (src[off + 7] & 0xFFL) << 56;
+        }
+
+        @Override long u32(final byte[] src, final int off) {
+            return (src[off] & 0xFFL)
+                | (src[off + 1] & 0xFFL) << 8
+                | (src[off + 2] & 0xFFL) << 16
+                | (src[off + 3] & 0xFFL) << 24;
+        }
+
+        @Override int u8(final byte[] src, final int off) { return src[off] & 0xFF; }
+    };
+
+    /**
+     * Absolute reads, position, limit and mark of the buffer stay intact. Honors the {@link ByteBuffer#order() order}
+     * of the buffer so the result is the same for either.
+     */
+    static final ByteAccess<ByteBuffer> BYTE_BUFFER = new ByteAccess<ByteBuffer>() {
+        @Override long i64(final ByteBuffer src, final int off) {
+            final long v = src.getLong(off);
+            return src.order() == ByteOrder.LITTLE_ENDIAN ? v : Long.reverseBytes(v);
+        }
+
+        @Override long u32(final ByteBuffer src, final int off) {
+            final int v = src.getInt(off);
+            return (src.order() == ByteOrder.LITTLE_ENDIAN ? v : Integer.reverseBytes(v)) & 0xFFFFFFFFL;
+        }
+
+        @Override int u8(final ByteBuffer src, final int off) { return src.get(off) & 0xFF; }
+    };
+
+    /**
+     * UTF-16LE view of the chars, the offsets are in bytes, i.e. twice the char index.
+     */
+    static final ByteAccess<CharSequence> CHARS = new ByteAccess<CharSequence>() {
+        @Override long i64(final CharSequence src, final int off) {
+            if((off & 1) != 0) return super.i64(src, off);
+            final int ix = off >> 1;
+            return (long) src.charAt(ix)
+                | (long) src.charAt(ix + 1) << 16
+                | (long) src.charAt(ix + 2) << 32
+                | (long) src.charAt(ix + 3) << 48;
+        }
+
+        @Override long u32(final CharSequence src, final int off) {
+            if((off & 1) != 0) return super.u32(src, off);
+            final int ix = off >> 1;
+            return (long) src.charAt(ix) | (long) src.charAt(ix + 1) << 16;
+        }
+
+        @Override int u8(final CharSequence src, final int off) {
+            final char c = src.charAt(off >> 1);
+            return (off & 1) == 0 ? c & 0xFF : c >>> 8;
+        }
+    };
+
+    /**
+     * Little-endian signed 64 bit value at the given byte offset. The default assembles it byte by byte.
+     */
+    long i64(final T src, final int off) {
+        return u32(src, off) | u32(src, off + 4) << 32;
+    }
+
+    /**
+     * Little-endian unsigned 32 bit value at the given byte offset. The default assembles it byte by byte.
+     */
+    long u32(final T src, final int off) {
+        return (long) u8(src, off)
+            | (long) u8(src, off + 1) << 8
+            | (long) u8(src, off + 2) << 16
+            | (long) u8(src, off + 3) << 24;
+    }
+
+    /**
+     * Unsigned byte at the given offset.
+     */
+    abstract int u8(final T src, final int off);
+}
@@ -0,0 +1,152 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.ebay.datameta.util.jdk.MathUtil.MERSENNE_13;
+import static org.ebay.datameta.util.jdk.MathUtil.MERSENNE_5;
+
+/**
+ * Immutable {@link IntAndString} for sorting and hashing in bulk: the text is kept as the bytes, Latin-1 if all its
+ * chars fit, else UTF-8, the hash is computed once, and the first 4 chars of the text are packed into a long, so that
+ * most comparisons are decided by the number and that long, without touching the bytes.
+ *
+ * <p>Orders, equals and hashes exactly as the {@link IntAndString} with the same number and text: the number first,
+ * then the null text before any, then the {@link String#compareTo(String)} order of the text. The text with the
+ * unpaired surrogates has no UTF-8 form, so it is not taken.</p>
+ *
+ * @author Michael Bergens
+ */
+@Immutable public final class CompactIntAndString implements Comparable<CompactIntAndString> {
+
+    private static final int PREFIX_CHARS = 4;
+
+    private final int number;
+
+    /**
+     * The text encoded, null for the null text.
+     */
+    private final byte[] bytes;
+    private final boolean latin1;
+
+    /**
+     * The first {@value #PREFIX_CHARS} chars of the text, 16 bits each, the first one in the highest bits, padded with
+     * zeros; compared unsigned, orders as the text does as far as the prefix goes.
+     */
+    private final long prefix;
+    private final int hash;
+
+    /**
+     * @param text nullable.
+     * @throws IllegalArgumentException if the text has the unpaired surrogates.
+     */
+    @Api public CompactIntAndString(final int number, @Nullable final String text) {
+        this.number = number;
+        if(text == null) {
+            bytes = null;
+            latin1 = true;
+            prefix = 0L;
+            hash = MERSENNE_13 ^ number;
+            return;
+        }
+        final int length = text.length();
+        boolean fitsLatin1 = true;
+        long packed = 0L;
+        for(int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if(c > 0xFF) fitsLatin1 = false;
+            if(i < PREFIX_CHARS) packed |= (long) c << (Character.SIZE * (PREFIX_CHARS - 1 - i));
+        }
+        latin1 = fitsLatin1;
+        if(latin1) bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        else {
+            bytes = new byte[Utf8.encodedLength(text)];
+            Utf8.encode(text, bytes, 0);
+            if(!text.equals(Utf8.decode(bytes, 0, bytes.length))) throw new IllegalArgumentException(
+                "Unpaired surrogates in the text: " + text);
+        }
+        prefix = packed;
+        hash = text.hashCode() * MERSENNE_5 ^ number;
+    }
+
+    /**
+     * The compact copy of the given one.
+     */
+    @Api public static CompactIntAndString of(final IntAndString source) {
+        return new CompactIntAndString(source.number, source.text);
+    }
+
+    @Api public int getNumber() { return number; }
+
+    /**
+     * The text decoded, a new string every call.
+     */
+    @Api @Nullable public String getText() {
+        return bytes == null ? null
+            : new String(bytes, latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Whether the text is kept as the Latin-1, one byte per char, otherwise it's UTF-8.
+     */
+    @Api public boolean isLatin1() { return latin1; }
+
+    /**
+     * The mutable, {@link String} based copy.
+     */
+    @Api public IntAndString toIntAndString() { return new IntAndString(number, getText()); }
+
+    /**
+     * Same order as the {@link IntAndString#compareTo(IntAndString)}, null included.
+     */
+    @Override public int compareTo(final CompactIntAndString that) {
+        if(this == that) return 0;
+        if(that == null) return 1;
+        if(number != that.number) return number < that.number ? -1 : 1;
+        if(bytes == null || that.bytes == null) return bytes == null ? (that.bytes == null ? 0 : -1) : 1;
+        if(prefix != that.prefix) return Long.compareUnsigned(prefix, that.prefix);
+        if(latin1 && that.latin1) return compareLatin1(bytes, that.bytes);
+        if(!latin1 && !that.latin1) return Utf8.compare(bytes, 0, bytes.length, that.bytes, 0, that.bytes.length);
+        return latin1 ? compareLatin1ToUtf8(bytes, that.bytes) : -compareLatin1ToUtf8(that.bytes, bytes);
+    }
+
+    @SuppressWarnings("EqualsWhichDoesntCheckParameterClass") @Override public boolean equals(final Object other) {
+        if(this == other) return true;
+        if(other == null) return false;
+        final CompactIntAndString that = (CompactIntAndString) other;
+        // same text means same encoding: Latin-1 is picked whenever it fits
+        return number == that.number && hash == that.hash && prefix == that.prefix && Arrays.equals(bytes, that.bytes);
+    }
+
+    /**
+     * Cached; the same as the {@link IntAndString#hashCode()}.
+     */
+    @Override public int hashCode() { return hash; }
+
+    @Override public String toString() { return "{" + number + ",\"" + getText() + "\"}"; }
+
+    private static int compareLatin1(final byte[] left, final byte[] right) {
+        final int common = Math.min(left.length, right.length);
+        for(int i = 0; i < common; i++) {
+            if(left[i] != right[i]) return (left[i] & 0xFF) - (right[i] & 0xFF);
+        }
+        return left.length - right.length;
+    }
+
+    /**
+     * The Latin-1 chars are all below {@code U+0100}, so where the UTF-8 code point differs from the Latin-1 char,
+     * comparing them as numbers gives the UTF-16 order too: the UTF-16 units of any greater code point are greater.
+     */
+    private static int compareLatin1ToUtf8(final byte[] latin1, final byte[] utf8) {
+        int i = 0, j = 0;
+        while(i < latin1.length && j < utf8.length) {
+            final int c = latin1[i++] & 0xFF;
+            final int codePoint = Utf8.codePointAt(utf8, j, utf8.length);
+            if(c != codePoint) return c < codePoint ? -1 : 1;
+            j += Utf8.sequenceLength(utf8[j] & 0xFF);
+        }
+        return i < latin1.length ? 1 : (j < utf8.length ? -1 : 0);
+    }
+}
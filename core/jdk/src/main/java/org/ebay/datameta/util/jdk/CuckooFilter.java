@@ -0,0 +1,279 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static org.ebay.datameta.util.jdk.BloomFilter.HASH_SEED;
+
+/**
+ * <a href="https://www.cs.cmu.edu/~dga/papers/cuckoo-conext2014.pdf" target=_blank>Cuckoo filter</a>: probabilistic
+ * set membership like the {@link BloomFilter} which, unlike the Bloom filter, supports {@link #remove(CharSequence)
+ * removing} the keys, and takes less space for the false positive rates below 3% or so.
+ *
+ * <p>Keeps a short fingerprint of every key in one of the two candidate buckets of 4 slots; the fingerprints are
+ * bit-packed, as wide as the requested false positive rate calls for. The filter can fill up: once it does,
+ * {@link #put(CharSequence)} returns false and the filter stays valid, just can not take more keys.
+ * Sized by the {@link #create(long, double) factory method} at 95% load for the expected insertions, that's not
+ * going to happen before the expected insertions are all in.</p>
+ *
+ * <p>Removing a key that was never added may remove another key that shares the fingerprint and buckets with it,
+ * causing a false negative on that one; only remove the keys that you know were added.</p>
+ *
+ * <p>Not thread safe for updates: once filled and published safely, any number of threads can probe it
+ * concurrently. No allocation on either updating or probing.</p>
+ *
+ * @author Michael Bergens
+ * @see BloomFilter
+ */
+@NotThreadSafe public class CuckooFilter {
+
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final double MAX_LOAD = 0.95;
+    private static final int MAX_KICKS = 500;
+    private static final int MIN_TAG_BITS = 4;
+    private static final int MAX_TAG_BITS = 32;
+
+    private final long[] table;
+    private final int bucketMask;
+    private final int tagBits;
+    private final long tagMask;
+    private long count;
+
+    /**
+     * The fingerprint that did not fit after the max number of kicks, kept aside so the filter stays without
+     * false negatives; while it's there, the filter takes no more keys.
+     */
+    private boolean hasVictim;
+    private int victimBucket;
+    private long victimTag;
+
+    /**
+     * Xorshift state for picking the slot to kick out, so the kicks don't cycle.
+     */
+    private long random = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Sizes the filter for the given number of keys and the false positive probability.
+     * @param expectedInsertions how many keys will be added.
+     * @param fpp desired false positive probability, between 0 and 1 exclusively, like {@code 0.001} for 0.1%.
+     */
+    @Api public static CuckooFilter create(final long expectedInsertions, final double fpp) {
+        if(expectedInsertions < 1) throw new IllegalArgumentException("Expected insertions must be positive: "
+            + expectedInsertions);
+        if(!(fpp > 0.0 && fpp < 1.0)) throw new IllegalArgumentException("False positive probability must be between 0 and 1: "
+            + fpp);
+        // a probe compares against 2 buckets of 4 fingerprints, each matching by chance with the probability of 2^-bits
+        final int tagBits = Math.min(MAX_TAG_BITS, Math.max(MIN_TAG_BITS,
+            (int) Math.ceil(Math.log(2.0 * SLOTS_PER_BUCKET / fpp) / Math.log(2))));
+        final long minBuckets = (long) Math.ceil(expectedInsertions / (SLOTS_PER_BUCKET * MAX_LOAD));
+        // power of 2 so the alternate bucket is a XOR away and takes the same number of buckets back
+        final long buckets = Long.highestOneBit(Math.max(2, minBuckets - 1)) << 1;
+        if(buckets > 1 << 30) throw new IllegalArgumentException("Too many keys for a cuckoo filter: " + expectedInsertions);
+        return new CuckooFilter((int) buckets, tagBits);
+    }
+
+    private CuckooFilter(final int buckets, final int tagBits) {
+        final long totalBits = (long) buckets * SLOTS_PER_BUCKET * tagBits;
+        final long words = (totalBits + Long.SIZE - 1) / Long.SIZE;
+        if(words > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Too many bits for a cuckoo filter: " + totalBits);
+        this.table = new long[(int) words];
+        this.bucketMask = buckets - 1;
+        this.tagBits = tagBits;
+        this.tagMask = (1L << tagBits) - 1;
+    }
+
+    @Api public boolean put(final CharSequence key) { return putHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public boolean put(final byte[] key, final int offset, final int length) {
+        return putHash(HashUtil.xxHash64(key, offset, length, HASH_SEED));
+    }
+
+    @Api public boolean put(final long key) { return putHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    /**
+     * Adds all the keys, stops at the first that does not fit.
+     * @return true if all the keys were added, false if the filter filled up.
+     */
+    @Api public boolean putAll(final Iterable<? extends CharSequence> keys) {
+        for(final CharSequence key : keys) if(!put(key)) return false;
+        return true;
+    }
+
+    @Api public boolean mightContain(final CharSequence key) { return mightContainHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public boolean mightContain(final byte[] key, final int offset, final int length) {
+        return mightContainHash(HashUtil.xxHash64(key, offset, length, HASH_SEED));
+    }
+
+    @Api public boolean mightContain(final long key) { return mightContainHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public boolean remove(final CharSequence key) { return removeHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    @Api public boolean remove(final byte[] key, final int offset, final int length) {
+        return removeHash(HashUtil.xxHash64(key, offset, length, HASH_SEED));
+    }
+
+    @Api public boolean remove(final long key) { return removeHash(HashUtil.xxHash64(key, HASH_SEED)); }
+
+    /**
+     * Adds a key by its 64 bit hash, see {@link BloomFilter#putHash(long)} for mixing those with the keys.
+     * The same key can be added more than once, up to 8 times, and then must be removed as many times.
+     * @return true if added, false if the filter is full.
+     */
+    @Api public boolean putHash(final long hash) {
+        if(hasVictim) return false;
+        long tag = tagOf(hash);
+        int bucket = (int) hash & bucketMask;
+        if(insertIntoBucket(bucket, tag)) return added();
+        int alt = altBucket(bucket, tag);
+        if(insertIntoBucket(alt, tag)) return added();
+
+        bucket = nextRandom() < 0 ? bucket : alt;
+        for(int kick = 0; kick < MAX_KICKS; kick++) {
+            final int slot = (int) (nextRandom() >>> 62); // one of the 4 slots
+            final long evicted = getTag(bucket, slot);
+            setTag(bucket, slot, tag);
+            tag = evicted;
+            bucket = altBucket(bucket, tag);
+            if(insertIntoBucket(bucket, tag)) return added();
+        }
+        // out of kicks: the key is in, but some other fingerprint is homeless now
+        hasVictim = true;
+        victimBucket = bucket;
+        victimTag = tag;
+        return added();
+    }
+
+    /**
+     * Probes a key by its 64 bit hash.
+     * @return false if the key is definitely not there; true if it probably is.
+     */
+    @Api public boolean mightContainHash(final long hash) {
+        final long tag = tagOf(hash);
+        final int bucket = (int) hash & bucketMask;
+        final int alt = altBucket(bucket, tag);
+        return bucketHas(bucket, tag) || bucketHas(alt, tag)
+            || (hasVictim && victimTag == tag && (victimBucket == bucket || victimBucket == alt));
+    }
+
+    /**
+     * Removes one copy of the key by its 64 bit hash.
+     * @return true if a matching fingerprint was found and removed.
+     */
+    @Api public boolean removeHash(final long hash) {
+        final long tag = tagOf(hash);
+        final int bucket = (int) hash & bucketMask;
+        final int alt = altBucket(bucket, tag);
+        if(hasVictim && victimTag == tag && (victimBucket == bucket || victimBucket == alt)) {
+            hasVictim = false;
+            count--;
+            return true;
+        }
+        if(!removeFromBucket(bucket, tag) && !removeFromBucket(alt, tag)) return false;
+        count--;
+        if(hasVictim) { // there is room now, try to home the victim, it's counted already
+            hasVictim = false;
+            if(!insertIntoBucket(victimBucket, victimTag)
+                && !insertIntoBucket(altBucket(victimBucket, victimTag), victimTag)) hasVictim = true;
+        }
+        return true;
+    }
+
+    /**
+     * How many keys are in the filter.
+     */
+    @Api public long getCount() { return count; }
+
+    /**
+     * How many fingerprints the filter has room for, not counting the losses to the collisions.
+     */
+    @Api public long getCapacity() { return (long) (bucketMask + 1) * SLOTS_PER_BUCKET; }
+
+    /**
+     * Bits per fingerprint, what's chosen to satisfy the requested false positive probability.
+     */
+    @Api public int getTagBits() { return tagBits; }
+
+    /**
+     * True when the last insertion could not find a home for a fingerprint, the filter won't take more keys
+     * until some are removed.
+     */
+    @Api public boolean isFull() { return hasVictim; }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{buckets=" + (bucketMask + 1) + ", tagBits=" + tagBits + ", count=" + count
+            + (hasVictim ? ", full" : "") + '}';
+    }
+
+    private boolean added() {
+        count++;
+        return true;
+    }
+
+    /**
+     * Fingerprint from the upper half of the hash, the bucket comes from the lower half. Zero marks an empty slot,
+     * so it's never a fingerprint.
+     */
+    private long tagOf(final long hash) {
+        final long tag = (hash >>> 32) & tagMask;
+        return tag == 0 ? 1 : tag;
+    }
+
+    /**
+     * The other bucket for the fingerprint; applied twice, gets back to the original one.
+     */
+    private int altBucket(final int bucket, final long tag) {
+        return (bucket ^ (int) (tag * 0x5BD1E995L)) & bucketMask;
+    }
+
+    private long nextRandom() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return random;
+    }
+
+    private boolean insertIntoBucket(final int bucket, final long tag) {
+        for(int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+            if(getTag(bucket, slot) == 0) {
+                setTag(bucket, slot, tag);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean removeFromBucket(final int bucket, final long tag) {
+        for(int slot = 0; slot < SLOTS_PER_BUCKET; slot++) {
+            if(getTag(bucket, slot) == tag) {
+                setTag(bucket, slot, 0);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean bucketHas(final int bucket, final long tag) {
+        for(int slot = 0; slot < SLOTS_PER_BUCKET; slot++) if(getTag(bucket, slot) == tag) return true;
+        return false;
+    }
+
+    private long getTag(final int bucket, final int slot) {
+        final long bitIndex = ((long) bucket * SLOTS_PER_BUCKET + slot) * tagBits;
+        final int word = (int) (bitIndex >>> 6);
+        final int shift = (int) bitIndex & 63;
+        long value = table[word] >>> shift;
+        if(shift + tagBits > Long.SIZE) value |= table[word + 1] << (Long.SIZE - shift);
+        return value & tagMask;
+    }
+
+    private void setTag(final int bucket, final int slot, final long tag) {
+        final long bitIndex = ((long) bucket * SLOTS_PER_BUCKET + slot) * tagBits;
+        final int word = (int) (bitIndex >>> 6);
+        final int shift = (int) bitIndex & 63;
+        table[word] = table[word] & ~(tagMask << shift) | tag << shift;
+        if(shift + tagBits > Long.SIZE) {
+            final int spill = Long.SIZE - shift;
+            table[word + 1] = table[word + 1] & ~(tagMask >>> spill) | tag >>> spill;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package org.ebay.datameta.util.jdk;
+
+import java.util.Arrays;
+
+import static org.ebay.datameta.util.jdk.MathUtil.checkRange;
+
+/**
+ * Consistent hash ring with weighted virtual nodes: every node places a number of points proportional to its weight
+ * on the 64 bit circle, a key goes to the owner of the first point at or after the key's hash. When a node comes,
+ * goes or changes weight, only the keys falling next to its points move.
+ *
+ * <p>The nodes are identified by their index in the weights array, and the ring is immutable: to change the setup,
+ * build a new ring with the new weights. To take a node out without disturbing the others, set its weight to zero
+ * rather than shifting the indexes; new nodes go to the end.</p>
+ *
+ * <p>The lookup is a binary search over a single sorted {@code long[]}, the point position is in its upper 40 bits
+ * and the owner in the lower 24, no allocation.</p>
+ *
+ * <p>Thread safe, being immutable.</p>
+ *
+ * @author Michael Bergens
+ * @see MathUtil#jumpConsistentHash(long, int)
+ * @see RendezvousHash
+ */
+public class HashRing {
+
+    /**
+     * Virtual nodes per the unit of the weight, by default; the load spread between the nodes is roughly
+     * {@code 1/sqrt(points)}, some 10% with 100.
+     */
+    public static final int DEFAULT_POINTS_PER_WEIGHT = 100;
+
+    /**
+     * The seed for the {@link HashUtil} hashes of both the keys and the points.
+     */
+    @Api public static final long HASH_SEED = 0x7269_6E67_C0FF_EE01L;
+
+    static final int OWNER_BITS = 24;
+    static final long OWNER_MASK = (1L << OWNER_BITS) - 1;
+
+    private final long[] points;
+    private final int nodeCount;
+
+    @Api public HashRing(final int... weights) { this(weights, DEFAULT_POINTS_PER_WEIGHT); }
+
+    /**
+     * @param weights non-negative weight for each node, at least one positive.
+     * @param pointsPerWeight how many virtual nodes to place for each unit of the weight.
+     */
+    @Api public HashRing(final int[] weights, final int pointsPerWeight) {
+        if(pointsPerWeight < 1) throw new IllegalArgumentException("Points per weight must be positive: " + pointsPerWeight);
+        if(weights.length > OWNER_MASK) throw new IllegalArgumentException("Too many nodes: " + weights.length);
+        long total = 0;
+        for(int node = 0; node < weights.length; node++) {
+            if(weights[node] < 0) throw new IllegalArgumentException("Negative weight " + weights[node] + " of the node " + node);
+            total += (long) weights[node] * pointsPerWeight;
+        }
+        if(total == 0) throw new IllegalArgumentException("No node has a positive weight");
+        if(total > Integer.MAX_VALUE - 8) throw new IllegalArgumentException("Too many points: " + total);
+        points = new long[(int) total];
+        int p = 0;
+        for(int node = 0; node < weights.length; node++) {
+            final int count = weights[node] * pointsPerWeight;
+            for(int v = 0; v < count; v++)
+                points[p++] = HashUtil.xxHash64((long) node << 32 | v, HASH_SEED) & ~OWNER_MASK | node;
+        }
+        Arrays.sort(points);
+        nodeCount = weights.length;
+    }
+
+    /**
+     * The node for the key among all the nodes.
+     */
+    @Api public int bucketFor(final long key) { return bucketFor(key, nodeCount); }
+
+    /**
+     * The node for the key among only the first {@code buckets} nodes: the keys of the nodes past that go to the next
+     * points on the ring, the same as if those nodes were removed.
+     * @throws IllegalArgumentException if {@code buckets} is out of the {@code 1..nodeCount} range or the first
+     * {@code buckets} nodes all have zero weight.
+     */
+    @Api public int bucketFor(final long key, final int buckets) {
+        if(buckets < 1 || buckets > nodeCount) throw new IllegalArgumentException("Buckets must be in the range 1.."
+            + nodeCount + ", got " + buckets);
+        final long position = HashUtil.xxHash64(key, HASH_SEED) & ~OWNER_MASK;
+        int index = Arrays.binarySearch(points, position);
+        if(index < 0) index = -index - 1;
+        for(int step = 0; step < points.length; step++, index++) {
+            if(index == points.length) index = 0;
+            final int owner = (int) (points[index] & OWNER_MASK);
+            if(owner < buckets) return owner;
+        }
+        throw new IllegalArgumentException("None of the first " + buckets + " nodes has a positive weight");
+    }
+
+    /**
+     * {@link #bucketFor(long, int)} for a range of keys at once, writing the nodes into the matching positions of
+     * the output array.
+     */
+    @Api public void bucketsFor(final long[] keys, final int offset, final int length, final int buckets, final int[] out) {
+        checkRange(keys.length, offset, length);
+        checkRange(out.length, offset, length);
+        for(int i = offset; i < offset + length; i++) out[i] = bucketFor(keys[i], buckets);
+    }
+
+    @Api public int getNodeCount() { return nodeCount; }
+
+    @Api public int getPointCount() { return points.length; }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{nodes=" + nodeCount + ", points=" + points.length + '}';
+    }
+}
@@ -0,0 +1,380 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+
+import static org.ebay.datameta.util.jdk.MathUtil.checkRange;
+import static org.ebay.datameta.util.jdk.MathUtil.unsignedMultiplyHigh;
+
+/**
+ * Block oriented non-cryptographic hashes, those consume 8 to 32 bytes per step instead of one char at a time
+ * like the FNV family in {@link MathUtil}, and have far better avalanche:
+ * <ul>
+ * <li><a href="https://github.com/Cyan4973/xxHash">xxHash64</a> - fast on all key lengths, the default choice.</li>
+ * <li><a href="https://github.com/aappleby/smhasher">MurmurHash3</a>, the x64 128 bit variant - for when 64 bits
+ * are not enough, bit for bit compatible with the reference and, for non-negative seeds, with Guava's
+ * {@code Hashing.murmur3_128(int)}; Guava sign-extends the seed where the reference does not.</li>
+ * <li><a href="https://github.com/wangyi-fudan/wyhash">wyhash</a>, version 3 - the fastest on the short keys.</li>
+ * </ul>
+ *
+ * <p>Every hash is available over a byte array range, a {@link ByteBuffer} range, heap or direct, and
+ * a {@link CharSequence}; none of those allocates anything. A {@link CharSequence} is hashed as the UTF-16LE image
+ * of its chars, i.e. the same as the byte array that {@code String.getBytes(UTF_16LE)} would return.</p>
+ *
+ * <p>The results depend on nothing but the input bytes and the seed, not on the JVM, the platform or the
+ * {@link ByteBuffer#order() byte order} of a buffer, so they are safe to persist and to partition the data between
+ * the nodes by.</p>
+ *
+ * @author Michael Bergens
+ * @see MathUtil#fnvHashXor64(byte[], int, int)
+ */
+public class HashUtil {
+
+    static final long XXH_P1 = 0x9E3779B185EBCA87L;
+    static final long XXH_P2 = 0xC2B2AE3D27D4EB4FL;
+    static final long XXH_P3 = 0x165667B19E3779F9L;
+    static final long XXH_P4 = 0x85EBCA77C2B2AE63L;
+    static final long XXH_P5 = 0x27D4EB2F165667C5L;
+
+    private static final long MURMUR3_C1 = 0x87C37B91114253D5L;
+    private static final long MURMUR3_C2 = 0x4CF5AD432745937FL;
+
+    private static final long WY_P0 = 0xA0761D6478BD642FL;
+    private static final long WY_P1 = 0xE7037ED1A0B428DBL;
+    private static final long WY_P2 = 0x8EBC6AF09C88C6E3L;
+    private static final long WY_P3 = 0x589965CC75374CC3L;
+    private static final long WY_P4 = 0x1D8E4E27C47D124FL;
+
+    /**
+     * xxHash64 of the byte array range.
+     * @param source the bytes to hash, not modified.
+     * @param offset where to start in the array.
+     * @param length how many bytes to hash.
+     * @param seed any value, the same seed must be used for the results to be comparable.
+     */
+    @Api public static long xxHash64(final byte[] source, final int offset, final int length, final long seed) {
+        checkRange(source.length, offset, length);
+        return xxHash64(ByteAccess.BYTE_ARRAY, source, offset, length, seed);
+    }
+
+    /**
+     * xxHash64 of the buffer range from the given absolute offset. Does not change the buffer's position, limit or mark.
+     */
+    @Api public static long xxHash64(final ByteBuffer source, final int offset, final int length, final long seed) {
+        checkRange(source.limit(), offset, length);
+        if(source.hasArray()) return xxHash64(source.array(), source.arrayOffset() + offset, length, seed);
+        return xxHash64(ByteAccess.BYTE_BUFFER, source, offset, length, seed);
+    }
+
+    /**
+     * xxHash64 of the {@link ByteBuffer#remaining() remaining} bytes of the buffer.
+     */
+    @Api public static long xxHash64(final ByteBuffer source, final long seed) {
+        return xxHash64(source, source.position(), source.remaining(), seed);
+    }
+
+    /**
+     * xxHash64 of the UTF-16LE image of the chars.
+     */
+    @Api public static long xxHash64(final CharSequence source, final long seed) {
+        return xxHash64(ByteAccess.CHARS, source, 0, source.length() << 1, seed);
+    }
+
+    /**
+     * xxHash64 of the 8 little-endian bytes of the value, same as hashing those bytes in an array, only faster.
+     * Handy for hashing numeric IDs and packed keys.
+     */
+    @Api public static long xxHash64(final long value, final long seed) {
+        long h = seed + XXH_P5 + Long.BYTES;
+        h ^= xxhRound(0, value);
+        h = Long.rotateLeft(h, 27) * XXH_P1 + XXH_P4;
+        return xxhAvalanche(h);
+    }
+
+    private static <T> long xxHash64(final ByteAccess<T> access, final T src, final int offset, final int length,
+                                     final long seed) {
+        final int end = offset + length;
+        int p = offset;
+        long h;
+        if(length >= 32) {
+            long v1 = seed + XXH_P1 + XXH_P2;
+            long v2 = seed + XXH_P2;
+            long v3 = seed;
+            long v4 = seed - XXH_P1;
+            final int limit = end - 32;
+            do {
+                v1 = xxhRound(v1, access.i64(src, p));
+                v2 = xxhRound(v2, access.i64(src, p + 8));
+                v3 = xxhRound(v3, access.i64(src, p + 16));
+                v4 = xxhRound(v4, access.i64(src, p + 24));
+                p += 32;
+            } while(p <= limit);
+            h = xxhConverge(v1, v2, v3, v4);
+        }
+        else {
+            h = seed + XXH_P5;
+        }
+        h += length;
+        return xxhAvalanche(xxhTail(access, src, p, end, h));
+    }
+
+    /**
+     * One lane step of xxHash64.
+     */
+    static long xxhRound(final long acc, final long lane) {
+        return Long.rotateLeft(acc + lane * XXH_P2, 31) * XXH_P1;
+    }
+
+    /**
+     * Folds the four lanes into one once the 32 byte stripes are done.
+     */
+    static long xxhConverge(final long v1, final long v2, final long v3, final long v4) {
+        long h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+        h = (h ^ xxhRound(0, v1)) * XXH_P1 + XXH_P4;
+        h = (h ^ xxhRound(0, v2)) * XXH_P1 + XXH_P4;
+        h = (h ^ xxhRound(0, v3)) * XXH_P1 + XXH_P4;
+        h = (h ^ xxhRound(0, v4)) * XXH_P1 + XXH_P4;
+        return h;
+    }
+
+    /**
+     * Mixes in the last {@code end - p} bytes, less than 32 of them.
+     */
+    static <T> long xxhTail(final ByteAccess<T> access, final T src, int p, final int end, long h) {
+        while(p + 8 <= end) {
+            h ^= xxhRound(0, access.i64(src, p));
+            h = Long.rotateLeft(h, 27) * XXH_P1 + XXH_P4;
+            p += 8;
+        }
+        if(p + 4 <= end) {
+            h ^= access.u32(src, p) * XXH_P1;
+            h = Long.rotateLeft(h, 23) * XXH_P2 + XXH_P3;
+            p += 4;
+        }
+        while(p < end) {
+            h ^= access.u8(src, p) * XXH_P5;
+            h = Long.rotateLeft(h, 11) * XXH_P1;
+            p++;
+        }
+        return h;
+    }
+
+    static long xxhAvalanche(long h) {
+        h ^= h >>> 33;
+        h *= XXH_P2;
+        h ^= h >>> 29;
+        h *= XXH_P3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    /**
+     * MurmurHash3, x64 128 bit variant, of the byte array range.
+     * @param source the bytes to hash, not modified.
+     * @param offset where to start in the array.
+     * @param length how many bytes to hash.
+     * @param seed treated as unsigned 32 bit, as in the reference implementation.
+     * @param out if not null, receives the full 128 bits: the first 64 bits at index 0, the second at 1.
+     * @return the first 64 bits of the hash; if that's all you need, pass null for the {@code out}.
+     */
+    @Api public static long murmur3x64_128(final byte[] source, final int offset, final int length, final int seed,
+                                           @Nullable final long[] out) {
+        checkRange(source.length, offset, length);
+        return murmur3x64_128(ByteAccess.BYTE_ARRAY, source, offset, length, seed, out);
+    }
+
+    /**
+     * MurmurHash3, x64 128 bit variant, of the buffer range from the given absolute offset,
+     * see {@link #murmur3x64_128(byte[], int, int, int, long[])}. Does not change the buffer's position, limit or mark.
+     */
+    @Api public static long murmur3x64_128(final ByteBuffer source, final int offset, final int length, final int seed,
+                                           @Nullable final long[] out) {
+        checkRange(source.limit(), offset, length);
+        if(source.hasArray()) return murmur3x64_128(source.array(), source.arrayOffset() + offset, length, seed, out);
+        return murmur3x64_128(ByteAccess.BYTE_BUFFER, source, offset, length, seed, out);
+    }
+
+    /**
+     * MurmurHash3, x64 128 bit variant, of the {@link ByteBuffer#remaining() remaining} bytes of the buffer.
+     */
+    @Api public static long murmur3x64_128(final ByteBuffer source, final int seed, @Nullable final long[] out) {
+        return murmur3x64_128(source, source.position(), source.remaining(), seed, out);
+    }
+
+    /**
+     * MurmurHash3, x64 128 bit variant, of the UTF-16LE image of the chars,
+     * see {@link #murmur3x64_128(byte[], int, int, int, long[])}.
+     */
+    @Api public static long murmur3x64_128(final CharSequence source, final int seed, @Nullable final long[] out) {
+        return murmur3x64_128(ByteAccess.CHARS, source, 0, source.length() << 1, seed, out);
+    }
+
+    private static <T> long murmur3x64_128(final ByteAccess<T> access, final T src, final int offset, final int length,
+                                           final int seed, final long[] out) {
+        long h1 = seed & 0xFFFFFFFFL;
+        long h2 = h1;
+        final int end = offset + length;
+        int p = offset;
+        for(final int limit = end - 16; p <= limit; p += 16) {
+            h1 ^= murmur3MixK1(access.i64(src, p));
+            h1 = (Long.rotateLeft(h1, 27) + h2) * 5 + 0x52DCE729;
+            h2 ^= murmur3MixK2(access.i64(src, p + 8));
+            h2 = (Long.rotateLeft(h2, 31) + h1) * 5 + 0x38495AB5;
+        }
+        final int tail = end - p;
+        if(tail > 0) {
+            long k1 = 0, k2 = 0;
+            for(int i = tail - 1; i >= 8; i--) k2 |= (long) access.u8(src, p + i) << ((i - 8) << 3);
+            for(int i = Math.min(tail, 8) - 1; i >= 0; i--) k1 |= (long) access.u8(src, p + i) << (i << 3);
+            h1 ^= murmur3MixK1(k1);
+            h2 ^= murmur3MixK2(k2);
+        }
+        h1 ^= length;
+        h2 ^= length;
+        h1 += h2;
+        h2 += h1;
+        h1 = fmix64(h1);
+        h2 = fmix64(h2);
+        h1 += h2;
+        h2 += h1;
+        if(out != null) {
+            out[0] = h1;
+            out[1] = h2;
+        }
+        return h1;
+    }
+
+    private static long murmur3MixK1(final long k1) {
+        return Long.rotateLeft(k1 * MURMUR3_C1, 31) * MURMUR3_C2;
+    }
+
+    private static long murmur3MixK2(final long k2) {
+        return Long.rotateLeft(k2 * MURMUR3_C2, 33) * MURMUR3_C1;
+    }
+
+    /**
+     * The MurmurHash3 64 bit finalizer: a bijection that makes every bit of the result depend on every bit of the
+     * argument. Cheap way to turn a sequential or otherwise clustered long key into a well spread hash.
+     */
+    @Api public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xFF51AFD7ED558CCDL;
+        k ^= k >>> 33;
+        k *= 0xC4CEB9FE1A85EC53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * wyhash, version 3, of the byte array range. Note that an empty range hashes to zero regardless of the seed,
+     * as in the reference implementation.
+     * @param source the bytes to hash, not modified.
+     * @param offset where to start in the array.
+     * @param length how many bytes to hash.
+     * @param seed any value, the same seed must be used for the results to be comparable.
+     */
+    @Api public static long wyHash(final byte[] source, final int offset, final int length, final long seed) {
+        checkRange(source.length, offset, length);
+        return wyHash(ByteAccess.BYTE_ARRAY, source, offset, length, seed);
+    }
+
+    /**
+     * wyhash of the buffer range from the given absolute offset, see {@link #wyHash(byte[], int, int, long)}.
+     * Does not change the buffer's position, limit or mark.
+     */
+    @Api public static long wyHash(final ByteBuffer source, final int offset, final int length, final long seed) {
+        checkRange(source.limit(), offset, length);
+        if(source.hasArray()) return wyHash(source.array(), source.arrayOffset() + offset, length, seed);
+        return wyHash(ByteAccess.BYTE_BUFFER, source, offset, length, seed);
+    }
+
+    /**
+     * wyhash of the {@link ByteBuffer#remaining() remaining} bytes of the buffer.
+     */
+    @Api public static long wyHash(final ByteBuffer source, final long seed) {
+        return wyHash(source, source.position(), source.remaining(), seed);
+    }
+
+    /**
+     * wyhash of the UTF-16LE image of the chars, see {@link #wyHash(byte[], int, int, long)}.
+     */
+    @Api public static long wyHash(final CharSequence source, final long seed) {
+        return wyHash(ByteAccess.CHARS, source, 0, source.length() << 1, seed);
+    }
+
+    /**
+     * Folds the full 128 bit product of the arguments, treated as unsigned, into 64 bits.
+     */
+    private static long wyMum(final long a, final long b) {
+        return a * b ^ unsignedMultiplyHigh(a, b);
+    }
+
+    /**
+     * Up to 3 bytes: the first, the middle and the last one, overlapping if there are fewer.
+     */
+    private static <T> long wyR3(final ByteAccess<T> access, final T src, final int p, final int k) {
+        return (long) access.u8(src, p) << 16 | (long) access.u8(src, p + (k >>> 1)) << 8 | access.u8(src, p + k - 1);
+    }
+
+    /**
+     * 8 bytes read as two little-endian halves in the big-endian order, as wyhash v3 does.
+     */
+    private static <T> long wyR8(final ByteAccess<T> access, final T src, final int p) {
+        return access.u32(src, p) << 32 | access.u32(src, p + 4);
+    }
+
+    private static <T> long wyHash(final ByteAccess<T> access, final T src, final int offset, final int length,
+                                   long seed) {
+        if(length <= 0) return 0;
+        final long tag = length ^ WY_P4;
+        if(length < 4)
+            return wyMum(wyMum(wyR3(access, src, offset, length) ^ seed ^ WY_P0, seed ^ WY_P1) ^ seed, tag);
+        if(length <= 8)
+            return wyMum(wyMum(access.u32(src, offset) ^ seed ^ WY_P0,
+                access.u32(src, offset + length - 4) ^ seed ^ WY_P1) ^ seed, tag);
+        if(length <= 16)
+            return wyMum(wyMum(wyR8(access, src, offset) ^ seed ^ WY_P0,
+                wyR8(access, src, offset + length - 8) ^ seed ^ WY_P1) ^ seed, tag);
+        if(length <= 24)
+            return wyMum(wyMum(wyR8(access, src, offset) ^ seed ^ WY_P0, wyR8(access, src, offset + 8) ^ seed ^ WY_P1)
+                ^ wyMum(wyR8(access, src, offset + length - 8) ^ seed ^ WY_P2, seed ^ WY_P3), tag);
+        if(length <= 32)
+            return wyMum(wyMum(wyR8(access, src, offset) ^ seed ^ WY_P0, wyR8(access, src, offset + 8) ^ seed ^ WY_P1)
+                ^ wyMum(wyR8(access, src, offset + 16) ^ seed ^ WY_P2,
+                    wyR8(access, src, offset + length - 8) ^ seed ^ WY_P3), tag);
+
+        long see1 = seed;
+        int i = length, p = offset;
+        for(; i > 256; i -= 256, p += 256) {
+            // the reference spells out these 4 steps of 64 bytes each, the JIT unrolls them just the same
+            for(int q = p, blockEnd = p + 256; q < blockEnd; q += 64) {
+                seed = wyMum(access.i64(src, q) ^ seed ^ WY_P0, access.i64(src, q + 8) ^ seed ^ WY_P1)
+                    ^ wyMum(access.i64(src, q + 16) ^ seed ^ WY_P2, access.i64(src, q + 24) ^ seed ^ WY_P3);
+                see1 = wyMum(access.i64(src, q + 32) ^ see1 ^ WY_P1, access.i64(src, q + 40) ^ see1 ^ WY_P2)
+                    ^ wyMum(access.i64(src, q + 48) ^ see1 ^ WY_P3, access.i64(src, q + 56) ^ see1 ^ WY_P0);
+            }
+        }
+        for(; i > 32; i -= 32, p += 32) {
+            seed = wyMum(access.i64(src, p) ^ seed ^ WY_P0, access.i64(src, p + 8) ^ seed ^ WY_P1);
+            see1 = wyMum(access.i64(src, p + 16) ^ see1 ^ WY_P2, access.i64(src, p + 24) ^ see1 ^ WY_P3);
+        }
+        if(i < 4) {
+            seed = wyMum(wyR3(access, src, p, i) ^ seed ^ WY_P0, seed ^ WY_P1);
+        }
+        else if(i <= 8) {
+            seed = wyMum(access.u32(src, p) ^ seed ^ WY_P0, access.u32(src, p + i - 4) ^ seed ^ WY_P1);
+        }
+        else if(i <= 16) {
+            seed = wyMum(wyR8(access, src, p) ^ seed ^ WY_P0, wyR8(access, src, p + i - 8) ^ seed ^ WY_P1);
+        }
+        else if(i <= 24) {
+            seed = wyMum(wyR8(access, src, p) ^ seed ^ WY_P0, wyR8(access, src, p + 8) ^ seed ^ WY_P1);
+            see1 = wyMum(wyR8(access, src, p + i - 8) ^ see1 ^ WY_P2, see1 ^ WY_P3);
+        }
+        else {
+            seed = wyMum(wyR8(access, src, p) ^ seed ^ WY_P0, wyR8(access, src, p + 8) ^ seed ^ WY_P1);
+            see1 = wyMum(wyR8(access, src, p + 16) ^ see1 ^ WY_P2, wyR8(access, src, p + i - 8) ^ see1 ^ WY_P3);
+        }
+        return wyMum(seed ^ see1, tag);
+    }
+}
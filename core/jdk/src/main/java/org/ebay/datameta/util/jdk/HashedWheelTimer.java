@@ -0,0 +1,326 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Timer for the timeouts and the deadlines by the hundreds of thousands, the hashed timing wheel: the circle of
+ * buckets, the one the timeout goes into picked by its deadline in ticks modulo the wheel size, with the number of
+ * the full rounds to wait on top of that. Scheduling and cancelling are O(1), no heap to keep ordered as in the
+ * {@link java.util.concurrent.ScheduledThreadPoolExecutor}; the price is the precision of one tick: the timeout fires
+ * on the first tick past its deadline, never before.
+ *
+ * <p>The callers only put the new and the cancelled timeouts into the lock-free queues; the worker thread moves them
+ * in and out of the buckets, the doubly linked lists only it touches, on every tick, and expires those in the bucket
+ * of the tick with no rounds left.</p>
+ *
+ * <p>The {@link #timeout(OpTracker, OpResultConsumer, long, TimeUnit, OpState)} attaches the timeout to the operation,
+ * such as the one submitted to the {@link OpExecutor}: on the deadline, it completes the operation's
+ * {@link OpTracker} with the {@link OpState#ERROR} or the {@link OpState#FAIL} result and, if that did complete it,
+ * hands the result to the consumer. The tracker's compare-and-set decides the race with the operation completing on
+ * its own, so the consumer gets exactly one result either way. Cancel the timeout when the operation completes to
+ * free its slot early, or let it fire into the completed tracker, which does nothing.</p>
+ *
+ * <p>The tasks and the consumers run on the worker thread and hold up the tick: keep them short, or hand the results
+ * over to the {@link OpResultRing}.</p>
+ *
+ * @author Michael Bergens
+ */
+@ThreadSafe public class HashedWheelTimer implements AutoCloseable {
+
+    public static final long DEFAULT_TICK_MILLIS = 10L;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+    private static final int MAX_WHEEL_SIZE = 1 << 30;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final CatchHandler<Throwable> taskFailureHandler;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final long startNanos;
+    private final Thread worker;
+    private volatile boolean closed;
+
+    /**
+     * With the tick of {@value #DEFAULT_TICK_MILLIS} milliseconds, the wheel of {@value #DEFAULT_WHEEL_SIZE} buckets.
+     */
+    @Api public HashedWheelTimer() {
+        this(DEFAULT_TICK_MILLIS, TimeUnit.MILLISECONDS, DEFAULT_WHEEL_SIZE, null);
+    }
+
+    /**
+     * Starts the worker thread.
+     * @param tickDuration the precision of the timer; the shorter, the more often the worker wakes up.
+     * @param wheelSize how many buckets, rounded up to a power of 2; the tick times this is the round, the timeouts
+     *                  longer than the round wait in the buckets for the rounds to pass.
+     * @param taskFailureHandler handles what the tasks and the consumers throw, null for the uncaught exception handler
+     *                           of the worker thread.
+     */
+    @Api public HashedWheelTimer(final long tickDuration, @Nonnull final TimeUnit unit, final int wheelSize,
+                                 @Nullable final CatchHandler<Throwable> taskFailureHandler) {
+        tickNanos = unit.toNanos(tickDuration);
+        if(tickNanos < 1L) throw new IllegalArgumentException("Tick duration must be positive: " + tickDuration);
+        if(wheelSize < 1 || wheelSize > MAX_WHEEL_SIZE) throw new IllegalArgumentException(
+            "Wheel size out of range: " + wheelSize);
+        final int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        if(tickNanos >= Long.MAX_VALUE / size) throw new IllegalArgumentException("Tick duration " + tickDuration
+            + ' ' + unit + " times the wheel size " + size + " overflows");
+        wheel = new Bucket[size];
+        for(int i = 0; i < size; i++) wheel[i] = new Bucket();
+        mask = size - 1;
+        this.taskFailureHandler = taskFailureHandler == null
+            ? t -> Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), t)
+            : taskFailureHandler;
+        startNanos = System.nanoTime();
+        worker = new Thread(this::run, "HashedWheelTimer-" + THREAD_COUNT.incrementAndGet());
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Schedules the task to run on the worker thread after the delay.
+     * @throws IllegalStateException if closed.
+     */
+    @Api public Timeout schedule(@Nonnull final Runnable task, final long delay, @Nonnull final TimeUnit unit) {
+        return add(new Timeout(task, deadline(delay, unit)));
+    }
+
+    /**
+     * Times the operation out with the stackless {@link OpState#ERROR}, see
+     * {@link #timeout(OpTracker, OpResultConsumer, long, TimeUnit, OpState)}.
+     */
+    @Api public <T> Timeout timeout(@Nonnull final OpTracker<T> tracker, @Nonnull final OpResultConsumer<T> consumer,
+                                    final long delay, @Nonnull final TimeUnit unit) {
+        return timeout(tracker, consumer, delay, unit, OpState.ERROR);
+    }
+
+    /**
+     * Times the operation out after the delay unless it completes before that: completes the tracker with the result
+     * in the given state and, if that completed it, hands the result to the consumer.
+     * @param state {@link OpState#ERROR} for the {@link OpResult#getStacklessErrorInstance(Object, String) stackless
+     *              error}, or {@link OpState#FAIL}.
+     * @throws IllegalStateException if closed.
+     */
+    @Api public <T> Timeout timeout(@Nonnull final OpTracker<T> tracker, @Nonnull final OpResultConsumer<T> consumer,
+                                    final long delay, @Nonnull final TimeUnit unit, @Nonnull final OpState state) {
+        if(state != OpState.ERROR && state != OpState.FAIL) throw new IllegalArgumentException(
+            "The timeout can be an ERROR or a FAIL, not " + state);
+        return schedule(() -> {
+            if(tracker.isDone()) return;
+            final String message = "Timed out after " + delay + ' ' + unit.name().toLowerCase(Locale.ROOT);
+            final OpResult<T> result = state == OpState.ERROR ? OpResult.<T>getStacklessErrorInstance(null, message)
+                : OpResult.<T>getFailInstance(null, message);
+            if(tracker.complete(result)) consumer.consume(result);
+        }, delay, unit);
+    }
+
+    /**
+     * How many timeouts are scheduled and neither expired nor cancelled yet.
+     */
+    @Api public long getPendingCount() { return pendingCount.get(); }
+
+    @Api public long getTickNanos() { return tickNanos; }
+
+    @Api public int getWheelSize() { return wheel.length; }
+
+    /**
+     * Stops the worker; the timeouts not expired yet never will. Waits for the worker to finish the tick in progress;
+     * if interrupted while waiting, returns with the interrupt flag set.
+     */
+    @Override public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{tick=" + tickNanos + "ns, wheel=" + wheel.length + ", pending="
+            + getPendingCount() + '}';
+    }
+
+    /**
+     * The deadline in the nanoseconds since the start, capped on overflow.
+     */
+    private long deadline(final long delay, final TimeUnit unit) {
+        final long elapsed = System.nanoTime() - startNanos;
+        final long nanos = Math.max(0L, unit.toNanos(delay));
+        return nanos > Long.MAX_VALUE - elapsed ? Long.MAX_VALUE : elapsed + nanos;
+    }
+
+    private Timeout add(final Timeout timeout) {
+        if(closed) throw new IllegalStateException("Closed");
+        pendingCount.incrementAndGet();
+        added.offer(timeout);
+        return timeout;
+    }
+
+    /**
+     * The worker: waits for the tick, takes in the cancelled and the added timeouts, expires the bucket of the tick.
+     */
+    private void run() {
+        long tick = 0L;
+        while(!closed) {
+            waitForTick(tick);
+            if(closed) break;
+            for(Timeout timeout = cancelled.poll(); timeout != null; timeout = cancelled.poll()) {
+                if(timeout.bucket != null) timeout.bucket.remove(timeout);
+                pendingCount.decrementAndGet();
+            }
+            for(Timeout timeout = added.poll(); timeout != null; timeout = added.poll()) {
+                if(timeout.state != Timeout.SCHEDULED) continue; // cancelled before it got here, counted off above
+                final long deadlineTick = timeout.deadline / tickNanos;
+                timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+                // the deadline already passed goes into the current bucket, to expire right now
+                wheel[(int) (Math.max(deadlineTick, tick) & mask)].add(timeout);
+            }
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * Sleeps till the end of the tick, or till closed.
+     */
+    private void waitForTick(final long tick) {
+        final long end = tickNanos * (tick + 1);
+        for(long now = System.nanoTime() - startNanos; now < end && !closed; now = System.nanoTime() - startNanos) {
+            LockSupport.parkNanos(end - now);
+        }
+    }
+
+    /**
+     * The handle of the scheduled task.
+     */
+    public final class Timeout {
+        private static final int SCHEDULED = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        /**
+         * The nanoseconds since the timer's start.
+         */
+        private final long deadline;
+        /**
+         * Not private for the {@link #STATE} updater on Java 8.
+         */
+        volatile int state;
+
+        /**
+         * Where it is in the wheel, touched only by the worker.
+         */
+        private Bucket bucket;
+        private Timeout next;
+        private Timeout previous;
+        private long remainingRounds;
+
+        private Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels it, O(1): the worker takes it out of the wheel on the next tick.
+         * @return true if cancelled by this call, false if expired or cancelled already.
+         */
+        @Api public boolean cancel() {
+            if(!STATE.compareAndSet(this, SCHEDULED, CANCELLED)) return false;
+            cancelled.offer(this);
+            return true;
+        }
+
+        @Api public boolean isCancelled() { return state == CANCELLED; }
+
+        /**
+         * Whether the task has run, or is running.
+         */
+        @Api public boolean isExpired() { return state == EXPIRED; }
+
+        /**
+         * How long till the deadline, negative if past it.
+         */
+        @Api public long getDelay(final TimeUnit unit) {
+            return unit.convert(deadline - (System.nanoTime() - startNanos), TimeUnit.NANOSECONDS);
+        }
+
+        private void expire() {
+            if(!STATE.compareAndSet(this, SCHEDULED, EXPIRED)) return;
+            pendingCount.decrementAndGet();
+            try {
+                task.run();
+            }
+            catch(Throwable t) {
+                taskFailureHandler.handle(t);
+            }
+        }
+
+        @Override public String toString() {
+            return getClass().getSimpleName() + '{' + (state == SCHEDULED ? "in " + getDelay(TimeUnit.MILLISECONDS)
+                + "ms" : state == CANCELLED ? "cancelled" : "expired") + '}';
+        }
+    }
+
+    private static final AtomicIntegerFieldUpdater<Timeout> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(Timeout.class, "state");
+
+    /**
+     * The doubly linked list of the timeouts, the worker's only.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(final Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            if(tail == null) head = timeout;
+            else tail.next = timeout;
+            tail = timeout;
+        }
+
+        private void remove(final Timeout timeout) {
+            if(timeout.previous == null) head = timeout.next;
+            else timeout.previous.next = timeout.next;
+            if(timeout.next == null) tail = timeout.previous;
+            else timeout.next.previous = timeout.previous;
+            timeout.bucket = null;
+            timeout.next = null;
+            timeout.previous = null;
+        }
+
+        /**
+         * Expires those with no rounds left, counts down the rest.
+         */
+        private void expire() {
+            for(Timeout timeout = head; timeout != null;) {
+                final Timeout next = timeout.next;
+                if(timeout.remainingRounds <= 0L) {
+                    // the bucket of the tick that just ended, so the deadline has passed; the cancelled one does not
+                    // run and is counted off when the worker takes it from the queue
+                    remove(timeout);
+                    timeout.expire();
+                }
+                else timeout.remainingRounds--;
+                timeout = next;
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import static org.ebay.datameta.util.jdk.HashUtil.XXH_P1;
+import static org.ebay.datameta.util.jdk.HashUtil.XXH_P2;
+import static org.ebay.datameta.util.jdk.HashUtil.XXH_P5;
+import static org.ebay.datameta.util.jdk.HashUtil.xxhAvalanche;
+import static org.ebay.datameta.util.jdk.HashUtil.xxhConverge;
+import static org.ebay.datameta.util.jdk.HashUtil.xxhRound;
+import static org.ebay.datameta.util.jdk.HashUtil.xxhTail;
+import static org.ebay.datameta.util.jdk.MathUtil.checkRange;
+
+/**
+ * Incremental hash of a multi-field key: feed the fields one at a time, then get the {@link #hash()}, then
+ * {@link #reset()} and reuse the same instance for the next record. Nothing is allocated past the construction.
+ *
+ * <p>The fields are fed as their little-endian bytes: an int as 4 bytes, a long as 8, a char as 2, a
+ * {@link CharSequence} as the UTF-16LE image of its chars; so, for example, the {@link #xxHash64(long)} flavor of
+ * a single {@link #putString(CharSequence) string} is the same as {@link HashUtil#xxHash64(CharSequence, long)}
+ * of that string, and the {@link #fnv64()} flavor of a byte range is the same as
+ * {@link MathUtil#fnvHashXor64(byte[], int, int)} of that range.</p>
+ *
+ * <p>The fields are simply concatenated: to tell {@code "ab","c"} from {@code "a","bc"}, put the length of
+ * a variable length field in front of it, for example:</p>
+ * <pre>
+ * hasher.reset().putInt(pair.number).putInt(pair.text.length()).putString(pair.text).hash()
+ * </pre>
+ *
+ * <p>Not thread safe, use an instance per thread.</p>
+ *
+ * @author Michael Bergens
+ * @see HashUtil
+ * @see MathUtil
+ */
+@NotThreadSafe public abstract class Hasher {
+
+    /**
+     * FNV-1a, 64 bit: the cheapest to set up, good enough for short keys.
+     */
+    @Api public static Hasher fnv64() { return new Fnv64(); }
+
+    /**
+     * xxHash64 with the given seed: better avalanche and several times faster on keys longer than a few words.
+     */
+    @Api public static Hasher xxHash64(final long seed) { return new XxHash64(seed); }
+
+    /**
+     * Only the subclasses in this package.
+     */
+    Hasher() {}
+
+    /**
+     * Feeds one byte, the lower 8 bits of the argument.
+     */
+    @Api public abstract Hasher putByte(int value);
+
+    /**
+     * Feeds the 2 bytes of the char, low byte first.
+     */
+    @Api public Hasher putChar(final char value) {
+        return putByte(value).putByte(value >>> 8);
+    }
+
+    /**
+     * Feeds the 4 bytes of the int, low byte first.
+     */
+    @Api public Hasher putInt(final int value) {
+        return putByte(value).putByte(value >>> 8).putByte(value >>> 16).putByte(value >>> 24);
+    }
+
+    /**
+     * Feeds the 8 bytes of the long, low byte first.
+     */
+    @Api public Hasher putLong(final long value) {
+        return putInt((int) value).putInt((int) (value >>> 32));
+    }
+
+    /**
+     * Feeds the bytes of the array range.
+     */
+    @Api public Hasher putBytes(final byte[] source, final int offset, final int length) {
+        checkRange(source.length, offset, length);
+        for(int i = offset, end = offset + length; i < end; i++) putByte(source[i]);
+        return this;
+    }
+
+    /**
+     * Feeds the UTF-16LE image of the chars, 2 bytes per char. The argument must not be null.
+     */
+    @Api public Hasher putString(final CharSequence source) {
+        for(int i = 0; i < source.length(); i++) putChar(source.charAt(i));
+        return this;
+    }
+
+    /**
+     * The hash of everything fed since the construction or the last {@link #reset()}. Does not change the state,
+     * the feeding can continue after this.
+     */
+    @Api public abstract long hash();
+
+    /**
+     * Sets the instance back to the state it had right after the construction, with the same seed if any.
+     */
+    @Api public abstract Hasher reset();
+
+    private static final class Fnv64 extends Hasher {
+        private static final long SEED = 0xCBF29CE484222325L;
+        private static final long PRIME = 0x100000001B3L;
+
+        private long state = SEED;
+
+        @Override public Hasher putByte(final int value) {
+            state = (state ^ (value & 0xFF)) * PRIME;
+            return this;
+        }
+
+        @Override public long hash() { return state; }
+
+        @Override public Hasher reset() {
+            state = SEED;
+            return this;
+        }
+    }
+
+    /**
+     * Streaming xxHash64: keeps the four lanes and up to a stripe of 32 bytes not yet consumed.
+     */
+    private static final class XxHash64 extends Hasher {
+        private static final int STRIPE = 32;
+
+        private final long seed;
+        private final byte[] pending = new byte[STRIPE];
+        private int pendingCount;
+        private long totalLength;
+        private long v1, v2, v3, v4;
+
+        private XxHash64(final long seed) {
+            this.seed = seed;
+            reset();
+        }
+
+        @Override public Hasher reset() {
+            v1 = seed + XXH_P1 + XXH_P2;
+            v2 = seed + XXH_P2;
+            v3 = seed;
+            v4 = seed - XXH_P1;
+            pendingCount = 0;
+            totalLength = 0;
+            return this;
+        }
+
+        @Override public Hasher putByte(final int value) {
+            pending[pendingCount++] = (byte) value;
+            totalLength++;
+            if(pendingCount == STRIPE) {
+                consumeStripe(ByteAccess.BYTE_ARRAY, pending, 0);
+                pendingCount = 0;
+            }
+            return this;
+        }
+
+        @Override public Hasher putBytes(final byte[] source, final int offset, final int length) {
+            checkRange(source.length, offset, length);
+            int p = offset;
+            final int end = offset + length;
+            // top up the pending stripe first, if it runs out of the source, the next loop won't run either
+            while(pendingCount > 0 && p < end) putByte(source[p++]);
+            // whole stripes straight from the source, no copying
+            final int stripesStart = p;
+            for(; end - p >= STRIPE; p += STRIPE) consumeStripe(ByteAccess.BYTE_ARRAY, source, p);
+            totalLength += p - stripesStart;
+            // less than a stripe left, goes to the pending
+            while(p < end) putByte(source[p++]);
+            return this;
+        }
+
+        private <T> void consumeStripe(final ByteAccess<T> access, final T src, final int p) {
+            v1 = xxhRound(v1, access.i64(src, p));
+            v2 = xxhRound(v2, access.i64(src, p + 8));
+            v3 = xxhRound(v3, access.i64(src, p + 16));
+            v4 = xxhRound(v4, access.i64(src, p + 24));
+        }
+
+        @Override public long hash() {
+            long h = totalLength >= STRIPE ? xxhConverge(v1, v2, v3, v4) : seed + XXH_P5;
+            h += totalLength;
+            return xxhAvalanche(xxhTail(ByteAccess.BYTE_ARRAY, pending, 0, pendingCount, h));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.ebay.datameta.util.jdk;
+
+/**
+ * In-place sort of whatever can be compared and swapped by a long index, for the data that is not in a Java array,
+ * like the {@link OffHeapMemory off-heap stores}: introsort, the quicksort with the median of 3 falling back to
+ * the heapsort if the recursion gets too deep, and the insertion sort for the short ranges. Not stable.
+ *
+ * @author Michael Bergens
+ */
+abstract class IndexedSorter {
+
+    private static final int INSERTION_THRESHOLD = 16;
+
+    protected abstract int compare(long left, long right);
+
+    protected abstract void swap(long left, long right);
+
+    /**
+     * Sorts the range {@code from..to-1}.
+     */
+    final void sort(final long from, final long to) {
+        final long length = to - from;
+        if(length < 2) return;
+        sort(from, to, 2 * (Long.SIZE - Long.numberOfLeadingZeros(length)));
+    }
+
+    private void sort(long from, final long to, int depthLimit) {
+        long end = to;
+        while(end - from > INSERTION_THRESHOLD) {
+            if(depthLimit-- == 0) {
+                heapSort(from, end);
+                return;
+            }
+            final long pivot = partition(from, end);
+            // the smaller side recursively, the larger one in the loop so the stack stays logarithmic
+            if(pivot - from < end - pivot) {
+                sort(from, pivot, depthLimit);
+                from = pivot + 1;
+            }
+            else {
+                sort(pivot + 1, end, depthLimit);
+                end = pivot;
+            }
+        }
+        insertionSort(from, end);
+    }
+
+    /**
+     * Puts the median of the 3 into the last position as the pivot, partitions around it.
+     * @return the final position of the pivot.
+     */
+    private long partition(final long from, final long to) {
+        final long last = to - 1;
+        final long mid = from + ((last - from) >>> 1);
+        if(compare(mid, from) < 0) swap(mid, from);
+        if(compare(last, from) < 0) swap(last, from);
+        if(compare(mid, last) < 0) swap(mid, last);
+        // now the last holds the median
+        long store = from;
+        for(long i = from; i < last; i++) {
+            if(compare(i, last) < 0) {
+                if(i != store) swap(i, store);
+                store++;
+            }
+        }
+        if(store != last) swap(store, last);
+        return store;
+    }
+
+    private void insertionSort(final long from, final long to) {
+        for(long i = from + 1; i < to; i++)
+            for(long j = i; j > from && compare(j, j - 1) < 0; j--) swap(j, j - 1);
+    }
+
+    private void heapSort(final long from, final long to) {
+        final long length = to - from;
+        for(long i = length / 2 - 1; i >= 0; i--) siftDown(from, i, length);
+        for(long end = length - 1; end > 0; end--) {
+            swap(from, from + end);
+            siftDown(from, 0, end);
+        }
+    }
+
+    private void siftDown(final long base, long node, final long length) {
+        while(true) {
+            long child = 2 * node + 1;
+            if(child >= length) return;
+            if(child + 1 < length && compare(base + child + 1, base + child) > 0) child++;
+            if(compare(base + node, base + child) >= 0) return;
+            swap(base + node, base + child);
+            node = child;
+        }
+    }
+}
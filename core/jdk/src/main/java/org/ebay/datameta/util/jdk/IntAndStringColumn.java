@@ -0,0 +1,187 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Growable list of the {@link IntAndString} with the text {@link StringDictionary dictionary encoded}: two parallel
+ * int arrays, the numbers and the codes, 8 bytes per row instead of the object, the reference and the string.
+ *
+ * <p>Compares and sorts in the {@link IntAndString#compareTo(IntAndString)} order without touching the strings:
+ * the text compares by the {@link StringDictionary#rank(int) rank} of its code, which is the code itself
+ * with the sorted dictionary.</p>
+ *
+ * @author Michael Bergens
+ */
+@NotThreadSafe public class IntAndStringColumn {
+
+    private static final int MIN_CAPACITY = 10;
+
+    private final StringDictionary dictionary;
+    private int[] numbers;
+    private int[] codes;
+    private int size;
+
+    @Api public IntAndStringColumn(final StringDictionary dictionary) { this(dictionary, MIN_CAPACITY); }
+
+    @Api public IntAndStringColumn(final StringDictionary dictionary, final int capacity) {
+        if(capacity < 0) throw new IllegalArgumentException("Capacity can not be negative: " + capacity);
+        this.dictionary = dictionary;
+        numbers = new int[capacity];
+        codes = new int[capacity];
+    }
+
+    /**
+     * Encodes the rows with a new {@link StringDictionary.Builder#freezeSorted() sorted} dictionary of their texts.
+     */
+    @Api public static IntAndStringColumn of(final Collection<? extends IntAndString> rows) {
+        final StringDictionary.Builder builder = StringDictionary.builder();
+        for(final IntAndString row : rows) builder.encode(row.text);
+        final IntAndStringColumn result = new IntAndStringColumn(builder.freezeSorted(), rows.size());
+        for(final IntAndString row : rows) result.add(row.number, row.text);
+        return result;
+    }
+
+    @Api public StringDictionary getDictionary() { return dictionary; }
+
+    @Api public int size() { return size; }
+
+    @Api public boolean isEmpty() { return size == 0; }
+
+    /**
+     * @throws IllegalArgumentException if the text is not in the dictionary.
+     */
+    @Api public void add(final int number, @Nullable final String text) {
+        final int code = dictionary.codeOf(text);
+        if(code == StringDictionary.NOT_FOUND) throw new IllegalArgumentException("The text \"" + text
+            + "\" is not in the dictionary");
+        addCode(number, code);
+    }
+
+    @Api public void add(final IntAndString row) { add(row.number, row.text); }
+
+    /**
+     * Adds the row with the text already encoded.
+     * @throws IllegalArgumentException if the code is not in the dictionary.
+     */
+    @Api public void addCode(final int number, final int code) {
+        if(code != StringDictionary.NULL_CODE) dictionary.checkCode(code);
+        if(size == numbers.length) grow(size + 1);
+        numbers[size] = number;
+        codes[size] = code;
+        size++;
+    }
+
+    @Api public int getNumber(final int index) {
+        checkIndex(index);
+        return numbers[index];
+    }
+
+    @Api public int getCode(final int index) {
+        checkIndex(index);
+        return codes[index];
+    }
+
+    @Api @Nullable public String getText(final int index) {
+        checkIndex(index);
+        return dictionary.decode(codes[index]);
+    }
+
+    /**
+     * Copies the row at the index into the given instance, to reuse one {@link IntAndString} for many reads.
+     * @return the instance passed.
+     */
+    @Api public IntAndString get(final int index, final IntAndString into) {
+        checkIndex(index);
+        into.number = numbers[index];
+        into.text = dictionary.decode(codes[index]);
+        return into;
+    }
+
+    /**
+     * Compares the rows at the indexes in the {@link IntAndString#compareTo(IntAndString)} order.
+     */
+    @Api public int compare(final int left, final int right) {
+        checkIndex(left);
+        checkIndex(right);
+        return numbers[left] != numbers[right] ? (numbers[left] < numbers[right] ? -1 : 1)
+            : dictionary.compare(codes[left], codes[right]);
+    }
+
+    /**
+     * Sorts in the {@link IntAndString#compareTo(IntAndString)} order: each row is {@link TwoInts#pack(int, int)
+     * packed} into a long of the number and the text's rank, the longs sorted. The rank maps back to the code one to
+     * one, so the rows are restored from the longs alone.
+     */
+    @Api public void sort() {
+        if(size < 2) return;
+        final long[] packed = new long[size];
+        final int[] byRank = dictionary.isSorted() ? null : new int[dictionary.size()];
+        for(int i = 0; i < size; i++) {
+            final int rank = dictionary.rank(codes[i]);
+            if(byRank != null && rank >= 0) byRank[rank] = codes[i];
+            packed[i] = TwoInts.pack(numbers[i], rank);
+        }
+        Arrays.sort(packed);
+        for(int i = 0; i < size; i++) {
+            numbers[i] = TwoInts.unpackFirst(packed[i]);
+            final int rank = TwoInts.unpackLast(packed[i]);
+            codes[i] = byRank == null || rank < 0 ? rank : byRank[rank];
+        }
+    }
+
+    /**
+     * A copy of this column encoded with the other dictionary, such as the sorted one frozen from the same builder.
+     * @throws IllegalArgumentException if the other dictionary lacks any text in this column.
+     */
+    @Api public IntAndStringColumn recode(final StringDictionary target) {
+        final int[] remap = dictionary.remapTo(target);
+        final IntAndStringColumn result = new IntAndStringColumn(target, size);
+        for(int i = 0; i < size; i++) {
+            final int code = codes[i];
+            final int targetCode = code == StringDictionary.NULL_CODE ? code : remap[code];
+            if(targetCode == StringDictionary.NOT_FOUND) throw new IllegalArgumentException("The text \""
+                + dictionary.decode(code) + "\" is not in the target dictionary");
+            result.numbers[i] = numbers[i];
+            result.codes[i] = targetCode;
+        }
+        result.size = size;
+        return result;
+    }
+
+    @Api public void clear() { size = 0; }
+
+    /**
+     * Trims the storage down to the size.
+     */
+    @Api public void trimToSize() {
+        if(size < numbers.length) {
+            numbers = Arrays.copyOf(numbers, size);
+            codes = Arrays.copyOf(codes, size);
+        }
+    }
+
+    @Override public String toString() {
+        final StringBuilder result = new StringBuilder().append('[');
+        for(int i = 0; i < Math.min(size, 10); i++) {
+            if(i > 0) result.append(", ");
+            result.append('{').append(numbers[i]).append(",\"").append(dictionary.decode(codes[i])).append("\"}");
+        }
+        if(size > 10) result.append(", ...");
+        return result.append("] of ").append(size).toString();
+    }
+
+    private void checkIndex(final int index) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " for the size " + size);
+    }
+
+    private void grow(final int minCapacity) {
+        final int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(minCapacity,
+            Math.max(MIN_CAPACITY, numbers.length + ((long) numbers.length >> 1))));
+        if(capacity < minCapacity) throw new OutOfMemoryError("Too many rows: " + minCapacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        codes = Arrays.copyOf(codes, capacity);
+    }
+}
@@ -0,0 +1,210 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.IntConsumer;
+
+import static org.ebay.datameta.util.jdk.MathUtil.checkRange;
+
+/**
+ * Immutable index of the closed int ranges {@code [first, last]} given as the {@link TwoInts}, answering which ranges
+ * contain a point, the stabbing query, and which ranges overlap a range, in {@code O(log n + k log n)} for the
+ * {@code k} found, instead of the linear scan.
+ *
+ * <p>The augmented interval tree laid out implicitly in the primitive arrays: the ranges are sorted by the start, the
+ * tree node of every subrange of the sorted positions is its middle, and keeps the max end over the subrange.
+ * A query only descends into the subtrees that start no later than the point and end no earlier. No objects per range,
+ * 16 bytes per range, no allocation on the queries.</p>
+ *
+ * <p>The ranges are reported by their ids, the positions in the collection the index was built from.</p>
+ *
+ * @author Michael Bergens
+ */
+@ThreadSafe public final class IntervalIndex {
+
+    /**
+     * Receives the ranges found by the {@link #stabAll(int[], int, int, BatchVisitor) batch query}.
+     */
+    public interface BatchVisitor {
+        /**
+         * @param probeIndex the index of the point in the probes array.
+         * @param id the id of the range containing the point.
+         */
+        @Api void visit(int probeIndex, int id);
+    }
+
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] ids;
+    private final int[] maxEnds;
+
+    private IntervalIndex(final int[] firsts, final int[] lasts) {
+        final int size = firsts.length;
+        final long[] byStart = new long[size];
+        for(int id = 0; id < size; id++) {
+            if(firsts[id] > lasts[id]) throw new IllegalArgumentException("The range " + id + " is inverted: ["
+                + firsts[id] + ", " + lasts[id] + ']');
+            byStart[id] = TwoInts.pack(firsts[id], id);
+        }
+        Arrays.sort(byStart);
+        starts = new int[size];
+        ends = new int[size];
+        ids = new int[size];
+        for(int i = 0; i < size; i++) {
+            starts[i] = TwoInts.unpackFirst(byStart[i]);
+            ids[i] = TwoInts.unpackLast(byStart[i]);
+            ends[i] = lasts[ids[i]];
+        }
+        maxEnds = new int[size];
+        augment(0, size);
+    }
+
+    /**
+     * @param ranges the {@link TwoInts#first} is the start, the {@link TwoInts#last} is the end, inclusive both.
+     * @throws IllegalArgumentException if any range has the start after the end.
+     */
+    @Api public static IntervalIndex of(final Collection<? extends TwoInts> ranges) {
+        final int[] firsts = new int[ranges.size()], lasts = new int[ranges.size()];
+        int id = 0;
+        for(final TwoInts range : ranges) {
+            firsts[id] = range.first;
+            lasts[id++] = range.last;
+        }
+        return new IntervalIndex(firsts, lasts);
+    }
+
+    /**
+     * @see #of(Collection)
+     */
+    @Api public static IntervalIndex of(final TwoIntsArray ranges) {
+        final int[] firsts = new int[ranges.size()], lasts = new int[ranges.size()];
+        for(int id = 0; id < firsts.length; id++) {
+            firsts[id] = ranges.getFirst(id);
+            lasts[id] = ranges.getLast(id);
+        }
+        return new IntervalIndex(firsts, lasts);
+    }
+
+    @Api public int size() { return starts.length; }
+
+    /**
+     * Finds the ranges that contain the point.
+     * @param found receives the ids of the ranges, in no particular order.
+     * @return how many found.
+     */
+    @Api public int stab(final int point, final IntConsumer found) { return overlapping(point, point, found); }
+
+    /**
+     * How many ranges contain the point.
+     */
+    @Api public int countStab(final int point) { return count(0, starts.length, upperBound(point, 0), point); }
+
+    /**
+     * Whether any range contains the point; stops at the first found.
+     */
+    @Api public boolean anyContains(final int point) { return any(0, starts.length, upperBound(point, 0), point); }
+
+    /**
+     * Finds the ranges that overlap the range {@code [from, to]}, inclusive both.
+     * @param found receives the ids of the ranges, in no particular order.
+     * @return how many found.
+     */
+    @Api public int overlapping(final int from, final int to, final IntConsumer found) {
+        if(from > to) throw new IllegalArgumentException("Inverted query range: [" + from + ", " + to + ']');
+        return collect(0, starts.length, upperBound(to, 0), from, found);
+    }
+
+    /**
+     * The stabbing query for many points at once: the points must be sorted ascending, which lets the search for
+     * the starts carry on from the previous point rather than start over.
+     * @throws IllegalArgumentException if the points are not sorted.
+     */
+    @Api public void stabAll(final int[] sortedPoints, final int offset, final int length, final BatchVisitor visitor) {
+        checkRange(sortedPoints.length, offset, length);
+        int limit = 0;
+        for(int p = offset; p < offset + length; p++) {
+            final int point = sortedPoints[p];
+            if(p > offset && point < sortedPoints[p - 1]) throw new IllegalArgumentException(
+                "The points are not sorted at the index " + p);
+            limit = upperBound(point, limit);
+            report(0, starts.length, limit, point, p, visitor);
+        }
+    }
+
+    @Override public String toString() { return getClass().getSimpleName() + "{size=" + starts.length + '}'; }
+
+    /**
+     * Fills in the max ends over the subrange, returns it.
+     */
+    private int augment(final int low, final int high) {
+        if(low >= high) return Integer.MIN_VALUE;
+        final int mid = (low + high) >>> 1;
+        final int max = Math.max(ends[mid], Math.max(augment(low, mid), augment(mid + 1, high)));
+        maxEnds[mid] = max;
+        return max;
+    }
+
+    /**
+     * The first position from the given one on that starts after the point; the positions before it start at
+     * or before the point.
+     */
+    private int upperBound(final int point, final int from) {
+        int low = from, high = starts.length;
+        // gallop first, the batch points tend to be near
+        int step = 1;
+        while(step < high - low && starts[low + step] <= point) {
+            low += step;
+            step <<= 1;
+        }
+        if(step < high - low) high = low + step;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(starts[mid] <= point) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * The ranges in the subtree of the positions {@code [low, high)} that are below the limit, so start at or before
+     * the query's end, and end at or after the query's start. The subtrees are those the {@link #maxEnds} were built
+     * over, so the walk always goes from the whole range down; the limit only prunes it.
+     */
+    private int collect(final int low, final int high, final int limit, final int from, final IntConsumer found) {
+        if(low >= high || low >= limit) return 0;
+        final int mid = (low + high) >>> 1;
+        if(maxEnds[mid] < from) return 0;
+        int result = collect(low, mid, limit, from, found);
+        if(mid < limit && ends[mid] >= from) {
+            found.accept(ids[mid]);
+            result++;
+        }
+        return result + collect(mid + 1, high, limit, from, found);
+    }
+
+    private int count(final int low, final int high, final int limit, final int from) {
+        if(low >= high || low >= limit) return 0;
+        final int mid = (low + high) >>> 1;
+        if(maxEnds[mid] < from) return 0;
+        return count(low, mid, limit, from) + (mid < limit && ends[mid] >= from ? 1 : 0)
+            + count(mid + 1, high, limit, from);
+    }
+
+    private boolean any(final int low, final int high, final int limit, final int from) {
+        if(low >= high || low >= limit) return false;
+        final int mid = (low + high) >>> 1;
+        return maxEnds[mid] >= from && (mid < limit && ends[mid] >= from || any(low, mid, limit, from)
+            || any(mid + 1, high, limit, from));
+    }
+
+    private void report(final int low, final int high, final int limit, final int from, final int probeIndex,
+                        final BatchVisitor visitor) {
+        if(low >= high || low >= limit) return;
+        final int mid = (low + high) >>> 1;
+        if(maxEnds[mid] < from) return;
+        report(low, mid, limit, from, probeIndex, visitor);
+        if(mid < limit && ends[mid] >= from) visitor.visit(probeIndex, ids[mid]);
+        report(mid + 1, high, limit, from, probeIndex, visitor);
+    }
+}
@@ -5,6 +5,9 @@ package org.ebay.datameta.util.jdk;
  * <ul>
  * <li>Int overflow-safe operations - those are not efficient but working, there seems to be
  * no better implementation out there.</li>
+ * <li>Overflow checks that do not throw, for the hot loops: branch-free predicates like {@link #addOverflows(int, int)},
+ * saturating operations like {@link #saturatedAdd(int, int)}, and bulk sums of arrays like
+ * {@link #checkedSum(long[], int, int, long)} that report the overflow by a sentinel value.</li>
  * </ul>
  * <p/>
  * References:
@@ -107,4 +110,166 @@ public class Ints {
         }
         return value;
     }
+
+    /**
+     * Branch-free overflow test: the sum overflows if and only if both arguments have the sign different from
+     * the wrapped result's.
+     * @return true if {@code left + right} does not fit into an int.
+     */
+    @Api public static boolean addOverflows(final int left, final int right) {
+        final int result = left + right;
+        return ((left ^ result) & (right ^ result)) < 0;
+    }
+
+    /**
+     * @return true if {@code left + right} does not fit into a long.
+     * @see #addOverflows(int, int)
+     */
+    @Api public static boolean addOverflows(final long left, final long right) {
+        final long result = left + right;
+        return ((left ^ result) & (right ^ result)) < 0;
+    }
+
+    /**
+     * Branch-free overflow test: the difference overflows if and only if the arguments differ in sign and the wrapped
+     * result's sign differs from the left's.
+     * @return true if {@code left - right} does not fit into an int.
+     */
+    @Api public static boolean subtractOverflows(final int left, final int right) {
+        final int result = left - right;
+        return ((left ^ right) & (left ^ result)) < 0;
+    }
+
+    /**
+     * @return true if {@code left - right} does not fit into a long.
+     * @see #subtractOverflows(int, int)
+     */
+    @Api public static boolean subtractOverflows(final long left, final long right) {
+        final long result = left - right;
+        return ((left ^ right) & (left ^ result)) < 0;
+    }
+
+    /**
+     * @return true if {@code left * right} does not fit into an int.
+     */
+    @Api public static boolean multiplyOverflows(final int left, final int right) {
+        final long result = (long) left * right;
+        return (int) result != result;
+    }
+
+    /**
+     * Same check as the {@link Math#multiplyExact(long, long)} does, without throwing: the division only happens
+     * when either argument takes more than 31 bits.
+     * @return true if {@code left * right} does not fit into a long.
+     */
+    @Api public static boolean multiplyOverflows(final long left, final long right) {
+        if (((Math.abs(left) | Math.abs(right)) >>> 31) == 0) return false;
+        return (right != 0 && (left * right) / right != left) || (left == Long.MIN_VALUE && right == -1);
+    }
+
+    /**
+     * @return true if the value is in the int range.
+     */
+    @Api public static boolean fitsInt(final long value) { return (int) value == value; }
+
+    /**
+     * The value clamped to the int range.
+     */
+    @Api public static int saturatedCast(final long value) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, value));
+    }
+
+    /**
+     * @return the sum, or the {@link Integer#MAX_VALUE} or the {@link Integer#MIN_VALUE} if it overflows upward
+     * or downward respectively.
+     */
+    @Api public static int saturatedAdd(final int left, final int right) { return saturatedCast((long) left + right); }
+
+    /**
+     * @return the difference, clamped to the int range like the {@link #saturatedAdd(int, int)}.
+     */
+    @Api public static int saturatedSubtract(final int left, final int right) { return saturatedCast((long) left - right); }
+
+    /**
+     * @return the product, clamped to the int range like the {@link #saturatedAdd(int, int)}.
+     */
+    @Api public static int saturatedMultiply(final int left, final int right) { return saturatedCast((long) left * right); }
+
+    /**
+     * @return the sum, or the {@link Long#MAX_VALUE} or the {@link Long#MIN_VALUE} if it overflows upward
+     * or downward respectively.
+     */
+    @Api public static long saturatedAdd(final long left, final long right) {
+        final long result = left + right;
+        // on overflow both arguments are of the same sign, the left's sign says which way
+        return ((left ^ result) & (right ^ result)) < 0 ? (left >> 63) ^ Long.MAX_VALUE : result;
+    }
+
+    /**
+     * @return the difference, clamped to the long range like the {@link #saturatedAdd(long, long)}.
+     */
+    @Api public static long saturatedSubtract(final long left, final long right) {
+        final long result = left - right;
+        return ((left ^ right) & (left ^ result)) < 0 ? (left >> 63) ^ Long.MAX_VALUE : result;
+    }
+
+    /**
+     * @return the product, clamped to the long range like the {@link #saturatedAdd(long, long)}.
+     */
+    @Api public static long saturatedMultiply(final long left, final long right) {
+        return multiplyOverflows(left, right) ? ((left ^ right) >> 63) ^ Long.MAX_VALUE : left * right;
+    }
+
+    /**
+     * Exact sum of the range of ints: a long can not overflow on fewer than 2^32 of them.
+     */
+    @Api public static long sum(final int[] values, final int offset, final int length) {
+        MathUtil.checkRange(values.length, offset, length);
+        long result = 0;
+        for(int i = offset; i < offset + length; i++) result += values[i];
+        return result;
+    }
+
+    /**
+     * Sum of the range of ints if it fits into an int.
+     * @return the sum, or the {@code onOverflow} if it does not fit.
+     */
+    @Api public static int checkedSum(final int[] values, final int offset, final int length, final int onOverflow) {
+        final long result = sum(values, offset, length);
+        return fitsInt(result) ? (int) result : onOverflow;
+    }
+
+    /**
+     * Sum of the range of longs if it fits into a long. The sum is tracked to 128 bits, so it's the total that counts,
+     * not the order: {@code MAX_VALUE, 1, -1} sums to the {@code MAX_VALUE} fine. No branches in the loop.
+     * @return the sum, or the {@code onOverflow} if it does not fit.
+     */
+    @Api public static long checkedSum(final long[] values, final int offset, final int length, final long onOverflow) {
+        MathUtil.checkRange(values.length, offset, length);
+        long low = 0, high = 0;
+        for(int i = offset; i < offset + length; i++) {
+            final long value = values[i];
+            final long sum = low + value;
+            // the sign extension of the value plus the unsigned carry out of the low word
+            high += (value >> 63) + (((low & value) | ((low | value) & ~sum)) >>> 63);
+            low = sum;
+        }
+        return high == (low >> 63) ? low : onOverflow;
+    }
+
+    /**
+     * Sum of the range of longs, clamped to the long range; the total counts like in the
+     * {@link #checkedSum(long[], int, int, long)}.
+     */
+    @Api public static long saturatedSum(final long[] values, final int offset, final int length) {
+        MathUtil.checkRange(values.length, offset, length);
+        long low = 0, high = 0;
+        for(int i = offset; i < offset + length; i++) {
+            final long value = values[i];
+            final long sum = low + value;
+            high += (value >> 63) + (((low & value) | ((low | value) & ~sum)) >>> 63);
+            low = sum;
+        }
+        return high == (low >> 63) ? low : high < 0 ? Long.MIN_VALUE : Long.MAX_VALUE;
+    }
 }
@@ -0,0 +1,220 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Histogram of the latencies, or any non-negative long values, the HdrHistogram way: log-linear buckets, the values
+ * below {@code 2^precisionBits} each in its own, above that every power of 2 split into {@code 2^(precisionBits - 1)}
+ * equal buckets. So the value reported for the bucket is off from the values recorded into it by less than
+ * {@code 2^-(precisionBits - 1)} of them, 1.6% with the {@link #DEFAULT_PRECISION_BITS default} 7 bits, over the whole
+ * long range, in {@code (65 - precisionBits) * 2^(precisionBits - 1)} counters: 3712 for the 7 bits.
+ *
+ * <p>The bucket of the value is the position of its highest bit and the bits under it, no search, no division,
+ * so the recording is a few instructions. This one records from a single thread; the concurrent recording goes
+ * through the {@link OpLatencyRecorder}, which makes these as its snapshots. The snapshots from different recorders,
+ * for different intervals, from different hosts, {@link #add(LatencyHistogram) merge} exactly, as long as their
+ * precision is the same.</p>
+ *
+ * <p>The bucket level accessors are for the export and the serialization, see the {@code LatencyHistogramCodec} in the
+ * {@code io} module.</p>
+ *
+ * @author Michael Bergens
+ * @see OpLatencyRecorder
+ */
+@NotThreadSafe public class LatencyHistogram implements Copyable<LatencyHistogram> {
+
+    public static final int DEFAULT_PRECISION_BITS = 7;
+    public static final int MIN_PRECISION_BITS = 2;
+    public static final int MAX_PRECISION_BITS = 14;
+
+    private final int precisionBits;
+    private final long[] counts;
+    private long totalCount;
+    private long max;
+    private long sum;
+
+    @Api public LatencyHistogram() { this(DEFAULT_PRECISION_BITS); }
+
+    /**
+     * @param precisionBits from {@value #MIN_PRECISION_BITS} to {@value #MAX_PRECISION_BITS}; each bit more halves
+     *                      the error and doubles the memory.
+     */
+    @Api public LatencyHistogram(final int precisionBits) {
+        this(precisionBits, new long[bucketCount(precisionBits)]);
+    }
+
+    private LatencyHistogram(final int precisionBits, final long[] counts) {
+        this.precisionBits = precisionBits;
+        this.counts = counts;
+    }
+
+    /**
+     * The histogram from its parts, as got from the {@link #getCountAtBucket(int)}, the {@link #getMax()} and the
+     * {@link #getSum()}, for the deserialization.
+     * @param counts by the bucket, copied.
+     * @throws IllegalArgumentException if the counts are not for the precision or negative.
+     */
+    @Api public static LatencyHistogram of(final int precisionBits, final long[] counts, final long max, final long sum) {
+        if(counts.length != bucketCount(precisionBits)) throw new IllegalArgumentException("Expected "
+            + bucketCount(precisionBits) + " buckets for the precision of " + precisionBits + " bits, got "
+            + counts.length);
+        final LatencyHistogram result = new LatencyHistogram(precisionBits, counts.clone());
+        for(final long count : counts) {
+            if(count < 0L) throw new IllegalArgumentException("Negative count: " + count);
+            result.totalCount += count;
+        }
+        result.max = max;
+        result.sum = sum;
+        return result;
+    }
+
+    /**
+     * How many buckets for the precision.
+     * @throws IllegalArgumentException if the precision is out of range.
+     */
+    @Api public static int bucketCount(final int precisionBits) {
+        if(precisionBits < MIN_PRECISION_BITS || precisionBits > MAX_PRECISION_BITS) throw new IllegalArgumentException(
+            "Precision bits out of range " + MIN_PRECISION_BITS + ".." + MAX_PRECISION_BITS + ": " + precisionBits);
+        return (65 - precisionBits) << (precisionBits - 1);
+    }
+
+    /**
+     * The bucket of the value with the precision; the negative values go where the zero does.
+     */
+    @Api public static int bucketOf(final long value, final int precisionBits) {
+        if(value < 1L << precisionBits) return value < 0L ? 0 : (int) value;
+        final int shift = 64 - Long.numberOfLeadingZeros(value) - precisionBits;
+        return (shift << (precisionBits - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * Records the value once.
+     */
+    @Api public void record(final long value) {
+        counts[bucketOf(value, precisionBits)]++;
+        totalCount++;
+        if(value > max) max = value;
+        if(value > 0L) sum += value;
+    }
+
+    /**
+     * Adds the other histogram's counts to this one.
+     * @throws IllegalArgumentException if the precision is different.
+     */
+    @Api public void add(final LatencyHistogram other) {
+        if(other.precisionBits != precisionBits) throw new IllegalArgumentException("Can not merge the precision of "
+            + other.precisionBits + " bits into " + precisionBits);
+        for(int i = 0; i < counts.length; i++) counts[i] += other.counts[i];
+        totalCount += other.totalCount;
+        if(other.max > max) max = other.max;
+        sum += other.sum;
+    }
+
+    /**
+     * Makes it empty.
+     */
+    @Api public void reset() {
+        Arrays.fill(counts, 0L);
+        totalCount = 0L;
+        max = 0L;
+        sum = 0L;
+    }
+
+    @Api public int getPrecisionBits() { return precisionBits; }
+
+    @Api public long getTotalCount() { return totalCount; }
+
+    /**
+     * The highest value recorded, exact, 0 if none.
+     */
+    @Api public long getMax() { return max; }
+
+    /**
+     * The sum of all the values recorded, exact unless it overflows.
+     */
+    @Api public long getSum() { return sum; }
+
+    @Api public double getMean() { return totalCount == 0L ? 0.0 : (double) sum / totalCount; }
+
+    /**
+     * The value that many percent of the recorded ones are not above, up to the precision: the highest value of its
+     * bucket, but not above the {@link #getMax() max}; 0 if empty.
+     * @param percentile from 0 to 100.
+     */
+    @Api public long getValueAtPercentile(final double percentile) {
+        if(percentile < 0.0 || percentile > 100.0) throw new IllegalArgumentException("Percentile out of range: "
+            + percentile);
+        if(totalCount == 0L) return 0L;
+        final long target = Math.max(1L, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long seen = 0L;
+        for(int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if(seen >= target) return Math.min(getBucketHighValue(i), max);
+        }
+        return max;
+    }
+
+    @Api public long getP50() { return getValueAtPercentile(50.0); }
+
+    @Api public long getP99() { return getValueAtPercentile(99.0); }
+
+    @Api public long getP999() { return getValueAtPercentile(99.9); }
+
+    @Api public int getBucketCount() { return counts.length; }
+
+    @Api public long getCountAtBucket(final int bucket) { return counts[bucket]; }
+
+    /**
+     * The lowest value that goes into the bucket.
+     */
+    @Api public long getBucketLowValue(final int bucket) {
+        if(bucket < 1 << precisionBits) return bucket;
+        final int shift = (bucket >> (precisionBits - 1)) - 1;
+        return (long) (bucket - (shift << (precisionBits - 1))) << shift;
+    }
+
+    /**
+     * The highest value that goes into the bucket.
+     */
+    @Api public long getBucketHighValue(final int bucket) {
+        if(bucket < 1 << precisionBits) return bucket;
+        final int shift = (bucket >> (precisionBits - 1)) - 1;
+        return getBucketLowValue(bucket) + ((1L << shift) - 1L);
+    }
+
+    /**
+     * Deep copy.
+     */
+    @Override public LatencyHistogram getCopyOf() {
+        return of(precisionBits, counts, max, sum);
+    }
+
+    /**
+     * The counts array itself, for the {@link OpLatencyRecorder} to fill in.
+     */
+    long[] counts() { return counts; }
+
+    void setStats(final long totalCount, final long max, final long sum) {
+        this.totalCount = totalCount;
+        this.max = max;
+        this.sum = sum;
+    }
+
+    @Override public boolean equals(final Object other) {
+        if(this == other) return true;
+        if(!(other instanceof LatencyHistogram)) return false;
+        final LatencyHistogram that = (LatencyHistogram) other;
+        return precisionBits == that.precisionBits && totalCount == that.totalCount && max == that.max
+            && sum == that.sum && Arrays.equals(counts, that.counts);
+    }
+
+    @Override public int hashCode() {
+        return 31 * (31 * precisionBits + Long.hashCode(totalCount)) + Arrays.hashCode(counts);
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{count=" + totalCount + ", p50=" + getP50() + ", p99=" + getP99()
+            + ", p999=" + getP999() + ", max=" + max + '}';
+    }
+}
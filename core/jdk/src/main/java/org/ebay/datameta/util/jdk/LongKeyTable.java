@@ -0,0 +1,178 @@
+package org.ebay.datameta.util.jdk;
+
+import java.util.Arrays;
+
+/**
+ * The key side of an open addressing hash table of the long keys: flat {@code long[]} of the keys, linear probing,
+ * the slots picked by the {@link HashUtil#fmix64(long) fmix64} of the key, so even the sequential keys spread well.
+ * Deletion shifts the following entries back rather than leaving tombstones, so the lookups stay short after any
+ * number of removals.
+ *
+ * <p>Zero marks an empty slot, so the zero key is kept aside with a flag, its value is for the subclass to keep.</p>
+ *
+ * <p>The subclasses keep the values in the parallel arrays of the same length and move them as told. The values are
+ * allocated from this constructor, so the subclass must not initialize those fields in their declarations.</p>
+ *
+ * @author Michael Bergens
+ */
+abstract class LongKeyTable {
+
+    static final int MIN_CAPACITY = 8;
+    static final int MAX_CAPACITY = 1 << 30;
+    static final float DEFAULT_LOAD_FACTOR = 0.75f;
+
+    protected long[] keys;
+    protected int mask;
+    private final float loadFactor;
+    private int maxFill;
+
+    /**
+     * Count of the non-zero keys.
+     */
+    private int used;
+    protected boolean hasZeroKey;
+
+    protected LongKeyTable(final int expectedSize, final float loadFactor) {
+        if(expectedSize < 0) throw new IllegalArgumentException("Expected size can not be negative: " + expectedSize);
+        if(!(loadFactor > 0.0f && loadFactor < 1.0f)) throw new IllegalArgumentException(
+            "Load factor must be between 0 and 1: " + loadFactor);
+        this.loadFactor = loadFactor;
+        final int capacity = capacityFor(expectedSize);
+        allocateKeys(capacity);
+        allocateValues(capacity);
+    }
+
+    /**
+     * How many keys are in the table, including the zero key.
+     */
+    @Api public int size() { return hasZeroKey ? used + 1 : used; }
+
+    @Api public boolean isEmpty() { return size() == 0; }
+
+    /**
+     * Removes all the entries, keeps the capacity.
+     */
+    @Api public void clear() {
+        Arrays.fill(keys, 0L);
+        clearValues();
+        used = 0;
+        hasZeroKey = false;
+    }
+
+    /**
+     * The slots allocated for the keys.
+     */
+    @Api public int capacity() { return keys.length; }
+
+    /**
+     * Creates the value storage for the initial capacity.
+     */
+    protected abstract void allocateValues(int capacity);
+
+    /**
+     * Clears all the values, for the garbage collector's sake mostly.
+     */
+    protected abstract void clearValues();
+
+    protected abstract void moveValue(int from, int to);
+
+    protected abstract void clearValue(int slot);
+
+    /**
+     * Replaces the value storage with the one of the new capacity after the table has grown, moving the values into
+     * their new slots.
+     * @param newSlots the new slot for every old one, -1 for the empty.
+     */
+    protected abstract void relocateValues(int capacity, int[] newSlots);
+
+    /**
+     * @return the slot of the non-zero key, or -1 if it's not there.
+     */
+    protected final int find(final long key) {
+        int slot = slotFor(key);
+        long current;
+        while((current = keys[slot]) != 0L) {
+            if(current == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds the slot of the non-zero key, or takes a new one for it, growing the table if needed.
+     * @return the slot if the key was there, or {@code -slot - 1} if it was just placed into the new slot; the slot
+     * is only valid until the next insertion.
+     */
+    protected final int insert(final long key) {
+        int slot = slotFor(key);
+        long current;
+        while((current = keys[slot]) != 0L) {
+            if(current == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        if(used >= maxFill) {
+            grow();
+            return insert(key);
+        }
+        keys[slot] = key;
+        used++;
+        return -slot - 1;
+    }
+
+    /**
+     * Removes the entry at the slot, shifting back the entries of the same probe run that follow.
+     */
+    protected final void removeAt(int slot) {
+        used--;
+        int next = slot;
+        while(true) {
+            next = (next + 1) & mask;
+            final long key = keys[next];
+            if(key == 0L) break;
+            final int home = slotFor(key);
+            // moves back unless its home is cyclically in (slot, next]
+            if(slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+                keys[slot] = key;
+                moveValue(next, slot);
+                slot = next;
+            }
+        }
+        keys[slot] = 0L;
+        clearValue(slot);
+    }
+
+    private int slotFor(final long key) { return (int) HashUtil.fmix64(key) & mask; }
+
+    private int capacityFor(final int size) {
+        final long needed = (long) Math.ceil(size / loadFactor) + 1;
+        if(needed > MAX_CAPACITY) throw new IllegalArgumentException("Too many entries for the load factor " + loadFactor
+            + ": " + size);
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+    }
+
+    private void allocateKeys(final int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        maxFill = Math.min(capacity - 1, (int) (capacity * loadFactor));
+    }
+
+    private void grow() {
+        if(keys.length == MAX_CAPACITY) throw new IllegalStateException("The table is at its max capacity of "
+            + MAX_CAPACITY + " and full at the load factor " + loadFactor);
+        final long[] oldKeys = keys;
+        allocateKeys(keys.length << 1);
+        final int[] newSlots = new int[oldKeys.length];
+        for(int i = 0; i < oldKeys.length; i++) {
+            final long key = oldKeys[i];
+            if(key == 0L) {
+                newSlots[i] = -1;
+                continue;
+            }
+            int slot = slotFor(key);
+            while(keys[slot] != 0L) slot = (slot + 1) & mask;
+            keys[slot] = key;
+            newSlots[i] = slot;
+        }
+        relocateValues(keys.length, newSlots);
+    }
+}
@@ -1,5 +1,6 @@
 package org.ebay.datameta.util.jdk;
 
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 
 /**
@@ -13,6 +14,7 @@ import java.util.HashMap;
  * @see #MERSENNE_19
  * @see #MERSENNE_31
  * @see #MERSENNE_61
+ * @see HashUtil
  */
 public class MathUtil {
     
@@ -77,11 +79,26 @@ public class MathUtil {
     private static final long FNV_SEED_32 = 0x811C9DC5L;
     private static final long FNV_PRIME_32 = 16777619;
 
+    /**
+     * {@link #FNV_SEED_32} narrowed to an int for the byte oriented variants which run in the int arithmetic.
+     */
+    private static final int FNV_SEED_32_INT = (int) FNV_SEED_32;
+    private static final int FNV_PRIME_32_INT = (int) FNV_PRIME_32;
+
     /**
      * Fowler–Noll–Vo hash, 32 bit version, multiplication first; a bit better than, for example,
      * {@link String#hashCode()} but the avalange is not spectacular.
+     * @see #fnvHashMul32(CharSequence)
      */
     public static long fnvHashMul32(final String source) {
+        return fnvHashMul32((CharSequence) source);
+    }
+
+    /**
+     * Same as {@link #fnvHashMul32(String)} for any {@link CharSequence}, without converting it to a String first;
+     * for the same characters, the result is the same as for a String.
+     */
+    @Api public static long fnvHashMul32(final CharSequence source) {
       long rv = FNV_SEED_32;
       for (int i = 0; i < source.length(); i++) {
         rv *= FNV_PRIME_32;
@@ -90,10 +107,59 @@ public class MathUtil {
       return rv & 0xFFFFFFFFL;
     }
 
+    /**
+     * Fowler–Noll–Vo hash, 32 bit version, multiplication first, over the octets of the given array range;
+     * this is the canonical FNV-1 as opposed to the char based variants which feed 16 bits at a time.
+     * @param source the bytes to hash, not modified.
+     * @param offset where to start in the array.
+     * @param length how many bytes to hash.
+     */
+    @Api public static long fnvHashMul32(final byte[] source, final int offset, final int length) {
+        checkRange(source.length, offset, length);
+        int rv = FNV_SEED_32_INT;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv *= FNV_PRIME_32_INT;
+            rv ^= source[i] & 0xFF;
+        }
+        return rv & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Same as {@link #fnvHashMul32(byte[], int, int)} for the range of the buffer from the given absolute offset,
+     * heap or direct. Does not change the buffer's position, limit or mark.
+     */
+    @Api public static long fnvHashMul32(final ByteBuffer source, final int offset, final int length) {
+        // against the buffer's limit, not the backing array's, which a slice or a limit does not shrink
+        checkRange(source.limit(), offset, length);
+        if(source.hasArray()) return fnvHashMul32(source.array(), source.arrayOffset() + offset, length);
+        int rv = FNV_SEED_32_INT;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv *= FNV_PRIME_32_INT;
+            rv ^= source.get(i) & 0xFF;
+        }
+        return rv & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Hashes the {@link ByteBuffer#remaining() remaining} bytes of the buffer, see {@link #fnvHashMul32(ByteBuffer, int, int)}.
+     */
+    @Api public static long fnvHashMul32(final ByteBuffer source) {
+        return fnvHashMul32(source, source.position(), source.remaining());
+    }
+
     /**
      * Fowler–Noll–Vo hash, 32 bit version, char XOR first, best avalanche effect.
+     * @see #fnvHashXor32(CharSequence)
      */
     public static long fnvHashXor32(final String source) {
+        return fnvHashXor32((CharSequence) source);
+    }
+
+    /**
+     * Same as {@link #fnvHashXor32(String)} for any {@link CharSequence}, without converting it to a String first;
+     * for the same characters, the result is the same as for a String.
+     */
+    @Api public static long fnvHashXor32(final CharSequence source) {
       long rv = FNV_SEED_32;
       for (int i = 0; i < source.length(); i++) {
         rv ^= source.charAt(i);
@@ -102,30 +168,232 @@ public class MathUtil {
       return rv & 0xFFFFFFFFL;
     }
 
+    /**
+     * Fowler–Noll–Vo hash, 32 bit version, XOR first, over the octets of the given array range;
+     * this is the canonical FNV-1a.
+     * @param source the bytes to hash, not modified.
+     * @param offset where to start in the array.
+     * @param length how many bytes to hash.
+     */
+    @Api public static long fnvHashXor32(final byte[] source, final int offset, final int length) {
+        checkRange(source.length, offset, length);
+        int rv = FNV_SEED_32_INT;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv ^= source[i] & 0xFF;
+            rv *= FNV_PRIME_32_INT;
+        }
+        return rv & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Same as {@link #fnvHashXor32(byte[], int, int)} for the range of the buffer from the given absolute offset,
+     * heap or direct. Does not change the buffer's position, limit or mark.
+     */
+    @Api public static long fnvHashXor32(final ByteBuffer source, final int offset, final int length) {
+        checkRange(source.limit(), offset, length);
+        if(source.hasArray()) return fnvHashXor32(source.array(), source.arrayOffset() + offset, length);
+        int rv = FNV_SEED_32_INT;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv ^= source.get(i) & 0xFF;
+            rv *= FNV_PRIME_32_INT;
+        }
+        return rv & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Hashes the {@link ByteBuffer#remaining() remaining} bytes of the buffer, see {@link #fnvHashXor32(ByteBuffer, int, int)}.
+     */
+    @Api public static long fnvHashXor32(final ByteBuffer source) {
+        return fnvHashXor32(source, source.position(), source.remaining());
+    }
+
     /**
      * Fowler–Noll–Vo hash, 64 bit version, mul first; a bit better than, for example,
      * {@link String#hashCode()} but the avalange is not spectacular.
+     *
+     * <p>Returns all 64 bits of the hash; the 1.0.0 release masked the result down to the lower 32 bits.</p>
+     * @see #fnvHashMul64(CharSequence)
      */
     public static long fnvHashMul64(final String source) {
+        return fnvHashMul64((CharSequence) source);
+    }
+
+    /**
+     * Same as {@link #fnvHashMul64(String)} for any {@link CharSequence}, without converting it to a String first;
+     * for the same characters, the result is the same as for a String.
+     */
+    @Api public static long fnvHashMul64(final CharSequence source) {
         long rv = FNV_SEED_64;
         for (int i = 0; i < source.length(); i++) {
           rv *= FNV_PRIME_64;
           rv ^= source.charAt(i);
         }
-        return rv & 0xFFFFFFFFL;
+        return rv;
+    }
+
+    /**
+     * Fowler–Noll–Vo hash, 64 bit version, mul first, over the octets of the given array range; full 64 bits.
+     * @param source the bytes to hash, not modified.
+     * @param offset where to start in the array.
+     * @param length how many bytes to hash.
+     */
+    @Api public static long fnvHashMul64(final byte[] source, final int offset, final int length) {
+        checkRange(source.length, offset, length);
+        long rv = FNV_SEED_64;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv *= FNV_PRIME_64;
+            rv ^= source[i] & 0xFF;
+        }
+        return rv;
     }
+
+    /**
+     * Same as {@link #fnvHashMul64(byte[], int, int)} for the range of the buffer from the given absolute offset,
+     * heap or direct. Does not change the buffer's position, limit or mark.
+     */
+    @Api public static long fnvHashMul64(final ByteBuffer source, final int offset, final int length) {
+        checkRange(source.limit(), offset, length);
+        if(source.hasArray()) return fnvHashMul64(source.array(), source.arrayOffset() + offset, length);
+        long rv = FNV_SEED_64;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv *= FNV_PRIME_64;
+            rv ^= source.get(i) & 0xFF;
+        }
+        return rv;
+    }
+
+    /**
+     * Hashes the {@link ByteBuffer#remaining() remaining} bytes of the buffer, see {@link #fnvHashMul64(ByteBuffer, int, int)}.
+     */
+    @Api public static long fnvHashMul64(final ByteBuffer source) {
+        return fnvHashMul64(source, source.position(), source.remaining());
+    }
+
     /**
      * Fowler–Noll–Vo hash, 64 bit version, XOR first; a bit better than, for example,
      * {@link String#hashCode()} but the avalange is not spectacular.
+     *
+     * <p>Returns all 64 bits of the hash; the 1.0.0 release masked the result down to the lower 32 bits.</p>
+     * @see #fnvHashXor64(CharSequence)
      */
     public static long fnvHashXor64(final String source) {
+        return fnvHashXor64((CharSequence) source);
+    }
+
+    /**
+     * Same as {@link #fnvHashXor64(String)} for any {@link CharSequence}, without converting it to a String first;
+     * for the same characters, the result is the same as for a String.
+     */
+    @Api public static long fnvHashXor64(final CharSequence source) {
         long rv = FNV_SEED_64;
         for (int i = 0; i < source.length(); i++) {
           rv ^= source.charAt(i);
           rv *= FNV_PRIME_64;
         }
-        return rv & 0xFFFFFFFFL;
+        return rv;
+    }
+
+    /**
+     * Fowler–Noll–Vo hash, 64 bit version, XOR first, over the octets of the given array range; this is the
+     * canonical 64 bit FNV-1a, full 64 bits.
+     * @param source the bytes to hash, not modified.
+     * @param offset where to start in the array.
+     * @param length how many bytes to hash.
+     */
+    @Api public static long fnvHashXor64(final byte[] source, final int offset, final int length) {
+        checkRange(source.length, offset, length);
+        long rv = FNV_SEED_64;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv ^= source[i] & 0xFF;
+            rv *= FNV_PRIME_64;
+        }
+        return rv;
+    }
+
+    /**
+     * Same as {@link #fnvHashXor64(byte[], int, int)} for the range of the buffer from the given absolute offset,
+     * heap or direct. Does not change the buffer's position, limit or mark.
+     */
+    @Api public static long fnvHashXor64(final ByteBuffer source, final int offset, final int length) {
+        checkRange(source.limit(), offset, length);
+        if(source.hasArray()) return fnvHashXor64(source.array(), source.arrayOffset() + offset, length);
+        long rv = FNV_SEED_64;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            rv ^= source.get(i) & 0xFF;
+            rv *= FNV_PRIME_64;
+        }
+        return rv;
+    }
+
+    /**
+     * Hashes the {@link ByteBuffer#remaining() remaining} bytes of the buffer, see {@link #fnvHashXor64(ByteBuffer, int, int)}.
+     */
+    @Api public static long fnvHashXor64(final ByteBuffer source) {
+        return fnvHashXor64(source, source.position(), source.remaining());
+    }
+
+    /**
+     * Verifies that the range {@code offset..offset+length} fits into {@code 0..size}; the check is written
+     * so that it does not overflow on huge arguments.
+     * @throws IndexOutOfBoundsException if the range does not fit.
+     */
+    static void checkRange(final int size, final int offset, final int length) {
+        if((offset | length) < 0 || length > size - offset) throw new IndexOutOfBoundsException(
+            "Range [" + offset + ", " + offset + " + " + length + ") is out of bounds for size " + size);
+    }
+
+    /**
+     * The upper 64 bits of the full 128 bit product of the arguments, both treated as unsigned; the same as
+     * {@code Math.unsignedMultiplyHigh} which is only available since Java 18.
+     */
+    @Api public static long unsignedMultiplyHigh(final long x, final long y) {
+        // the signed high half, as in Math.multiplyHigh of Java 9
+        final long x1 = x >> 32, x2 = x & 0xFFFFFFFFL;
+        final long y1 = y >> 32, y2 = y & 0xFFFFFFFFL;
+        final long z2 = x2 * y2;
+        final long t = x1 * y2 + (z2 >>> 32);
+        long z1 = t & 0xFFFFFFFFL;
+        final long z0 = t >> 32;
+        z1 += x2 * y1;
+        final long signedHigh = x1 * y1 + z0 + (z1 >> 32);
+        // then corrected for the unsigned interpretation
+        return signedHigh + ((x >> 63) & y) + ((y >> 63) & x);
     }
+
+    /**
+     * <a href="https://arxiv.org/abs/1406.2294" target=_blank>Jump consistent hash</a> of Lamping and Veach: maps the
+     * key to a bucket so that when the number of buckets grows from {@code n} to {@code n+1}, only {@code 1/(n+1)}
+     * of the keys move, all of them to the new bucket. No memory, no allocation, {@code O(ln buckets)} time.
+     *
+     * <p>Buckets can only be added or removed at the end; for arbitrary nodes coming and going, see
+     * {@link HashRing} and {@link RendezvousHash}.</p>
+     *
+     * @param key any key, does not need to be a hash: it's mixed by a linear congruential generator.
+     * @param buckets how many buckets, positive.
+     * @return the bucket in the range {@code 0..buckets-1}.
+     */
+    @Api public static int jumpConsistentHash(long key, final int buckets) {
+        if(buckets < 1) throw new IllegalArgumentException("Buckets must be positive: " + buckets);
+        long bucket = -1, next = 0;
+        while(next < buckets) {
+            bucket = next;
+            key = key * 2862933555777941757L + 1;
+            next = (long) ((bucket + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) bucket;
+    }
+
+    /**
+     * {@link #jumpConsistentHash(long, int)} for a range of keys at once, writing the buckets into the
+     * matching positions of the output array.
+     */
+    @Api public static void jumpConsistentHash(final long[] keys, final int offset, final int length, final int buckets,
+                                               final int[] out) {
+        checkRange(keys.length, offset, length);
+        checkRange(out.length, offset, length);
+        for(int i = offset; i < offset + length; i++) out[i] = jumpConsistentHash(keys[i], buckets);
+    }
+
     /**
      * Improve quality of the hash code by shuffling the bits around, borrowed from {@link HashMap#hash(int)}
      * which is package local.
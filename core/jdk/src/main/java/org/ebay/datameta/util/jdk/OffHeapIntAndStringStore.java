@@ -0,0 +1,281 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * List of the {@link IntAndString} entries outside of the heap: the records, the number followed by the
+ * {@link Utf8 UTF-8} of the text, are appended to the data memory, and the index memory keeps a long offset of each
+ * record by its position. Both are the chunks of the direct memory or of the memory-mapped files, see the
+ * {@link #allocate()} and the {@link #open(Path)}. A record never spans the chunks, so a text can take up to the
+ * chunk size less 8 bytes.
+ *
+ * <p>{@link #sort() Sorting} reorders the index only, comparing the encoded texts in the order of the
+ * {@link IntAndString#compareTo(IntAndString)}, without decoding them. Reading the number never allocates, reading
+ * the text makes a String.</p>
+ *
+ * <p>Must be {@link #close() closed} to free the memory, or to unmap the files after writing the changes through.</p>
+ *
+ * @author Michael Bergens
+ * @see OffHeapTwoIntsStore
+ */
+@NotThreadSafe public class OffHeapIntAndStringStore implements Closeable {
+
+    /**
+     * 16MB per chunk, for both the data and the index.
+     */
+    public static final int DEFAULT_CHUNK_BITS = 24;
+
+    /**
+     * Appended to the data file name for the index file.
+     */
+    public static final String INDEX_FILE_SUFFIX = ".idx";
+
+    static final int INDEX_KIND = 0x6931;
+    static final int DATA_KIND = 0x6432;
+    private static final int SIZE = 0;
+    private static final int RECORD_HEADER = 8;
+    private static final int NULL_TEXT = -1;
+
+    /**
+     * Flyweight view of the current entry, moves over the store with the {@link #next()}.
+     */
+    public final class Cursor {
+        private long index = -1;
+        private long record;
+
+        private Cursor() {}
+
+        /**
+         * Moves to the next entry.
+         * @return false if there are no more entries.
+         */
+        @Api public boolean next() {
+            if(++index >= size) return false;
+            record = offsets.getLong(index << 3);
+            return true;
+        }
+
+        @Api public int number() { return data.getInt(record); }
+
+        @Api @Nullable public String text() { return readText(record); }
+
+        @Api public long index() { return index; }
+
+        @Api public Cursor reset() {
+            index = -1;
+            return this;
+        }
+    }
+
+    private final OffHeapMemory offsets;
+    private final OffHeapMemory data;
+    private long size;
+    private long dataEnd;
+    private byte[] scratch = new byte[256];
+    private byte[] otherScratch = new byte[256];
+
+    private OffHeapIntAndStringStore(final OffHeapMemory offsets, final OffHeapMemory data) {
+        this.offsets = offsets;
+        this.data = data;
+        this.size = offsets.getSize(SIZE);
+        this.dataEnd = data.getSize(SIZE);
+    }
+
+    /**
+     * A store in the native memory with the default chunk size.
+     */
+    @Api public static OffHeapIntAndStringStore allocate() { return allocate(DEFAULT_CHUNK_BITS); }
+
+    /**
+     * A store in the native memory.
+     * @param chunkBits the memory is allocated in the chunks of {@code 2^chunkBits} bytes, from 2^12 to 2^30.
+     */
+    @Api public static OffHeapIntAndStringStore allocate(final int chunkBits) {
+        final OffHeapMemory offsets = OffHeapMemory.allocate(INDEX_KIND, chunkBits);
+        return new OffHeapIntAndStringStore(offsets, OffHeapMemory.allocate(DATA_KIND, chunkBits));
+    }
+
+    /**
+     * A store mapped from the data file and its index file next to it, named with the {@link #INDEX_FILE_SUFFIX};
+     * with all the entries in them if they exist, otherwise created empty.
+     * @throws IOException if the files can not be mapped or are not of this kind of store.
+     */
+    @Api public static OffHeapIntAndStringStore open(final Path dataFile) throws IOException {
+        return open(dataFile, DEFAULT_CHUNK_BITS);
+    }
+
+    /**
+     * @param chunkBits for the new files, the existing files keep their own.
+     * @see #open(Path)
+     */
+    @Api public static OffHeapIntAndStringStore open(final Path dataFile, final int chunkBits) throws IOException {
+        final OffHeapMemory data = OffHeapMemory.open(dataFile, DATA_KIND, chunkBits);
+        try {
+            final OffHeapMemory offsets = OffHeapMemory.open(dataFile.resolveSibling(dataFile.getFileName()
+                + INDEX_FILE_SUFFIX), INDEX_KIND, chunkBits);
+            return new OffHeapIntAndStringStore(offsets, data);
+        }
+        catch(IOException | RuntimeException e) {
+            data.close();
+            throw e;
+        }
+    }
+
+    @Api public long size() { return size; }
+
+    @Api public boolean isEmpty() { return size == 0; }
+
+    @Api public boolean isMapped() { return data.isMapped(); }
+
+    /**
+     * @param text may be null.
+     * @return the index of the entry appended.
+     * @throws IllegalArgumentException if the text does not fit into a chunk.
+     * @throws UncheckedIOException if the file could not be extended.
+     */
+    @Api public long append(final int number, @Nullable final String text) {
+        final int length;
+        if(text == null) {
+            length = NULL_TEXT;
+        }
+        else {
+            final int maxLength = text.length() * 3;
+            if(scratch.length < maxLength) scratch = new byte[Math.max(maxLength, scratch.length << 1)];
+            length = Utf8.encode(text, scratch, 0);
+        }
+        final int recordSize = RECORD_HEADER + Math.max(0, length);
+        if(recordSize > data.getChunkSize()) throw new IllegalArgumentException("The text of " + length
+            + " bytes does not fit into the chunk of " + data.getChunkSize());
+        long record = dataEnd;
+        if(data.remainingInChunk(record) < recordSize) record += data.remainingInChunk(record);
+        try {
+            data.ensureCapacity(record + recordSize);
+            offsets.ensureCapacity((size + 1) << 3);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        data.putInt(record, number);
+        data.putInt(record + 4, length);
+        if(length > 0) data.put(record + RECORD_HEADER, scratch, 0, length);
+        dataEnd = record + recordSize;
+        data.setSize(SIZE, dataEnd);
+        offsets.putLong(size << 3, record);
+        offsets.setSize(SIZE, ++size);
+        return size - 1;
+    }
+
+    @Api public long append(final IntAndString entry) { return append(entry.number, entry.text); }
+
+    @Api public int getNumber(final long index) { return data.getInt(recordAt(index)); }
+
+    @Api @Nullable public String getText(final long index) { return readText(recordAt(index)); }
+
+    /**
+     * Copies the entry at the index into the given instance.
+     * @return the instance passed.
+     */
+    @Api public IntAndString get(final long index, final IntAndString into) {
+        final long record = recordAt(index);
+        into.number = data.getInt(record);
+        into.text = readText(record);
+        return into;
+    }
+
+    /**
+     * Compares the entries at the two indexes the way the {@link IntAndString#compareTo(IntAndString)} would,
+     * without decoding the texts.
+     */
+    @Api public int compare(final long left, final long right) { return compareRecords(recordAt(left), recordAt(right)); }
+
+    /**
+     * Sorts the entries in the {@link IntAndString#compareTo(IntAndString)} order, by reordering the index only.
+     */
+    @Api public void sort() {
+        new IndexedSorter() {
+            @Override protected int compare(final long left, final long right) {
+                return compareRecords(offsets.getLong(left << 3), offsets.getLong(right << 3));
+            }
+
+            @Override protected void swap(final long left, final long right) {
+                final long swapped = offsets.getLong(left << 3);
+                offsets.putLong(left << 3, offsets.getLong(right << 3));
+                offsets.putLong(right << 3, swapped);
+            }
+        }.sort(0, size);
+    }
+
+    /**
+     * A new cursor positioned before the first entry.
+     */
+    @Api public Cursor cursor() { return new Cursor(); }
+
+    /**
+     * Drops all the entries, keeps the memory.
+     */
+    @Api public void clear() {
+        size = 0;
+        dataEnd = 0;
+        offsets.setSize(SIZE, 0);
+        data.setSize(SIZE, 0);
+    }
+
+    /**
+     * Writes the changes through to the files if mapped.
+     */
+    @Api public void flush() {
+        data.flush();
+        offsets.flush();
+    }
+
+    /**
+     * Frees the memory, or unmaps the files after writing the changes through; the store can not be used after that.
+     */
+    @Override public void close() throws IOException {
+        try {
+            data.close();
+        }
+        finally {
+            offsets.close();
+        }
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{size=" + size + ", data=" + dataEnd + " bytes, "
+            + (data.isMapped() ? "mapped" : "direct") + '}';
+    }
+
+    private long recordAt(final long at) {
+        if(at < 0 || at >= size) throw new IndexOutOfBoundsException("Index " + at + " for the size " + size);
+        return offsets.getLong(at << 3);
+    }
+
+    @Nullable private String readText(final long record) {
+        final int length = data.getInt(record + 4);
+        if(length == NULL_TEXT) return null;
+        if(scratch.length < length) scratch = new byte[Math.max(length, scratch.length << 1)];
+        data.get(record + RECORD_HEADER, scratch, 0, length);
+        return Utf8.decode(scratch, 0, length);
+    }
+
+    /**
+     * Number first, then the text with the null before any other.
+     */
+    private int compareRecords(final long left, final long right) {
+        final int byNumber = Integer.compare(data.getInt(left), data.getInt(right));
+        if(byNumber != 0) return byNumber;
+        final int leftLength = data.getInt(left + 4), rightLength = data.getInt(right + 4);
+        if(leftLength == NULL_TEXT || rightLength == NULL_TEXT)
+            return leftLength == rightLength ? 0 : leftLength == NULL_TEXT ? -1 : 1;
+        if(scratch.length < leftLength) scratch = new byte[Math.max(leftLength, scratch.length << 1)];
+        if(otherScratch.length < rightLength) otherScratch = new byte[Math.max(rightLength, otherScratch.length << 1)];
+        data.get(left + RECORD_HEADER, scratch, 0, leftLength);
+        data.get(right + RECORD_HEADER, otherScratch, 0, rightLength);
+        return Utf8.compare(scratch, 0, leftLength, otherScratch, 0, rightLength);
+    }
+}
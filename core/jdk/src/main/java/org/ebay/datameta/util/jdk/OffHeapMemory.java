@@ -0,0 +1,267 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Growable memory outside of the heap, as a list of the equally sized chunks of the direct {@link ByteBuffer}s, each up
+ * to 1GB, which lifts the 2GB limit of a single buffer. Either allocated from the native memory, or mapped from
+ * a file, so that the data survives the restart and is back with no loading, as fast as the OS can page it in.
+ *
+ * <p>The file starts with the header of {@value #HEADER_SIZE} bytes: the magic, the kind of the store, the chunk size
+ * and a couple of longs for the store to keep its sizes in; the chunks follow. The same header is kept in the native
+ * memory too, so the stores work the same either way. Little endian throughout for the files to be portable.</p>
+ *
+ * <p>{@link #close() Closing} frees the memory right away instead of waiting for the GC; any access after that
+ * fails with an exception rather than touching the freed memory, as long as it's from the same thread.</p>
+ *
+ * @author Michael Bergens
+ */
+final class OffHeapMemory implements Closeable {
+
+    static final int HEADER_SIZE = 64;
+    static final int MIN_CHUNK_BITS = 12;
+    static final int MAX_CHUNK_BITS = 30;
+
+    private static final long MAGIC = 0x3150_4845_4D41_4444L; // DDAMEHP1 in little endian bytes
+    private static final int MAGIC_AT = 0;
+    private static final int KIND_AT = 8;
+    private static final int CHUNK_BITS_AT = 12;
+    private static final int SIZES_AT = 16;
+
+    private static final ByteBuffer[] NONE = new ByteBuffer[0];
+
+    private final int chunkBits;
+    private final int chunkMask;
+    private final ByteBuffer header;
+    @Nullable private final FileChannel channel;
+    private ByteBuffer[] chunks = new ByteBuffer[4];
+    private int chunkCount;
+
+    private OffHeapMemory(final int chunkBits, final ByteBuffer header, @Nullable final FileChannel channel) {
+        this.chunkBits = chunkBits;
+        this.chunkMask = (1 << chunkBits) - 1;
+        this.header = header;
+        this.channel = channel;
+    }
+
+    /**
+     * Allocates from the native memory.
+     */
+    static OffHeapMemory allocate(final int kind, final int chunkBits) {
+        checkChunkBits(chunkBits);
+        final ByteBuffer header = ByteBuffer.allocateDirect(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        initHeader(header, kind, chunkBits);
+        return new OffHeapMemory(chunkBits, header, null);
+    }
+
+    /**
+     * Maps the file, creating it if it's not there; the existing file must be of the same kind, and then its chunk size
+     * is used instead of the one given.
+     * @throws IOException if the file can not be mapped or is not of the kind.
+     */
+    static OffHeapMemory open(final Path file, final int kind, final int chunkBits) throws IOException {
+        checkChunkBits(chunkBits);
+        final FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        try {
+            final long fileSize = channel.size();
+            final ByteBuffer header = channel.map(READ_WRITE, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            final OffHeapMemory result;
+            if(fileSize == 0) {
+                initHeader(header, kind, chunkBits);
+                result = new OffHeapMemory(chunkBits, header, channel);
+            }
+            else {
+                if(header.getLong(MAGIC_AT) != MAGIC || header.getInt(KIND_AT) != kind) throw new IOException(
+                    "Not a store of the kind " + kind + ": " + file);
+                final int existingBits = header.getInt(CHUNK_BITS_AT);
+                if(existingBits < MIN_CHUNK_BITS || existingBits > MAX_CHUNK_BITS) throw new IOException(
+                    "Invalid chunk size 2^" + existingBits + " in " + file);
+                result = new OffHeapMemory(existingBits, header, channel);
+                final long chunks = (fileSize - HEADER_SIZE) >> existingBits;
+                for(long i = 0; i < chunks; i++) result.addChunk();
+            }
+            return result;
+        }
+        catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void checkChunkBits(final int chunkBits) {
+        if(chunkBits < MIN_CHUNK_BITS || chunkBits > MAX_CHUNK_BITS) throw new IllegalArgumentException(
+            "Chunk size must be from 2^" + MIN_CHUNK_BITS + " to 2^" + MAX_CHUNK_BITS + " bytes, got 2^" + chunkBits);
+    }
+
+    private static void initHeader(final ByteBuffer header, final int kind, final int chunkBits) {
+        header.putLong(MAGIC_AT, MAGIC);
+        header.putInt(KIND_AT, kind);
+        header.putInt(CHUNK_BITS_AT, chunkBits);
+    }
+
+    boolean isMapped() { return channel != null; }
+
+    int getChunkSize() { return 1 << chunkBits; }
+
+    /**
+     * The bytes allocated, a multiple of the chunk size.
+     */
+    long getCapacity() { return (long) chunkCount << chunkBits; }
+
+    /**
+     * One of the longs in the header the store keeps its sizes in, from 0 to 5.
+     */
+    long getSize(final int which) { return header.getLong(SIZES_AT + which * Long.BYTES); }
+
+    void setSize(final int which, final long value) { header.putLong(SIZES_AT + which * Long.BYTES, value); }
+
+    /**
+     * Makes sure the memory goes at least up to the given number of bytes.
+     */
+    void ensureCapacity(final long bytes) throws IOException {
+        if(chunks == NONE) throw new IllegalStateException("Closed");
+        while(getCapacity() < bytes) addChunk();
+    }
+
+    /**
+     * How many bytes are left in the chunk from the position, for the stores that do not split their records.
+     */
+    int remainingInChunk(final long position) { return (1 << chunkBits) - (int) (position & chunkMask); }
+
+    long getLong(final long position) {
+        return chunks[(int) (position >>> chunkBits)].getLong((int) position & chunkMask);
+    }
+
+    void putLong(final long position, final long value) {
+        chunks[(int) (position >>> chunkBits)].putLong((int) position & chunkMask, value);
+    }
+
+    int getInt(final long position) {
+        return chunks[(int) (position >>> chunkBits)].getInt((int) position & chunkMask);
+    }
+
+    void putInt(final long position, final int value) {
+        chunks[(int) (position >>> chunkBits)].putInt((int) position & chunkMask, value);
+    }
+
+    /**
+     * Copies the bytes out in bulk, from the chunk's own position: all the other access is absolute, and the stores
+     * are not thread-safe, so nothing else relies on it; no view allocated per copy. The range must be within a single
+     * chunk.
+     */
+    void get(final long position, final byte[] target, final int offset, final int length) {
+        final ByteBuffer chunk = chunks[(int) (position >>> chunkBits)];
+        chunk.position((int) position & chunkMask);
+        chunk.get(target, offset, length);
+    }
+
+    /**
+     * Copies the bytes in bulk, same as the {@link #get(long, byte[], int, int)}; the range must be within a single
+     * chunk.
+     */
+    void put(final long position, final byte[] source, final int offset, final int length) {
+        final ByteBuffer chunk = chunks[(int) (position >>> chunkBits)];
+        chunk.position((int) position & chunkMask);
+        chunk.put(source, offset, length);
+    }
+
+    /**
+     * Writes the mapped changes through to the file; nothing to do for the native memory.
+     */
+    void flush() {
+        if(channel == null) return;
+        for(int i = 0; i < chunkCount; i++) ((MappedByteBuffer) chunks[i]).force();
+        ((MappedByteBuffer) header).force();
+    }
+
+    /**
+     * Frees the memory, or flushes and unmaps the file. Idempotent.
+     */
+    @Override public void close() throws IOException {
+        if(chunks == NONE) return;
+        final ByteBuffer[] freeing = chunks;
+        final int count = chunkCount;
+        chunks = NONE;
+        chunkCount = 0;
+        try {
+            if(channel != null) {
+                for(int i = 0; i < count; i++) ((MappedByteBuffer) freeing[i]).force();
+                ((MappedByteBuffer) header).force();
+            }
+            for(int i = 0; i < count; i++) free(freeing[i]);
+            free(header);
+        }
+        finally {
+            if(channel != null) channel.close();
+        }
+    }
+
+    private void addChunk() throws IOException {
+        if(chunkCount == chunks.length) {
+            final ByteBuffer[] grown = new ByteBuffer[chunks.length << 1];
+            System.arraycopy(chunks, 0, grown, 0, chunkCount);
+            chunks = grown;
+        }
+        final int size = 1 << chunkBits;
+        final ByteBuffer chunk = channel == null ? ByteBuffer.allocateDirect(size)
+            : channel.map(READ_WRITE, HEADER_SIZE + ((long) chunkCount << chunkBits), size);
+        chunks[chunkCount++] = chunk.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Releases the direct or the mapped buffer now rather than when it's collected: through the
+     * {@code sun.misc.Unsafe.invokeCleaner} on Java 9 and up, through the buffer's own cleaner on Java 8. Best effort:
+     * if neither is reachable, the GC frees it eventually.
+     */
+    static void free(final ByteBuffer buffer) {
+        if(!buffer.isDirect()) return;
+        try {
+            if(INVOKE_CLEANER != null) {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            }
+            else {
+                final Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                final Object cleaner = cleanerMethod.invoke(buffer);
+                if(cleaner != null) cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch(ReflectiveOperationException | RuntimeException ignored) {
+            // left to the GC
+        }
+    }
+
+    @Nullable private static final Object UNSAFE;
+    @Nullable private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            final Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+        }
+        catch(ReflectiveOperationException | RuntimeException e) { // Java 8, no invokeCleaner
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+}
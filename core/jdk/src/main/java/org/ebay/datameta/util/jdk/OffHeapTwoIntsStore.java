@@ -0,0 +1,215 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * List of int pairs outside of the heap, for the hundreds of millions of them that would otherwise keep the GC busy:
+ * 8 bytes per pair in the chunks of the direct memory or of a memory-mapped file, see the {@link #allocate()} and
+ * the {@link #open(Path)}. The pairs are stored {@link TwoInts#pack(int, int) packed}, which makes the
+ * {@link #sort() sorting} and the {@link #binarySearch(int, int) search} the plain long comparisons.
+ *
+ * <p>Must be {@link #close() closed} to free the memory, or to unmap the file after writing the changes through.
+ * A mapped store keeps its size in the file header updated on every append, so reopening the file after
+ * the restart finds all the pairs appended.</p>
+ *
+ * @author Michael Bergens
+ * @see TwoIntsArray
+ * @see OffHeapIntAndStringStore
+ */
+@NotThreadSafe public class OffHeapTwoIntsStore implements Closeable {
+
+    /**
+     * 16MB, 2M pairs per chunk.
+     */
+    public static final int DEFAULT_CHUNK_BITS = 24;
+
+    static final int KIND = 0x7432;
+    private static final int SIZE = 0;
+
+    /**
+     * Flyweight view of the current pair, moves over the store with the {@link #next()}.
+     */
+    public final class Cursor {
+        private long index = -1;
+        private long packed;
+
+        private Cursor() {}
+
+        /**
+         * Moves to the next pair.
+         * @return false if there are no more pairs.
+         */
+        @Api public boolean next() {
+            if(++index >= size) return false;
+            packed = memory.getLong(index << 3);
+            return true;
+        }
+
+        @Api public int first() { return TwoInts.unpackFirst(packed); }
+
+        @Api public int last() { return TwoInts.unpackLast(packed); }
+
+        @Api public long index() { return index; }
+
+        @Api public Cursor reset() {
+            index = -1;
+            return this;
+        }
+    }
+
+    private final OffHeapMemory memory;
+    private long size;
+
+    private OffHeapTwoIntsStore(final OffHeapMemory memory) {
+        this.memory = memory;
+        this.size = memory.getSize(SIZE);
+    }
+
+    /**
+     * A store in the native memory with the default chunk size.
+     */
+    @Api public static OffHeapTwoIntsStore allocate() { return allocate(DEFAULT_CHUNK_BITS); }
+
+    /**
+     * A store in the native memory.
+     * @param chunkBits the memory is allocated in the chunks of {@code 2^chunkBits} bytes, from 2^12 to 2^30.
+     */
+    @Api public static OffHeapTwoIntsStore allocate(final int chunkBits) {
+        return new OffHeapTwoIntsStore(OffHeapMemory.allocate(KIND, chunkBits));
+    }
+
+    /**
+     * A store mapped from the file, with all the pairs in it if it exists, otherwise created empty.
+     * @throws IOException if the file can not be mapped or is not of this kind of store.
+     */
+    @Api public static OffHeapTwoIntsStore open(final Path file) throws IOException { return open(file, DEFAULT_CHUNK_BITS); }
+
+    /**
+     * @param chunkBits for the new file, the existing file keeps its own.
+     * @see #open(Path)
+     */
+    @Api public static OffHeapTwoIntsStore open(final Path file, final int chunkBits) throws IOException {
+        return new OffHeapTwoIntsStore(OffHeapMemory.open(file, KIND, chunkBits));
+    }
+
+    @Api public long size() { return size; }
+
+    @Api public boolean isEmpty() { return size == 0; }
+
+    @Api public boolean isMapped() { return memory.isMapped(); }
+
+    /**
+     * @return the index of the pair appended.
+     * @throws UncheckedIOException if the file could not be extended.
+     */
+    @Api public long append(final int first, final int last) {
+        try {
+            memory.ensureCapacity((size + 1) << 3);
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        memory.putLong(size << 3, TwoInts.pack(first, last));
+        memory.setSize(SIZE, ++size);
+        return size - 1;
+    }
+
+    @Api public long append(final TwoInts pair) { return append(pair.first, pair.last); }
+
+    @Api public int getFirst(final long index) { return TwoInts.unpackFirst(getPacked(index)); }
+
+    @Api public int getLast(final long index) { return TwoInts.unpackLast(getPacked(index)); }
+
+    /**
+     * The pair at the index {@link TwoInts#pack(int, int) packed}.
+     */
+    @Api public long getPacked(final long index) {
+        checkIndex(index);
+        return memory.getLong(index << 3);
+    }
+
+    /**
+     * Copies the pair at the index into the given instance.
+     * @return the instance passed.
+     */
+    @Api public TwoInts get(final long index, final TwoInts into) {
+        final long packed = getPacked(index);
+        into.first = TwoInts.unpackFirst(packed);
+        into.last = TwoInts.unpackLast(packed);
+        return into;
+    }
+
+    @Api public void set(final long index, final int first, final int last) {
+        checkIndex(index);
+        memory.putLong(index << 3, TwoInts.pack(first, last));
+    }
+
+    /**
+     * Drops all the pairs, keeps the memory.
+     */
+    @Api public void clear() {
+        size = 0;
+        memory.setSize(SIZE, 0);
+    }
+
+    /**
+     * Sorts in place in the {@link TwoInts#compareTo(TwoInts)} order.
+     */
+    @Api public void sort() {
+        new IndexedSorter() {
+            @Override protected int compare(final long left, final long right) {
+                return Long.compare(memory.getLong(left << 3), memory.getLong(right << 3));
+            }
+
+            @Override protected void swap(final long left, final long right) {
+                final long swapped = memory.getLong(left << 3);
+                memory.putLong(left << 3, memory.getLong(right << 3));
+                memory.putLong(right << 3, swapped);
+            }
+        }.sort(0, size);
+    }
+
+    /**
+     * Searches the store sorted in the {@link TwoInts#compareTo(TwoInts)} order.
+     * @return the index of the pair if found, otherwise {@code -(insertion point) - 1}.
+     */
+    @Api public long binarySearch(final int first, final int last) {
+        final long key = TwoInts.pack(first, last);
+        long low = 0, high = size - 1;
+        while(low <= high) {
+            final long mid = (low + high) >>> 1;
+            final long value = memory.getLong(mid << 3);
+            if(value < key) low = mid + 1;
+            else if(value > key) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * A new cursor positioned before the first pair.
+     */
+    @Api public Cursor cursor() { return new Cursor(); }
+
+    /**
+     * Writes the changes through to the file if mapped.
+     */
+    @Api public void flush() { memory.flush(); }
+
+    /**
+     * Frees the memory, or unmaps the file after writing the changes through; the store can not be used after that.
+     */
+    @Override public void close() throws IOException { memory.close(); }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{size=" + size + ", " + (memory.isMapped() ? "mapped" : "direct") + '}';
+    }
+
+    private void checkIndex(final long index) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " for the size " + size);
+    }
+}
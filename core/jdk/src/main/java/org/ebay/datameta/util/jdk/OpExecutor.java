@@ -0,0 +1,305 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.lang.reflect.Method;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the operations, the {@link Callable}s, many at once, and hands each outcome wrapped into the {@link OpResult}
+ * to the {@link OpResultConsumer}: the value as {@link OpState#OK}, the exception as {@link OpState#ERROR}, or the
+ * result the operation made itself, such as the {@link OpState#FAIL}.
+ *
+ * <p>The operations run on the virtual threads if the JVM has them, the {@code Executors.newVirtualThreadPerTaskExecutor()}
+ * looked up by reflection, since this is built for Java 8; otherwise on the pool of the daemon threads made as needed
+ * and dropped after a minute idle. Either way, no more than the given number of them run at once, by the
+ * {@link Semaphore}; the rest wait in the queue. The {@link #submit(Callable, OpResultConsumer)} never blocks: if there
+ * is no permit, the operation is queued and started by the one that finishes next; if the queue is full or the
+ * executor is closed, the operation is rejected with the {@link OpResult#getStacklessErrorInstance(Object, String)
+ * stackless error} delivered to the consumer right away, on the caller's thread.</p>
+ *
+ * <p>Each operation is tracked by the {@link OpTracker} the submit returns. The consumer gets the result only if the
+ * operation completes the tracker; if someone else completes it first, for example on the timeout, the result is
+ * dropped, and the operation that has not started yet is not run at all. Whoever completes the tracker this way
+ * is then the one to tell the consumer.</p>
+ *
+ * <p>The consumer runs on the thread of the operation, within its permit; a consumer that throws does not affect the
+ * executor, the exception is passed to the {@link CatchHandler}. The operation that throws an {@link Error} ends in the
+ * {@link OpState#ERROR} like any other; the {@link VirtualMachineError} is rethrown after the consumer is told.</p>
+ *
+ * @author Michael Bergens
+ */
+@ThreadSafe public class OpExecutor implements AutoCloseable {
+
+    /**
+     * How many operations may wait for the permit by default: no limit.
+     */
+    public static final int UNBOUNDED = 0;
+
+    private static final AtomicInteger POOL_COUNT = new AtomicInteger();
+
+    private final ExecutorService executor;
+    private final boolean virtual;
+    private final int maxConcurrent;
+    private final int maxPending;
+    private final Semaphore permits;
+    private final Queue<Op<?>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final CatchHandler<Throwable> consumerFailureHandler;
+    private volatile boolean closed;
+
+    /**
+     * With the unbounded queue, the consumer failures go to the uncaught exception handler of the thread.
+     * @param maxConcurrent how many operations may run at once.
+     */
+    @Api public OpExecutor(final int maxConcurrent) {
+        this(maxConcurrent, UNBOUNDED, null);
+    }
+
+    /**
+     * @param maxConcurrent how many operations may run at once.
+     * @param maxPending how many may wait for the permit before the next one is rejected, {@link #UNBOUNDED} for
+     *                   no limit.
+     * @param consumerFailureHandler handles what the consumer throws, null for the uncaught exception handler of the
+     *                               thread.
+     */
+    @Api public OpExecutor(final int maxConcurrent, final int maxPending,
+                           @Nullable final CatchHandler<Throwable> consumerFailureHandler) {
+        this(VIRTUAL_FACTORY == null ? newPool() : newVirtualThreadExecutor(), VIRTUAL_FACTORY != null, maxConcurrent,
+            maxPending, consumerFailureHandler);
+    }
+
+    /**
+     * With the given executor, which is owned from now on: {@link #close()} shuts it down.
+     * @param executor runs the operations, must not block or reject on its own while not shut down.
+     */
+    @Api public OpExecutor(@Nonnull final ExecutorService executor, final int maxConcurrent, final int maxPending,
+                           @Nullable final CatchHandler<Throwable> consumerFailureHandler) {
+        this(executor, false, maxConcurrent, maxPending, consumerFailureHandler);
+    }
+
+    private OpExecutor(final ExecutorService executor, final boolean virtual, final int maxConcurrent,
+                       final int maxPending, @Nullable final CatchHandler<Throwable> consumerFailureHandler) {
+        if(maxConcurrent < 1) throw new IllegalArgumentException("Max concurrent must be positive: " + maxConcurrent);
+        if(maxPending < 0) throw new IllegalArgumentException("Max pending must not be negative: " + maxPending);
+        this.executor = executor;
+        this.virtual = virtual;
+        this.maxConcurrent = maxConcurrent;
+        this.maxPending = maxPending;
+        this.permits = new Semaphore(maxConcurrent);
+        this.consumerFailureHandler = consumerFailureHandler == null
+            ? t -> Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), t)
+            : consumerFailureHandler;
+    }
+
+    /**
+     * Submits the operation that makes the value: the value becomes the {@link OpState#OK} result, the exception
+     * the {@link OpState#ERROR} one.
+     * @return the tracker of the operation, already completed if it was rejected.
+     */
+    @Api public <T> OpTracker<T> submit(@Nonnull final Callable<T> operation, @Nonnull final OpResultConsumer<T> consumer) {
+        return submitResult(() -> OpResult.getOkInstance(operation.call()), consumer);
+    }
+
+    /**
+     * Submits the operation that makes the {@link OpResult} itself, which must be in one of the
+     * {@link OpTracker#isTerminal(OpState) terminal states}; the exception becomes the {@link OpState#ERROR} result.
+     * @return the tracker of the operation, already completed if it was rejected.
+     */
+    @Api public <T> OpTracker<T> submitResult(@Nonnull final Callable<OpResult<T>> operation,
+                                              @Nonnull final OpResultConsumer<T> consumer) {
+        final Op<T> op = new Op<>(operation, consumer);
+        if(closed) {
+            op.deliver(OpResult.getStacklessErrorInstance(null, "Rejected, the executor is closed"));
+            return op.tracker;
+        }
+        if(pendingCount.incrementAndGet() > maxPending && maxPending != UNBOUNDED) {
+            pendingCount.decrementAndGet();
+            op.deliver(OpResult.getStacklessErrorInstance(null, "Rejected, over " + maxPending + " pending"));
+            return op.tracker;
+        }
+        pending.offer(op);
+        drain();
+        return op.tracker;
+    }
+
+    /**
+     * Whether the operations run on the virtual threads.
+     */
+    @Api public boolean isVirtual() { return virtual; }
+
+    @Api public int getMaxConcurrent() { return maxConcurrent; }
+
+    /**
+     * How many operations run now.
+     */
+    @Api public int getActiveCount() { return maxConcurrent - permits.availablePermits(); }
+
+    /**
+     * How many operations wait for the permit.
+     */
+    @Api public int getPendingCount() { return pendingCount.get(); }
+
+    /**
+     * Stops taking the operations: the new ones and those still waiting are rejected, those running finish.
+     */
+    @Override public void close() {
+        closed = true;
+        executor.shutdown();
+        for(Op<?> op = pending.poll(); op != null; op = pending.poll()) {
+            pendingCount.decrementAndGet();
+            op.deliver(OpResult.getStacklessErrorInstance(null, "Rejected, the executor is closed"));
+        }
+    }
+
+    /**
+     * Waits for the running operations to finish after the {@link #close()}.
+     * @return true if all finished, false on the timeout.
+     */
+    @Api public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{virtual=" + virtual + ", active=" + getActiveCount() + '/' + maxConcurrent
+            + ", pending=" + getPendingCount() + '}';
+    }
+
+    /**
+     * Starts the waiting operations while there are permits. Called after every offer to the queue and after every
+     * release of a permit, so no operation is left waiting with a permit free.
+     */
+    private void drain() {
+        while(!pending.isEmpty() && permits.tryAcquire()) {
+            final Op<?> op = pending.poll();
+            if(op == null) { // taken by another drain: give the permit back and look again
+                permits.release();
+                continue;
+            }
+            pendingCount.decrementAndGet();
+            if(closed) {
+                permits.release();
+                op.deliver(OpResult.getStacklessErrorInstance(null, "Rejected, the executor is closed"));
+                continue;
+            }
+            try {
+                executor.execute(op);
+            }
+            catch(RejectedExecutionException e) {
+                permits.release();
+                op.deliver(OpResult.getStacklessErrorInstance(null, "Rejected by the executor"));
+            }
+        }
+    }
+
+    /**
+     * The operation with its consumer and tracker.
+     */
+    private final class Op<T> implements Runnable {
+        private final Callable<OpResult<T>> operation;
+        private final OpResultConsumer<T> consumer;
+        private final OpTracker<T> tracker = new OpTracker<>();
+
+        private Op(final Callable<OpResult<T>> operation, final OpResultConsumer<T> consumer) {
+            this.operation = operation;
+            this.consumer = consumer;
+        }
+
+        @Override public void run() {
+            try {
+                if(!tracker.start()) return;
+                final OpResult<T> result = call();
+                deliver(result);
+                // told the consumer, but the JVM is in trouble: let it go on up
+                final Throwable cause = result.getFailureCause();
+                if(cause instanceof VirtualMachineError) throw (VirtualMachineError) cause;
+            }
+            finally {
+                permits.release();
+                drain();
+            }
+        }
+
+        private OpResult<T> call() {
+            try {
+                final OpResult<T> result = operation.call();
+                if(result == null) return OpResult.getStacklessErrorInstance(null, "The operation returned no result");
+                if(!OpTracker.isTerminal(result.getState()))
+                    return OpResult.getStacklessErrorInstance(result.getValue(), "The operation returned the non-terminal "
+                        + result.getState());
+                return result;
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return OpResult.getErrorInstance(null, "Interrupted", e);
+            }
+            catch(Throwable t) { // the Errors too, else the tracker is left running and the consumer never told
+                return OpResult.getErrorInstance(null, t.getMessage() == null ? t.getClass().getName() : t.getMessage(),
+                    t);
+            }
+        }
+
+        private void deliver(final OpResult<T> result) {
+            if(!tracker.complete(result)) return;
+            try {
+                consumer.consume(result);
+            }
+            catch(Throwable t) {
+                consumerFailureHandler.handle(t);
+            }
+        }
+    }
+
+    /**
+     * The {@code Executors.newVirtualThreadPerTaskExecutor()} if the JVM has it working, null if not: Java before 19,
+     * or 19 and 20 without the preview enabled, where it throws.
+     */
+    @Nullable private static final Method VIRTUAL_FACTORY = findVirtualFactory();
+
+    @Nullable private static Method findVirtualFactory() {
+        try {
+            final Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            ((ExecutorService) factory.invoke(null)).shutdown();
+            return factory;
+        }
+        catch(ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            //noinspection ConstantConditions
+            return (ExecutorService) VIRTUAL_FACTORY.invoke(null);
+        }
+        catch(ReflectiveOperationException e) { // worked once in the probe, so can not happen
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * The pool of the daemon threads made as needed; the semaphore bounds how many, not the pool.
+     */
+    private static ExecutorService newPool() {
+        final int pool = POOL_COUNT.incrementAndGet();
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory factory = runnable -> {
+            final Thread thread = new Thread(runnable, "OpExecutor-" + pool + '-' + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L, TimeUnit.SECONDS, new SynchronousQueue<>(), factory);
+    }
+}
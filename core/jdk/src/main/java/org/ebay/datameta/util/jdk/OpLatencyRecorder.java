@@ -0,0 +1,205 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Records how long the operations take until they end in {@link OpState#OK}, {@link OpState#FAIL} or
+ * {@link OpState#ERROR}, a {@link LatencyHistogram} per state, from any number of threads, no locks.
+ *
+ * <p>The threads record into the stripes picked by their ids, same as the {@link StripedAccumulator}, rather than into
+ * the histogram of their own: with the operations on the virtual threads of the {@link OpExecutor}, the histogram per
+ * thread would be one per operation. A stripe is one {@link AtomicLongArray} of the counters for all the states, so
+ * the recording is one atomic increment of the bucket and one add to the sum; the max is CAS-ed only when exceeded.
+ * </p>
+ *
+ * <p>The {@link #snapshot()} sums up the stripes into the histograms of everything recorded so far; the
+ * {@link #intervalSnapshot()} into those of what was recorded since the previous interval snapshot, with the max of
+ * the interval tracked apart; the intervals add up to the whole. The snapshot is not atomic against the recording:
+ * it may count the value in the bucket but not yet in the sum, the next snapshot catches up.</p>
+ *
+ * <p>The {@link #begin(OpResultConsumer)} wraps the consumer of the operation's result to time the operation, from the
+ * call to the result.</p>
+ *
+ * @author Michael Bergens
+ * @see LatencyHistogram
+ */
+@ThreadSafe public class OpLatencyRecorder {
+
+    /**
+     * The terminal states, the only ones recorded.
+     */
+    private static final OpState[] STATES = {OpState.OK, OpState.FAIL, OpState.ERROR};
+    private static final int MAX_STRIPES = 64;
+
+    /**
+     * Past the buckets of each state: the max, the max of the interval, the sum.
+     */
+    private static final int MAX = 0;
+    private static final int INTERVAL_MAX = 1;
+    private static final int SUM = 2;
+    private static final int EXTRAS = 3;
+
+    private final int precisionBits;
+    private final int bucketCount;
+    private final int stateLength;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    /**
+     * The totals at the last {@link #intervalSnapshot()}, by the state; guarded by this.
+     */
+    private final LatencyHistogram[] lastTotals = new LatencyHistogram[STATES.length];
+
+    /**
+     * With the {@link LatencyHistogram#DEFAULT_PRECISION_BITS default precision}, the stripe per available processor.
+     */
+    @Api public OpLatencyRecorder() {
+        this(LatencyHistogram.DEFAULT_PRECISION_BITS, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param precisionBits see the {@link LatencyHistogram#LatencyHistogram(int)}.
+     * @param stripes how many stripes, rounded up to a power of 2, up to {@value #MAX_STRIPES}; each takes
+     *                the memory of 3 histograms.
+     */
+    @Api public OpLatencyRecorder(final int precisionBits, final int stripes) {
+        if(stripes < 1) throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+        this.precisionBits = precisionBits;
+        bucketCount = LatencyHistogram.bucketCount(precisionBits);
+        stateLength = bucketCount + EXTRAS;
+        final int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, stripes - 1)) << 1);
+        this.stripes = new AtomicLongArray[count];
+        for(int i = 0; i < count; i++) this.stripes[i] = new AtomicLongArray(STATES.length * stateLength);
+        stripeMask = count - 1;
+        for(int i = 0; i < STATES.length; i++) lastTotals[i] = new LatencyHistogram(precisionBits);
+    }
+
+    /**
+     * Records the latency of the operation that ended in the state.
+     * @param nanos the negative counts as 0.
+     * @throws IllegalArgumentException if the state is not terminal.
+     */
+    @Api public void record(@Nonnull final OpState state, final long nanos) {
+        final AtomicLongArray stripe = stripes[(int) HashUtil.fmix64(Thread.currentThread().getId()) & stripeMask];
+        final int base = stateIndex(state) * stateLength;
+        stripe.getAndIncrement(base + LatencyHistogram.bucketOf(nanos, precisionBits));
+        if(nanos <= 0L) return;
+        stripe.getAndAdd(base + bucketCount + SUM, nanos);
+        raise(stripe, base + bucketCount + MAX, nanos);
+        raise(stripe, base + bucketCount + INTERVAL_MAX, nanos);
+    }
+
+    /**
+     * Records the latency of the completed operation, the {@link OpTracker#getElapsedNanos()}.
+     * @return false if it is not completed yet, then nothing is recorded.
+     */
+    @Api public boolean record(@Nonnull final OpTracker<?> tracker) {
+        final OpState state = tracker.getState();
+        if(!OpTracker.isTerminal(state)) return false;
+        record(state, tracker.getElapsedNanos());
+        return true;
+    }
+
+    /**
+     * Begins timing the operation.
+     * @param consumer of the operation's result.
+     * @return the consumer to give to the operation instead: it records the time from this call to the result, under
+     * the result's state, then passes the result on. One per operation.
+     */
+    @Api public <T> OpResultConsumer<T> begin(@Nonnull final OpResultConsumer<T> consumer) {
+        final long start = System.nanoTime();
+        return result -> {
+            record(result.getState(), System.nanoTime() - start);
+            consumer.consume(result);
+        };
+    }
+
+    /**
+     * The histogram of everything recorded in the state so far.
+     */
+    @Api public LatencyHistogram snapshot(@Nonnull final OpState state) {
+        return sum(stateIndex(state));
+    }
+
+    /**
+     * The histograms of everything recorded so far, by the terminal state.
+     */
+    @Api public Map<OpState, LatencyHistogram> snapshot() {
+        final Map<OpState, LatencyHistogram> result = new EnumMap<>(OpState.class);
+        for(int i = 0; i < STATES.length; i++) result.put(STATES[i], sum(i));
+        return result;
+    }
+
+    /**
+     * The histograms of what was recorded since the previous call, or since the start for the first one, by the
+     * terminal state.
+     */
+    @Api public synchronized Map<OpState, LatencyHistogram> intervalSnapshot() {
+        final Map<OpState, LatencyHistogram> result = new EnumMap<>(OpState.class);
+        for(int i = 0; i < STATES.length; i++) {
+            final LatencyHistogram totals = sum(i);
+            final LatencyHistogram interval = new LatencyHistogram(precisionBits);
+            final long[] counts = interval.counts(), current = totals.counts(), last = lastTotals[i].counts();
+            for(int bucket = 0; bucket < bucketCount; bucket++) counts[bucket] = current[bucket] - last[bucket];
+            interval.setStats(totals.getTotalCount() - lastTotals[i].getTotalCount(), takeIntervalMax(i),
+                totals.getSum() - lastTotals[i].getSum());
+            lastTotals[i] = totals;
+            result.put(STATES[i], interval);
+        }
+        return result;
+    }
+
+    @Api public int getPrecisionBits() { return precisionBits; }
+
+    @Override public String toString() { return getClass().getSimpleName() + snapshot(); }
+
+    /**
+     * Sums up the stripes for the state.
+     */
+    private LatencyHistogram sum(final int state) {
+        final LatencyHistogram result = new LatencyHistogram(precisionBits);
+        final long[] counts = result.counts();
+        final int base = state * stateLength;
+        long total = 0L, max = 0L, sum = 0L;
+        for(final AtomicLongArray stripe : stripes) {
+            for(int bucket = 0; bucket < bucketCount; bucket++) {
+                final long count = stripe.get(base + bucket);
+                counts[bucket] += count;
+                total += count;
+            }
+            max = Math.max(max, stripe.get(base + bucketCount + MAX));
+            sum += stripe.get(base + bucketCount + SUM);
+        }
+        result.setStats(total, max, sum);
+        return result;
+    }
+
+    /**
+     * The max of the interval for the state, reset for the next one.
+     */
+    private long takeIntervalMax(final int state) {
+        final int index = state * stateLength + bucketCount + INTERVAL_MAX;
+        long max = 0L;
+        for(final AtomicLongArray stripe : stripes) max = Math.max(max, stripe.getAndSet(index, 0L));
+        return max;
+    }
+
+    private static void raise(final AtomicLongArray stripe, final int index, final long value) {
+        for(long current = stripe.get(index); value > current; current = stripe.get(index)) {
+            if(stripe.compareAndSet(index, current, value)) return;
+        }
+    }
+
+    private static int stateIndex(final OpState state) {
+        switch(state) {
+            case OK: return 0;
+            case FAIL: return 1;
+            case ERROR: return 2;
+            default: throw new IllegalArgumentException("Not a terminal state: " + state);
+        }
+    }
+}
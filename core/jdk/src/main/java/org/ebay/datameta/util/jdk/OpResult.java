@@ -7,6 +7,7 @@ import static org.ebay.datameta.util.jdk.OpState.ERROR;
 import static org.ebay.datameta.util.jdk.OpState.FAIL;
 import static org.ebay.datameta.util.jdk.OpState.INIT;
 import static org.ebay.datameta.util.jdk.OpState.OK;
+import static org.ebay.datameta.util.jdk.OpState.RUNNING;
 
 /**
  * Result of an operation including the state, the value and information about an error if any.
@@ -22,15 +23,24 @@ import static org.ebay.datameta.util.jdk.OpState.OK;
  * @see #getOkInstance(Object)
  * @see #getFailInstance(Object, String)
  * @see #getErrorInstance(Object, String, Throwable)
+ * @see #getStacklessErrorInstance(Object, String)
  */
 @SuppressWarnings("NullableProblems") public class OpResult<RESULT_TYPE> {
 
     /**
-     * Builds the OK instance with an optional value.
+     * The results without the value are all alike, so they are shared rather than allocated every time: no value,
+     * immutable for any type.
+     */
+    private static final OpResult<?> OK_EMPTY = new OpResult<>(OK, null, null, null);
+    private static final OpResult<?> INIT_EMPTY = new OpResult<>(INIT, null, null, null);
+    private static final OpResult<?> RUNNING_EMPTY = new OpResult<>(RUNNING, null, null, null);
+
+    /**
+     * Builds the OK instance with an optional value; the shared one for the null value.
      * @param value may be null if it's legit for the case.
      */
     @Api public static <T> OpResult<T> getOkInstance(@Nullable final T value) {
-        return new OpResult<T>(OK, value, null, null);
+        return value == null ? empty(OK_EMPTY) : new OpResult<T>(OK, value, null, null);
     }
     
     /**
@@ -56,22 +66,46 @@ import static org.ebay.datameta.util.jdk.OpState.OK;
         assert cause != null: "Must supply the cause of the error";
         return new OpResult<T>(ERROR, value, errorMessage, cause);
     }
+
+    /**
+     * Builds the error instance with the {@link StacklessException} for the cause, for the errors that are expected
+     * often enough for the stack trace capture to cost, and for which the stack trace tells nothing anyway, such as
+     * the timeouts and the rejections.
+     * @param value may be present which is unlikely for an error.
+     * @param errorMessage required, becomes the message of the cause too.
+     */
+    @Api public static <T> OpResult<T> getStacklessErrorInstance(@Nullable final T value, @Nonnull final String errorMessage) {
+        //noinspection ConstantConditions
+        assert errorMessage != null: "Must supply an error message explaining the error";
+        return new OpResult<T>(ERROR, value, errorMessage, new StacklessException(errorMessage));
+    }
     
     /**
-     * Builds the init instance with an optional value.
+     * Builds the init instance with an optional value; the shared one for the null value.
      * @param value if it is somehow available during init state.
      * @see #getInitInstance()
      */
     @Api public static <T> OpResult<T> getInitInstance(@Nullable final T value) {
-        return new OpResult<T>(INIT, value, null, null);
+        return value == null ? empty(INIT_EMPTY) : new OpResult<T>(INIT, value, null, null);
     }
 
     /**
-     * Builds the bare init instance.
+     * The bare init instance, shared.
      * @see #getInitInstance(Object)
      */
-    public static <T> OpResult<T> getInitInstance() {
-        return new OpResult<T>(INIT, null, null, null);
+    public static <T> OpResult<T> getInitInstance() { return empty(INIT_EMPTY); }
+
+    /**
+     * The bare running instance, shared.
+     * @see OpTracker#start()
+     */
+    @Api public static <T> OpResult<T> getRunningInstance() { return empty(RUNNING_EMPTY); }
+
+    /**
+     * Casts the shared instance without the value to any type; safe because there is no value.
+     */
+    @SuppressWarnings("unchecked") private static <T> OpResult<T> empty(final OpResult<?> shared) {
+        return (OpResult<T>) shared;
     }
 
     @Nonnull private final OpState state;
@@ -93,4 +127,9 @@ import static org.ebay.datameta.util.jdk.OpState.OK;
     @Api @Nullable public String getErrorMessage() { return errorMessage; }
 
     @Api @Nullable public Throwable getFailureCause() { return failureCause; }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + '{' + state + (value == null ? "" : ", value=" + value)
+            + (errorMessage == null ? "" : ", error=" + errorMessage) + '}';
+    }
 }
@@ -0,0 +1,301 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Collects the {@link OpResult}s from the producers into the ring buffer, the Disruptor way, and hands them over to
+ * the {@link BatchOpResultConsumer} in batches, on its own thread. Being an {@link OpResultConsumer} itself, it goes
+ * wherever the results are consumed one by one, such as the {@link OpExecutor}.
+ *
+ * <p>The producers claim the sequence numbers, by a plain store with the {@link ProducerType#SINGLE single} producer,
+ * by the CAS with {@link ProducerType#MULTI many}; write the result into the slot and publish it by storing the
+ * sequence into the slot's marker. The consumer thread takes the published results in the order of the sequence,
+ * no locks either way. When the ring is full, the {@link #consume(OpResult)} waits for the room, the
+ * {@link #offer(OpResult)} returns false instead.</p>
+ *
+ * <p>The batch is delivered when it is full or when its first result has waited for the max latency, whichever comes
+ * first; with the max latency of zero, whatever is there is delivered at once, the batch grows only under the load.
+ * While there is nothing to do, the consumer thread, and the producers waiting for the room, wait by the
+ * {@link WaitStrategy}: spinning, yielding or parking, that is, the latency traded for the CPU.</p>
+ *
+ * <p>The sequences claimed and consumed sit 128 bytes apart so that the producers and the consumer do not share
+ * the cache line, same as the stripes of the {@link StripedAccumulator}.</p>
+ *
+ * @author Michael Bergens
+ * @param <T> the type of the result value of the operation.
+ */
+@ThreadSafe public class OpResultRing<T> implements OpResultConsumer<T>, AutoCloseable {
+
+    /**
+     * Who publishes into the ring.
+     */
+    public enum ProducerType {
+        /**
+         * Only one thread at a time, claims without the CAS.
+         */
+        SINGLE,
+        /**
+         * Any number of threads.
+         */
+        MULTI
+    }
+
+    /**
+     * How to wait while there is nothing to consume, or no room to publish.
+     */
+    public enum WaitStrategy {
+        /**
+         * Spins, burns the core for the lowest latency; only with a core for every thread that may spin, else
+         * the spinning ones take the time from the one they wait for.
+         */
+        BUSY_SPIN {
+            @Override void idle() { }
+        },
+        /**
+         * Gives the core to the other threads, if any.
+         */
+        YIELD {
+            @Override void idle() { Thread.yield(); }
+        },
+        /**
+         * Parks for {@value OpResultRing#PARK_NANOS} nanoseconds, least CPU for the most latency.
+         */
+        PARK {
+            @Override void idle() { LockSupport.parkNanos(PARK_NANOS); }
+        };
+
+        abstract void idle();
+    }
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * How long the {@link WaitStrategy#PARK} parks for.
+     */
+    public static final long PARK_NANOS = 50_000L;
+
+    /**
+     * Longs between the sequences: 16 of 8 bytes make 128 bytes.
+     */
+    private static final int STRIDE = 16;
+    private static final int CLAIMED = STRIDE;
+    private static final int CONSUMED = 2 * STRIDE;
+
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final AtomicReferenceArray<OpResult<T>> slots;
+    /**
+     * The sequence published into the slot, -1 for none yet.
+     */
+    private final AtomicLongArray published;
+    private final int mask;
+    /**
+     * The next sequence to claim and the next one to consume, padded apart.
+     */
+    private final AtomicLongArray sequences = new AtomicLongArray(3 * STRIDE);
+
+    private final BatchOpResultConsumer<T> consumer;
+    private final int batchSize;
+    private final long maxLatencyNanos;
+    private final ProducerType producerType;
+    private final WaitStrategy waitStrategy;
+    private final CatchHandler<Throwable> consumerFailureHandler;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    private volatile long batchCount;
+    private volatile long deliveredCount;
+
+    /**
+     * With the {@link #DEFAULT_CAPACITY}, many producers, parking.
+     * @param batchSize how many results at most in the batch.
+     * @param maxLatencyMillis how long the first result in the batch may wait for the batch to fill up.
+     */
+    @Api public OpResultRing(@Nonnull final BatchOpResultConsumer<T> consumer, final int batchSize,
+                             final long maxLatencyMillis) {
+        this(consumer, DEFAULT_CAPACITY, batchSize, maxLatencyMillis, TimeUnit.MILLISECONDS, ProducerType.MULTI,
+            WaitStrategy.PARK, null);
+    }
+
+    /**
+     * Starts the consumer thread.
+     * @param capacity how many results the ring holds, rounded up to a power of 2.
+     * @param batchSize how many results at most in the batch.
+     * @param maxLatency how long the first result in the batch may wait for the batch to fill up, zero to not wait.
+     * @param consumerFailureHandler handles what the consumer throws, null for the uncaught exception handler of the
+     *                               consumer thread.
+     */
+    @Api public OpResultRing(@Nonnull final BatchOpResultConsumer<T> consumer, final int capacity, final int batchSize,
+                             final long maxLatency, @Nonnull final TimeUnit unit, @Nonnull final ProducerType producerType,
+                             @Nonnull final WaitStrategy waitStrategy,
+                             @Nullable final CatchHandler<Throwable> consumerFailureHandler) {
+        if(capacity < 1 || capacity > 1 << 30) throw new IllegalArgumentException("Capacity out of range: " + capacity);
+        if(batchSize < 1) throw new IllegalArgumentException("Batch size must be positive: " + batchSize);
+        if(maxLatency < 0L) throw new IllegalArgumentException("Max latency must not be negative: " + maxLatency);
+        final int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        slots = new AtomicReferenceArray<>(size);
+        published = new AtomicLongArray(size);
+        for(int i = 0; i < size; i++) published.set(i, -1L);
+        mask = size - 1;
+        this.consumer = consumer;
+        this.batchSize = batchSize;
+        this.maxLatencyNanos = unit.toNanos(maxLatency);
+        this.producerType = producerType;
+        this.waitStrategy = waitStrategy;
+        this.consumerFailureHandler = consumerFailureHandler == null
+            ? t -> Thread.currentThread().getUncaughtExceptionHandler().uncaughtException(Thread.currentThread(), t)
+            : consumerFailureHandler;
+        thread = new Thread(this::run, "OpResultRing-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Publishes the result, waiting for the room if the ring is full.
+     * @throws IllegalStateException if closed.
+     */
+    @Override public void consume(@Nonnull final OpResult<T> result) {
+        publish(result, true);
+    }
+
+    /**
+     * Publishes the result if there is the room.
+     * @return false if the ring is full.
+     * @throws IllegalStateException if closed.
+     */
+    @Api public boolean offer(@Nonnull final OpResult<T> result) {
+        return publish(result, false);
+    }
+
+    /**
+     * The ring size, the capacity rounded up to a power of 2.
+     */
+    @Api public int getCapacity() { return mask + 1; }
+
+    @Api public int getBatchSize() { return batchSize; }
+
+    /**
+     * How many results are published but not taken by the consumer thread yet, approximately.
+     */
+    @Api public int getBacklog() { return (int) (sequences.get(CLAIMED) - sequences.get(CONSUMED)); }
+
+    /**
+     * How many batches were delivered.
+     */
+    @Api public long getBatchCount() { return batchCount; }
+
+    /**
+     * How many results were delivered.
+     */
+    @Api public long getDeliveredCount() { return deliveredCount; }
+
+    /**
+     * Stops taking the results, delivers those published and waits for the consumer thread to finish. The results
+     * published concurrently with the close may be lost: stop the producers first. If interrupted while waiting,
+     * returns with the interrupt flag set, the consumer thread finishes on its own.
+     */
+    @Override public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{capacity=" + getCapacity() + ", batchSize=" + batchSize + ", "
+            + producerType + ", " + waitStrategy + ", backlog=" + getBacklog() + '}';
+    }
+
+    private boolean publish(final OpResult<T> result, final boolean wait) {
+        if(closed) throw new IllegalStateException("Closed");
+        final long sequence;
+        if(producerType == ProducerType.SINGLE) {
+            sequence = sequences.get(CLAIMED);
+            while(sequence - sequences.get(CONSUMED) > mask) {
+                if(!wait) return false;
+                waitStrategy.idle();
+            }
+            sequences.lazySet(CLAIMED, sequence + 1);
+        }
+        else {
+            while(true) {
+                final long claimed = sequences.get(CLAIMED);
+                if(claimed - sequences.get(CONSUMED) > mask) {
+                    if(!wait) return false;
+                    waitStrategy.idle();
+                }
+                else if(sequences.compareAndSet(CLAIMED, claimed, claimed + 1)) {
+                    sequence = claimed;
+                    break;
+                }
+            }
+        }
+        final int index = (int) sequence & mask;
+        slots.lazySet(index, result);
+        // the ordered store of the marker publishes the slot written before it
+        published.lazySet(index, sequence);
+        return true;
+    }
+
+    /**
+     * The consumer thread: takes what is published into the batch, delivers it when full or when the first one
+     * waited enough.
+     */
+    private void run() {
+        final List<OpResult<T>> batch = new ArrayList<>(batchSize);
+        final List<OpResult<T>> view = Collections.unmodifiableList(batch);
+        long next = 0L;
+        long firstNanos = 0L;
+        while(true) {
+            final long start = next;
+            while(batch.size() < batchSize) {
+                final int index = (int) next & mask;
+                if(published.get(index) != next) break;
+                batch.add(slots.get(index));
+                slots.lazySet(index, null);
+                next++;
+                if(batch.size() == 1) firstNanos = System.nanoTime();
+            }
+            // the results are in the batch now: free their slots for the producers
+            if(next != start) sequences.lazySet(CONSUMED, next);
+            final boolean closing = closed;
+            if(!batch.isEmpty() && (batch.size() == batchSize || closing
+                || System.nanoTime() - firstNanos >= maxLatencyNanos)) {
+                deliver(view, batch);
+                continue;
+            }
+            if(next == start) {
+                if(closing && next == sequences.get(CLAIMED)) break;
+                waitStrategy.idle();
+            }
+        }
+    }
+
+    private void deliver(final List<OpResult<T>> view, final List<OpResult<T>> batch) {
+        try {
+            consumer.consume(view);
+        }
+        catch(Throwable t) {
+            consumerFailureHandler.handle(t);
+        }
+        //noinspection NonAtomicOperationOnVolatileField - the consumer thread is the only writer
+        deliveredCount += batch.size();
+        //noinspection NonAtomicOperationOnVolatileField
+        batchCount++;
+        batch.clear();
+    }
+}
@@ -0,0 +1,135 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import static org.ebay.datameta.util.jdk.OpState.ERROR;
+import static org.ebay.datameta.util.jdk.OpState.FAIL;
+import static org.ebay.datameta.util.jdk.OpState.INIT;
+import static org.ebay.datameta.util.jdk.OpState.OK;
+
+/**
+ * Tracks the state of an operation: {@link OpState#INIT} to {@link OpState#RUNNING} to one of the terminal
+ * {@link OpState#OK}, {@link OpState#FAIL}, {@link OpState#ERROR}, each move by the compare-and-set on the current
+ * {@link OpResult}, no locks. The terminal state is set exactly once: of the racing completions, such as the result
+ * against the timeout, one wins and the rest get {@code false}.
+ *
+ * <p>The pollers read one volatile field, no synchronization. The results in the non-terminal states are the shared
+ * ones, so the tracker allocates nothing on the way other than the terminal result.</p>
+ *
+ * <p>The operation may be completed without being started, from {@link OpState#INIT} straight to the terminal
+ * state, like the one rejected or timed out before it ran.</p>
+ *
+ * @author Michael Bergens
+ * @param <T> the type of the result value.
+ */
+@ThreadSafe public class OpTracker<T> {
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<OpTracker, OpResult> RESULT =
+        AtomicReferenceFieldUpdater.newUpdater(OpTracker.class, OpResult.class, "result");
+
+    private volatile OpResult<T> result = OpResult.getInitInstance();
+
+    /**
+     * The {@link System#nanoTime()} of the start, written after the move to {@link OpState#RUNNING}, hence may be
+     * seen as 0 for a moment after it.
+     */
+    private volatile long startNanos;
+
+    /**
+     * The {@link System#nanoTime()} of the completion, written after the move to the terminal state.
+     */
+    private volatile long endNanos;
+
+    /**
+     * Moves from {@link OpState#INIT} to {@link OpState#RUNNING}.
+     * @return true if moved, false if it was started or completed already.
+     */
+    @Api public boolean start() {
+        final OpResult<T> current = result;
+        if(current.getState() != INIT || !RESULT.compareAndSet(this, current, OpResult.getRunningInstance())) return false;
+        startNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Moves to the terminal state of the given result unless completed already.
+     * @param outcome must be in one of the terminal states.
+     * @return true if this call completed the operation, false if it was completed already.
+     */
+    @Api public boolean complete(@Nonnull final OpResult<T> outcome) {
+        if(!isTerminal(outcome.getState()))
+            throw new IllegalArgumentException("Not a terminal state: " + outcome.getState());
+        OpResult<T> current;
+        do {
+            current = result;
+            if(isTerminal(current.getState())) return false;
+        } while(!RESULT.compareAndSet(this, current, outcome));
+        endNanos = System.nanoTime();
+        return true;
+    }
+
+    /**
+     * Completes with {@link OpState#OK}, see {@link #complete(OpResult)}.
+     */
+    @Api public boolean succeed(@Nullable final T value) { return complete(OpResult.getOkInstance(value)); }
+
+    /**
+     * Completes with {@link OpState#FAIL}, see {@link #complete(OpResult)}.
+     */
+    @Api public boolean fail(@Nonnull final String message) { return complete(OpResult.getFailInstance(null, message)); }
+
+    /**
+     * Completes with {@link OpState#ERROR}, see {@link #complete(OpResult)}.
+     * @param cause null for the {@link StacklessException}, as the {@link #error(String)} does.
+     */
+    @Api public boolean error(@Nonnull final String message, @Nullable final Throwable cause) {
+        return complete(cause == null ? OpResult.getStacklessErrorInstance(null, message)
+            : OpResult.getErrorInstance(null, message, cause));
+    }
+
+    /**
+     * Completes with {@link OpState#ERROR} and the {@link StacklessException}, see
+     * {@link OpResult#getStacklessErrorInstance(Object, String)}.
+     */
+    @Api public boolean error(@Nonnull final String message) {
+        return complete(OpResult.getStacklessErrorInstance(null, message));
+    }
+
+    /**
+     * The current result, the shared value-less one until completed.
+     */
+    @Api public OpResult<T> getResult() { return result; }
+
+    @Api public OpState getState() { return result.getState(); }
+
+    /**
+     * Whether reached the terminal state.
+     */
+    @Api public boolean isDone() { return isTerminal(result.getState()); }
+
+    /**
+     * The {@link System#nanoTime()} of the start, 0 if not started.
+     */
+    @Api public long getStartNanos() { return startNanos; }
+
+    /**
+     * The nanoseconds since the start till the completion or till now if still running; 0 if not started.
+     */
+    @Api public long getElapsedNanos() {
+        final long start = startNanos;
+        if(start == 0L) return 0L;
+        final long end = endNanos;
+        return (end == 0L ? System.nanoTime() : end) - start;
+    }
+
+    @Override public String toString() { return getClass().getSimpleName() + '{' + result + '}'; }
+
+    /**
+     * Whether the state is one of the final ones, {@link OpState#OK}, {@link OpState#FAIL} or {@link OpState#ERROR}.
+     */
+    @Api public static boolean isTerminal(final OpState state) { return state == OK || state == FAIL || state == ERROR; }
+}
@@ -1,16 +1,12 @@
 package org.ebay.datameta.util.jdk;
 
-import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.BUILD;
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.MAJOR;
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.MINOR;
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.NONE;
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.UPDATE;
-import static java.util.stream.Collectors.joining;
 
 /**
  * Extended encapsulation of the <a href="http://semver.org" target=_blank>Semantic Version</a> as
@@ -30,34 +26,29 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
         BUILD
     }
     /**
-     * The Split By the Dots pattern.
+     * How many numeric parts there must be at least: the major, the minor and the update.
      */
-    private static final Pattern DOTS_SPLIT = Pattern.compile("\\.");
+    private static final int PARTS_MIN = 3;
 
     /**
-     * All digits match pattern - to identify the parts of the Semantic Versioning.
+     * How many numeric parts there may be at most: the build is optional.
      */
-    private static final Pattern DIGITS = Pattern.compile("^[0-9]+$");
+    private static final int PARTS_MAX = PARTS_MIN + 1;
 
     /**
-     * Major Version index in the {@link #items} list.
+     * Marks the build absent: the build can not be zero.
      */
-    private static final int MAJOR_INDEX = 0;
-    /**
-     * Minor Version index in the {@link #items} list.
-     */
-    private static final int MINOR_INDEX = MAJOR_INDEX + 1;
+    private static final long NO_BUILD = 0L;
+
     /**
-     * Update Version index in the {@link #items} list.
+     * The max value of each part that fits into the {@link #getPackedKey() packed key}.
      */
-    private static final int UPDATE_INDEX = MINOR_INDEX + 1;
+    static final long[] PACKED_MAX = {(1L << 15) - 1, (1L << 16) - 1, (1L << 16) - 1, (1L << 16) - 1};
+
     /**
-     * Build Version index in the {@link #items} list.
+     * The {@link #getPackedKey() packed key} of the version that does not fit.
      */
-    private static final int BUILD_INDEX = UPDATE_INDEX + 1;
-
-    private static final int ITEMS_MIN_SIZE = UPDATE_INDEX + 1;
-    private static final int ITEMS_MAX_SIZE = BUILD_INDEX + 1;
+    public static final long NOT_PACKABLE = -1L;
 
     /**
      * Per the {@link Comparable} contract, return value for "this is greater than the other" condition.
@@ -79,12 +70,19 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
      */
     private final String source;
 
+    private final long major;
+    private final long minor;
+    private final long update;
+
     /**
-     * Semantic Versioning items, starting from Major. There <b>must</b> be at least 3 of those, at most 4.
+     * The build or the {@link #NO_BUILD}.
      */
-    private final List<Long> items;
+    private final long build;
 
-    private final String semanticPartsOnly;
+    /**
+     * Built on demand; benign race, same as the {@link String#hashCode()}: the worst case, built more than once.
+     */
+    private String semanticPartsOnly;
 
     /**
      * The method of obtaining an instance of the class: the constructor is made private to make it clear that the
@@ -97,73 +95,102 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
 
     /**
      * The constructor that parses a string into the semantic version parts, exposed via the factory method {@link #parse(String)}.
+     * One pass over the chars, the dot separated parts are taken while they are all digits; the first part that is not
+     * ends the version, the rest is simply discarded because it's for human eyes only.
      */
     private SemanticVersion(final String src) {
         this.source = src;
-        items = new ArrayList<>(ITEMS_MAX_SIZE);
-        for(final String item: DOTS_SPLIT.split(source)) {
-            final Matcher m = DIGITS.matcher(item);
-
-            if(m.matches()) items.add(Long.valueOf(item));
-            else break; /* break at the first non-numeric item.
-            the rest is simply discarded because it's for human eyes only. Checking the alphanumeric metadata
-            for which symbols are used would have a performance impact and is pointless for the cause.
-            */
-
-
+        final int length = src.length();
+        long major = 0L, minor = 0L, update = 0L, build = NO_BUILD;
+        int count = 0;
+        for(int position = 0; position <= length; position = nextPart(src, position)) {
+            final long part = part(src, position);
+            if(part < 0L) break;
+            switch(count++) {
+                case 0: major = part; break;
+                case 1: minor = part; break;
+                case 2: update = part; break;
+                case 3: build = part; break;
+                default: // too many, but keep going for the number format check as before
+            }
         }
-        if(items.size() < ITEMS_MIN_SIZE || items.size() > ITEMS_MAX_SIZE) throw new IllegalArgumentException(
-            "Invalid semantic version format: \"" + src + "\"");
-
-        if(getBuild() != null && getBuild() == 0) throw new IllegalArgumentException(
-            "Invalid semantic version format: \"" + src + "\": build version can not be zero.");
-
-        semanticPartsOnly = items.stream().map(Object::toString).collect(joining("."));
+        if(count < PARTS_MIN || count > PARTS_MAX) throw invalid(src);
+        if(count == PARTS_MAX && build == NO_BUILD) throw zeroBuild(src);
+        this.major = major;
+        this.minor = minor;
+        this.update = update;
+        this.build = build;
     }
 
     public String getSource() { return source; }
 
     /**
-     * Unbox: major version <b>must</b> be present.
+     * Major version, always present.
      */
-    public long getMajor() { return items.get(MAJOR_INDEX);}
+    public long getMajor() { return major; }
     /**
-     * Unbox: minor version <b>must</b> be present.
+     * Minor version, always present.
      */
-    public long getMinor() { return items.get(MINOR_INDEX);}
+    public long getMinor() { return minor; }
     /**
-     * Unbox: update (a.k.a. "patch") <b>must</b> be present.
+     * Update (a.k.a. "patch"), always present.
      */
-    public long getUpdate() { return items.get(UPDATE_INDEX);}
+    public long getUpdate() { return update; }
 
     /**
      * The Build part is optional - return <tt>null</tt> if none.
+     * @see #hasBuild()
+     * @see #getBuildOrZero()
+     */
+    public Long getBuild() { return build == NO_BUILD ? null : build; }
+
+    /**
+     * Whether the Build part is there.
+     */
+    @Api public boolean hasBuild() { return build != NO_BUILD; }
+
+    /**
+     * The Build part without boxing: the build can not be zero, so zero means none.
+     */
+    @Api public long getBuildOrZero() { return build; }
+
+    /**
+     * The version packed into the non-negative long that orders the same as the versions do: the major in the top
+     * 15 bits, then 16 bits each for the minor, the update and the build, zero for none. Covers the real life versions;
+     * the one with any part beyond that returns the {@link #NOT_PACKABLE}.
+     */
+    @Api public long getPackedKey() { return pack(major, minor, update, build); }
+
+    /**
+     * Packs the parts as the {@link #getPackedKey()} does, the build zero for none.
+     * @return the key or the {@link #NOT_PACKABLE}.
      */
-    public Long getBuild() { return items.size() > BUILD_INDEX ? items.get(BUILD_INDEX) : null; }
+    @Api public static long pack(final long major, final long minor, final long update, final long build) {
+        if((major | minor | update | build) < 0L || major > PACKED_MAX[0] || minor > PACKED_MAX[1]
+            || update > PACKED_MAX[2] || build > PACKED_MAX[3]) return NOT_PACKABLE;
+        return major << 48 | minor << 32 | update << 16 | build;
+    }
 
     public DiffLevel getDiffLevel(final SemanticVersion other) {
-        if(getMajor() != other.getMajor()) return MAJOR;
-        if(getMinor() != other.getMinor()) return MINOR;
-        if(getUpdate() != other.getUpdate()) return UPDATE;
-        if (
-                (
-                    getBuild() != null && other.getBuild() != null && getBuild().compareTo(other.getBuild()) != EQ
-                )
-                ||
-                (
-                    getBuild() == null && other.getBuild() != null
-                )
-                ||
-                (
-                    getBuild() != null && other.getBuild() == null
-                )
-            ) return BUILD;
-       return NONE;
+        if(major != other.major) return MAJOR;
+        if(minor != other.minor) return MINOR;
+        if(update != other.update) return UPDATE;
+        if(build != other.build) return BUILD;
+        return NONE;
     }
     /**
      * Returns semantic parts only delimited by dots, discarding any trailing strings.
      */
-    public String getSemanticPartsOnly() { return semanticPartsOnly; }
+    public String getSemanticPartsOnly() {
+        String result = semanticPartsOnly;
+        if(result == null) {
+            final StringBuilder parts = new StringBuilder(32).append(major).append('.').append(minor).append('.')
+                .append(update);
+            if(build != NO_BUILD) parts.append('.').append(build);
+            semanticPartsOnly = result = parts.toString();
+        }
+        return result;
+    }
 
     @Override public boolean equals(Object o) {
         if (this == o) return true;
@@ -171,10 +198,16 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
 
         SemanticVersion that = (SemanticVersion) o;
 
-        return items.equals(that.items);
+        return major == that.major && minor == that.minor && update == that.update && build == that.build;
     }
 
-    @Override public int hashCode() { return items.hashCode(); }
+    /**
+     * Same as the {@link List#hashCode()} of the parts as it used to be.
+     */
+    @Override public int hashCode() {
+        int result = ((31 + Long.hashCode(major)) * 31 + Long.hashCode(minor)) * 31 + Long.hashCode(update);
+        return build == NO_BUILD ? result : result * 31 + Long.hashCode(build);
+    }
 
     @Override public int compareTo(@SuppressWarnings("NullableProblems") /* See the next comment for the why */ SemanticVersion o) {
 
@@ -186,15 +219,47 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
         if(o == null) throw new NullPointerException("Attempt to compare " + getClass().getSimpleName()
             + " \"" + toString() + "\" to a null");
 
-        for(int i = 0; i < ITEMS_MIN_SIZE; i++) {
-            final int cmp = items.get(i).compareTo(o.items.get(i));
-            if(cmp != EQ) return cmp; // not equal: end of the story, that's the comparison result
+        if(major != o.major) return major < o.major ? LT : GT;
+        if(minor != o.minor) return minor < o.minor ? LT : GT;
+        if(update != o.update) return update < o.update ? LT : GT;
+        /* the Minor, Major and the Update are equal. The one with the build is newer (version bigger) than the one
+           without, which is what comparing the builds does with none being zero: */
+        return build == o.build ? EQ : (build < o.build ? LT : GT);
+    }
+
+    /**
+     * Compares the version strings the same as the {@link #compareTo(SemanticVersion) parsed} versions compare, without
+     * parsing them into the objects: walks the parts of both strings side by side. Does not allocate unless either
+     * string is invalid.
+     * @throws IllegalArgumentException if either string is not a valid version, same as the {@link #parse(String)}.
+     * @throws NumberFormatException if a numeric part does not fit into a long, same as the {@link #parse(String)}.
+     */
+    @Api public static int compare(final CharSequence left, final CharSequence right) {
+        final int leftLength = left.length(), rightLength = right.length();
+        int leftPosition = 0, rightPosition = 0, leftCount = 0, rightCount = 0, result = EQ;
+        long leftBuild = NO_BUILD, rightBuild = NO_BUILD;
+        while(true) {
+            final long leftPart = leftPosition <= leftLength ? part(left, leftPosition) : -1L;
+            final long rightPart = rightPosition <= rightLength ? part(right, rightPosition) : -1L;
+            if(leftPart < 0L && rightPart < 0L) break;
+            if(leftPart >= 0L) {
+                if(++leftCount == PARTS_MAX) leftBuild = leftPart;
+                leftPosition = nextPart(left, leftPosition);
+            }
+            else leftPosition = leftLength + 1; // done with it for good, even if more numbers follow
+            if(rightPart >= 0L) {
+                if(++rightCount == PARTS_MAX) rightBuild = rightPart;
+                rightPosition = nextPart(right, rightPosition);
+            }
+            else rightPosition = rightLength + 1;
+            if(result == EQ && leftCount <= PARTS_MIN && leftCount == rightCount && leftPart != rightPart)
+                result = leftPart < rightPart ? LT : GT;
         }
-        if(items.size() == o.items.size() && items.size() == ITEMS_MIN_SIZE) return EQ; // size same and no build info, all equals
-        // if we are here, the Minor, Major and the Update are equal. See what's up with the build if any:
-        if(items.size() > o.items.size()) return GT; /* this object is newer (version bigger) because it has a build number but the other does not */
-        if(items.size() < o.items.size()) return LT; /* this object is older (version lesser) because it does not have a build number but the other does */
-        return items.get(BUILD_INDEX).compareTo(o.items.get(BUILD_INDEX));
+        if(leftCount < PARTS_MIN || leftCount > PARTS_MAX) throw invalid(left);
+        if(rightCount < PARTS_MIN || rightCount > PARTS_MAX) throw invalid(right);
+        if(leftCount == PARTS_MAX && leftBuild == NO_BUILD) throw zeroBuild(left);
+        if(rightCount == PARTS_MAX && rightBuild == NO_BUILD) throw zeroBuild(right);
+        return result != EQ || leftBuild == rightBuild ? result : (leftBuild < rightBuild ? LT : GT);
     }
 
     @Override public String toString() { return source; }
@@ -203,6 +268,50 @@ public class SemanticVersion implements Comparable<SemanticVersion> {
      * For detailed logging and debugging.
      */
     public String toLongString() {
-        return getClass().getSimpleName() + '{' + source + '(' + semanticPartsOnly + ")}";
+        return getClass().getSimpleName() + '{' + source + '(' + getSemanticPartsOnly() + ")}";
+    }
+
+    /**
+     * The numeric part starting at the position, up to the next dot or the end.
+     * @return the value, or -1 if the part is empty or has anything but the ASCII digits.
+     * @throws NumberFormatException if the part is all digits but does not fit into a long, same as
+     * the {@link Long#valueOf(String)} would.
+     */
+    private static long part(final CharSequence source, final int position) {
+        final int length = source.length();
+        long result = 0L;
+        boolean overflow = false;
+        int index = position;
+        for(; index < length; index++) {
+            final char c = source.charAt(index);
+            if(c == '.') break;
+            if(c < '0' || c > '9') return -1L;
+            final int digit = c - '0';
+            if(result > (Long.MAX_VALUE - digit) / 10) overflow = true;
+            else result = result * 10 + digit;
+        }
+        if(index == position) return -1L;
+        if(overflow) throw new NumberFormatException("For input string: \"" + source.subSequence(position, index)
+            + '"');
+        return result;
+    }
+
+    /**
+     * The position past the next dot from the given one on, or past the end if there is no dot.
+     */
+    private static int nextPart(final CharSequence source, final int position) {
+        final int length = source.length();
+        int index = position;
+        while(index < length && source.charAt(index) != '.') index++;
+        return index + 1;
+    }
+
+    private static IllegalArgumentException invalid(final CharSequence source) {
+        return new IllegalArgumentException("Invalid semantic version format: \"" + source + "\"");
+    }
+
+    private static IllegalArgumentException zeroBuild(final CharSequence source) {
+        return new IllegalArgumentException("Invalid semantic version format: \"" + source
+            + "\": build version can not be zero.");
     }
 }
@@ -0,0 +1,142 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded cache of the canonical {@link SemanticVersion} instances by their source strings, for where the same few
+ * hundred versions come over and over: one parse and one instance per distinct string as long as it stays in the
+ * cache. Opt in, the {@link SemanticVersion#parse(String)} does not use it.
+ *
+ * <p>The hit is one lock-free {@link ConcurrentHashMap#get(Object)} plus setting the reference bit if it is not set
+ * yet. The miss parses outside of any lock, then takes the lock to place the new version, evicting with the CLOCK
+ * algorithm when full: the hand sweeps the ring of the entries, clearing the reference bits, and evicts the first
+ * entry found with the bit clear, that is, not hit since the last sweep. Close to the LRU, without the LRU's
+ * bookkeeping on every hit.</p>
+ *
+ * <p>The invalid strings are not cached, the parse exception goes through to the caller every time.</p>
+ *
+ * @author Michael Bergens
+ */
+@ThreadSafe public class SemanticVersionCache {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final class Entry {
+        private final String source;
+        private final SemanticVersion version;
+        private volatile boolean referenced;
+
+        private Entry(final String source, final SemanticVersion version) {
+            this.source = source;
+            this.version = version;
+        }
+    }
+
+    private final ConcurrentMap<String, Entry> entries;
+
+    /**
+     * The CLOCK ring and the hand, guarded by the {@link #lock}.
+     */
+    private final Entry[] ring;
+    private int hand;
+    private int used;
+    private final Object lock = new Object();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Api public SemanticVersionCache() { this(DEFAULT_CAPACITY); }
+
+    /**
+     * @param capacity max count of the versions kept.
+     */
+    @Api public SemanticVersionCache(final int capacity) {
+        if(capacity < 1) throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        ring = new Entry[capacity];
+        entries = new ConcurrentHashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    /**
+     * The cached version for the string, parsing and caching it if it's not there.
+     * @throws IllegalArgumentException if the string is not a valid version, same as the
+     * {@link SemanticVersion#parse(String)}.
+     */
+    @Api public SemanticVersion parse(final String source) {
+        final Entry existing = entries.get(source);
+        if(existing != null) {
+            hits.increment();
+            // read before write: no cache line invalidation for the hot entries already marked
+            if(!existing.referenced) existing.referenced = true;
+            return existing.version;
+        }
+        misses.increment();
+        final SemanticVersion version = SemanticVersion.parse(source);
+        synchronized(lock) {
+            final Entry raced = entries.get(source);
+            if(raced != null) return raced.version;
+            final Entry entry = new Entry(source, version);
+            if(used < ring.length) ring[used++] = entry;
+            else {
+                while(ring[hand].referenced) {
+                    ring[hand].referenced = false;
+                    hand = (hand + 1) % ring.length;
+                }
+                entries.remove(ring[hand].source);
+                evictions.increment();
+                ring[hand] = entry;
+                hand = (hand + 1) % ring.length;
+            }
+            entries.put(source, entry);
+        }
+        return version;
+    }
+
+    @Api public int size() { return entries.size(); }
+
+    @Api public int getCapacity() { return ring.length; }
+
+    /**
+     * How many calls found the version cached.
+     */
+    @Api public long getHits() { return hits.sum(); }
+
+    /**
+     * How many calls parsed, including those that failed on the invalid strings.
+     */
+    @Api public long getMisses() { return misses.sum(); }
+
+    @Api public long getEvictions() { return evictions.sum(); }
+
+    /**
+     * Hits to all calls, zero if none yet.
+     */
+    @Api public double getHitRate() {
+        final long hitCount = hits.sum(), total = hitCount + misses.sum();
+        return total == 0L ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Drops all the versions and zeroes the counters.
+     */
+    @Api public void clear() {
+        synchronized(lock) {
+            entries.clear();
+            Arrays.fill(ring, null);
+            used = 0;
+            hand = 0;
+            hits.reset();
+            misses.reset();
+            evictions.reset();
+        }
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{size=" + size() + " of " + ring.length + ", hits=" + getHits()
+            + ", misses=" + getMisses() + ", evictions=" + getEvictions() + '}';
+    }
+}
@@ -0,0 +1,124 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable sorted catalog of the {@link SemanticVersion}s answering which is the highest one that satisfies the
+ * {@link VersionConstraint}, in {@code O(log n)} per range of the constraint instead of the scan with the
+ * {@link SemanticVersion#compareTo(SemanticVersion)} calls.
+ *
+ * <p>If all the versions pack, as the real life ones do, the search runs over the sorted
+ * {@link SemanticVersion#getPackedKey() packed keys}, a plain {@code long[]}; otherwise over the versions with
+ * the constraint's bounds in parts.</p>
+ *
+ * @author Michael Bergens
+ */
+@Immutable public final class SemanticVersionIndex {
+
+    private final SemanticVersion[] versions;
+
+    /**
+     * The packed keys of the {@link #versions}, null if any does not pack.
+     */
+    private final long[] keys;
+
+    private SemanticVersionIndex(final SemanticVersion[] versions) {
+        Arrays.sort(versions);
+        // drop the equal ones, such as "1.2.3" and "1.2.3.GA", keeping the first
+        int size = 0;
+        for(final SemanticVersion version : versions) {
+            if(size == 0 || !versions[size - 1].equals(version)) versions[size++] = version;
+        }
+        this.versions = Arrays.copyOf(versions, size);
+        long[] packed = new long[size];
+        for(int i = 0; i < size; i++) {
+            packed[i] = this.versions[i].getPackedKey();
+            if(packed[i] == SemanticVersion.NOT_PACKABLE) {
+                packed = null;
+                break;
+            }
+        }
+        keys = packed;
+    }
+
+    @Api public static SemanticVersionIndex of(final Collection<SemanticVersion> versions) {
+        return new SemanticVersionIndex(versions.toArray(new SemanticVersion[versions.size()]));
+    }
+
+    /**
+     * How many distinct versions.
+     */
+    @Api public int size() { return versions.length; }
+
+    /**
+     * The version by its position in the ascending order.
+     */
+    @Api public SemanticVersion get(final int index) { return versions[index]; }
+
+    /**
+     * The highest version of all, null if empty.
+     */
+    @Api @Nullable public SemanticVersion getLatest() { return versions.length == 0 ? null : versions[versions.length - 1]; }
+
+    /**
+     * The highest version that satisfies the constraint, null if none.
+     */
+    @Api @Nullable public SemanticVersion highest(final VersionConstraint constraint) {
+        // the ranges are sorted and disjoint: the first one from the top with a version in it has the answer
+        for(int range = constraint.getRangeCount() - 1; range >= 0; range--) {
+            final int index;
+            final boolean inRange;
+            if(keys != null) {
+                index = upperBound(keys, constraint.getPackedHigh(range)) - 1;
+                inRange = index >= 0 && keys[index] >= constraint.getPackedLow(range);
+            }
+            else {
+                index = firstPastHigh(constraint, range) - 1;
+                inRange = index >= 0 && !constraint.isBelow(range, versions[index]);
+            }
+            if(inRange) return versions[index];
+        }
+        return null;
+    }
+
+    /**
+     * The highest version that is not lower than the base and differs from it no more than on the given level,
+     * see the {@link VersionConstraint#compatibleWith(SemanticVersion, SemanticVersion.DiffLevel)}; null if none.
+     */
+    @Api @Nullable public SemanticVersion highestCompatible(final SemanticVersion base, final SemanticVersion.DiffLevel level) {
+        return highest(VersionConstraint.compatibleWith(base, level));
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{size=" + versions.length + ", latest=" + getLatest() + '}';
+    }
+
+    /**
+     * The first position with the key greater than the given one.
+     */
+    private static int upperBound(final long[] keys, final long key) {
+        int low = 0, high = keys.length;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(keys[mid] <= key) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * The first position with the version not below the high of the range.
+     */
+    private int firstPastHigh(final VersionConstraint constraint, final int range) {
+        int low = 0, high = versions.length;
+        while(low < high) {
+            final int mid = (low + high) >>> 1;
+            if(constraint.isBelowHigh(range, versions[mid])) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,22 @@
+package org.ebay.datameta.util.jdk;
+
+/**
+ * Exception without the stack trace and without the suppressed exceptions, cheap to make: for the failures that are
+ * part of the normal flow, such as the timeouts and the rejections, where the stack trace tells nothing and its capture
+ * costs more than the rest of the failure path.
+ *
+ * @author Michael Bergens
+ * @see OpResult#getStacklessErrorInstance(Object, String)
+ */
+public class StacklessException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    @Api public StacklessException(final String message) {
+        super(message, null, false, false);
+    }
+
+    @Api public StacklessException(final String message, final Throwable cause) {
+        super(message, cause, false, false);
+    }
+}
@@ -0,0 +1,204 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Frozen dictionary of the strings mapped to the dense int codes, {@code 0} to {@code size - 1}, for the columns
+ * where the same few thousand strings repeat over the millions of rows: each row keeps the int code instead of
+ * the reference, see the {@link IntAndStringColumn}.
+ *
+ * <p>The codes are assigned concurrently by the {@link Builder}, then the dictionary is frozen, after which it never
+ * changes and is read without any locks: the codes are looked up in a flat open addressing table of the ints.</p>
+ *
+ * <p>The {@link Builder#freezeSorted() sorted} dictionary assigns the codes in the {@link String#compareTo(String)}
+ * order of the strings, so comparing the codes compares the strings. Any other dictionary ranks its codes so that
+ * the {@link #compare(int, int)} is still one int compare.</p>
+ *
+ * <p>The null string has the code {@link #NULL_CODE}, which ranks before all other codes, same as the
+ * {@link IntAndString#compareTo(IntAndString)} puts the null text first.</p>
+ *
+ * @author Michael Bergens
+ */
+@Immutable public final class StringDictionary {
+
+    /**
+     * The code of the null string.
+     */
+    public static final int NULL_CODE = -1;
+
+    /**
+     * Returned by the {@link #codeOf(String)} for the string that is not in the dictionary.
+     */
+    public static final int NOT_FOUND = -2;
+
+    /**
+     * Assigns the codes to the strings in the order they come, from many threads at once.
+     */
+    @ThreadSafe public static final class Builder {
+
+        private final ConcurrentMap<String, Integer> codes = new ConcurrentHashMap<>();
+
+        /**
+         * The strings by their codes, appended under the lock.
+         */
+        private final List<String> values = new ArrayList<>();
+
+        @Api public Builder() {}
+
+        /**
+         * The code of the string, assigning the next one if the string is new.
+         * @return the {@link #NULL_CODE} for the null.
+         */
+        @Api public int encode(@Nullable final String value) {
+            if(value == null) return NULL_CODE;
+            final Integer existing = codes.get(value);
+            return existing != null ? existing : codes.computeIfAbsent(value, this::append);
+        }
+
+        /**
+         * How many codes assigned.
+         */
+        @Api public int size() { return codes.size(); }
+
+        /**
+         * The dictionary of the strings added so far, with the codes as they were assigned; the builder can carry on.
+         */
+        @Api public StringDictionary freeze() { return new StringDictionary(snapshot(), false); }
+
+        /**
+         * The dictionary of the strings added so far, with the codes reassigned in the order of the strings;
+         * use the {@link StringDictionary#remapTo(StringDictionary)} on the {@link #freeze() unsorted} one to recode
+         * what was encoded already.
+         */
+        @Api public StringDictionary freezeSorted() {
+            final String[] sorted = snapshot();
+            Arrays.sort(sorted);
+            return new StringDictionary(sorted, true);
+        }
+
+        private Integer append(final String value) {
+            synchronized(values) {
+                values.add(value);
+                return values.size() - 1;
+            }
+        }
+
+        private String[] snapshot() {
+            synchronized(values) { return values.toArray(new String[values.size()]); }
+        }
+    }
+
+    private final String[] values;
+    private final boolean sorted;
+
+    /**
+     * The rank of each code in the order of the strings.
+     */
+    private final int[] ranks;
+
+    /**
+     * The open addressing table of the codes plus one, zero marks the empty slot.
+     */
+    private final int[] table;
+    private final int mask;
+
+    private StringDictionary(final String[] values, final boolean sorted) {
+        this.values = values;
+        this.sorted = sorted;
+        ranks = new int[values.length];
+        if(sorted) {
+            for(int code = 0; code < values.length; code++) ranks[code] = code;
+        }
+        else {
+            final Integer[] byValue = new Integer[values.length];
+            for(int code = 0; code < values.length; code++) byValue[code] = code;
+            Arrays.sort(byValue, (left, right) -> values[left].compareTo(values[right]));
+            for(int rank = 0; rank < byValue.length; rank++) ranks[byValue[rank]] = rank;
+        }
+        // at most half full
+        final int capacity = Math.max(LongKeyTable.MIN_CAPACITY, Integer.highestOneBit(Math.max(1, values.length)) << 2);
+        table = new int[capacity];
+        mask = capacity - 1;
+        for(int code = 0; code < values.length; code++) {
+            int slot = slotFor(values[code]);
+            while(table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = code + 1;
+        }
+    }
+
+    @Api public static Builder builder() { return new Builder(); }
+
+    @Api public int size() { return values.length; }
+
+    /**
+     * Whether the codes are in the order of the strings.
+     */
+    @Api public boolean isSorted() { return sorted; }
+
+    /**
+     * @return the code of the string, the {@link #NULL_CODE} for the null or the {@link #NOT_FOUND} if it's not in
+     * the dictionary.
+     */
+    @Api public int codeOf(@Nullable final String value) {
+        if(value == null) return NULL_CODE;
+        int slot = slotFor(value);
+        int entry;
+        while((entry = table[slot]) != 0) {
+            if(values[entry - 1].equals(value)) return entry - 1;
+            slot = (slot + 1) & mask;
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * The string by its code, null for the {@link #NULL_CODE}.
+     */
+    @Api @Nullable public String decode(final int code) {
+        if(code == NULL_CODE) return null;
+        checkCode(code);
+        return values[code];
+    }
+
+    /**
+     * The position of the code's string in the order of the strings, {@code -1} for the {@link #NULL_CODE}.
+     */
+    @Api public int rank(final int code) {
+        if(code == NULL_CODE) return -1;
+        checkCode(code);
+        return ranks[code];
+    }
+
+    /**
+     * Compares the strings by their codes, in the {@link String#compareTo(String)} order, the null first.
+     */
+    @Api public int compare(final int left, final int right) { return Integer.compare(rank(left), rank(right)); }
+
+    /**
+     * The codes of this dictionary's strings in the target dictionary, to recode the data encoded with this one.
+     * @return indexed by this dictionary's codes, the target's code or {@link #NOT_FOUND} if the target does not have
+     * the string.
+     */
+    @Api public int[] remapTo(final StringDictionary target) {
+        final int[] result = new int[values.length];
+        for(int code = 0; code < values.length; code++) result[code] = target.codeOf(values[code]);
+        return result;
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{size=" + values.length + ", sorted=" + sorted + '}';
+    }
+
+    void checkCode(final int code) {
+        if(code < 0 || code >= values.length) throw new IllegalArgumentException("No code " + code
+            + " in the dictionary of " + values.length);
+    }
+
+    private int slotFor(final String value) { return (int) HashUtil.fmix64(value.hashCode()) & mask; }
+}
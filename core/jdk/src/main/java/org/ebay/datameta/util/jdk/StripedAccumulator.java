@@ -0,0 +1,162 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Sum of the values added concurrently by many threads, like the {@link java.util.concurrent.atomic.LongAdder},
+ * but the overflow is never lost: the total is kept exact to 128 bits, and the {@link #sumAsLong()} and
+ * {@link #sumAsInt()} report it if the sum does not fit, with the {@link OpState#FAIL} result, no exception thrown.
+ *
+ * <p>The threads add to the stripes picked by their ids; the stripes sit 128 bytes apart so that no two of them share
+ * a cache line, even with the adjacent line prefetch. A stripe is a single long updated by CAS; in the rare case
+ * it would overflow, it is spilled into the 128 bit base under a lock. The sum takes the same lock, so it never sees
+ * a spill half done; the adds that race with the sum may or may not be counted in it, as with the {@code LongAdder}.
+ * </p>
+ *
+ * @author Michael Bergens
+ * @see Ints#checkedSum(long[], int, int, long)
+ */
+@ThreadSafe public class StripedAccumulator {
+
+    /**
+     * Longs between the stripes: 16 of 8 bytes make 128 bytes.
+     */
+    private static final int STRIDE = 16;
+    private static final int MAX_STRIPES = 1 << 10;
+
+    private final AtomicLongArray cells;
+    private final int stripeMask;
+
+    /**
+     * The 128 bit base the overflowing stripes spill into, guarded by the {@link #lock}.
+     */
+    private long baseLow;
+    private long baseHigh;
+    private final Object lock = new Object();
+
+    /**
+     * With the stripe count of 4 per available processor.
+     */
+    @Api public StripedAccumulator() { this(4 * Runtime.getRuntime().availableProcessors()); }
+
+    /**
+     * @param stripes how many stripes, rounded up to a power of 2, up to {@value #MAX_STRIPES}; more stripes means
+     *                less contention for more memory, 128 bytes each.
+     */
+    @Api public StripedAccumulator(final int stripes) {
+        if(stripes < 1) throw new IllegalArgumentException("Stripes must be positive: " + stripes);
+        final int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, stripes - 1)) << 1);
+        cells = new AtomicLongArray(count * STRIDE);
+        stripeMask = count - 1;
+    }
+
+    @Api public void increment() { add(1L); }
+
+    /**
+     * Adds the value; lock-free unless the stripe overflows.
+     */
+    @Api public void add(final long value) {
+        int stripe = (int) HashUtil.fmix64(Thread.currentThread().getId()) & stripeMask;
+        // on contention, move on to the next stripe rather than spin on the same one
+        for(int attempt = 0; attempt <= stripeMask; attempt++, stripe = (stripe + 1) & stripeMask) {
+            final int index = stripe * STRIDE;
+            final long current = cells.get(index);
+            if(Ints.addOverflows(current, value)) {
+                spill(index, value);
+                return;
+            }
+            if(cells.compareAndSet(index, current, current + value)) return;
+        }
+        // all stripes contended: fall back to the lock
+        synchronized(lock) { addToBase(value); }
+    }
+
+    /**
+     * The sum if it fits into a long.
+     * @return the {@link OpState#OK} result with the sum, or the {@link OpState#FAIL} result with the
+     * error message describing the overflow.
+     */
+    @Api public OpResult<Long> sumAsLong() {
+        synchronized(lock) {
+            final long[] sum = sum128();
+            return sum[1] == (sum[0] >> 63) ? OpResult.getOkInstance(sum[0])
+                : OpResult.getFailInstance(null, overflowMessage("Long", sum));
+        }
+    }
+
+    /**
+     * The sum if it fits into an int.
+     * @return the {@link OpState#OK} result with the sum, or the {@link OpState#FAIL} result with the
+     * error message describing the overflow.
+     */
+    @Api public OpResult<Integer> sumAsInt() {
+        synchronized(lock) {
+            final long[] sum = sum128();
+            return sum[1] == (sum[0] >> 63) && Ints.fitsInt(sum[0]) ? OpResult.getOkInstance((int) sum[0])
+                : OpResult.getFailInstance(null, overflowMessage("Integer", sum));
+        }
+    }
+
+    /**
+     * Resets to zero; the adds that race with the reset may or may not survive it.
+     */
+    @Api public void reset() {
+        synchronized(lock) {
+            for(int stripe = 0; stripe <= stripeMask; stripe++) cells.set(stripe * STRIDE, 0L);
+            baseLow = 0L;
+            baseHigh = 0L;
+        }
+    }
+
+    @Api public int getStripeCount() { return stripeMask + 1; }
+
+    @Override public String toString() {
+        final OpResult<Long> sum = sumAsLong();
+        return getClass().getSimpleName() + "{stripes=" + (stripeMask + 1) + ", sum="
+            + (sum.getState() == OpState.OK ? sum.getValue() : "overflow") + '}';
+    }
+
+    /**
+     * Moves the stripe's value together with the new one into the base.
+     */
+    private void spill(final int index, final long value) {
+        synchronized(lock) {
+            long current;
+            do {
+                current = cells.get(index);
+                if(!Ints.addOverflows(current, value) && cells.compareAndSet(index, current, current + value)) return;
+            } while(!cells.compareAndSet(index, current, 0L));
+            addToBase(current);
+            addToBase(value);
+        }
+    }
+
+    /**
+     * 128 bit add of the sign extended value, must hold the lock.
+     */
+    private void addToBase(final long value) {
+        final long sum = baseLow + value;
+        baseHigh += (value >> 63) + (((baseLow & value) | ((baseLow | value) & ~sum)) >>> 63);
+        baseLow = sum;
+    }
+
+    /**
+     * The base plus all the stripes, must hold the lock.
+     * @return the low and the high words.
+     */
+    private long[] sum128() {
+        long low = baseLow, high = baseHigh;
+        for(int stripe = 0; stripe <= stripeMask; stripe++) {
+            final long value = cells.get(stripe * STRIDE);
+            final long sum = low + value;
+            high += (value >> 63) + (((low & value) | ((low | value) & ~sum)) >>> 63);
+            low = sum;
+        }
+        return new long[] {low, high};
+    }
+
+    private static String overflowMessage(final String type, final long[] sum) {
+        return type + " overflow: the sum is 0x" + Long.toHexString(sum[1]) + String.format("%016x", sum[0]);
+    }
+}
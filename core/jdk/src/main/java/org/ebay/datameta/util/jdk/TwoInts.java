@@ -53,6 +53,32 @@ import static org.ebay.datameta.util.jdk.MathUtil.MERSENNE_7;
         last = value;
     }
 
+    /**
+     * Packs the pair into a long so that the signed comparison of the packed longs orders them the same as the
+     * {@link #compareTo(TwoInts)} orders the pairs: the first in the upper half as is, the last in the lower half with
+     * its sign bit flipped, so that the negatives go before the positives.
+     * @see #unpackFirst(long)
+     * @see #unpackLast(long)
+     */
+    @Api public static long pack(final int first, final int last) {
+        return (long) first << 32 | (last ^ Integer.MIN_VALUE) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * The {@link #first} of the pair {@link #pack(int, int) packed} into the long.
+     */
+    @Api public static int unpackFirst(final long packed) { return (int) (packed >> 32); }
+
+    /**
+     * The {@link #last} of the pair {@link #pack(int, int) packed} into the long.
+     */
+    @Api public static int unpackLast(final long packed) { return (int) packed ^ Integer.MIN_VALUE; }
+
+    /**
+     * This pair {@link #pack(int, int) packed} into a long.
+     */
+    @Api public long pack() { return pack(first, last); }
+
     /**
      * Gets brand new deep copy.
      */
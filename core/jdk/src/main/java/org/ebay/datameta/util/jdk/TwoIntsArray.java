@@ -0,0 +1,238 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Growable list of int pairs in two parallel arrays, the {@link TwoInts#first firsts} and the
+ * {@link TwoInts#last lasts}: 8 bytes per pair versus some 30 for a list of the {@link TwoInts} objects with their
+ * headers and references, and no pointer chasing when scanning.
+ *
+ * <p>Sorts in the {@link TwoInts#compareTo(TwoInts)} order either by the {@link #sort() LSD radix sort} or by the
+ * {@link #parallelSort() fork-join parallel sort} for the big ones; once sorted, {@link #binarySearch(int, int)}
+ * finds the pairs. Iterate either by index or with the reusable {@link Cursor}, no object per element.</p>
+ *
+ * @author Michael Bergens
+ * @see TwoInts#pack(int, int)
+ */
+@NotThreadSafe public class TwoIntsArray {
+
+    /**
+     * Below this size, the radix sort does not pay off against the comparison sort.
+     */
+    private static final int RADIX_THRESHOLD = 256;
+    private static final int RADIX_BITS = 11;
+    private static final int RADIX = 1 << RADIX_BITS;
+    private static final int MIN_CAPACITY = 10;
+
+    /**
+     * Flyweight view of the current pair, moves over the array with the {@link #next()}. The array must not be
+     * structurally changed while iterating.
+     */
+    public final class Cursor {
+        private int index = -1;
+
+        private Cursor() {}
+
+        /**
+         * Moves to the next pair.
+         * @return false if there are no more pairs.
+         */
+        @Api public boolean next() { return ++index < size; }
+
+        @Api public int first() { return first[index]; }
+
+        @Api public int last() { return last[index]; }
+
+        @Api public int index() { return index; }
+
+        /**
+         * Back to before the first pair.
+         */
+        @Api public Cursor reset() {
+            index = -1;
+            return this;
+        }
+    }
+
+    private int[] first;
+    private int[] last;
+    private int size;
+
+    @Api public TwoIntsArray() { this(MIN_CAPACITY); }
+
+    @Api public TwoIntsArray(final int capacity) {
+        if(capacity < 0) throw new IllegalArgumentException("Capacity can not be negative: " + capacity);
+        first = new int[capacity];
+        last = new int[capacity];
+    }
+
+    @Api public int size() { return size; }
+
+    @Api public boolean isEmpty() { return size == 0; }
+
+    @Api public void add(final int first, final int last) {
+        if(size == this.first.length) grow(size + 1);
+        this.first[size] = first;
+        this.last[size] = last;
+        size++;
+    }
+
+    @Api public void add(final TwoInts pair) { add(pair.first, pair.last); }
+
+    @Api public int getFirst(final int index) {
+        checkIndex(index);
+        return first[index];
+    }
+
+    @Api public int getLast(final int index) {
+        checkIndex(index);
+        return last[index];
+    }
+
+    /**
+     * Copies the pair at the index into the given instance, to reuse one {@link TwoInts} for many reads.
+     * @return the instance passed.
+     */
+    @Api public TwoInts get(final int index, final TwoInts into) {
+        checkIndex(index);
+        into.first = first[index];
+        into.last = last[index];
+        return into;
+    }
+
+    @Api public void set(final int index, final int first, final int last) {
+        checkIndex(index);
+        this.first[index] = first;
+        this.last[index] = last;
+    }
+
+    /**
+     * A new cursor positioned before the first pair; {@link Cursor#reset() reset} it to iterate again.
+     */
+    @Api public Cursor cursor() { return new Cursor(); }
+
+    @Api public void clear() { size = 0; }
+
+    /**
+     * Makes sure the array takes the given number of pairs without growing.
+     */
+    @Api public void ensureCapacity(final int capacity) { if(capacity > first.length) grow(capacity); }
+
+    /**
+     * Trims the storage down to the size.
+     */
+    @Api public void trimToSize() {
+        if(size < first.length) {
+            first = Arrays.copyOf(first, size);
+            last = Arrays.copyOf(last, size);
+        }
+    }
+
+    /**
+     * Sorts in the {@link TwoInts#compareTo(TwoInts)} order: the LSD radix sort of the pairs {@link TwoInts#pack(int,
+     * int) packed} into the longs, 11 bits per pass, skipping the passes where all the pairs have the same digit,
+     * which is most of them for the small ints. Takes 16 bytes per pair of the temporary memory.
+     */
+    @Api public void sort() {
+        if(size < 2) return;
+        final long[] packed = pack();
+        if(size < RADIX_THRESHOLD) Arrays.sort(packed);
+        else radixSort(packed);
+        unpack(packed);
+    }
+
+    /**
+     * Sorts in the {@link TwoInts#compareTo(TwoInts)} order on the common fork-join pool, for the arrays in the millions;
+     * the pairs are packed into the longs and sorted with the {@link Arrays#parallelSort(long[])}.
+     */
+    @Api public void parallelSort() {
+        if(size < 2) return;
+        final long[] packed = pack();
+        Arrays.parallelSort(packed);
+        unpack(packed);
+    }
+
+    /**
+     * Searches the array sorted in the {@link TwoInts#compareTo(TwoInts)} order.
+     * @return the index of the pair if found, otherwise {@code -(insertion point) - 1}, same as the
+     * {@link Arrays#binarySearch(long[], long)}. If the pair is there more than once, any of them may be found.
+     */
+    @Api public int binarySearch(final int first, final int last) {
+        int low = 0, high = size - 1;
+        while(low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midFirst = this.first[mid];
+            final int compared = midFirst != first ? (midFirst < first ? -1 : 1) : Integer.compare(this.last[mid], last);
+            if(compared < 0) low = mid + 1;
+            else if(compared > 0) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    @Override public String toString() {
+        final StringBuilder result = new StringBuilder().append('[');
+        for(int i = 0; i < Math.min(size, 10); i++) {
+            if(i > 0) result.append(", ");
+            result.append('{').append(first[i]).append(',').append(last[i]).append('}');
+        }
+        if(size > 10) result.append(", ...");
+        return result.append("] of ").append(size).toString();
+    }
+
+    private void checkIndex(final int index) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index " + index + " for the size " + size);
+    }
+
+    private void grow(final int minCapacity) {
+        final int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(minCapacity,
+            Math.max(MIN_CAPACITY, first.length + ((long) first.length >> 1))));
+        if(capacity < minCapacity) throw new OutOfMemoryError("Too many pairs: " + minCapacity);
+        first = Arrays.copyOf(first, capacity);
+        last = Arrays.copyOf(last, capacity);
+    }
+
+    private long[] pack() {
+        final long[] packed = new long[size];
+        for(int i = 0; i < size; i++) packed[i] = TwoInts.pack(first[i], last[i]);
+        return packed;
+    }
+
+    private void unpack(final long[] packed) {
+        for(int i = 0; i < size; i++) {
+            first[i] = TwoInts.unpackFirst(packed[i]);
+            last[i] = TwoInts.unpackLast(packed[i]);
+        }
+    }
+
+    /**
+     * LSD radix sort of the signed longs; the sign bit is flipped for the digits so the negatives come first.
+     */
+    private static void radixSort(final long[] values) {
+        final int length = values.length;
+        long[] source = values, target = new long[length];
+        final int[] counts = new int[RADIX];
+        for(int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for(int i = 0; i < length; i++) counts[digit(source[i], shift)]++;
+            // all in one bucket: this digit does not change the order
+            if(counts[digit(source[0], shift)] == length) continue;
+            int total = 0;
+            for(int d = 0; d < RADIX; d++) {
+                final int count = counts[d];
+                counts[d] = total;
+                total += count;
+            }
+            for(int i = 0; i < length; i++) target[counts[digit(source[i], shift)]++] = source[i];
+            final long[] swap = source;
+            source = target;
+            target = swap;
+        }
+        if(source != values) System.arraycopy(source, 0, values, 0, length);
+    }
+
+    private static int digit(final long value, final int shift) {
+        return (int) ((value ^ Long.MIN_VALUE) >>> shift) & (RADIX - 1);
+    }
+}
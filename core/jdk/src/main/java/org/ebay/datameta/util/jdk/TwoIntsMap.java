@@ -0,0 +1,152 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Map keyed by a pair of ints, without the {@link TwoInts} instances for the keys nor the entry objects: the pairs are
+ * {@link TwoInts#pack(int, int) packed} into the longs in a flat open addressing table, the values in a parallel
+ * array. About 12 bytes per slot of the table plus the values themselves, versus some 70 for the
+ * {@code HashMap<TwoInts, V>} entry with its key; and the keys are mixed well, unlike the {@link TwoInts#hashCode()}.
+ *
+ * <p>The lookups take the two ints directly, the overloads taking the {@link TwoInts} are for convenience.</p>
+ *
+ * <p>The null values are not allowed, the null is returned for the missing keys.</p>
+ *
+ * @param <V> the type of the values.
+ *
+ * @author Michael Bergens
+ * @see TwoIntsToLongMap
+ */
+@NotThreadSafe public class TwoIntsMap<V> extends LongKeyTable {
+
+    /**
+     * Receives the map entries in the {@link #forEach(Visitor)}.
+     */
+    public interface Visitor<V> {
+        @Api void visit(int first, int last, V value);
+    }
+
+    private Object[] values;
+    private Object zeroValue;
+
+    @Api public TwoIntsMap() { this(0); }
+
+    /**
+     * @param expectedSize how many entries to allocate for without growing.
+     */
+    @Api public TwoIntsMap(final int expectedSize) { this(expectedSize, DEFAULT_LOAD_FACTOR); }
+
+    /**
+     * @param expectedSize how many entries to allocate for without growing.
+     * @param loadFactor max share of the table slots taken before it grows, the default is
+     *                   {@code 0.75}; higher saves memory for longer probes.
+     */
+    @Api public TwoIntsMap(final int expectedSize, final float loadFactor) { super(expectedSize, loadFactor); }
+
+    @Api @Nullable public V get(final int first, final int last) { return getPacked(TwoInts.pack(first, last)); }
+
+    @Api @Nullable public V get(final TwoInts key) { return getPacked(key.pack()); }
+
+    /**
+     * By the key {@link TwoInts#pack(int, int) packed} already.
+     */
+    @SuppressWarnings("unchecked")
+    @Api @Nullable public V getPacked(final long key) {
+        if(key == 0L) return (V) zeroValue;
+        final int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    @Api public boolean containsKey(final int first, final int last) { return getPacked(TwoInts.pack(first, last)) != null; }
+
+    /**
+     * @return the previous value for the key, null if there was none.
+     */
+    @Api @Nullable public V put(final int first, final int last, @Nonnull final V value) {
+        return putPacked(TwoInts.pack(first, last), value);
+    }
+
+    @Api @Nullable public V put(final TwoInts key, @Nonnull final V value) { return putPacked(key.pack(), value); }
+
+    @SuppressWarnings("unchecked")
+    @Api @Nullable public V putPacked(final long key, @Nonnull final V value) {
+        //noinspection ConstantConditions
+        if(value == null) throw new IllegalArgumentException("Null values are not supported");
+        final Object previous;
+        if(key == 0L) {
+            previous = zeroValue;
+            zeroValue = value;
+            hasZeroKey = true;
+        }
+        else {
+            final int slot = insert(key);
+            if(slot < 0) {
+                previous = null;
+                values[-slot - 1] = value;
+            }
+            else {
+                previous = values[slot];
+                values[slot] = value;
+            }
+        }
+        return (V) previous;
+    }
+
+    /**
+     * @return the removed value, null if the key was not there.
+     */
+    @Api @Nullable public V remove(final int first, final int last) { return removePacked(TwoInts.pack(first, last)); }
+
+    @SuppressWarnings("unchecked")
+    @Api @Nullable public V removePacked(final long key) {
+        final Object previous;
+        if(key == 0L) {
+            previous = zeroValue;
+            zeroValue = null;
+            hasZeroKey = false;
+        }
+        else {
+            final int slot = find(key);
+            if(slot < 0) return null;
+            previous = values[slot];
+            removeAt(slot);
+        }
+        return (V) previous;
+    }
+
+    /**
+     * Visits all the entries, in no particular order; the map must not be changed while at it.
+     */
+    @SuppressWarnings("unchecked")
+    @Api public void forEach(final Visitor<? super V> visitor) {
+        if(hasZeroKey) visitor.visit(0, Integer.MIN_VALUE, (V) zeroValue);
+        for(int slot = 0; slot < keys.length; slot++) {
+            final long key = keys[slot];
+            if(key != 0L) visitor.visit(TwoInts.unpackFirst(key), TwoInts.unpackLast(key), (V) values[slot]);
+        }
+    }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{size=" + size() + ", capacity=" + capacity() + '}';
+    }
+
+    @Override protected void allocateValues(final int capacity) { values = new Object[capacity]; }
+
+    @Override protected void clearValues() {
+        Arrays.fill(values, null);
+        zeroValue = null;
+    }
+
+    @Override protected void moveValue(final int from, final int to) { values[to] = values[from]; }
+
+    @Override protected void clearValue(final int slot) { values[slot] = null; }
+
+    @Override protected void relocateValues(final int capacity, final int[] newSlots) {
+        final Object[] relocated = new Object[capacity];
+        for(int i = 0; i < newSlots.length; i++) if(newSlots[i] >= 0) relocated[newSlots[i]] = values[i];
+        values = relocated;
+    }
+}
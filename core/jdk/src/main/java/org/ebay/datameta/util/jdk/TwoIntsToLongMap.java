@@ -0,0 +1,160 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * Map of a pair of ints to a long, without a single object per entry: the pairs are
+ * {@link TwoInts#pack(int, int) packed} into the longs in a flat open addressing table, the values in a parallel
+ * {@code long[]}, 16 bytes per slot. Built for the large join and counting tables, see the {@link #addTo(int, int, long)}.
+ *
+ * <p>The missing keys read as the {@link #getMissingValue() missing value} set on construction, zero by default.</p>
+ *
+ * @author Michael Bergens
+ * @see TwoIntsMap
+ */
+@NotThreadSafe public class TwoIntsToLongMap extends LongKeyTable {
+
+    /**
+     * Receives the map entries in the {@link #forEach(Visitor)}.
+     */
+    public interface Visitor {
+        @Api void visit(int first, int last, long value);
+    }
+
+    private long[] values;
+    private long zeroValue;
+    private final long missingValue;
+
+    @Api public TwoIntsToLongMap() { this(0); }
+
+    /**
+     * @param expectedSize how many entries to allocate for without growing.
+     */
+    @Api public TwoIntsToLongMap(final int expectedSize) { this(expectedSize, DEFAULT_LOAD_FACTOR, 0L); }
+
+    /**
+     * @param expectedSize how many entries to allocate for without growing.
+     * @param loadFactor max share of the table slots taken before it grows, the default is
+     *                   {@code 0.75}; higher saves memory for longer probes.
+     * @param missingValue what the {@link #get(int, int)} returns for the keys not in the map.
+     */
+    @Api public TwoIntsToLongMap(final int expectedSize, final float loadFactor, final long missingValue) {
+        super(expectedSize, loadFactor);
+        this.missingValue = missingValue;
+    }
+
+    /**
+     * @return the value for the key, or the {@link #getMissingValue() missing value} if there is none.
+     */
+    @Api public long get(final int first, final int last) { return getPacked(TwoInts.pack(first, last)); }
+
+    @Api public long get(final TwoInts key) { return getPacked(key.pack()); }
+
+    /**
+     * By the key {@link TwoInts#pack(int, int) packed} already.
+     */
+    @Api public long getPacked(final long key) {
+        if(key == 0L) return hasZeroKey ? zeroValue : missingValue;
+        final int slot = find(key);
+        return slot < 0 ? missingValue : values[slot];
+    }
+
+    @Api public boolean containsKey(final int first, final int last) {
+        final long key = TwoInts.pack(first, last);
+        return key == 0L ? hasZeroKey : find(key) >= 0;
+    }
+
+    /**
+     * @return the previous value for the key, or the {@link #getMissingValue() missing value} if there was none.
+     */
+    @Api public long put(final int first, final int last, final long value) {
+        return putPacked(TwoInts.pack(first, last), value);
+    }
+
+    @Api public long putPacked(final long key, final long value) {
+        final long previous;
+        if(key == 0L) {
+            previous = hasZeroKey ? zeroValue : missingValue;
+            zeroValue = value;
+            hasZeroKey = true;
+        }
+        else {
+            final int slot = insert(key);
+            if(slot < 0) {
+                previous = missingValue;
+                values[-slot - 1] = value;
+            }
+            else {
+                previous = values[slot];
+                values[slot] = value;
+            }
+        }
+        return previous;
+    }
+
+    /**
+     * Adds the delta to the value of the key, which starts at the {@link #getMissingValue() missing value} if
+     * the key is new; a single lookup.
+     * @return the new value.
+     */
+    @Api public long addTo(final int first, final int last, final long delta) {
+        final long key = TwoInts.pack(first, last);
+        if(key == 0L) {
+            zeroValue = (hasZeroKey ? zeroValue : missingValue) + delta;
+            hasZeroKey = true;
+            return zeroValue;
+        }
+        final int slot = insert(key);
+        if(slot < 0) return values[-slot - 1] = missingValue + delta;
+        return values[slot] += delta;
+    }
+
+    /**
+     * @return the removed value, or the {@link #getMissingValue() missing value} if the key was not there.
+     */
+    @Api public long remove(final int first, final int last) {
+        final long key = TwoInts.pack(first, last);
+        if(key == 0L) {
+            if(!hasZeroKey) return missingValue;
+            hasZeroKey = false;
+            return zeroValue;
+        }
+        final int slot = find(key);
+        if(slot < 0) return missingValue;
+        final long previous = values[slot];
+        removeAt(slot);
+        return previous;
+    }
+
+    /**
+     * Visits all the entries, in no particular order; the map must not be changed while at it.
+     */
+    @Api public void forEach(final Visitor visitor) {
+        if(hasZeroKey) visitor.visit(0, Integer.MIN_VALUE, zeroValue);
+        for(int slot = 0; slot < keys.length; slot++) {
+            final long key = keys[slot];
+            if(key != 0L) visitor.visit(TwoInts.unpackFirst(key), TwoInts.unpackLast(key), values[slot]);
+        }
+    }
+
+    @Api public long getMissingValue() { return missingValue; }
+
+    @Override public String toString() {
+        return getClass().getSimpleName() + "{size=" + size() + ", capacity=" + capacity() + '}';
+    }
+
+    @Override protected void allocateValues(final int capacity) { values = new long[capacity]; }
+
+    @Override protected void clearValues() { Arrays.fill(values, 0L); }
+
+    @Override protected void moveValue(final int from, final int to) { values[to] = values[from]; }
+
+    @Override protected void clearValue(final int slot) { values[slot] = 0L; }
+
+    @Override protected void relocateValues(final int capacity, final int[] newSlots) {
+        final long[] relocated = new long[capacity];
+        for(int i = 0; i < newSlots.length; i++) if(newSlots[i] >= 0) relocated[newSlots[i]] = values[i];
+        values = relocated;
+    }
+}
@@ -0,0 +1,139 @@
+package org.ebay.datameta.util.jdk;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * UTF-8 without the intermediate arrays of the {@link String#getBytes(java.nio.charset.Charset)}: encoding into
+ * the caller's buffer, and comparing the encoded bytes in the order of the {@link String#compareTo(String)}, so
+ * the strings can be sorted and searched while encoded.
+ *
+ * <p>The unpaired surrogates encode as {@code '?'}, same as the JDK encoder does.</p>
+ *
+ * @author Michael Bergens
+ */
+public final class Utf8 {
+
+    private Utf8() {}
+
+    /**
+     * How many bytes the UTF-8 encoding of the text takes.
+     */
+    @Api public static int encodedLength(final CharSequence text) { return encodedLength(text, 0, text.length()); }
+
+    /**
+     * How many bytes the UTF-8 encoding of the chars from the start, inclusive, to the end, exclusive, takes.
+     */
+    @Api public static int encodedLength(final CharSequence text, final int start, final int end) {
+        int result = end - start;
+        for(int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if(c < 0x80) continue;
+            if(c < 0x800) result++;
+            else if(!Character.isSurrogate(c)) result += 2;
+            else if(Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                result += 2; // 2 chars, 4 bytes
+                i++;
+            }
+            // an unpaired surrogate encodes as the single '?'
+        }
+        return result;
+    }
+
+    /**
+     * Encodes the text into the target from the offset on; the target must have the room for the
+     * {@link #encodedLength(CharSequence) encoded length}.
+     * @return the offset past the last byte written.
+     */
+    @Api public static int encode(final CharSequence text, final byte[] target, final int offset) {
+        return encode(text, 0, text.length(), target, offset);
+    }
+
+    /**
+     * Encodes the chars from the start, inclusive, to the end, exclusive, same as the
+     * {@link #encode(CharSequence, byte[], int)}.
+     * @return the offset past the last byte written.
+     */
+    @Api public static int encode(final CharSequence text, final int start, final int end, final byte[] target,
+                                  int offset) {
+        for(int i = start; i < end; i++) {
+            final char c = text.charAt(i);
+            if(c < 0x80) {
+                target[offset++] = (byte) c;
+            }
+            else if(c < 0x800) {
+                target[offset++] = (byte) (0xC0 | c >>> 6);
+                target[offset++] = (byte) (0x80 | c & 0x3F);
+            }
+            else if(Character.isSurrogate(c)) {
+                if(Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    final int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    target[offset++] = (byte) (0xF0 | codePoint >>> 18);
+                    target[offset++] = (byte) (0x80 | codePoint >>> 12 & 0x3F);
+                    target[offset++] = (byte) (0x80 | codePoint >>> 6 & 0x3F);
+                    target[offset++] = (byte) (0x80 | codePoint & 0x3F);
+                }
+                else {
+                    target[offset++] = '?';
+                }
+            }
+            else {
+                target[offset++] = (byte) (0xE0 | c >>> 12);
+                target[offset++] = (byte) (0x80 | c >>> 6 & 0x3F);
+                target[offset++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return offset;
+    }
+
+    @Api public static String decode(final byte[] source, final int offset, final int length) {
+        return new String(source, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares the two UTF-8 encoded strings in the order of the {@link String#compareTo(String)} of the decoded ones,
+     * without decoding them. The byte order of UTF-8 is the code point order, which is the UTF-16 order of the Java
+     * strings except for the chars {@code U+E000..U+FFFF}: in UTF-16 those go after the surrogate pairs of the
+     * supplementary code points, so the code points are compared with that fix-up where the bytes differ.
+     * @return negative, zero or positive as the first is less than, equal to or greater than the second.
+     */
+    @Api public static int compare(final byte[] left, final int leftOffset, final int leftLength,
+                                   final byte[] right, final int rightOffset, final int rightLength) {
+        final int common = Math.min(leftLength, rightLength);
+        int i = 0;
+        while(i < common && left[leftOffset + i] == right[rightOffset + i]) i++;
+        if(i == common) return Integer.compare(leftLength, rightLength);
+        // back up to the start of the differing code point, the same in both since everything before matches
+        while(i > 0 && (left[leftOffset + i] & 0xC0) == 0x80) i--;
+        return Integer.compare(utf16Rank(codePointAt(left, leftOffset + i, leftOffset + leftLength)),
+            utf16Rank(codePointAt(right, rightOffset + i, rightOffset + rightLength)));
+    }
+
+    /**
+     * Maps the code point onto the order of its UTF-16 encoding: moves the {@code U+E000..U+FFFF} above the
+     * supplementary ones.
+     */
+    private static int utf16Rank(final int codePoint) {
+        return codePoint >= 0xE000 && codePoint <= 0xFFFF ? codePoint + 0x200000 : codePoint;
+    }
+
+    /**
+     * Decodes the code point starting at the position, lenient to the truncated sequences.
+     */
+    static int codePointAt(final byte[] source, final int position, final int end) {
+        final int lead = source[position] & 0xFF;
+        final int extra = sequenceLength(lead) - 1;
+        int result = extra == 0 ? lead : lead & (0x3F >>> extra);
+        for(int k = 1; k <= extra; k++) {
+            result <<= 6;
+            if(position + k < end) result |= source[position + k] & 0x3F;
+        }
+        return result;
+    }
+
+    /**
+     * How many bytes the code point takes, by its lead byte.
+     */
+    static int sequenceLength(final int lead) {
+        return lead < 0x80 ? 1 : lead < 0xE0 ? 2 : lead < 0xF0 ? 3 : 4;
+    }
+}
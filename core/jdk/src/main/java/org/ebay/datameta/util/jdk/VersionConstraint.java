@@ -0,0 +1,355 @@
+package org.ebay.datameta.util.jdk;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.ebay.datameta.util.jdk.SemanticVersion.NOT_PACKABLE;
+import static org.ebay.datameta.util.jdk.SemanticVersion.PACKED_MAX;
+
+/**
+ * Version range constraint, such as {@code >=1.2.0 <2.0.0} or {@code ~1.4 || ^2.1}, compiled into the sorted disjoint
+ * ranges of the versions, so that matching a version is a couple of long compares on its
+ * {@link SemanticVersion#getPackedKey() packed key} rather than the parsing and the {@link SemanticVersion#compareTo}
+ * calls. The versions that do not pack take the slow path over the parts, same result.
+ *
+ * <p>The syntax, close to the npm's:</p>
+ * <ul>
+ *     <li>{@code ||} separates the alternatives, any of which may match;</li>
+ *     <li>within the alternative, the whitespace separated comparators, all of which must match;</li>
+ *     <li>the comparator is the operator and the version of 1 to 4 numeric parts, the missing or {@code x}, {@code X},
+ *     {@code *} parts are the wildcards: {@code 1.2} means any {@code 1.2.*.*};</li>
+ *     <li>{@code =} or no operator: any version matching the given parts, {@code 1.2.3} matches any build of it;</li>
+ *     <li>{@code >=}, {@code >}, {@code <=}, {@code <}: ordered after or before all the versions matching the parts,
+ *     {@code >1.2} means {@code >=1.3}, {@code <=1.2} means {@code <1.3};</li>
+ *     <li>{@code ~}: the changes below the minor if it's given, else below the major: {@code ~1.4.2} is
+ *     {@code >=1.4.2 <1.5}, {@code ~1} is {@code >=1 <2};</li>
+ *     <li>{@code ^}: the changes below the first non-zero part of the major, the minor and the update:
+ *     {@code ^1.2.3} is {@code >=1.2.3 <2}, {@code ^0.2.3} is {@code >=0.2.3 <0.3}.</li>
+ * </ul>
+ *
+ * <p>The pre-release tags are not supported: the versions here have none that count.</p>
+ *
+ * @author Michael Bergens
+ */
+@Immutable public final class VersionConstraint {
+
+    private static final int PARTS = 4;
+
+    private static final String[] OPERATORS = {">=", "<=", ">", "<", "=", "~", "^"};
+
+    private final String expression;
+
+    /**
+     * The ranges, {@code count} of them, sorted and disjoint: the inclusive low and the exclusive high, in parts,
+     * {@link #PARTS} per range, and the high unbounded.
+     */
+    private final int count;
+    private final long[] lows;
+    private final long[] highs;
+    private final boolean[] unbounded;
+
+    /**
+     * Same ranges over the packed keys, both inclusive: the least packed key in the range, and the greatest one.
+     * The packed keys take all 63 bits, so there is no long past the greatest key for the exclusive high.
+     */
+    private final long[] packedLows;
+    private final long[] packedHighs;
+
+    private VersionConstraint(final String expression, final List<long[]> ranges) {
+        this.expression = expression;
+        final List<long[]> merged = normalize(ranges);
+        count = merged.size();
+        lows = new long[count * PARTS];
+        highs = new long[count * PARTS];
+        unbounded = new boolean[count];
+        packedLows = new long[count];
+        packedHighs = new long[count];
+        for(int i = 0; i < count; i++) {
+            final long[] range = merged.get(i);
+            System.arraycopy(range, 0, lows, i * PARTS, PARTS);
+            System.arraycopy(range, PARTS, highs, i * PARTS, PARTS);
+            unbounded[i] = range[2 * PARTS] != 0L;
+            final long low = packCeiling(range, 0);
+            if(low == NOT_PACKABLE) { // no packed key in this range
+                packedLows[i] = Long.MAX_VALUE;
+                packedHighs[i] = -1L;
+                continue;
+            }
+            final long high = unbounded[i] ? NOT_PACKABLE : packCeiling(range, PARTS);
+            packedLows[i] = low;
+            packedHighs[i] = high == NOT_PACKABLE ? Long.MAX_VALUE : high - 1;
+        }
+    }
+
+    /**
+     * Compiles the expression.
+     * @throws IllegalArgumentException if it does not parse.
+     */
+    @Api public static VersionConstraint parse(final String expression) {
+        final List<long[]> ranges = new ArrayList<>();
+        for(final String alternative : expression.split("\\|\\|", -1)) {
+            final String[] tokens = alternative.trim().split("\\s+");
+            if(tokens[0].isEmpty()) throw new IllegalArgumentException("Empty alternative in \"" + expression + '"');
+            long[] range = null;
+            for(int i = 0; i < tokens.length; i++) {
+                String comparator = tokens[i];
+                // the operator separated from its version by the space
+                if(isOperator(comparator) && i + 1 < tokens.length) comparator += tokens[++i];
+                final long[] next = comparator(comparator, expression);
+                range = range == null ? next : intersect(range, next);
+            }
+            ranges.add(range);
+        }
+        return new VersionConstraint(expression, ranges);
+    }
+
+    /**
+     * The versions that differ from the base no more than on the given level and are not lower, such that the
+     * {@link SemanticVersion#getDiffLevel(SemanticVersion)} is that level or a less significant one:
+     * <ul>
+     *     <li>{@link SemanticVersion.DiffLevel#MAJOR MAJOR}: any version from the base up;</li>
+     *     <li>{@link SemanticVersion.DiffLevel#MINOR MINOR}: from the base up within the same major;</li>
+     *     <li>{@link SemanticVersion.DiffLevel#UPDATE UPDATE}: from the base up within the same minor;</li>
+     *     <li>{@link SemanticVersion.DiffLevel#BUILD BUILD}: from the base up within the same update;</li>
+     *     <li>{@link SemanticVersion.DiffLevel#NONE NONE}: the base only.</li>
+     * </ul>
+     */
+    @Api public static VersionConstraint compatibleWith(final SemanticVersion base, final SemanticVersion.DiffLevel level) {
+        final long[] parts = {base.getMajor(), base.getMinor(), base.getUpdate(), base.getBuildOrZero()};
+        final long[] range = new long[2 * PARTS + 1];
+        System.arraycopy(parts, 0, range, 0, PARTS);
+        switch(level) {
+            case MAJOR: range[2 * PARTS] = 1L; break;
+            case MINOR: bump(parts, 1, range); break;
+            case UPDATE: bump(parts, 2, range); break;
+            case BUILD: bump(parts, 3, range); break;
+            case NONE: bump(parts, PARTS, range); break;
+            default: throw new IllegalArgumentException("Unsupported diff level: " + level);
+        }
+        final List<long[]> ranges = new ArrayList<>(1);
+        ranges.add(range);
+        return new VersionConstraint(level + " compatible with " + base.getSemanticPartsOnly(), ranges);
+    }
+
+    /**
+     * Whether the version satisfies the constraint.
+     */
+    @Api public boolean matches(final SemanticVersion version) {
+        final long key = version.getPackedKey();
+        if(key != NOT_PACKABLE) return matchesPacked(key);
+        for(int i = 0; i < count; i++) {
+            if(compare(lows, i * PARTS, version) <= 0 && (unbounded[i] || compare(highs, i * PARTS, version) > 0))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether the version with the {@link SemanticVersion#getPackedKey() packed key} satisfies the constraint.
+     * @param key must not be the {@link SemanticVersion#NOT_PACKABLE}.
+     */
+    @Api public boolean matchesPacked(final long key) {
+        for(int i = 0; i < count; i++) {
+            if(key < packedLows[i]) return false; // sorted, the rest are all higher
+            if(key <= packedHighs[i]) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether no version can satisfy it, such as {@code >2 <1}.
+     */
+    @Api public boolean isEmpty() { return count == 0; }
+
+    @Override public String toString() { return expression; }
+
+    int getRangeCount() { return count; }
+
+    /**
+     * Whether the version is below the low of the range.
+     */
+    boolean isBelow(final int range, final SemanticVersion version) { return compare(lows, range * PARTS, version) > 0; }
+
+    /**
+     * Whether the version is below the high of the range, that is, not past the range.
+     */
+    boolean isBelowHigh(final int range, final SemanticVersion version) {
+        return unbounded[range] || compare(highs, range * PARTS, version) > 0;
+    }
+
+    /**
+     * The least packed key in the range.
+     */
+    long getPackedLow(final int range) { return packedLows[range]; }
+
+    /**
+     * The greatest packed key in the range, inclusive; less than the low if there is none.
+     */
+    long getPackedHigh(final int range) { return packedHighs[range]; }
+
+    private static boolean isOperator(final String token) {
+        for(final String operator : OPERATORS) if(operator.equals(token)) return true;
+        return false;
+    }
+
+    /**
+     * One comparator compiled into its range: the low, the high and the unbounded flag.
+     */
+    private static long[] comparator(final String comparator, final String expression) {
+        String operator = "=";
+        for(final String candidate : OPERATORS) {
+            if(comparator.startsWith(candidate)) {
+                operator = candidate;
+                break;
+            }
+        }
+        final String version = comparator.startsWith(operator) ? comparator.substring(operator.length()) : comparator;
+        final long[] parts = new long[PARTS];
+        final int given = parts(version, parts, expression);
+        final long[] result = new long[2 * PARTS + 1];
+        if(given == 0) { // the wildcard: anything, or nothing for the strict ones
+            if(operator.equals(">") || operator.equals("<")) return result; // low zero, high zero: empty
+            result[2 * PARTS] = 1L;
+            return result;
+        }
+        switch(operator) {
+            case "=":
+                System.arraycopy(parts, 0, result, 0, PARTS);
+                bump(parts, given, result);
+                break;
+            case ">=":
+                System.arraycopy(parts, 0, result, 0, PARTS);
+                result[2 * PARTS] = 1L;
+                break;
+            case ">":
+                bump(parts, given, result);
+                // the bumped high becomes the low
+                if(result[2 * PARTS] != 0L) return new long[2 * PARTS + 1]; // nothing past the max
+                System.arraycopy(result, PARTS, result, 0, PARTS);
+                result[2 * PARTS] = 1L;
+                break;
+            case "<":
+                System.arraycopy(parts, 0, result, PARTS, PARTS);
+                break;
+            case "<=":
+                bump(parts, given, result);
+                break;
+            case "~":
+                System.arraycopy(parts, 0, result, 0, PARTS);
+                bump(parts, given == 1 ? 1 : 2, result);
+                break;
+            case "^":
+                System.arraycopy(parts, 0, result, 0, PARTS);
+                int significant = 0;
+                while(significant < Math.min(given, PARTS - 1) && parts[significant] == 0L) significant++;
+                bump(parts, significant < Math.min(given, PARTS - 1) ? significant + 1 : given, result);
+                break;
+            default:
+                throw new IllegalStateException("Unhandled operator " + operator);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the dot separated parts into the array.
+     * @return how many parts given before the first wildcard.
+     */
+    private static int parts(final String version, final long[] parts, final String expression) {
+        final String[] items = version.split("\\.", -1);
+        if(items.length > PARTS) throw new IllegalArgumentException("Too many parts in \"" + version + "\" of \""
+            + expression + '"');
+        int given = 0;
+        for(final String item : items) {
+            if(item.equals("x") || item.equals("X") || item.equals("*")) break;
+            if(item.isEmpty() || !item.chars().allMatch(c -> c >= '0' && c <= '9')) throw new IllegalArgumentException(
+                "Invalid version \"" + version + "\" in \"" + expression + '"');
+            parts[given++] = Long.parseLong(item);
+        }
+        return given;
+    }
+
+    /**
+     * Sets the high of the range to the least version past all those matching the first given parts: the last given
+     * part plus one, zeros after it; with all 4 given, the next build. The part at the max carries into the previous
+     * one; unbounded if there is none.
+     */
+    private static void bump(final long[] parts, final int given, final long[] range) {
+        int last = given - 1;
+        while(last >= 0 && parts[last] == Long.MAX_VALUE) last--;
+        if(last < 0) {
+            range[2 * PARTS] = 1L;
+            return;
+        }
+        for(int i = 0; i < PARTS; i++) range[PARTS + i] = i < last ? parts[i] : (i == last ? parts[i] + 1 : 0L);
+    }
+
+    private static long[] intersect(final long[] left, final long[] right) {
+        final long[] result = new long[2 * PARTS + 1];
+        System.arraycopy(compareParts(left, 0, right, 0) >= 0 ? left : right, 0, result, 0, PARTS);
+        final boolean leftUnbounded = left[2 * PARTS] != 0L, rightUnbounded = right[2 * PARTS] != 0L;
+        if(leftUnbounded && rightUnbounded) result[2 * PARTS] = 1L;
+        else System.arraycopy(rightUnbounded || !leftUnbounded && compareParts(left, PARTS, right, PARTS) <= 0
+            ? left : right, PARTS, result, PARTS, PARTS);
+        return result;
+    }
+
+    /**
+     * Drops the empty ranges, sorts the rest by the low and merges those that overlap or touch.
+     */
+    private static List<long[]> normalize(final List<long[]> ranges) {
+        final List<long[]> sorted = new ArrayList<>(ranges.size());
+        for(final long[] range : ranges) {
+            if(range[2 * PARTS] != 0L || compareParts(range, 0, range, PARTS) < 0) sorted.add(range);
+        }
+        sorted.sort((left, right) -> compareParts(left, 0, right, 0));
+        final List<long[]> result = new ArrayList<>(sorted.size());
+        for(final long[] range : sorted) {
+            final long[] previous = result.isEmpty() ? null : result.get(result.size() - 1);
+            if(previous != null && (previous[2 * PARTS] != 0L || compareParts(range, 0, previous, PARTS) <= 0)) {
+                if(range[2 * PARTS] != 0L) previous[2 * PARTS] = 1L;
+                else if(previous[2 * PARTS] == 0L && compareParts(range, PARTS, previous, PARTS) > 0)
+                    System.arraycopy(range, PARTS, previous, PARTS, PARTS);
+            }
+            else result.add(range.clone());
+        }
+        return result;
+    }
+
+    private static int compareParts(final long[] left, final int leftOffset, final long[] right, final int rightOffset) {
+        for(int i = 0; i < PARTS; i++) {
+            final int result = Long.compare(left[leftOffset + i], right[rightOffset + i]);
+            if(result != 0) return result;
+        }
+        return 0;
+    }
+
+    /**
+     * Compares the parts at the offset to the version, the build zero for none, same as the versions compare.
+     */
+    private static int compare(final long[] parts, final int offset, final SemanticVersion version) {
+        int result = Long.compare(parts[offset], version.getMajor());
+        if(result == 0) result = Long.compare(parts[offset + 1], version.getMinor());
+        if(result == 0) result = Long.compare(parts[offset + 2], version.getUpdate());
+        return result != 0 ? result : Long.compare(parts[offset + 3], version.getBuildOrZero());
+    }
+
+    /**
+     * The least packed key of the version not lower than the parts at the offset: the parts that do not fit carry
+     * over into the more significant ones, like the digits; the {@link SemanticVersion#NOT_PACKABLE} if there is no
+     * such key.
+     */
+    private static long packCeiling(final long[] range, final int offset) {
+        final long[] parts = new long[PARTS];
+        System.arraycopy(range, offset, parts, 0, PARTS);
+        for(int i = 0; i < PARTS; i++) {
+            if(parts[i] <= PACKED_MAX[i]) continue;
+            // past the max here: zero this and the rest, carry into the previous one, then check from there again
+            for(int j = i; j < PARTS; j++) parts[j] = 0L;
+            if(i == 0) return NOT_PACKABLE;
+            parts[i - 1]++;
+            i -= 2;
+        }
+        return SemanticVersion.pack(parts[0], parts[1], parts[2], parts[3]);
+    }
+}
@@ -0,0 +1,66 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.CompactIntAndString;
+import org.ebay.datameta.util.jdk.IntAndString;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compact IntAndString must order, equal and hash the same as the IntAndString.
+ * @author Michael Bergens
+ */
+public class CompactIntAndStringTest {
+
+    /**
+     * Few numbers and short texts over the chars from every encoding case, so that the ties and the common prefixes
+     * are plenty.
+     */
+    private static IntAndString random(final Random random) {
+        if(random.nextInt(20) == 0) return new IntAndString(random.nextInt(3), null);
+        final char[] alphabet = {'a', 'b', '\0', 'é', 'ÿ', 'Ā', '中', '', '￿'};
+        final StringBuilder text = new StringBuilder();
+        final int length = random.nextInt(7);
+        for(int i = 0; i < length; i++) {
+            if(random.nextInt(10) == 0) text.appendCodePoint(0x1F600 + random.nextInt(3));
+            else text.append(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return new IntAndString(random.nextInt(3), text.toString());
+    }
+
+    @Test public void testSameAsIntAndString() {
+        final Random random = new Random(5);
+        for(int i = 0; i < 200_000; i++) {
+            final IntAndString left = random(random), right = random(random);
+            final CompactIntAndString compactLeft = CompactIntAndString.of(left), compactRight = CompactIntAndString.of(right);
+            assertEquals(left + " vs " + right, Integer.signum(left.compareTo(right)),
+                Integer.signum(compactLeft.compareTo(compactRight)));
+            assertEquals(left.equals(right), compactLeft.equals(compactRight));
+            assertEquals(left.hashCode(), compactLeft.hashCode());
+            assertEquals(left, compactLeft.toIntAndString());
+        }
+    }
+
+    @Test public void testEncodings() {
+        final CompactIntAndString latin = new CompactIntAndString(1, "café");
+        assertTrue(latin.isLatin1());
+        assertEquals("café", latin.getText());
+        final CompactIntAndString utf = new CompactIntAndString(1, "中😀");
+        assertFalse(utf.isLatin1());
+        assertEquals("中😀", utf.getText());
+        final CompactIntAndString nothing = new CompactIntAndString(1, null);
+        assertNull(nothing.getText());
+        assertTrue(nothing.compareTo(latin) < 0);
+        assertTrue(latin.compareTo(null) > 0);
+        assertEquals("{1,\"null\"}", nothing.toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testUnpairedSurrogate() {
+        new CompactIntAndString(0, "a\ud800b中");
+    }
+}
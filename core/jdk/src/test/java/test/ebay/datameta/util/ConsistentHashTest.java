@@ -0,0 +1,92 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.HashRing;
+import org.ebay.datameta.util.jdk.MathUtil;
+import org.ebay.datameta.util.jdk.RendezvousHash;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Consistent hashing: balanced, and only the necessary keys move when the bucket count changes.
+ * @author Michael Bergens
+ */
+public class ConsistentHashTest {
+    private static final Logger L = LoggerFactory.getLogger(ConsistentHashTest.class);
+
+    private static final int KEYS = 100_000;
+
+    /**
+     * Checks the balance among {@code n} buckets, and that going to {@code n+1} buckets only moves the keys to the
+     * new bucket, about the fair share of them.
+     * @param mapper key and buckets to the bucket.
+     * @param tolerance allowed deviation of a bucket's load from the fair share, as a fraction.
+     */
+    private static void verify(final String name, final IntBinaryOperator mapper, final int n, final double tolerance) {
+        final int[] load = new int[n];
+        int moved = 0;
+        for(int key = 0; key < KEYS; key++) {
+            final int before = mapper.applyAsInt(key, n);
+            load[before]++;
+            final int after = mapper.applyAsInt(key, n + 1);
+            if(after != before) {
+                assertEquals("Key " + key + " moved between the old buckets", n, after);
+                moved++;
+            }
+        }
+        final double fair = (double) KEYS / n;
+        for(int bucket = 0; bucket < n; bucket++)
+            assertTrue(name + " bucket " + bucket + " load " + load[bucket], Math.abs(load[bucket] - fair) / fair < tolerance);
+        final double movedShare = (double) moved / KEYS;
+        L.info("{} with {} buckets: moved {} going to {}", name, n, movedShare, n + 1);
+        assertTrue(name + " moved " + movedShare, Math.abs(movedShare - 1.0 / (n + 1)) < tolerance / (n + 1));
+    }
+
+    @Test public void testJump() {
+        for(final int n : new int[] {1, 2, 7, 10, 100}) verify("jump", (k, b) -> MathUtil.jumpConsistentHash(k, b), n, 0.1);
+        final long[] keys = {0L, 1L, -1L, Long.MAX_VALUE, 42L};
+        final int[] batch = new int[keys.length];
+        MathUtil.jumpConsistentHash(keys, 0, keys.length, 1000, batch);
+        for(int i = 0; i < keys.length; i++) assertEquals(MathUtil.jumpConsistentHash(keys[i], 1000), batch[i]);
+    }
+
+    @Test public void testRing() {
+        final HashRing ring = new HashRing(1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1);
+        for(final int n : new int[] {2, 5, 10}) verify("ring", ring::bucketFor, n, 0.35);
+        // weight 3 takes about 3 shares
+        final HashRing weighted = new HashRing(1, 3, 1);
+        final int[] load = new int[3];
+        for(int key = 0; key < KEYS; key++) load[weighted.bucketFor(key)]++;
+        L.info("{}: {} {} {}", weighted, load[0], load[1], load[2]);
+        assertTrue(Math.abs(load[1] / (double) KEYS - 0.6) < 0.06);
+        // zero weight takes nothing, the others do not notice it
+        final HashRing withDrained = new HashRing(1, 3, 0);
+        for(int key = 0; key < KEYS; key++) assertEquals(weighted.bucketFor(key, 2), withDrained.bucketFor(key));
+    }
+
+    @Test public void testRendezvous() {
+        final double[] equal = new double[11];
+        Arrays.fill(equal, 1.0);
+        final RendezvousHash hash = new RendezvousHash(equal);
+        for(final int n : new int[] {1, 2, 5, 10}) verify("rendezvous", hash::bucketFor, n, 0.1);
+        final RendezvousHash weighted = new RendezvousHash(1.0, 3.0, 1.0);
+        final long[] keys = new long[KEYS];
+        for(int i = 0; i < KEYS; i++) keys[i] = i;
+        final int[] buckets = new int[KEYS];
+        weighted.bucketsFor(keys, 0, KEYS, 3, buckets);
+        final int[] load = new int[3];
+        for(final int bucket : buckets) load[bucket]++;
+        L.info("{}: {} {} {}", weighted, load[0], load[1], load[2]);
+        assertTrue(Math.abs(load[1] / (double) KEYS - 0.6) < 0.02);
+        final int[] single = new int[KEYS];
+        for(int i = 0; i < KEYS; i++) single[i] = weighted.bucketFor(keys[i]);
+        assertArrayEquals(single, buckets);
+    }
+}
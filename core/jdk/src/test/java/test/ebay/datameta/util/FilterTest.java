@@ -0,0 +1,72 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.BloomFilter;
+import org.ebay.datameta.util.jdk.CuckooFilter;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Membership filters: no false negatives, and the false positive rate near the requested.
+ * @author Michael Bergens
+ */
+public class FilterTest {
+    private static final Logger L = LoggerFactory.getLogger(FilterTest.class);
+
+    private static final int SIZE = 100_000;
+    private static final int PROBES = 200_000;
+
+    private static String id(final int i) { return "ID-" + i; }
+
+    @Test public void testBloom() {
+        final BloomFilter filter = BloomFilter.create(SIZE, 0.01);
+        for(int i = 0; i < SIZE; i++) filter.put(id(i));
+        for(int i = 0; i < SIZE; i++) assertTrue(filter.mightContain(id(i)));
+        int falsePositives = 0;
+        for(int i = SIZE; i < SIZE + PROBES; i++) if(filter.mightContain(id(i))) falsePositives++;
+        final double fpp = (double) falsePositives / PROBES;
+        L.info("{}: measured fpp {}, estimated {}", filter, fpp, filter.getExpectedFpp());
+        assertTrue("fpp " + fpp, fpp < 0.015);
+
+        final BloomFilter other = BloomFilter.create(SIZE, 0.01);
+        other.put(42L);
+        assertTrue(filter.putAll(other).mightContain(42L));
+    }
+
+    @Test public void testCuckoo() {
+        final CuckooFilter filter = CuckooFilter.create(SIZE, 0.001);
+        for(int i = 0; i < SIZE; i++) assertTrue(filter.put(id(i)));
+        assertEquals(SIZE, filter.getCount());
+        for(int i = 0; i < SIZE; i++) assertTrue(filter.mightContain(id(i)));
+        int falsePositives = 0;
+        for(int i = SIZE; i < SIZE + PROBES; i++) if(filter.mightContain(id(i))) falsePositives++;
+        final double fpp = (double) falsePositives / PROBES;
+        L.info("{}: measured fpp {}", filter, fpp);
+        assertTrue("fpp " + fpp, fpp < 0.0015);
+
+        for(int i = 0; i < SIZE; i += 2) assertTrue(filter.remove(id(i)));
+        assertEquals(SIZE / 2, filter.getCount());
+        for(int i = 1; i < SIZE; i += 2) assertTrue(filter.mightContain(id(i)));
+        int stillThere = 0;
+        for(int i = 0; i < SIZE; i += 2) if(filter.mightContain(id(i))) stillThere++;
+        assertTrue("removed but found: " + stillThere, stillThere < SIZE / 200);
+    }
+
+    @Test public void testCuckooFillsUp() {
+        final CuckooFilter filter = CuckooFilter.create(1000, 0.01);
+        int added = 0;
+        while(filter.put(id(added))) added++;
+        L.info("{}: took {} of the capacity {}", filter, added, filter.getCapacity());
+        assertTrue(filter.isFull());
+        // nothing added is lost, including the fingerprint that was kicked out and did not fit back
+        for(int i = 0; i < added; i++) assertTrue(filter.mightContain(id(i)));
+        // removing makes room, the homeless fingerprint finds a place eventually
+        for(int i = 0; i < added / 2 && filter.isFull(); i++) assertTrue(filter.remove(id(i)));
+        assertFalse(filter.isFull());
+        for(int i = added / 2; i < added; i++) assertTrue(filter.mightContain(id(i)));
+    }
+}
@@ -0,0 +1,95 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.HashUtil;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Verifies the {@link HashUtil} against the reference values and the consistency across the input types.
+ * @author Michael Bergens
+ */
+public class HashUtilTest {
+
+    private static final byte[] FOX = "The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.US_ASCII);
+
+    @Test public void testReferenceValues() {
+        assertEquals(0xEF46DB3751D8E999L, HashUtil.xxHash64(new byte[0], 0, 0, 0L));
+        assertEquals(0x0B242D361FDA71BCL, HashUtil.xxHash64(FOX, 0, FOX.length, 0L));
+        assertEquals(0xAA9F288A8BAA3D3FL, HashUtil.xxHash64(FOX, 0, FOX.length, 42L));
+        assertEquals(0xCF850BA9DDD12BB3L, HashUtil.wyHash(FOX, 0, FOX.length, 0L));
+        final byte[] abc = "abc".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(0x1DBC21958E02C867L, HashUtil.wyHash(abc, 0, abc.length, 42L));
+
+        final long[] out = new long[2];
+        assertEquals(0xE34BBC7BBC071B6CL, HashUtil.murmur3x64_128(FOX, 0, FOX.length, 0, out));
+        assertEquals(0xE34BBC7BBC071B6CL, out[0]);
+        assertEquals(0x7A433CA9C49A9347L, out[1]);
+    }
+
+    @Test public void testInputTypesAgree() {
+        final Random random = new Random(11L);
+        final long[] arrayOut = new long[2], bufferOut = new long[2];
+        for(int len = 0; len < 300; len++) {
+            final byte[] framed = new byte[len + 3];
+            random.nextBytes(framed);
+            final long seed = random.nextLong();
+            final ByteBuffer direct = ByteBuffer.allocateDirect(framed.length).order(
+                (len & 1) == 0 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN);
+            direct.put(framed).flip();
+            assertEquals(HashUtil.xxHash64(framed, 1, len, seed), HashUtil.xxHash64(direct, 1, len, seed));
+            assertEquals(HashUtil.wyHash(framed, 1, len, seed), HashUtil.wyHash(direct, 1, len, seed));
+            HashUtil.murmur3x64_128(framed, 1, len, (int) seed, arrayOut);
+            HashUtil.murmur3x64_128(direct, 1, len, (int) seed, bufferOut);
+            assertEquals(arrayOut[0], bufferOut[0]);
+            assertEquals(arrayOut[1], bufferOut[1]);
+
+            final StringBuilder chars = new StringBuilder();
+            for(int i = 0; i < len; i++) chars.append((char) random.nextInt(0xD800));
+            final byte[] utf16le = chars.toString().getBytes(StandardCharsets.UTF_16LE);
+            assertEquals(HashUtil.xxHash64(utf16le, 0, utf16le.length, seed), HashUtil.xxHash64(chars, seed));
+            assertEquals(HashUtil.wyHash(utf16le, 0, utf16le.length, seed), HashUtil.wyHash(chars, seed));
+            assertEquals(HashUtil.murmur3x64_128(utf16le, 0, utf16le.length, 7, null),
+                HashUtil.murmur3x64_128(chars, 7, null));
+        }
+    }
+
+    /**
+     * The heap slice hashes its own bytes and stops at its limit, same as the direct buffer.
+     */
+    @Test public void testSlice() {
+        final byte[] bytes = new byte[64];
+        new Random(13L).nextBytes(bytes);
+        final ByteBuffer slice = ((ByteBuffer) ByteBuffer.wrap(bytes).position(8)).slice();
+        slice.limit(32);
+        assertEquals(HashUtil.xxHash64(bytes, 10, 20, 5L), HashUtil.xxHash64(slice, 2, 20, 5L));
+        assertEquals(HashUtil.wyHash(bytes, 8, 32, 5L), HashUtil.wyHash(slice, 5L));
+        assertEquals(HashUtil.murmur3x64_128(bytes, 8, 32, 5, null), HashUtil.murmur3x64_128(slice, 5, null));
+        for(int which = 0; which < 3; which++) {
+            try {
+                switch(which) {
+                    case 0: HashUtil.xxHash64(slice, 16, 20, 5L); break;
+                    case 1: HashUtil.wyHash(slice, 16, 20, 5L); break;
+                    default: HashUtil.murmur3x64_128(slice, 16, 20, 5, null);
+                }
+                fail("Read past the limit, hash " + which);
+            }
+            catch(IndexOutOfBoundsException expected) {
+                assertEquals(32, slice.limit());
+            }
+        }
+    }
+
+    @Test public void testLongValue() {
+        final byte[] bytes = new byte[Long.BYTES];
+        final long value = 0x0123456789ABCDEFL;
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).putLong(value);
+        assertEquals(HashUtil.xxHash64(bytes, 0, bytes.length, 3L), HashUtil.xxHash64(value, 3L));
+    }
+}
@@ -0,0 +1,121 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.HashedWheelTimer;
+import org.ebay.datameta.util.jdk.OpExecutor;
+import org.ebay.datameta.util.jdk.OpResult;
+import org.ebay.datameta.util.jdk.OpState;
+import org.ebay.datameta.util.jdk.OpTracker;
+import org.ebay.datameta.util.jdk.StacklessException;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Timing wheel: never fires early, fires everything not cancelled, over many rounds; the operation timeouts racing
+ * the operations.
+ * @author Michael Bergens
+ */
+public class HashedWheelTimerTest {
+    private static final Logger L = LoggerFactory.getLogger(HashedWheelTimerTest.class);
+
+    @Test public void testScheduleAndCancel() throws Exception {
+        final HashedWheelTimer timer = new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 16, null);
+        final Random random = new Random(41);
+        final int count = 20_000;
+        final AtomicInteger fired = new AtomicInteger(), early = new AtomicInteger();
+        final AtomicLong maxLate = new AtomicLong();
+        final List<HashedWheelTimer.Timeout> toCancel = new ArrayList<>();
+        final CountDownLatch done = new CountDownLatch(count / 2);
+        for(int i = 0; i < count; i++) {
+            final long delayNanos = TimeUnit.MILLISECONDS.toNanos(50 + random.nextInt(200));
+            final long deadline = System.nanoTime() + delayNanos;
+            final boolean cancel = i % 2 == 1;
+            final HashedWheelTimer.Timeout timeout = timer.schedule(() -> {
+                final long late = System.nanoTime() - deadline;
+                if(late < 0L) early.incrementAndGet();
+                maxLate.accumulateAndGet(late, Math::max);
+                fired.incrementAndGet();
+                if(!cancel) done.countDown();
+            }, delayNanos, TimeUnit.NANOSECONDS);
+            if(cancel) {
+                assertTrue(timeout.cancel());
+                toCancel.add(timeout);
+            }
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        // the cancelled ones are counted off by the worker on its tick, not right away
+        final long pendingDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while(timer.getPendingCount() > 0L && System.nanoTime() < pendingDeadline) Thread.sleep(1L);
+        L.info("Fired {}, max late {} ms, {}", fired.get(), TimeUnit.NANOSECONDS.toMillis(maxLate.get()), timer);
+        assertEquals(0, early.get());
+        assertEquals(count / 2, fired.get());
+        assertEquals(0L, timer.getPendingCount());
+        assertTrue(toCancel.get(0).isCancelled());
+        assertFalse(toCancel.get(0).cancel());
+        timer.close();
+        try {
+            timer.schedule(() -> {}, 1, TimeUnit.MILLISECONDS);
+            assertFalse("Scheduled on the closed timer", true);
+        }
+        catch(IllegalStateException expected) {
+            L.debug("Expected: {}", expected.toString());
+        }
+    }
+
+    /**
+     * The slow operations time out, the fast ones do not; each consumer gets exactly one result.
+     */
+    @Test public void testOperationTimeouts() throws Exception {
+        final HashedWheelTimer timer = new HashedWheelTimer(5, TimeUnit.MILLISECONDS, 64, null);
+        final Queue<OpResult<Integer>> results = new ConcurrentLinkedQueue<>();
+        final CountDownLatch release = new CountDownLatch(1);
+        final int count = 100;
+        final List<OpTracker<Integer>> trackers = new ArrayList<>();
+        try(final OpExecutor executor = new OpExecutor(count)) {
+            for(int i = 0; i < count; i++) {
+                final int number = i;
+                final OpTracker<Integer> tracker = executor.submit(() -> {
+                    if(number % 2 == 1) release.await();
+                    return number;
+                }, results::add);
+                timer.timeout(tracker, results::add, 50, TimeUnit.MILLISECONDS, number % 4 == 1 ? OpState.FAIL
+                    : OpState.ERROR);
+                trackers.add(tracker);
+            }
+            for(final OpTracker<Integer> tracker : trackers) {
+                while(!tracker.isDone()) Thread.sleep(1L);
+            }
+            release.countDown();
+        }
+        timer.close();
+        assertEquals(count, results.size());
+        for(int i = 0; i < count; i++) {
+            final OpResult<Integer> result = trackers.get(i).getResult();
+            if(i % 2 == 0) {
+                assertEquals(OpState.OK, result.getState());
+            }
+            else if(i % 4 == 1) {
+                assertEquals(OpState.FAIL, result.getState());
+            }
+            else {
+                assertEquals(OpState.ERROR, result.getState());
+                assertTrue(result.getFailureCause() instanceof StacklessException);
+                assertEquals("Timed out after 50 milliseconds", result.getErrorMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.HashUtil;
+import org.ebay.datameta.util.jdk.Hasher;
+import org.ebay.datameta.util.jdk.IntAndString;
+import org.ebay.datameta.util.jdk.MathUtil;
+import org.ebay.datameta.util.jdk.TwoInts;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * @author Michael Bergens
+ */
+public class HasherTest {
+
+    @Test public void testStreamingMatchesOneShot() {
+        final Random random = new Random(5L);
+        final Hasher xx = Hasher.xxHash64(99L), fnv = Hasher.fnv64();
+        for(int len = 0; len < 200; len++) {
+            final byte[] bytes = new byte[len];
+            random.nextBytes(bytes);
+            xx.reset();
+            fnv.reset();
+            // feed in random chunks, mixing the bulk and the single byte paths
+            for(int p = 0; p < len; ) {
+                final int chunk = Math.min(len - p, random.nextInt(40));
+                if(chunk == 1) {
+                    xx.putByte(bytes[p]);
+                    fnv.putByte(bytes[p]);
+                }
+                else {
+                    xx.putBytes(bytes, p, chunk);
+                    fnv.putBytes(bytes, p, chunk);
+                }
+                p += chunk;
+            }
+            assertEquals(HashUtil.xxHash64(bytes, 0, len, 99L), xx.hash());
+            assertEquals(MathUtil.fnvHashXor64(bytes, 0, len), fnv.hash());
+        }
+    }
+
+    @Test public void testFields() {
+        final Hasher hasher = Hasher.xxHash64(0L);
+        assertEquals(HashUtil.xxHash64("some text", 0L), hasher.putString("some text").hash());
+
+        final ByteBuffer image = ByteBuffer.allocate(14).order(ByteOrder.LITTLE_ENDIAN);
+        image.putInt(7).putLong(-3L).putChar('z');
+        assertEquals(HashUtil.xxHash64(image.array(), 0, 14, 0L), hasher.reset().putInt(7).putLong(-3L).putChar('z').hash());
+
+        final TwoInts pair = new TwoInts(1, 2);
+        final long pairHash = hasher.reset().putInt(pair.first).putInt(pair.last).hash();
+        assertEquals(pairHash, hasher.reset().putInt(1).putInt(2).hash());
+        assertNotEquals(pairHash, hasher.reset().putInt(2).putInt(1).hash());
+
+        final IntAndString a = new IntAndString(3, "ab"), b = new IntAndString(3, "abc");
+        assertNotEquals(hasher.reset().putInt(a.number).putInt(a.text.length()).putString(a.text).hash(),
+            hasher.reset().putInt(b.number).putInt(b.text.length()).putString(b.text).hash());
+    }
+}
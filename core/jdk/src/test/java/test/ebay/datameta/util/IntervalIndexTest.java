@@ -0,0 +1,98 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.IntervalIndex;
+import org.ebay.datameta.util.jdk.TwoInts;
+import org.ebay.datameta.util.jdk.TwoIntsArray;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Interval index queries against the brute force scan.
+ * @author Michael Bergens
+ */
+public class IntervalIndexTest {
+
+    private static List<TwoInts> randomRanges(final Random random, final int count, final int range, final int maxLength) {
+        final List<TwoInts> result = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) {
+            final int start = random.nextInt(range) - range / 2;
+            result.add(new TwoInts(start, start + random.nextInt(maxLength)));
+        }
+        return result;
+    }
+
+    private static BitSet expected(final List<TwoInts> ranges, final int from, final int to) {
+        final BitSet result = new BitSet();
+        for(int id = 0; id < ranges.size(); id++) {
+            if(ranges.get(id).first <= to && ranges.get(id).last >= from) result.set(id);
+        }
+        return result;
+    }
+
+    @Test public void testAgainstScan() {
+        final Random random = new Random(7);
+        for(final int count : new int[] {0, 1, 17, 1000}) {
+            final List<TwoInts> ranges = randomRanges(random, count, 2000, 300);
+            final IntervalIndex index = IntervalIndex.of(ranges);
+            assertEquals(count, index.size());
+            for(int probe = 0; probe < 500; probe++) {
+                final int point = random.nextInt(2600) - 1300;
+                final BitSet expected = expected(ranges, point, point);
+                final BitSet found = new BitSet();
+                assertEquals(expected.cardinality(), index.stab(point, found::set));
+                assertEquals(expected, found);
+                assertEquals(expected.cardinality(), index.countStab(point));
+                assertEquals(!expected.isEmpty(), index.anyContains(point));
+
+                final int to = point + random.nextInt(50);
+                final BitSet overlapping = new BitSet();
+                assertEquals(expected(ranges, point, to).cardinality(), index.overlapping(point, to, overlapping::set));
+                assertEquals(expected(ranges, point, to), overlapping);
+            }
+        }
+    }
+
+    @Test public void testBatch() {
+        final Random random = new Random(11);
+        final List<TwoInts> ranges = randomRanges(random, 5000, 100_000, 2000);
+        final TwoIntsArray array = new TwoIntsArray();
+        for(final TwoInts range : ranges) array.add(range);
+        final IntervalIndex index = IntervalIndex.of(array);
+        final int[] points = new int[1000];
+        for(int i = 0; i < points.length; i++) points[i] = random.nextInt(110_000) - 55_000;
+        Arrays.sort(points);
+        final BitSet[] found = new BitSet[points.length];
+        for(int i = 0; i < found.length; i++) found[i] = new BitSet();
+        index.stabAll(points, 0, points.length, (probe, id) -> found[probe].set(id));
+        for(int i = 0; i < points.length; i++) assertEquals(expected(ranges, points[i], points[i]), found[i]);
+    }
+
+    @Test public void testEdges() {
+        final List<TwoInts> ranges = Arrays.asList(new TwoInts(Integer.MIN_VALUE, Integer.MAX_VALUE),
+            new TwoInts(5, 5), new TwoInts(Integer.MAX_VALUE, Integer.MAX_VALUE), new TwoInts(5, 9));
+        final IntervalIndex index = IntervalIndex.of(ranges);
+        assertEquals(3, index.countStab(5));
+        assertEquals(2, index.countStab(Integer.MAX_VALUE));
+        assertEquals(1, index.countStab(Integer.MIN_VALUE));
+        assertEquals(2, index.countStab(9));
+        assertFalse(IntervalIndex.of(new ArrayList<>()).anyContains(0));
+        assertTrue(index.anyContains(10));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testInverted() {
+        IntervalIndex.of(Arrays.asList(new TwoInts(1, 2), new TwoInts(3, 2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testUnsortedBatch() {
+        IntervalIndex.of(Arrays.asList(new TwoInts(1, 2))).stabAll(new int[] {2, 1}, 0, 2, (probe, id) -> {});
+    }
+}
@@ -0,0 +1,151 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.LatencyHistogram;
+import org.ebay.datameta.util.jdk.OpLatencyRecorder;
+import org.ebay.datameta.util.jdk.OpResult;
+import org.ebay.datameta.util.jdk.OpResultConsumer;
+import org.ebay.datameta.util.jdk.OpState;
+import org.ebay.datameta.util.jdk.OpTracker;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Latency histograms: the buckets, the percentiles against the sorted values, the merge, the concurrent recording
+ * and the intervals.
+ * @author Michael Bergens
+ */
+public class LatencyHistogramTest {
+    private static final Logger L = LoggerFactory.getLogger(LatencyHistogramTest.class);
+
+    @Test public void testBuckets() {
+        for(final int bits : new int[] {LatencyHistogram.MIN_PRECISION_BITS, 7, LatencyHistogram.MAX_PRECISION_BITS}) {
+            final LatencyHistogram histogram = new LatencyHistogram(bits);
+            final int buckets = histogram.getBucketCount();
+            assertEquals(0L, histogram.getBucketLowValue(0));
+            assertEquals(Long.MAX_VALUE, histogram.getBucketHighValue(buckets - 1));
+            assertEquals(buckets - 1, LatencyHistogram.bucketOf(Long.MAX_VALUE, bits));
+            for(int bucket = 1; bucket < buckets; bucket++) {
+                final long low = histogram.getBucketLowValue(bucket);
+                assertEquals(histogram.getBucketHighValue(bucket - 1) + 1, low);
+                assertEquals(bucket, LatencyHistogram.bucketOf(low, bits));
+                assertEquals(bucket, LatencyHistogram.bucketOf(histogram.getBucketHighValue(bucket), bits));
+                // the bucket width within the precision of its values
+                assertTrue(histogram.getBucketHighValue(bucket) - low < Math.max(1L, low >> (bits - 1)));
+            }
+        }
+        assertEquals(0, LatencyHistogram.bucketOf(-5L, 7));
+        try {
+            new LatencyHistogram(1);
+            fail("Took the precision of 1 bit");
+        }
+        catch(IllegalArgumentException expected) {
+            L.debug("Expected: {}", expected.toString());
+        }
+    }
+
+    @Test public void testPercentilesAndMerge() {
+        final Random random = new Random(31);
+        final long[] values = new long[200_000];
+        final LatencyHistogram first = new LatencyHistogram(), second = new LatencyHistogram();
+        for(int i = 0; i < values.length; i++) {
+            values[i] = (long) (1_000_000 * Math.exp(1.5 * random.nextGaussian()));
+            (i % 2 == 0 ? first : second).record(values[i]);
+        }
+        final LatencyHistogram merged = first.getCopyOf();
+        merged.add(second);
+        Arrays.sort(values);
+        L.info("Merged: {}", merged);
+        assertEquals(values.length, merged.getTotalCount());
+        assertEquals(values[values.length - 1], merged.getMax());
+        for(final double percentile : new double[] {0.0, 50.0, 90.0, 99.0, 99.9, 100.0}) {
+            final long exact = values[Math.max(0, (int) Math.ceil(percentile / 100.0 * values.length) - 1)];
+            final long reported = merged.getValueAtPercentile(percentile);
+            assertTrue(percentile + ": " + reported + " vs " + exact, reported >= exact && reported - exact <= exact / 64);
+        }
+        assertEquals(merged.getValueAtPercentile(99.9), merged.getP999());
+        assertEquals(LatencyHistogram.of(merged.getPrecisionBits(), countsOf(merged), merged.getMax(), merged.getSum()),
+            merged);
+        try {
+            merged.add(new LatencyHistogram(8));
+            fail("Merged the different precision");
+        }
+        catch(IllegalArgumentException expected) {
+            assertEquals(values.length, merged.getTotalCount());
+        }
+        merged.reset();
+        assertEquals(0L, merged.getP99());
+    }
+
+    @Test public void testRecorder() throws Exception {
+        final OpLatencyRecorder recorder = new OpLatencyRecorder(7, 4);
+        final int threads = 4, each = 25_000;
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                results.add(pool.submit(() -> {
+                    for(int i = 1; i <= each; i++) recorder.record(i % 10 == 0 ? OpState.ERROR : OpState.OK, i * 1000L);
+                }));
+            }
+            final Map<OpState, LatencyHistogram> early = recorder.intervalSnapshot();
+            for(final Future<?> result : results) result.get();
+            final Map<OpState, LatencyHistogram> late = recorder.intervalSnapshot();
+            final LatencyHistogram ok = early.get(OpState.OK);
+            ok.add(late.get(OpState.OK));
+            assertEquals(recorder.snapshot(OpState.OK), ok);
+            assertEquals(threads * (each - each / 10), ok.getTotalCount());
+            assertEquals(threads * each / 10, recorder.snapshot(OpState.ERROR).getTotalCount());
+            assertEquals(0L, recorder.snapshot(OpState.FAIL).getTotalCount());
+            assertEquals(each * 1000L - 1000L, ok.getMax());
+            assertEquals(0L, recorder.intervalSnapshot().get(OpState.OK).getTotalCount());
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        final AtomicInteger consumed = new AtomicInteger();
+        final OpResultConsumer<String> timed = recorder.begin(result -> consumed.incrementAndGet());
+        Thread.sleep(2L);
+        timed.consume(OpResult.getFailInstance(null, "no"));
+        assertEquals(1, consumed.get());
+        final LatencyHistogram failed = recorder.snapshot(OpState.FAIL);
+        assertEquals(1L, failed.getTotalCount());
+        assertTrue(failed.getMax() >= 2_000_000L);
+
+        final OpTracker<String> tracker = new OpTracker<>();
+        assertFalse(recorder.record(tracker));
+        tracker.start();
+        tracker.error("timed out");
+        assertTrue(recorder.record(tracker));
+        assertEquals(threads * each / 10 + 1, recorder.snapshot(OpState.ERROR).getTotalCount());
+        try {
+            recorder.record(OpState.RUNNING, 1L);
+            fail("Recorded a non-terminal state");
+        }
+        catch(IllegalArgumentException expected) {
+            L.debug("Expected: {}", expected.toString());
+        }
+    }
+
+    private static long[] countsOf(final LatencyHistogram histogram) {
+        final long[] counts = new long[histogram.getBucketCount()];
+        for(int bucket = 0; bucket < counts.length; bucket++) counts[bucket] = histogram.getCountAtBucket(bucket);
+        return counts;
+    }
+}
@@ -0,0 +1,147 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.IntAndString;
+import org.ebay.datameta.util.jdk.OffHeapIntAndStringStore;
+import org.ebay.datameta.util.jdk.OffHeapTwoIntsStore;
+import org.ebay.datameta.util.jdk.TwoInts;
+import org.ebay.datameta.util.jdk.Utf8;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Off-heap stores, direct and mapped: append, read back, sort, reopen; and the UTF-8 order matching the String's.
+ * @author Michael Bergens
+ */
+public class OffHeapStoreTest {
+
+    @Rule public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Random text with all kinds of chars: ASCII, 2 and 3 byte ones, the high BMP ones that sort differently in
+     * UTF-16, and the supplementary.
+     */
+    private static String randomText(final Random random) {
+        final StringBuilder result = new StringBuilder();
+        final int length = random.nextInt(6);
+        for(int i = 0; i < length; i++) {
+            switch(random.nextInt(5)) {
+                case 0: result.append((char) ('a' + random.nextInt(3))); break;
+                case 1: result.append((char) (0x400 + random.nextInt(2))); break;
+                case 2: result.append((char) (0x4E00 + random.nextInt(2))); break;
+                case 3: result.append((char) (0xFF00 + random.nextInt(2))); break;
+                default: result.appendCodePoint(0x1F600 + random.nextInt(2));
+            }
+        }
+        return result.toString();
+    }
+
+    @Test public void testUtf8() {
+        final Random random = new Random(7);
+        for(int i = 0; i < 50_000; i++) {
+            final String left = randomText(random), right = randomText(random);
+            final byte[] l = left.getBytes(StandardCharsets.UTF_8), r = right.getBytes(StandardCharsets.UTF_8);
+            final byte[] encoded = new byte[Utf8.encodedLength(left)];
+            assertEquals(encoded.length, Utf8.encode(left, encoded, 0));
+            assertArrayEquals(l, encoded);
+            assertEquals(left + " vs " + right, Integer.signum(left.compareTo(right)),
+                Integer.signum(Utf8.compare(l, 0, l.length, r, 0, r.length)));
+        }
+        final String unpaired = "a\uD800b\uDC00";
+        final byte[] encoded = new byte[Utf8.encodedLength(unpaired)];
+        Utf8.encode(unpaired, encoded, 0);
+        assertArrayEquals(unpaired.getBytes(StandardCharsets.UTF_8), encoded);
+    }
+
+    private static void fillAndVerifyTwoInts(final OffHeapTwoIntsStore store, final TwoInts[] pairs) {
+        for(final TwoInts pair : pairs) store.append(pair);
+        assertEquals(pairs.length, store.size());
+        final TwoInts reused = new TwoInts();
+        for(int i = 0; i < pairs.length; i++) assertEquals(pairs[i], store.get(i, reused));
+        store.sort();
+        final TwoInts[] sorted = pairs.clone();
+        Arrays.sort(sorted);
+        final OffHeapTwoIntsStore.Cursor cursor = store.cursor();
+        for(final TwoInts expected : sorted) {
+            assertTrue(cursor.next());
+            assertEquals(expected.first, cursor.first());
+            assertEquals(expected.last, cursor.last());
+        }
+        assertFalse(cursor.next());
+        for(final TwoInts pair : pairs) assertTrue(store.binarySearch(pair.first, pair.last) >= 0);
+    }
+
+    @Test public void testTwoInts() throws Exception {
+        final Random random = new Random(8);
+        final TwoInts[] pairs = new TwoInts[20_000];
+        for(int i = 0; i < pairs.length; i++) pairs[i] = new TwoInts(random.nextInt(100) - 50, random.nextInt());
+        try(final OffHeapTwoIntsStore store = OffHeapTwoIntsStore.allocate(12)) { // small chunks to cross them
+            fillAndVerifyTwoInts(store, pairs);
+        }
+        final Path file = folder.getRoot().toPath().resolve("pairs.bin");
+        try(final OffHeapTwoIntsStore store = OffHeapTwoIntsStore.open(file, 12)) {
+            assertTrue(store.isMapped());
+            fillAndVerifyTwoInts(store, pairs);
+        }
+        try(final OffHeapTwoIntsStore reopened = OffHeapTwoIntsStore.open(file)) {
+            assertEquals(pairs.length, reopened.size());
+            final TwoInts min = Arrays.stream(pairs).min(TwoInts::compareTo).get();
+            assertEquals(min.first, reopened.getFirst(0));
+            assertEquals(min.last, reopened.getLast(0));
+            reopened.append(1, 2);
+        }
+        try(final OffHeapTwoIntsStore reopened = OffHeapTwoIntsStore.open(file)) {
+            assertEquals(pairs.length + 1, reopened.size());
+            assertEquals(2, reopened.getLast(pairs.length));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class) public void testClosed() throws Exception {
+        final OffHeapTwoIntsStore store = OffHeapTwoIntsStore.allocate();
+        store.append(1, 1);
+        store.close();
+        store.getFirst(0);
+    }
+
+    @Test public void testIntAndString() throws Exception {
+        final Random random = new Random(9);
+        final IntAndString[] entries = new IntAndString[5_000];
+        for(int i = 0; i < entries.length; i++)
+            entries[i] = new IntAndString(random.nextInt(5), random.nextInt(50) == 0 ? null : randomText(random));
+        final Path file = folder.getRoot().toPath().resolve("entries.bin");
+        for(final boolean mapped : new boolean[] {false, true}) {
+            try(final OffHeapIntAndStringStore store = mapped ? OffHeapIntAndStringStore.open(file, 12)
+                : OffHeapIntAndStringStore.allocate(12)) {
+                for(final IntAndString entry : entries) store.append(entry);
+                final IntAndString reused = new IntAndString();
+                for(int i = 0; i < entries.length; i++) assertEquals(entries[i], store.get(i, reused));
+                store.sort();
+                final IntAndString[] sorted = entries.clone();
+                Arrays.sort(sorted);
+                final OffHeapIntAndStringStore.Cursor cursor = store.cursor();
+                for(final IntAndString expected : sorted) {
+                    assertTrue(cursor.next());
+                    assertEquals(expected.number, cursor.number());
+                    assertEquals(expected.text, cursor.text());
+                }
+                assertFalse(cursor.next());
+            }
+        }
+        try(final OffHeapIntAndStringStore reopened = OffHeapIntAndStringStore.open(file)) {
+            assertEquals(entries.length, reopened.size());
+            assertEquals(0, reopened.getNumber(0));
+            assertNull(reopened.getText(0)); // with 5000 entries, some nulls sort first
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.OpExecutor;
+import org.ebay.datameta.util.jdk.OpResult;
+import org.ebay.datameta.util.jdk.OpState;
+import org.ebay.datameta.util.jdk.OpTracker;
+import org.ebay.datameta.util.jdk.StacklessException;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Operation executor: the concurrency limit, the outcomes, the rejections and the tracker winning over the operation.
+ * @author Michael Bergens
+ */
+public class OpExecutorTest {
+    private static final Logger L = LoggerFactory.getLogger(OpExecutorTest.class);
+
+    @Test public void testLimitAndOutcomes() throws Exception {
+        final int limit = 8, count = 2000;
+        final AtomicInteger running = new AtomicInteger(), maxRunning = new AtomicInteger();
+        final Map<OpState, AtomicLong> states = new ConcurrentHashMap<>();
+        final CountDownLatch done = new CountDownLatch(count);
+        try(final OpExecutor executor = new OpExecutor(limit)) {
+            L.info("Executor: {}", executor);
+            for(int i = 0; i < count; i++) {
+                final int number = i;
+                executor.submit(() -> {
+                    final int now = running.incrementAndGet();
+                    maxRunning.accumulateAndGet(now, Math::max);
+                    try {
+                        if(number % 10 == 0) throw new IOException("Failed " + number);
+                        Thread.sleep(0L, 50_000);
+                        return number;
+                    }
+                    finally {
+                        running.decrementAndGet();
+                    }
+                }, result -> {
+                    states.computeIfAbsent(result.getState(), s -> new AtomicLong()).incrementAndGet();
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+        }
+        assertTrue("Ran " + maxRunning.get() + " at once", maxRunning.get() <= limit);
+        assertEquals(count / 10, states.get(OpState.ERROR).get());
+        assertEquals(count - count / 10, states.get(OpState.OK).get());
+    }
+
+    @Test public void testResultAndRejections() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<OpResult<String>> results = new ArrayList<>();
+        final OpExecutor executor = new OpExecutor(1, 1, null);
+        final OpTracker<String> blocker = executor.submit(() -> {
+            release.await();
+            return "blocker";
+        }, results::add);
+        final OpTracker<String> queued = executor.submitResult(() -> OpResult.getFailInstance("v", "no good"),
+            results::add);
+        final OpTracker<String> rejected = executor.submit(() -> "over", results::add);
+        assertEquals(OpState.ERROR, rejected.getState());
+        assertTrue(rejected.getResult().getFailureCause() instanceof StacklessException);
+        assertEquals(1, results.size());
+        assertEquals(1, executor.getPendingCount());
+        assertFalse(blocker.isDone());
+
+        release.countDown();
+        executor.close();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals("blocker", blocker.getResult().getValue());
+        // was waiting when closed, or ran before that
+        assertTrue(queued.isDone());
+        assertTrue(queued.getState() == OpState.FAIL || queued.getState() == OpState.ERROR);
+        assertEquals(OpState.ERROR, executor.submit(() -> "late", r -> {}).getState());
+    }
+
+    /**
+     * The operation throwing an Error still completes and tells the consumer; the VirtualMachineError goes on up after
+     * that.
+     */
+    @Test public void testError() throws Exception {
+        final AtomicReference<Throwable> uncaught = new AtomicReference<>();
+        final ExecutorService pool = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setUncaughtExceptionHandler((t, e) -> uncaught.set(e));
+            return thread;
+        });
+        final Queue<OpResult<String>> results = new ConcurrentLinkedQueue<>();
+        final OpTracker<String> assertion, overflow;
+        try(final OpExecutor executor = new OpExecutor(pool, 1, OpExecutor.UNBOUNDED, null)) {
+            assertion = executor.submit(() -> { throw new AssertionError("broken"); }, results::add);
+            overflow = executor.submit(() -> { throw new StackOverflowError(); }, results::add);
+            for(final OpTracker<String> tracker : Arrays.asList(assertion, overflow)) {
+                for(int wait = 0; wait < 10_000 && !tracker.isDone(); wait++) Thread.sleep(1L);
+            }
+        }
+        assertEquals(OpState.ERROR, assertion.getState());
+        assertEquals("broken", assertion.getResult().getErrorMessage());
+        assertTrue(assertion.getResult().getFailureCause() instanceof AssertionError);
+        assertEquals(OpState.ERROR, overflow.getState());
+        assertEquals(StackOverflowError.class.getName(), overflow.getResult().getErrorMessage());
+        assertEquals(2, results.size());
+        assertTrue(pool.awaitTermination(10L, TimeUnit.SECONDS));
+        assertTrue(uncaught.get() instanceof StackOverflowError);
+    }
+
+    /**
+     * The operation completed from outside, like on the timeout, before it starts is not run; the consumer
+     * is not told by the executor.
+     */
+    @Test public void testCompletedBeforeRun() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        try(final OpExecutor executor = new OpExecutor(1)) {
+            executor.submit(() -> {
+                release.await();
+                return 1;
+            }, r -> {});
+            final OpTracker<Integer> waiting = executor.submit(calls::incrementAndGet, r -> {});
+            assertTrue(waiting.error("timed out"));
+            final CountDownLatch after = new CountDownLatch(1);
+            executor.submit(() -> { after.countDown(); return 3; }, r -> {});
+            release.countDown();
+            assertTrue(after.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(0, calls.get());
+    }
+}
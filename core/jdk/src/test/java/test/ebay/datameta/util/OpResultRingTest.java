@@ -0,0 +1,110 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.OpResult;
+import org.ebay.datameta.util.jdk.OpResultRing;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.ebay.datameta.util.jdk.OpResultRing.ProducerType.MULTI;
+import static org.ebay.datameta.util.jdk.OpResultRing.ProducerType.SINGLE;
+import static org.ebay.datameta.util.jdk.OpResultRing.WaitStrategy.BUSY_SPIN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Batched delivery through the ring: every result exactly once and in the order of each producer, the batch size,
+ * the latency flush, the full ring.
+ * @author Michael Bergens
+ */
+public class OpResultRingTest {
+    private static final Logger L = LoggerFactory.getLogger(OpResultRingTest.class);
+
+    /**
+     * Many producers, the results carry the producer in the high bits and its count in the low ones.
+     */
+    @Test public void testMultiProducer() throws Exception {
+        for(final OpResultRing.WaitStrategy strategy : OpResultRing.WaitStrategy.values()) {
+            final int producers = 4, each = 50_000, batchSize = 64;
+            // spinning producers starve the consumer without a core each
+            if(strategy == BUSY_SPIN && Runtime.getRuntime().availableProcessors() <= producers) continue;
+            final int[] lastSeen = new int[producers];
+            Arrays.fill(lastSeen, -1);
+            final AtomicInteger oversized = new AtomicInteger(), disorder = new AtomicInteger();
+            final OpResultRing<Long> ring = new OpResultRing<>(batch -> {
+                if(batch.size() > batchSize) oversized.incrementAndGet();
+                for(final OpResult<Long> result : batch) {
+                    final int producer = (int) (result.getValue() >>> 32), count = result.getValue().intValue();
+                    if(count != lastSeen[producer] + 1) disorder.incrementAndGet();
+                    lastSeen[producer] = count;
+                }
+            }, 256, batchSize, 1, TimeUnit.MILLISECONDS, MULTI, strategy, null);
+            final ExecutorService pool = Executors.newFixedThreadPool(producers);
+            try {
+                final List<Future<?>> results = new ArrayList<>();
+                for(int p = 0; p < producers; p++) {
+                    final long producer = p;
+                    results.add(pool.submit(() -> {
+                        for(int i = 0; i < each; i++) ring.consume(OpResult.getOkInstance(producer << 32 | i));
+                    }));
+                }
+                for(final Future<?> result : results) result.get();
+            }
+            finally {
+                pool.shutdown();
+            }
+            ring.close();
+            L.info("{}: {} batches for {} results", strategy, ring.getBatchCount(), ring.getDeliveredCount());
+            assertEquals(producers * (long) each, ring.getDeliveredCount());
+            assertEquals(0, oversized.get());
+            assertEquals(0, disorder.get());
+            for(final int last : lastSeen) assertEquals(each - 1, last);
+        }
+    }
+
+    @Test public void testLatencyAndFullRing() throws Exception {
+        final CountDownLatch delivered = new CountDownLatch(1);
+        final OpResultRing<String> lazy = new OpResultRing<>(batch -> delivered.countDown(), 1000, 5);
+        lazy.consume(OpResult.getOkInstance("alone"));
+        // far from the batch size, but flushed on the latency
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        lazy.close();
+        assertEquals(1L, lazy.getBatchCount());
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final OpResultRing<String> ring = new OpResultRing<>(batch -> {
+            try {
+                release.await();
+            }
+            catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, 4, 1, 0, TimeUnit.MILLISECONDS, SINGLE, BUSY_SPIN, null);
+        int accepted = 0;
+        // the consumer holds one, the ring holds 4 more, then it is full
+        while(accepted < 100 && ring.offer(OpResult.getOkInstance("x"))) accepted++;
+        assertTrue("Accepted " + accepted, accepted >= 4 && accepted <= 5);
+        release.countDown();
+        ring.consume(OpResult.getOkInstance("waited"));
+        ring.close();
+        assertEquals(accepted + 1, ring.getDeliveredCount());
+        try {
+            ring.consume(OpResult.getOkInstance("late"));
+            assertFalse("Took a result after close", true);
+        }
+        catch(IllegalStateException expected) {
+            assertEquals(accepted + 1, ring.getDeliveredCount());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.OpResult;
+import org.ebay.datameta.util.jdk.OpState;
+import org.ebay.datameta.util.jdk.OpTracker;
+import org.ebay.datameta.util.jdk.StacklessException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Shared results, the stackless error, the tracker's transitions and the race of the completions.
+ * @author Michael Bergens
+ */
+public class OpTrackerTest {
+
+    @Test public void testSharedResults() {
+        assertSame(OpResult.<String>getOkInstance(null), OpResult.<Integer>getOkInstance(null));
+        assertSame(OpResult.getInitInstance(), OpResult.getInitInstance(null));
+        assertNotSame(OpResult.getOkInstance("a"), OpResult.getOkInstance("a"));
+        assertEquals(OpState.RUNNING, OpResult.getRunningInstance().getState());
+
+        final OpResult<String> error = OpResult.getStacklessErrorInstance(null, "timed out");
+        assertEquals(OpState.ERROR, error.getState());
+        assertTrue(error.getFailureCause() instanceof StacklessException);
+        assertEquals("timed out", error.getFailureCause().getMessage());
+        assertEquals(0, error.getFailureCause().getStackTrace().length);
+    }
+
+    @Test public void testTransitions() {
+        final OpTracker<String> tracker = new OpTracker<>();
+        assertEquals(OpState.INIT, tracker.getState());
+        assertEquals(0L, tracker.getElapsedNanos());
+        assertTrue(tracker.start());
+        assertFalse(tracker.start());
+        assertEquals(OpState.RUNNING, tracker.getState());
+        assertTrue(tracker.getStartNanos() != 0L);
+        assertFalse(tracker.isDone());
+        assertTrue(tracker.succeed("done"));
+        assertFalse(tracker.fail("late"));
+        assertFalse(tracker.error("late"));
+        assertTrue(tracker.isDone());
+        assertEquals("done", tracker.getResult().getValue());
+        final long elapsed = tracker.getElapsedNanos();
+        assertTrue(elapsed >= 0L);
+        assertEquals(elapsed, tracker.getElapsedNanos());
+        assertFalse(tracker.start());
+
+        final OpTracker<String> noCause = new OpTracker<>();
+        assertTrue(noCause.error("no cause", null));
+        assertTrue(noCause.getResult().getFailureCause() instanceof StacklessException);
+
+        final OpTracker<String> rejected = new OpTracker<>();
+        assertTrue(rejected.fail("rejected"));
+        assertEquals(OpState.FAIL, rejected.getState());
+        assertFalse(rejected.start());
+        assertNull(rejected.getResult().getValue());
+
+        try {
+            rejected.complete(OpResult.getRunningInstance());
+            fail("Completed with a non-terminal state");
+        }
+        catch(IllegalArgumentException expected) {
+            assertEquals(OpState.FAIL, rejected.getState());
+        }
+    }
+
+    /**
+     * Many threads complete each tracker at once, exactly one of them wins.
+     */
+    @Test public void testRace() throws Exception {
+        final int threads = 4, trackers = 20_000;
+        final List<OpTracker<Integer>> all = new ArrayList<>(trackers);
+        for(int i = 0; i < trackers; i++) all.add(new OpTracker<>());
+        final AtomicInteger wins = new AtomicInteger();
+        final CountDownLatch go = new CountDownLatch(1);
+        final ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for(int t = 0; t < threads; t++) {
+                final int thread = t;
+                results.add(pool.submit(() -> {
+                    go.await();
+                    for(final OpTracker<Integer> tracker : all) {
+                        tracker.start();
+                        if(thread % 2 == 0 ? tracker.succeed(thread) : tracker.error("timeout")) wins.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            go.countDown();
+            for(final Future<?> result : results) result.get();
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertEquals(trackers, wins.get());
+        for(final OpTracker<Integer> tracker : all) assertTrue(tracker.isDone());
+    }
+}
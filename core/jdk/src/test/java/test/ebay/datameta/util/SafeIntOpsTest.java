@@ -63,4 +63,66 @@ public class SafeIntOpsTest {
     @Test(expected = ArithmeticException.class) public void testIntDownAbsFail() {
         safeAbs(MIN_VALUE);
     }
+
+    @Test public void testOverflowPredicates() {
+        assertThat(addOverflows(MAX_VALUE, 1), is(true));
+        assertThat(addOverflows(MIN_VALUE, -1), is(true));
+        assertThat(addOverflows(MAX_VALUE, MIN_VALUE), is(false));
+        assertThat(addOverflows(Long.MAX_VALUE, 1L), is(true));
+        assertThat(addOverflows(Long.MAX_VALUE - 1, 1L), is(false));
+        assertThat(subtractOverflows(MIN_VALUE, 1), is(true));
+        assertThat(subtractOverflows(0, MIN_VALUE), is(true));
+        assertThat(subtractOverflows(-1, MIN_VALUE), is(false));
+        assertThat(subtractOverflows(Long.MIN_VALUE, 1L), is(true));
+        assertThat(multiplyOverflows((MAX_VALUE >> 1) + 1, 2), is(true));
+        assertThat(multiplyOverflows(MIN_VALUE, -1), is(true));
+        assertThat(multiplyOverflows(MIN_VALUE, 1), is(false));
+        assertThat(multiplyOverflows(Long.MIN_VALUE, -1L), is(true));
+        assertThat(multiplyOverflows(1L << 32, 1L << 31), is(true));
+        assertThat(multiplyOverflows(1L << 32, 1L << 30), is(false));
+        assertThat(fitsInt((long) MAX_VALUE + 1L), is(false));
+        // agree with the exact ops on the edges
+        final int[] ints = {0, 1, -1, 2, -2, 46341, -46341, MAX_VALUE, MIN_VALUE, MAX_VALUE - 1, MIN_VALUE + 1};
+        for(final int a : ints) for(final int b : ints) {
+            assertThat(addOverflows(a, b), is(!fitsInt((long) a + b)));
+            assertThat(subtractOverflows(a, b), is(!fitsInt((long) a - b)));
+            assertThat(multiplyOverflows(a, b), is(!fitsInt((long) a * b)));
+        }
+    }
+
+    @Test public void testSaturated() {
+        assertThat(saturatedAdd(MAX_VALUE, 1), is(MAX_VALUE));
+        assertThat(saturatedAdd(MIN_VALUE, -1), is(MIN_VALUE));
+        assertThat(saturatedSubtract(MIN_VALUE, 1), is(MIN_VALUE));
+        assertThat(saturatedMultiply(MIN_VALUE, -1), is(MAX_VALUE));
+        assertThat(saturatedMultiply(MAX_VALUE, -2), is(MIN_VALUE));
+        assertThat(saturatedAdd(2, 3), is(5));
+        assertThat(saturatedAdd(Long.MAX_VALUE, 1L), is(Long.MAX_VALUE));
+        assertThat(saturatedAdd(Long.MIN_VALUE, -1L), is(Long.MIN_VALUE));
+        assertThat(saturatedSubtract(Long.MIN_VALUE, 1L), is(Long.MIN_VALUE));
+        assertThat(saturatedSubtract(Long.MAX_VALUE, -1L), is(Long.MAX_VALUE));
+        assertThat(saturatedMultiply(Long.MIN_VALUE, -1L), is(Long.MAX_VALUE));
+        assertThat(saturatedMultiply(Long.MAX_VALUE, -2L), is(Long.MIN_VALUE));
+        assertThat(saturatedMultiply(-3L, 5L), is(-15L));
+    }
+
+    @Test public void testSums() {
+        final int[] ints = {MAX_VALUE, MAX_VALUE, 5};
+        assertThat(sum(ints, 0, 3), is(2L * MAX_VALUE + 5));
+        assertThat(checkedSum(ints, 0, 3, -1), is(-1));
+        assertThat(checkedSum(ints, 2, 1, -1), is(5));
+        // the total counts, not the order
+        assertThat(checkedSum(new long[] {Long.MAX_VALUE, 1L, -1L}, 0, 3, 0L), is(Long.MAX_VALUE));
+        assertThat(checkedSum(new long[] {Long.MAX_VALUE, 1L}, 0, 2, 0L), is(0L));
+        assertThat(checkedSum(new long[] {Long.MIN_VALUE, -1L, Long.MIN_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, 2L},
+            0, 6, 0L), is(-1L));
+        assertThat(checkedSum(new long[] {Long.MIN_VALUE, -1L, 1L}, 0, 3, 7L), is(Long.MIN_VALUE));
+        assertThat(saturatedSum(new long[] {Long.MIN_VALUE, Long.MIN_VALUE}, 0, 2), is(Long.MIN_VALUE));
+        assertThat(saturatedSum(new long[] {Long.MAX_VALUE, 3L, 4L}, 0, 3), is(Long.MAX_VALUE));
+        assertThat(saturatedSum(new long[] {3L, 4L}, 0, 2), is(7L));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class) public void testSumRange() {
+        sum(new int[3], 2, 2);
+    }
 }
@@ -0,0 +1,76 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.SemanticVersion;
+import org.ebay.datameta.util.jdk.SemanticVersionCache;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Version cache: canonical instances, the counters, the CLOCK keeping the hot ones.
+ * @author Michael Bergens
+ */
+public class SemanticVersionCacheTest {
+
+    @Test public void testHitsAndEviction() {
+        final SemanticVersionCache cache = new SemanticVersionCache(4);
+        final SemanticVersion hot = cache.parse("1.2.3");
+        assertSame(hot, cache.parse("1.2.3"));
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        for(int i = 0; i < 100; i++) {
+            cache.parse("2.0." + i);
+            // the hot one is hit between the cold ones, so it survives every sweep
+            assertSame(hot, cache.parse("1.2.3"));
+        }
+        assertEquals(4, cache.size());
+        assertEquals(97L, cache.getEvictions());
+        assertEquals(101L, cache.getMisses());
+        assertEquals(101L, cache.getHits());
+        assertTrue(cache.getHitRate() > 0.49);
+        assertNotSame(cache.parse("2.0.0"), SemanticVersion.parse("2.0.0"));
+
+        try {
+            cache.parse("1.2");
+            fail("Cached the invalid version");
+        }
+        catch(IllegalArgumentException expected) {
+            assertEquals(4, cache.size());
+        }
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0L, cache.getHits());
+    }
+
+    @Test public void testConcurrent() throws Exception {
+        final SemanticVersionCache cache = new SemanticVersionCache(50);
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<?>> results = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    for(int i = 0; i < 100_000; i++) {
+                        final String source = "3." + i % 80 + ".1";
+                        assertEquals(source, cache.parse(source).getSemanticPartsOnly());
+                    }
+                }));
+            }
+            for(final Future<?> result : results) result.get();
+        }
+        finally {
+            pool.shutdown();
+        }
+        assertTrue(cache.size() <= 50);
+        assertEquals(400_000L, cache.getHits() + cache.getMisses());
+    }
+}
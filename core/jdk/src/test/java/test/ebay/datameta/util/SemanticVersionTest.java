@@ -8,6 +8,8 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Random;
+
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.BUILD;
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.MAJOR;
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.MINOR;
@@ -15,8 +17,11 @@ import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.NONE;
 import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.UPDATE;
 import static org.ebay.datameta.util.jdk.SemanticVersion.parse;
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Michael Bergens
@@ -161,4 +166,71 @@ public class SemanticVersionTest {
     assertThat(parse("1.2.3").getDiffLevel(parse("1.2.3.4.blah")), is(BUILD));
     assertThat(parse("1.2.3.4").getDiffLevel(parse("1.2.3.5.blah")), is(BUILD));
   }
+
+  @Test(expected = IllegalArgumentException.class) public void testFiveParts() {
+    parse("1.2.3.4.5.blah");
+  }
+
+  @Test(expected = IllegalArgumentException.class) public void testZeroBuild() {
+    parse("1.2.3.0");
+  }
+
+  @Test(expected = NumberFormatException.class) public void testOverflow() {
+    parse("1.2.99999999999999999999");
+  }
+
+  @Test public void testQuirks() {
+    assertVersion(parse("1.2.3."), 1, 2, 3, null);
+    assertVersion(parse("1.2.3..4"), 1, 2, 3, null);
+    assertVersion(parse("1.2.3.4.x.5"), 1, 2, 3, 4L);
+    assertVersion(parse("01.2.3.99999999999999999999x"), 1, 2, 3, null);
+    assertVersion(parse("1.2.3.9223372036854775807"), 1, 2, 3, Long.MAX_VALUE);
+    assertThat(parse("1.2.3.4-SNAPSHOT.5").getSemanticPartsOnly(), is("1.2.3"));
+    assertThat(parse("1.02.3.40.x").getSemanticPartsOnly(), is("1.2.3.40"));
+    assertThat(parse("1.2.3").toLongString(), is("SemanticVersion{1.2.3(1.2.3)}"));
+    assertThat(parse("1.2.3.x"), is(parse("1.2.3")));
+    assertThat(parse("1.2.3.x").hashCode(), is(parse("1.2.3").hashCode()));
+    assertFalse(parse("1.2.3").hasBuild());
+    assertThat(parse("1.2.3.7").getBuildOrZero(), is(7L));
+  }
+
+  /**
+   * The static comparison of the strings must agree with the parsed, including on which strings are invalid.
+   */
+  @Test public void testCompareStrings() {
+    final Random random = new Random(23);
+    final String[] parts = {"0", "1", "2", "10", "x", "", "00", "3-rc"};
+    for(int i = 0; i < 50_000; i++) {
+      final String left = randomVersion(random, parts), right = randomVersion(random, parts);
+      SemanticVersion leftVersion = null, rightVersion = null;
+      try { leftVersion = parse(left); } catch(IllegalArgumentException ignored) {}
+      try { rightVersion = parse(right); } catch(IllegalArgumentException ignored) {}
+      try {
+        final int result = SemanticVersion.compare(left, right);
+        assertTrue(left + " vs " + right, leftVersion != null && rightVersion != null);
+        assertEquals(left + " vs " + right, Integer.signum(leftVersion.compareTo(rightVersion)), Integer.signum(result));
+      }
+      catch(IllegalArgumentException e) {
+        assertTrue(left + " vs " + right, leftVersion == null || rightVersion == null);
+      }
+    }
+    assertTrue(SemanticVersion.compare("5.6.7.3", new StringBuilder("5.6.7.12")) < 0);
+    try {
+      SemanticVersion.compare("1.2.3", "1.2.99999999999999999999");
+      fail("Compared the overflowing part");
+    }
+    catch(NumberFormatException expected) {
+      L.debug("Expected: {}", expected.toString());
+    }
+  }
+
+  @Ignore private static String randomVersion(final Random random, final String[] parts) {
+    final StringBuilder result = new StringBuilder();
+    final int count = 2 + random.nextInt(5);
+    for(int i = 0; i < count; i++) {
+      if(i > 0) result.append('.');
+      result.append(random.nextInt(4) == 0 ? parts[random.nextInt(parts.length)] : String.valueOf(1 + random.nextInt(3)));
+    }
+    return result.toString();
+  }
 }
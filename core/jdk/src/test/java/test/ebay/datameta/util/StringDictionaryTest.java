@@ -0,0 +1,96 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.IntAndString;
+import org.ebay.datameta.util.jdk.IntAndStringColumn;
+import org.ebay.datameta.util.jdk.StringDictionary;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Dictionary encoding: concurrent building, frozen lookups, the encoded column sorting like the IntAndString.
+ * @author Michael Bergens
+ */
+public class StringDictionaryTest {
+
+    @Test public void testConcurrentBuild() throws Exception {
+        final StringDictionary.Builder builder = StringDictionary.builder();
+        final ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<int[]>> results = new ArrayList<>();
+            for(int t = 0; t < 4; t++) {
+                results.add(pool.submit(() -> {
+                    final int[] codes = new int[1000];
+                    for(int i = 0; i < codes.length; i++) codes[i] = builder.encode("s" + i);
+                    return codes;
+                }));
+            }
+            final int[] first = results.get(0).get();
+            for(final Future<int[]> result : results) {
+                final int[] codes = result.get();
+                for(int i = 0; i < codes.length; i++) assertEquals(first[i], codes[i]);
+            }
+            assertEquals(1000, builder.size());
+            final StringDictionary dictionary = builder.freeze();
+            for(int i = 0; i < first.length; i++) {
+                assertEquals("s" + i, dictionary.decode(first[i]));
+                assertEquals(first[i], dictionary.codeOf("s" + i));
+            }
+            assertEquals(StringDictionary.NOT_FOUND, dictionary.codeOf("missing"));
+            assertEquals(StringDictionary.NULL_CODE, dictionary.codeOf(null));
+            assertNull(dictionary.decode(StringDictionary.NULL_CODE));
+
+            final StringDictionary sorted = builder.freezeSorted();
+            assertTrue(sorted.isSorted());
+            final int[] remap = dictionary.remapTo(sorted);
+            for(int code = 0; code < remap.length; code++) assertEquals(dictionary.decode(code), sorted.decode(remap[code]));
+            for(int code = 1; code < sorted.size(); code++) assertTrue(sorted.decode(code - 1).compareTo(sorted.decode(code)) < 0);
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test public void testColumnOrder() {
+        final Random random = new Random(13);
+        final List<IntAndString> rows = new ArrayList<>();
+        for(int i = 0; i < 20_000; i++) {
+            rows.add(new IntAndString(random.nextInt(5) - 2, random.nextInt(30) == 0 ? null : "t" + random.nextInt(300)));
+        }
+        final StringDictionary.Builder builder = StringDictionary.builder();
+        for(final IntAndString row : rows) builder.encode(row.text);
+        // insertion order codes: the ranks must still give the text order
+        final IntAndStringColumn unsorted = new IntAndStringColumn(builder.freeze());
+        for(final IntAndString row : rows) unsorted.add(row);
+        final IntAndStringColumn sorted = IntAndStringColumn.of(rows);
+        assertTrue(sorted.getDictionary().isSorted());
+        for(int i = 1; i < rows.size(); i++) {
+            assertEquals(Integer.signum(rows.get(i - 1).compareTo(rows.get(i))), Integer.signum(unsorted.compare(i - 1, i)));
+            assertEquals(Integer.signum(rows.get(i - 1).compareTo(rows.get(i))), Integer.signum(sorted.compare(i - 1, i)));
+        }
+
+        final IntAndStringColumn recoded = unsorted.recode(sorted.getDictionary());
+        Collections.sort(rows);
+        unsorted.sort();
+        recoded.sort();
+        final IntAndString reused = new IntAndString();
+        for(int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), unsorted.get(i, reused));
+            assertEquals(rows.get(i), recoded.get(i, reused));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class) public void testUnknownText() {
+        new IntAndStringColumn(StringDictionary.builder().freeze()).add(1, "x");
+    }
+}
@@ -0,0 +1,81 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.OpResult;
+import org.ebay.datameta.util.jdk.OpState;
+import org.ebay.datameta.util.jdk.StripedAccumulator;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Concurrent exact sums and the overflow reported, not thrown.
+ * @author Michael Bergens
+ */
+public class StripedAccumulatorTest {
+    private static final Logger L = LoggerFactory.getLogger(StripedAccumulatorTest.class);
+
+    private static void runConcurrently(final int threads, final Runnable task) throws InterruptedException {
+        final CountDownLatch start = new CountDownLatch(1), done = new CountDownLatch(threads);
+        for(int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    task.run();
+                }
+                catch(InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+    }
+
+    @Test public void testConcurrentSum() throws Exception {
+        final StripedAccumulator acc = new StripedAccumulator();
+        final int threads = 32, adds = 100_000;
+        runConcurrently(threads, () -> { for(int i = 0; i < adds; i++) acc.add(i % 7 - 2); });
+        long expected = 0;
+        for(int i = 0; i < adds; i++) expected += i % 7 - 2;
+        expected *= threads;
+        L.info("{}", acc);
+        assertEquals(OpState.OK, acc.sumAsLong().getState());
+        assertEquals(expected, acc.sumAsLong().getValue().longValue());
+        assertEquals(expected, acc.sumAsInt().getValue().intValue());
+        acc.reset();
+        assertEquals(0L, acc.sumAsLong().getValue().longValue());
+    }
+
+    @Test public void testOverflow() throws Exception {
+        final StripedAccumulator acc = new StripedAccumulator(8);
+        acc.add(Integer.MAX_VALUE);
+        acc.increment();
+        assertEquals(OpState.FAIL, acc.sumAsInt().getState());
+        assertEquals((long) Integer.MAX_VALUE + 1, acc.sumAsLong().getValue().longValue());
+
+        // overflowing the long and coming back: the total counts
+        final int threads = 8;
+        runConcurrently(threads, () -> { for(int i = 0; i < 4; i++) acc.add(Long.MAX_VALUE / 2); });
+        final OpResult<Long> overflown = acc.sumAsLong();
+        L.info("Overflown: {}", overflown.getErrorMessage());
+        assertEquals(OpState.FAIL, overflown.getState());
+        assertNull(overflown.getValue());
+        runConcurrently(threads, () -> { for(int i = 0; i < 4; i++) acc.add(-(Long.MAX_VALUE / 2)); });
+        assertEquals((long) Integer.MAX_VALUE + 1, acc.sumAsLong().getValue().longValue());
+
+        acc.reset();
+        acc.add(Long.MIN_VALUE);
+        acc.add(-1L);
+        assertEquals(OpState.FAIL, acc.sumAsLong().getState());
+        acc.add(1L);
+        assertEquals(Long.MIN_VALUE, acc.sumAsLong().getValue().longValue());
+    }
+}
@@ -0,0 +1,78 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.TwoInts;
+import org.ebay.datameta.util.jdk.TwoIntsArray;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Columnar TwoInts: both sorts agree with the TwoInts order, search and the cursor.
+ * @author Michael Bergens
+ */
+public class TwoIntsArrayTest {
+
+    private static TwoInts[] randomPairs(final Random random, final int count, final int range) {
+        final TwoInts[] result = new TwoInts[count];
+        for(int i = 0; i < count; i++) {
+            result[i] = range == 0 ? new TwoInts(random.nextInt(), random.nextInt())
+                : new TwoInts(random.nextInt(range) - range / 2, random.nextInt(range) - range / 2);
+        }
+        return result;
+    }
+
+    private static void verifySorted(final TwoInts[] pairs, final boolean parallel) {
+        final TwoIntsArray array = new TwoIntsArray(0);
+        for(final TwoInts pair : pairs) array.add(pair);
+        if(parallel) array.parallelSort(); else array.sort();
+        final TwoInts[] expected = pairs.clone();
+        Arrays.sort(expected);
+        assertEquals(expected.length, array.size());
+        final TwoInts reused = new TwoInts();
+        for(int i = 0; i < expected.length; i++) assertEquals(expected[i], array.get(i, reused));
+    }
+
+    @Test public void testSort() {
+        final Random random = new Random(3);
+        for(final int count : new int[] {0, 1, 100, 10_000, 200_000}) {
+            for(final int range : new int[] {0, 10, 1_000_000}) {
+                final TwoInts[] pairs = randomPairs(random, count, range);
+                verifySorted(pairs, false);
+                verifySorted(pairs, true);
+            }
+        }
+        verifySorted(new TwoInts[] {new TwoInts(Integer.MIN_VALUE, Integer.MAX_VALUE), new TwoInts(0, 0),
+            new TwoInts(Integer.MAX_VALUE, Integer.MIN_VALUE), new TwoInts(0, -1), new TwoInts(-1, 0)}, false);
+    }
+
+    @Test public void testSearchAndCursor() {
+        final TwoIntsArray array = new TwoIntsArray();
+        for(int i = 99; i >= 0; i--) array.add(i / 10 - 5, i % 10 * 2);
+        array.sort();
+        assertEquals("[{-5,0}, {-5,2}, {-5,4}, {-5,6}, {-5,8}, {-5,10}, {-5,12}, {-5,14}, {-5,16}, {-5,18}, ...] of 100",
+            array.toString());
+        assertEquals(12, array.binarySearch(-4, 4));
+        assertEquals(-14, array.binarySearch(-4, 5));
+        assertEquals(-1, array.binarySearch(-6, 0));
+        assertEquals(-101, array.binarySearch(5, 0));
+
+        final TwoIntsArray.Cursor cursor = array.cursor();
+        int count = 0, previousFirst = Integer.MIN_VALUE;
+        while(cursor.next()) {
+            assertTrue(cursor.first() >= previousFirst);
+            assertEquals(array.getLast(cursor.index()), cursor.last());
+            previousFirst = cursor.first();
+            count++;
+        }
+        assertEquals(100, count);
+        assertTrue(cursor.reset().next());
+        assertEquals(-5, cursor.first());
+        array.clear();
+        assertFalse(array.cursor().next());
+    }
+}
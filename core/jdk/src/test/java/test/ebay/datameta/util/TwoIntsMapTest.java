@@ -0,0 +1,118 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.TwoInts;
+import org.ebay.datameta.util.jdk.TwoIntsMap;
+import org.ebay.datameta.util.jdk.TwoIntsToLongMap;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The TwoInts keyed maps against the HashMap on random operations, including the edge keys.
+ * @author Michael Bergens
+ */
+public class TwoIntsMapTest {
+    private static final Logger L = LoggerFactory.getLogger(TwoIntsMapTest.class);
+
+    @Test public void testPack() {
+        final int[] values = {Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE};
+        for(final int a : values) for(final int b : values) {
+            final long packed = TwoInts.pack(a, b);
+            assertEquals(a, TwoInts.unpackFirst(packed));
+            assertEquals(b, TwoInts.unpackLast(packed));
+            for(final int c : values) for(final int d : values) {
+                assertEquals(Integer.signum(new TwoInts(a, b).compareTo(new TwoInts(c, d))),
+                    Long.signum(Long.compare(packed, TwoInts.pack(c, d))));
+            }
+        }
+    }
+
+    /**
+     * Small key range so there are plenty of hits, removals and the backward shifts.
+     */
+    private static TwoInts randomKey(final Random random) {
+        final int first = random.nextInt(50) - 25, last = random.nextInt(50) - 25;
+        return new TwoInts(first, last == -25 ? Integer.MIN_VALUE : last); // includes the zero packed key
+    }
+
+    @Test public void testObjectMap() {
+        final Random random = new Random(11);
+        final TwoIntsMap<String> map = new TwoIntsMap<>();
+        final Map<TwoInts, String> reference = new HashMap<>();
+        for(int op = 0; op < 200_000; op++) {
+            final TwoInts key = randomKey(random);
+            switch(random.nextInt(3)) {
+                case 0:
+                    final String value = "v" + op;
+                    assertEquals(reference.put(key, value), map.put(key.first, key.last, value));
+                    break;
+                case 1:
+                    assertEquals(reference.remove(key), map.remove(key.first, key.last));
+                    break;
+                default:
+                    assertEquals(reference.get(key), map.get(key));
+                    assertEquals(reference.containsKey(key), map.containsKey(key.first, key.last));
+            }
+            assertEquals(reference.size(), map.size());
+        }
+        final int[] visited = {0};
+        map.forEach((first, last, value) -> {
+            assertEquals(reference.get(new TwoInts(first, last)), value);
+            visited[0]++;
+        });
+        assertEquals(reference.size(), visited[0]);
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(0, Integer.MIN_VALUE));
+    }
+
+    @Test public void testLongMap() {
+        final Random random = new Random(12);
+        final TwoIntsToLongMap map = new TwoIntsToLongMap(0, 0.9f, -1L);
+        final Map<TwoInts, Long> reference = new HashMap<>();
+        for(int op = 0; op < 200_000; op++) {
+            final TwoInts key = randomKey(random);
+            switch(random.nextInt(4)) {
+                case 0:
+                    final Long previous = reference.put(key, (long) op);
+                    assertEquals(previous == null ? -1L : previous, map.put(key.first, key.last, op));
+                    break;
+                case 1:
+                    final Long removed = reference.remove(key);
+                    assertEquals(removed == null ? -1L : removed, map.remove(key.first, key.last));
+                    break;
+                case 2:
+                    final long added = reference.merge(key, -1L + 5L, (a, b) -> a + 5L);
+                    assertEquals(added, map.addTo(key.first, key.last, 5L));
+                    break;
+                default:
+                    final Long value = reference.get(key);
+                    assertEquals(value == null ? -1L : value, map.get(key));
+                    assertEquals(value != null, map.containsKey(key.first, key.last));
+            }
+            assertEquals(reference.size(), map.size());
+        }
+    }
+
+    @Test public void testGrowth() {
+        final TwoIntsToLongMap map = new TwoIntsToLongMap();
+        final int size = 1_000_000;
+        for(int i = 0; i < size; i++) map.addTo(i, i + 1, i);
+        L.info("{}", map);
+        assertEquals(size, map.size());
+        for(int i = 0; i < size; i++) assertEquals(i, map.get(i, i + 1));
+        assertFalse(map.containsKey(1, 1));
+        for(int i = 0; i < size; i += 2) map.remove(i, i + 1);
+        assertEquals(size / 2, map.size());
+        for(int i = 0; i < size; i++) assertEquals(i % 2 == 0 ? 0L : i, map.get(i, i + 1));
+    }
+}
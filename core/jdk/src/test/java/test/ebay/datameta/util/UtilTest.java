@@ -3,6 +3,10 @@ package test.ebay.datameta.util.jdk;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 import org.junit.After;
 import org.junit.Before;
@@ -136,4 +140,63 @@ public class UtilTest {
         runFnv("bb");
         runFnv("");
     }
+
+    @Test public void testFnvOverloads() {
+        final byte[] a = "a".getBytes(StandardCharsets.US_ASCII);
+        // reference values for the canonical FNV-1 and FNV-1a over the single octet "a"
+        assertEquals(0x050C5D7EL, MathUtil.fnvHashMul32(a, 0, a.length));
+        assertEquals(0xE40C292CL, MathUtil.fnvHashXor32(a, 0, a.length));
+        assertEquals(0xAF63BD4C8601B7BEL, MathUtil.fnvHashMul64(a, 0, a.length));
+        assertEquals(0xAF63DC4C8601EC8CL, MathUtil.fnvHashXor64(a, 0, a.length));
+
+        final String key = "some-key-42";
+        final StringBuilder sb = new StringBuilder("[").append(key).append(']');
+        assertEquals(MathUtil.fnvHashXor64(key), MathUtil.fnvHashXor64(sb.subSequence(1, key.length() + 1)));
+        assertEquals(MathUtil.fnvHashMul32(key), MathUtil.fnvHashMul32(new StringBuilder(key)));
+        assertTrue("Full 64 bits expected", (MathUtil.fnvHashXor64(key) >>> 32) != 0);
+
+        final byte[] framed = ("xx" + key + "yy").getBytes(StandardCharsets.US_ASCII);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(framed.length);
+        direct.put(framed).flip();
+        final ByteBuffer heap = ByteBuffer.wrap(framed);
+        final long expected = MathUtil.fnvHashXor64(framed, 2, key.length());
+        assertEquals(expected, MathUtil.fnvHashXor64(direct, 2, key.length()));
+        assertEquals(expected, MathUtil.fnvHashXor64(heap, 2, key.length()));
+        direct.position(2).limit(2 + key.length());
+        assertEquals(expected, MathUtil.fnvHashXor64(direct));
+        assertEquals(2, direct.position());
+        assertEquals(MathUtil.fnvHashMul32(framed, 2, key.length()), MathUtil.fnvHashMul32(direct));
+        assertEquals(MathUtil.fnvHashXor32(framed, 2, key.length()), MathUtil.fnvHashXor32(direct));
+        assertEquals(MathUtil.fnvHashMul64(framed, 2, key.length()), MathUtil.fnvHashMul64(direct));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class) public void testFnvRange() {
+        MathUtil.fnvHashXor64(new byte[4], 2, 3);
+    }
+
+    /**
+     * The heap buffer is checked against its limit like the direct one, not against the backing array.
+     */
+    @Test public void testFnvBufferLimit() {
+        final byte[] bytes = "0123456789".getBytes(StandardCharsets.US_ASCII);
+        final ByteBuffer slice = ((ByteBuffer) ByteBuffer.wrap(bytes).position(2)).slice();
+        slice.limit(4);
+        assertEquals(MathUtil.fnvHashMul64(bytes, 3, 3), MathUtil.fnvHashMul64(slice, 1, 3));
+        for(final ByteBuffer buffer : new ByteBuffer[] {slice, (ByteBuffer) ByteBuffer.wrap(bytes).limit(4)}) {
+            for(int which = 0; which < 4; which++) {
+                try {
+                    switch(which) {
+                        case 0: MathUtil.fnvHashMul32(buffer, 2, 3); break;
+                        case 1: MathUtil.fnvHashXor32(buffer, 2, 3); break;
+                        case 2: MathUtil.fnvHashMul64(buffer, 2, 3); break;
+                        default: MathUtil.fnvHashXor64(buffer, 2, 3);
+                    }
+                    fail("Read past the limit, overload " + which);
+                }
+                catch(IndexOutOfBoundsException expected) {
+                    assertEquals(4, buffer.limit());
+                }
+            }
+        }
+    }
 }
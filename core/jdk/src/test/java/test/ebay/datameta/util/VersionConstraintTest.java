@@ -0,0 +1,116 @@
+package test.ebay.datameta.util.jdk;
+
+import org.ebay.datameta.util.jdk.SemanticVersion;
+import org.ebay.datameta.util.jdk.SemanticVersionIndex;
+import org.ebay.datameta.util.jdk.VersionConstraint;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.BUILD;
+import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.MAJOR;
+import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.MINOR;
+import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.NONE;
+import static org.ebay.datameta.util.jdk.SemanticVersion.DiffLevel.UPDATE;
+import static org.ebay.datameta.util.jdk.SemanticVersion.parse;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Version constraints: the operators, the packed and the slow paths, the index against the scan.
+ * @author Michael Bergens
+ */
+public class VersionConstraintTest {
+
+    private static void assertMatches(final String constraint, final String... versions) {
+        final VersionConstraint compiled = VersionConstraint.parse(constraint);
+        for(final String version : versions) assertTrue(constraint + " on " + version, compiled.matches(parse(version)));
+    }
+
+    private static void assertNotMatches(final String constraint, final String... versions) {
+        final VersionConstraint compiled = VersionConstraint.parse(constraint);
+        for(final String version : versions) assertFalse(constraint + " on " + version, compiled.matches(parse(version)));
+    }
+
+    @Test public void testOperators() {
+        assertMatches(">=1.2.0 <2.0.0", "1.2.0", "1.2.0.5", "1.99.99", "1.2.0.GA");
+        assertNotMatches(">=1.2.0 <2.0.0", "1.1.9.9", "2.0.0", "2.0.0.1");
+        assertMatches("1.2", "1.2.0", "1.2.7.3");
+        assertNotMatches("=1.2", "1.3.0", "1.1.9");
+        assertMatches("1.2.3", "1.2.3", "1.2.3.4");
+        assertNotMatches("1.2.3.4", "1.2.3", "1.2.3.5");
+        assertMatches(">1.2", "1.3.0");
+        assertNotMatches(">1.2", "1.2.9.9");
+        assertMatches("<=1.2", "1.2.99");
+        assertNotMatches("<=1.2", "1.3.0");
+        assertMatches("~1.4.2", "1.4.2", "1.4.9.1");
+        assertNotMatches("~1.4.2", "1.4.1", "1.5.0");
+        assertMatches("~1", "1.0.0", "1.9.0");
+        assertMatches("^1.2.3", "1.2.3", "1.9.0");
+        assertNotMatches("^1.2.3", "2.0.0", "1.2.2");
+        assertMatches("^0.2.3", "0.2.3", "0.2.9");
+        assertNotMatches("^0.2.3", "0.3.0");
+        assertMatches("^0.0.3", "0.0.3.7");
+        assertNotMatches("^0.0.3", "0.0.4");
+        assertMatches("1.x || >= 3", "1.5.0", "3.0.0", "30.1.2");
+        assertNotMatches("1.x || >= 3", "2.5.0");
+        assertMatches("*", "0.0.0", "32767.65535.65535.65535", "99999.0.0");
+        assertTrue(VersionConstraint.parse(">2 <1").isEmpty());
+        assertNotMatches("<1 || >2", "1.0.0", "2.9.9");
+    }
+
+    /**
+     * The versions that do not pack take the slow path, which must agree with where the packed bounds would cut.
+     */
+    @Test public void testNotPackable() {
+        assertEquals(SemanticVersion.NOT_PACKABLE, parse("1.70000.0").getPackedKey());
+        assertMatches(">=1.65535 <2", "1.70000.0", "1.65535.0");
+        assertNotMatches(">=1.70001", "1.70000.0", "1.65535.65535.65535");
+        assertMatches(">=1.70001", "1.70001.0", "2.0.0");
+        assertMatches(">=40000", "40000.0.0");
+        assertNotMatches(">=40000", "32767.65535.65535.65535");
+        assertMatches("<40000", "32767.65535.65535.65535", "39999.1.1");
+        assertTrue(parse("32767.65535.65535.65535").getPackedKey() > parse("32767.65535.65535").getPackedKey());
+    }
+
+    @Test public void testIndex() {
+        final Random random = new Random(29);
+        final List<SemanticVersion> catalog = new ArrayList<>();
+        for(int i = 0; i < 3000; i++) {
+            catalog.add(parse(random.nextInt(5) + "." + random.nextInt(10) + "." + random.nextInt(10)
+                + (random.nextBoolean() ? "." + (1 + random.nextInt(5)) : "")));
+        }
+        final List<SemanticVersion> withBig = new ArrayList<>(catalog);
+        withBig.add(parse("2.100000.1"));
+        final String[] constraints = {">=1.2.0 <2.0.0", "~1.4", "^0.3", "^2.1.3 || <0.5", ">3.9", "1.2.3", "<0.0.0.2",
+            ">=2.99999", "*", ">9"};
+        for(final List<SemanticVersion> versions : Arrays.asList(catalog, withBig)) {
+            final SemanticVersionIndex index = SemanticVersionIndex.of(versions);
+            for(final String constraint : constraints) {
+                final VersionConstraint compiled = VersionConstraint.parse(constraint);
+                SemanticVersion expected = null;
+                for(final SemanticVersion version : versions) {
+                    if(compiled.matches(version) && (expected == null || version.compareTo(expected) > 0)) expected = version;
+                }
+                assertEquals(constraint, expected, index.highest(compiled));
+            }
+        }
+        final SemanticVersionIndex index = SemanticVersionIndex.of(catalog);
+        assertNull(index.highest(VersionConstraint.parse(">9")));
+        final SemanticVersion base = parse("2.3.4");
+        assertEquals(index.getLatest(), index.highestCompatible(base, MAJOR));
+        assertEquals(2L, index.highestCompatible(base, MINOR).getMajor());
+        assertEquals(MINOR, base.getDiffLevel(index.highestCompatible(base, MINOR)));
+        final SemanticVersion sameMinor = index.highestCompatible(base, UPDATE);
+        assertTrue(sameMinor.compareTo(base) >= 0 && sameMinor.getMinor() == 3);
+        final SemanticVersion sameUpdate = index.highestCompatible(base, BUILD);
+        assertTrue(sameUpdate == null || sameUpdate.getSemanticPartsOnly().startsWith("2.3.4"));
+        final SemanticVersion same = index.highestCompatible(base, NONE);
+        assertTrue(same == null || same.equals(base));
+    }
+}